@@ -0,0 +1,374 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.jetuml.application.FileExtensions;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.persistence.DeserializationException;
+import org.jetuml.persistence.PersistenceService;
+import org.jetuml.rendering.CanvasSurface;
+import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.SvgSurface;
+
+import javafx.application.Platform;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Exports diagram files to PNG images or SVG documents without opening the editor.
+ *
+ * Usage: BatchExporter [-threads N] [-format png|svg] [-output DIRECTORY] FILE_OR_DIRECTORY...
+ *
+ * Each argument is either a diagram file or a directory, in which case all the
+ * diagram files it contains are exported. The image of a diagram is written in the
+ * output directory if one is specified, and next to the diagram file otherwise.
+ *
+ * The files are loaded, laid out, drawn, and written by a pool of worker threads.
+ * Only the snapshot of the canvas on which a diagram is drawn for a PNG image is 
+ * taken on the JavaFX application thread, as required by JavaFX. SVG documents are
+ * written as the diagrams are drawn. The time spent on each file and the total 
+ * throughput are reported on the standard output.
+ */
+public final class BatchExporter
+{
+	private static final String EXTENSION_JET = ".jet";
+	private static final String FORMAT_PNG = "png";
+	private static final String FORMAT_SVG = "svg";
+	private static final String OPTION_THREADS = "-threads";
+	private static final String OPTION_FORMAT = "-format";
+	private static final String OPTION_OUTPUT = "-output";
+	private static final double LINE_WIDTH = 0.6;
+	private static final int DIAGRAM_PADDING = 4;
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private BatchExporter() {}
+
+	/**
+	 * The time spent exporting one diagram file, in nanoseconds.
+	 */
+	static final class Timing
+	{
+		private final long aLoad;
+		private final long aRender;
+		private final long aWrite;
+
+		private Timing(long pLoad, long pRender, long pWrite)
+		{
+			aLoad = pLoad;
+			aRender = pRender;
+			aWrite = pWrite;
+		}
+
+		long total()
+		{
+			return aLoad + aRender + aWrite;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("load %8.1f ms  render %8.1f ms  write %8.1f ms  total %8.1f ms",
+					aLoad / NANOS_PER_MILLI, aRender / NANOS_PER_MILLI, aWrite / NANOS_PER_MILLI,
+					total() / NANOS_PER_MILLI);
+		}
+	}
+
+	/**
+	 * @param pArgs The options and the files or directories to export.
+	 */
+	public static void main(String[] pArgs)
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		String format = FORMAT_PNG;
+		File outputDirectory = null;
+		List<String> paths = new ArrayList<>();
+		try
+		{
+			for( int i = 0; i < pArgs.length; i++ )
+			{
+				if( OPTION_THREADS.equals(pArgs[i]) && i + 1 < pArgs.length )
+				{
+					threads = Integer.parseInt(pArgs[++i]);
+				}
+				else if( OPTION_FORMAT.equals(pArgs[i]) && i + 1 < pArgs.length )
+				{
+					format = pArgs[++i];
+				}
+				else if( OPTION_OUTPUT.equals(pArgs[i]) && i + 1 < pArgs.length )
+				{
+					outputDirectory = new File(pArgs[++i]);
+				}
+				else
+				{
+					paths.add(pArgs[i]);
+				}
+			}
+		}
+		catch( NumberFormatException exception )
+		{
+			paths.clear();
+		}
+		if( paths.isEmpty() || threads < 1 || !(FORMAT_PNG.equals(format) || FORMAT_SVG.equals(format)) )
+		{
+			System.err.println("Usage: BatchExporter [-threads N] [-format png|svg] [-output DIRECTORY] FILE_OR_DIRECTORY...");
+			System.exit(1);
+		}
+		if( outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs() )
+		{
+			System.err.println("Cannot create the output directory " + outputDirectory);
+			System.exit(1);
+		}
+
+		startToolkit();
+		boolean success = exportAll(diagramFiles(paths), format, outputDirectory, threads);
+		Platform.exit();
+		System.exit(success ? 0 : 1);
+	}
+
+	/*
+	 * Exports pFiles in pFormat using pThreads worker threads and prints the results.
+	 * Returns true if all files were exported.
+	 */
+	private static boolean exportAll(List<File> pFiles, String pFormat, File pOutputDirectory, int pThreads)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(pThreads);
+		long start = System.nanoTime();
+		List<Future<Timing>> results = new ArrayList<>();
+		for( File file : pFiles )
+		{
+			results.add(executor.submit(() -> export(file, outputFileFor(file, pFormat, pOutputDirectory))));
+		}
+		int exported = 0;
+		for( int i = 0; i < pFiles.size(); i++ )
+		{
+			try
+			{
+				System.out.println(String.format("%-60s %s", pFiles.get(i), results.get(i).get()));
+				exported++;
+			}
+			catch( ExecutionException exception )
+			{
+				System.out.println(String.format("%-60s FAILED: %s", pFiles.get(i), exception.getCause()));
+			}
+			catch( InterruptedException exception )
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		executor.shutdownNow();
+		double seconds = (System.nanoTime() - start) / NANOS_PER_MILLI / 1000;
+		System.out.println(String.format("Exported %d of %d files in %.2f s (%.1f files/s) with %d threads",
+				exported, pFiles.size(), seconds, exported / seconds, pThreads));
+		return exported == pFiles.size();
+	}
+
+	/*
+	 * Starts the JavaFX toolkit, unless it is already running.
+	 */
+	private static void startToolkit()
+	{
+		try
+		{
+			Platform.startup(() -> {});
+		}
+		catch( IllegalStateException exception )
+		{
+			// The toolkit is already running
+		}
+		Platform.setImplicitExit(false);
+	}
+
+	/**
+	 * @param pPaths Paths to diagram files or to directories.
+	 * @return The files in pPaths, with each directory replaced by the diagram
+	 *     files it contains, in alphabetical order.
+	 * @pre pPaths != null
+	 */
+	static List<File> diagramFiles(List<String> pPaths)
+	{
+		assert pPaths != null;
+		List<File> files = new ArrayList<>();
+		for( String path : pPaths )
+		{
+			File file = new File(path);
+			File[] children = file.listFiles((directory, name) -> name.endsWith(EXTENSION_JET));
+			if( children == null )
+			{
+				files.add(file);
+			}
+			else
+			{
+				Arrays.sort(children);
+				files.addAll(Arrays.asList(children));
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @param pFile A diagram file.
+	 * @param pFormat The extension of the image format.
+	 * @param pOutputDirectory The directory in which to write the image, or null
+	 *     to write it in the directory of pFile.
+	 * @return The image file for pFile.
+	 * @pre pFile != null && pFormat != null
+	 */
+	static File outputFileFor(File pFile, String pFormat, File pOutputDirectory)
+	{
+		assert pFile != null && pFormat != null;
+		String name = FileExtensions.clipApplicationExtension(pFile).getName() + "." + pFormat;
+		if( pOutputDirectory == null )
+		{
+			return new File(pFile.getParentFile(), name);
+		}
+		return new File(pOutputDirectory, name);
+	}
+
+	/**
+	 * Exports a diagram file to an SVG document if the name of the image file has
+	 * the svg extension, and to a PNG image otherwise. This method can be called 
+	 * from any thread except the JavaFX application thread, which must be running.
+	 *
+	 * @param pFile The diagram file.
+	 * @param pImageFile The file in which to write the image.
+	 * @return The time spent exporting pFile.
+	 * @throws IOException If the diagram cannot be read or the image cannot be written.
+	 * @throws DeserializationException If the diagram file cannot be decoded.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the snapshot.
+	 * @pre pFile != null && pImageFile != null
+	 * @pre !Platform.isFxApplicationThread()
+	 */
+	static Timing export(File pFile, File pImageFile) throws IOException, InterruptedException
+	{
+		assert pFile != null && pImageFile != null;
+		assert !Platform.isFxApplicationThread();
+		long start = System.nanoTime();
+		Diagram diagram = PersistenceService.read(pFile).diagram();
+		long loaded = System.nanoTime();
+		if( pImageFile.getName().endsWith("." + FORMAT_SVG) )
+		{
+			writeSvg(diagram, pImageFile);
+			return new Timing(loaded - start, System.nanoTime() - loaded, 0);
+		}
+		BufferedImage image = render(diagram);
+		long rendered = System.nanoTime();
+		if( !ImageIO.write(image, FORMAT_PNG, pImageFile) )
+		{
+			throw new IOException("No writer for the format " + FORMAT_PNG);
+		}
+		long written = System.nanoTime();
+		return new Timing(loaded - start, rendered - loaded, written - rendered);
+	}
+
+	/*
+	 * Lays out pDiagram and draws it on an SVG surface that writes to pFile. 
+	 * The drawing and the writing of the document are not timed separately.
+	 */
+	private static void writeSvg(Diagram pDiagram, File pFile) throws IOException
+	{
+		DiagramRenderer renderer = DiagramType.newRendererInstanceFor(pDiagram);
+		renderer.precomputeNodeBounds();
+		Rectangle bounds = renderer.getBounds();
+		int width = bounds.getWidth() + DIAGRAM_PADDING * 2;
+		int height = bounds.getHeight() + DIAGRAM_PADDING * 2;
+		try( Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(pFile), StandardCharsets.UTF_8)) )
+		{
+			SvgSurface surface = new SvgSurface(out, width, height);
+			surface.setFill(Color.WHITE);
+			surface.fillRect(0, 0, width, height);
+			surface.setLineWidth(LINE_WIDTH);
+			surface.translate(-bounds.getX() + DIAGRAM_PADDING, -bounds.getY() + DIAGRAM_PADDING);
+			renderer.draw(surface);
+			surface.finish();
+		}
+		catch( UncheckedIOException exception )
+		{
+			throw exception.getCause();
+		}
+	}
+
+	/*
+	 * Lays out and draws pDiagram on a canvas that is not part of a scene, which
+	 * can be done on the current thread, and then takes the snapshot of the
+	 * canvas on the JavaFX application thread.
+	 */
+	private static BufferedImage render(Diagram pDiagram) throws InterruptedException, IOException
+	{
+		DiagramRenderer renderer = DiagramType.newRendererInstanceFor(pDiagram);
+		renderer.precomputeNodeBounds();
+		Rectangle bounds = renderer.getBounds();
+		int width = bounds.getWidth() + DIAGRAM_PADDING * 2;
+		int height = bounds.getHeight() + DIAGRAM_PADDING * 2;
+		Canvas canvas = new Canvas(width, height);
+		GraphicsContext context = canvas.getGraphicsContext2D();
+		context.setLineWidth(LINE_WIDTH);
+		context.setFill(Color.WHITE);
+		context.translate(-bounds.getX() + DIAGRAM_PADDING, -bounds.getY() + DIAGRAM_PADDING);
+		renderer.draw(new CanvasSurface(context));
+
+		CompletableFuture<WritableImage> snapshot = new CompletableFuture<>();
+		Platform.runLater(() ->
+		{
+			try
+			{
+				snapshot.complete(canvas.snapshot(null, new WritableImage(width, height)));
+			}
+			catch( RuntimeException exception )
+			{
+				snapshot.completeExceptionally(exception);
+			}
+		});
+		try
+		{
+			return SwingFXUtils.fromFXImage(snapshot.get(), null);
+		}
+		catch( ExecutionException exception )
+		{
+			throw new IOException("Cannot take the snapshot of the diagram", exception.getCause());
+		}
+	}
+}
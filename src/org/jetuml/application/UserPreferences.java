@@ -20,6 +20,7 @@
  *******************************************************************************/
 package org.jetuml.application;
 
+import static org.jetuml.diagram.builder.DiagramOperationProcessor.DEFAULT_HISTORY_SIZE;
 import static org.jetuml.rendering.FontMetrics.DEFAULT_FONT_SIZE;
 
 import java.util.ArrayList;
@@ -41,7 +42,7 @@ public final class UserPreferences
 	public enum BooleanPreference
 	{	
 		showGrid(true), showToolHints(false), autoEditNode(false), verboseToolTips(false),
-		showTips(true);
+		showTips(true), binaryFormat(false), cacheDragBackground(true);
 		
 		private boolean aDefault;
 		
@@ -61,7 +62,8 @@ public final class UserPreferences
 	 */
 	public enum IntegerPreference
 	{
-		diagramWidth(0), diagramHeight(0), nextTipId(1), fontSize(DEFAULT_FONT_SIZE);
+		diagramWidth(0), diagramHeight(0), nextTipId(1), fontSize(DEFAULT_FONT_SIZE), 
+		undoHistorySize(DEFAULT_HISTORY_SIZE);
 		
 		private int aDefault;
 		
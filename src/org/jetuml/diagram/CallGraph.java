@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.diagram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.jetuml.diagram.edges.CallEdge;
+import org.jetuml.diagram.edges.ConstructorEdge;
+import org.jetuml.diagram.edges.ReturnEdge;
+
+/**
+ * An index of the calls of a sequence diagram, computed in a single pass over
+ * its edges. The index maps each caller to its calls, in the order of the call
+ * sequence, each callee to the call that reaches it, and each caller to the
+ * returns that end at it.
+ *
+ * An index is only valid for the revision of the diagram for which it was
+ * computed. It is obtained through Diagram.callGraph(), which computes it again
+ * when the diagram has changed.
+ */
+final class CallGraph
+{
+	private final long aRevision;
+	private final Map<Node, List<CallEdge>> aCalls = new IdentityHashMap<>();
+	private final Map<Node, CallEdge> aCallers = new IdentityHashMap<>();
+	private final Map<Node, ConstructorEdge> aConstructorCalls = new IdentityHashMap<>();
+	private final Map<Node, List<ReturnEdge>> aReturns = new IdentityHashMap<>();
+
+	/**
+	 * Indexes the calls of pDiagram in its current revision.
+	 *
+	 * @param pDiagram The diagram to index.
+	 * @pre pDiagram != null
+	 */
+	CallGraph(Diagram pDiagram)
+	{
+		assert pDiagram != null;
+		aRevision = pDiagram.revision();
+		for( Edge edge : pDiagram.edges() )
+		{
+			if( edge instanceof CallEdge )
+			{
+				CallEdge call = (CallEdge) edge;
+				aCalls.computeIfAbsent(call.getStart(), node -> new ArrayList<>()).add(call);
+				aCallers.putIfAbsent(call.getEnd(), call);
+				if( call.getClass() == ConstructorEdge.class )
+				{
+					aConstructorCalls.putIfAbsent(call.getEnd(), (ConstructorEdge) call);
+				}
+			}
+			else if( edge instanceof ReturnEdge )
+			{
+				aReturns.computeIfAbsent(edge.getEnd(), node -> new ArrayList<>()).add((ReturnEdge) edge);
+			}
+		}
+	}
+
+	/**
+	 * @return The revision of the diagram for which this index was computed.
+	 */
+	long revision()
+	{
+		return aRevision;
+	}
+
+	/**
+	 * @param pCaller The caller node.
+	 * @return The calls starting at pCaller, in the order of the call sequence.
+	 *     The list cannot be modified.
+	 */
+	List<CallEdge> callsFrom(Node pCaller)
+	{
+		return Collections.unmodifiableList(aCalls.getOrDefault(pCaller, Collections.emptyList()));
+	}
+
+	/**
+	 * @param pCallee The called node.
+	 * @return The first call that ends at pCallee, if there is one.
+	 */
+	Optional<CallEdge> callTo(Node pCallee)
+	{
+		return Optional.ofNullable(aCallers.get(pCallee));
+	}
+
+	/**
+	 * @param pCallee The called node.
+	 * @return The first constructor call that ends at pCallee, if there is one.
+	 */
+	Optional<ConstructorEdge> constructorCallTo(Node pCallee)
+	{
+		return Optional.ofNullable(aConstructorCalls.get(pCallee));
+	}
+
+	/**
+	 * @param pCall A call edge.
+	 * @return The first return edge that goes from the callee of pCall back to
+	 *     its caller, if there is one.
+	 */
+	Optional<ReturnEdge> returnOf(Edge pCall)
+	{
+		return aReturns.getOrDefault(pCall.getStart(), Collections.emptyList()).stream()
+				.filter(edge -> edge.getStart() == pCall.getEnd())
+				.findFirst();
+	}
+}
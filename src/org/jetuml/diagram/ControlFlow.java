@@ -23,6 +23,7 @@ package org.jetuml.diagram;
 
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -32,7 +33,6 @@ import java.util.Set;
 import org.jetuml.annotations.Immutable;
 import org.jetuml.diagram.edges.CallEdge;
 import org.jetuml.diagram.edges.ConstructorEdge;
-import org.jetuml.diagram.edges.ReturnEdge;
 import org.jetuml.diagram.nodes.CallNode;
 import org.jetuml.diagram.nodes.ImplicitParameterNode;
 
@@ -40,6 +40,10 @@ import org.jetuml.diagram.nodes.ImplicitParameterNode;
  * An immutable wrapper around a sequence Diagram that can answer
  * various queries about the control-flow represented by 
  * the wrapped sequence diagram.
+ * 
+ * Queries about calls and returns are answered from the call graph
+ * of the diagram, which is computed once per revision of the diagram
+ * and shared by all instances of this class.
  */
 @Immutable
 public final class ControlFlow
@@ -71,9 +75,7 @@ public final class ControlFlow
 	public List<Node> getCallees(Node pNode)
 	{
 		assert pNode != null && aDiagram.contains(pNode);
-		return aDiagram.edges().stream()
-				.filter(CallEdge.class::isInstance)
-				.filter(edge -> edge.getStart() == pNode)
+		return aDiagram.callGraph().callsFrom(pNode).stream()
 				.map(Edge::getEnd)
 				.collect(toList());
 	}
@@ -86,11 +88,7 @@ public final class ControlFlow
 	public List<CallEdge> getCalls(Node pCaller)
 	{
 		assert pCaller != null;
-		return aDiagram.edges().stream()
-				.filter(CallEdge.class::isInstance)
-				.map(CallEdge.class::cast)
-				.filter(edge -> edge.getStart() == pCaller)
-				.collect(toList());
+		return new ArrayList<>(aDiagram.callGraph().callsFrom(pCaller));
 	}
 	
 	/**
@@ -104,12 +102,9 @@ public final class ControlFlow
 	public Optional<CallNode> getCaller(Node pNode)
 	{
 		assert pNode != null && aDiagram.contains(pNode);
-		return aDiagram.edges().stream()
-			.filter(CallEdge.class::isInstance)
-			.filter(edge -> edge.getEnd() == pNode)
+		return aDiagram.callGraph().callTo(pNode)
 			.map(Edge::getStart)
-			.map(CallNode.class::cast)
-			.findFirst();
+			.map(CallNode.class::cast);
 	}
 	
 	/**
@@ -125,8 +120,7 @@ public final class ControlFlow
 		assert pNode != null;
 		Optional<CallNode> caller = getCaller(pNode);
 		assert caller.isPresent();
-		List<Node> callees = getCallees(caller.get());
-		return callees.get(0) == pNode;
+		return aDiagram.callGraph().callsFrom(caller.get()).get(0).getEnd() == pNode;
 	}
 	
 	/**
@@ -143,10 +137,14 @@ public final class ControlFlow
 		Optional<CallNode> caller = getCaller(pNode);
 		assert caller.isPresent();
 		assert !isFirstCallee(pNode);
-		List<Node> callees = getCallees(caller.get());
-		int index = callees.indexOf(pNode);
+		List<CallEdge> calls = aDiagram.callGraph().callsFrom(caller.get());
+		int index = 0;
+		while( calls.get(index).getEnd() != pNode )
+		{
+			index++;
+		}
 		assert index >= 1;
-		return (CallNode) callees.get(index-1);
+		return (CallNode) calls.get(index-1).getEnd();
 	}
 	
 	/**
@@ -213,14 +211,7 @@ public final class ControlFlow
 		{
 			return false;
 		}
-		for( Edge edge : aDiagram.edges() )
-		{
-			if ( edge.getEnd() == pNode && edge.getClass() == ConstructorEdge.class )
-			{
-				return true;
-			}
-		}
-		return false;	
+		return aDiagram.callGraph().constructorCallTo(pNode).isPresent();
 	}
 	
 	/*
@@ -246,14 +237,7 @@ public final class ControlFlow
 		{
 			return Optional.empty();	
 		}
-		for( Edge edge : aDiagram.edges() )
-		{
-			if ( edge.getEnd() == pNode && edge.getClass() == ConstructorEdge.class )
-			{
-				return Optional.of(edge);
-			}
-		}
-		return Optional.empty();	
+		return aDiagram.callGraph().constructorCallTo(pNode).map(Edge.class::cast);
 	}
 
 	/**
@@ -283,7 +267,7 @@ public final class ControlFlow
 				}
 				
 				// Add upstream edges of the child nodes
-				for( Edge edge: aDiagram.edges() )
+				for( Edge edge: aDiagram.edgesConnectedTo(child) )
 				{
 					if( edge.getEnd() == child )
 					{
@@ -455,10 +439,6 @@ public final class ControlFlow
 	
 	private Optional<Edge> getReturnEdge(Edge pEdge)
 	{
-		return aDiagram.edges().stream()
-			.filter(ReturnEdge.class::isInstance)
-			.filter(edge -> edge.getStart() == pEdge.getEnd())
-			.filter(edge -> edge.getEnd() == pEdge.getStart())
-			.findFirst();
+		return aDiagram.callGraph().returnOf(pEdge).map(Edge.class::cast);
 	}
 }
@@ -23,7 +23,10 @@ package org.jetuml.diagram;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.jetuml.diagram.nodes.CallNode;
 import org.jetuml.diagram.nodes.FieldNode;
@@ -45,6 +48,24 @@ public final class Diagram implements DiagramData
 	private final ArrayList<Node> aRootNodes;
 	private final ArrayList<Edge> aEdges;
 	private final DiagramType aType;
+	
+	/*
+	 * Maps each node to the edges connected to it, in the order of aEdges.
+	 * Must be updated every time aEdges is modified.
+	 */
+	private final Map<Node, List<Edge>> aIncidentEdges = new IdentityHashMap<>();
+	
+	/*
+	 * Incremented every time the geometry of the diagram may have changed, either
+	 * through this object or through a modification of one of its elements. Used by 
+	 * clients that cache geometric information to detect stale data.
+	 */
+	private long aRevision = 0;
+	
+	private CallGraph aCallGraph; // Computed on demand, see callGraph()
+	
+	private Diagram aSnapshot; // Copied on demand, see snapshot()
+	private long aSnapshotRevision;
 
 	/**
 	 * Creates an empty diagram.
@@ -60,30 +81,55 @@ public final class Diagram implements DiagramData
 
 	/**
 	 * Creates a copy of the current diagram. The copy is a completely distinct graph of nodes and edges with the same
-	 * topology as this diagram.
+	 * topology as this diagram. The time to create the copy is linear in the number of elements of the diagram.
 	 * 
 	 * @return A copy of this diagram. Never null.
 	 */
 	public Diagram duplicate()
 	{
 		Diagram copy = new Diagram(this.aType);
-		aEdges.forEach(edge -> copy.aEdges.add(edge.clone()));
-
+		Map<Node, Node> copies = new IdentityHashMap<>();
 		for( Node node : aRootNodes )
 		{
 			Node nodeCopy = node.clone();
+			mapCopies(node, nodeCopy, copies);
 			copy.aRootNodes.add(nodeCopy);
-			reassignEdges(copy.aEdges, node, nodeCopy);
 		}
-
-		// Reassign diagram
-		copy.aEdges.forEach(edge -> edge.connect(edge.getStart(), edge.getEnd(), copy));
+		for( Edge edge : aEdges )
+		{
+			Edge edgeCopy = edge.clone();
+			edgeCopy.connect(copies.getOrDefault(edge.getStart(), edge.getStart()), 
+					copies.getOrDefault(edge.getEnd(), edge.getEnd()), copy);
+			copy.aEdges.add(edgeCopy);
+			copy.indexEdge(edgeCopy);
+		}
 		for( Node node : copy.aRootNodes )
 		{
 			copy.attachNode(node);
 		}
 		return copy;
 	}
+	
+	/**
+	 * Returns a deep copy of this diagram as it is at the time of the call, made 
+	 * with duplicate(). The copy is cached and returned by all the calls made until
+	 * the diagram is modified, so the first call after each modification takes time 
+	 * linear in the size of the diagram, and the following calls take constant time.
+	 * The copy does not share any element with this diagram, but it is shared by 
+	 * the callers and is not protected against modifications: callers must not
+	 * modify it.
+	 * 
+	 * @return The cached deep copy of this diagram. Never null.
+	 */
+	public Diagram snapshot()
+	{
+		if( aSnapshot == null || aSnapshotRevision != aRevision )
+		{
+			aSnapshot = duplicate();
+			aSnapshotRevision = aRevision;
+		}
+		return aSnapshot;
+	}
 
 	/*
 	 * Recursively attach the node and all its children to this diagram.
@@ -98,27 +144,17 @@ public final class Diagram implements DiagramData
 	}
 
 	/*
-	 * For node pOriginal, go through all edges that refer to it and replace it with pCopy in the edge. Do this
-	 * recursively for all children of pOriginal, assuming the same topology for pCopy.
+	 * Maps pOriginal to pCopy in pCopies, and recursively each child of pOriginal 
+	 * to the child at the same position in pCopy, assuming the same topology for pCopy.
 	 */
-	private static void reassignEdges(List<Edge> pEdges, Node pOriginal, Node pCopy)
+	private static void mapCopies(Node pOriginal, Node pCopy, Map<Node, Node> pCopies)
 	{
-		for( Edge edge : pEdges )
-		{
-			if( edge.getStart() == pOriginal )
-			{
-				edge.connect(pCopy, edge.getEnd(), edge.getDiagram());
-			}
-			if( edge.getEnd() == pOriginal )
-			{
-				edge.connect(edge.getStart(), pCopy, edge.getDiagram());
-			}
-		}
+		pCopies.put(pOriginal, pCopy);
 		List<Node> oldChildren = pOriginal.getChildren();
 		List<Node> newChildren = pCopy.getChildren();
 		for( int i = 0; i < oldChildren.size(); i++ )
 		{
-			reassignEdges(pEdges, oldChildren.get(i), newChildren.get(i));
+			mapCopies(oldChildren.get(i), newChildren.get(i), pCopies);
 		}
 	}
 
@@ -241,6 +277,38 @@ public final class Diagram implements DiagramData
 		return aType.getPrototypes();
 	}
 
+	/**
+	 * @return A number that is guaranteed to be different every time a node or edge 
+	 *     is added to or removed from this diagram, or one of its elements is moved or modified.
+	 */
+	public long revision()
+	{
+		return aRevision;
+	}
+	
+	/**
+	 * Records that the geometry of the diagram may have changed, so that any 
+	 * information cached against a previous revision is no longer used.
+	 */
+	public void incrementRevision()
+	{
+		aRevision++;
+	}
+	
+	/*
+	 * Returns the index of the calls of this diagram. The index is computed 
+	 * the first time it is requested for a revision of the diagram, and then 
+	 * shared by all queries until the diagram changes.
+	 */
+	CallGraph callGraph()
+	{
+		if( aCallGraph == null || aCallGraph.revision() != aRevision )
+		{
+			aCallGraph = new CallGraph(this);
+		}
+		return aCallGraph;
+	}
+
 	/**
 	 * @param pNode The node to test for
 	 * @return All the edges connected to pNode
@@ -250,15 +318,55 @@ public final class Diagram implements DiagramData
 	public Iterable<Edge> edgesConnectedTo(Node pNode)
 	{
 		assert pNode != null && contains(pNode);
-		Collection<Edge> lReturn = new ArrayList<>();
+		return new ArrayList<>(aIncidentEdges.getOrDefault(pNode, Collections.emptyList()));
+	}
+	
+	/*
+	 * Adds pEdge at the end of the list of edges of its start and end nodes.
+	 */
+	private void indexEdge(Edge pEdge)
+	{
+		aIncidentEdges.computeIfAbsent(pEdge.getStart(), node -> new ArrayList<>()).add(pEdge);
+		if( pEdge.getEnd() != pEdge.getStart() )
+		{
+			aIncidentEdges.computeIfAbsent(pEdge.getEnd(), node -> new ArrayList<>()).add(pEdge);
+		}
+	}
+	
+	private void unindexEdge(Edge pEdge)
+	{
+		unindexEdge(pEdge, pEdge.getStart());
+		unindexEdge(pEdge, pEdge.getEnd());
+	}
+	
+	private void unindexEdge(Edge pEdge, Node pNode)
+	{
+		List<Edge> edges = aIncidentEdges.get(pNode);
+		if( edges != null )
+		{
+			edges.remove(pEdge);
+			if( edges.isEmpty() )
+			{
+				aIncidentEdges.remove(pNode);
+			}
+		}
+	}
+	
+	/*
+	 * Recomputes the list of edges of pNode from the list of edges of the
+	 * diagram, to preserve their order when an edge is inserted.
+	 */
+	private void reindexNode(Node pNode)
+	{
+		List<Edge> edges = new ArrayList<>();
 		for( Edge edge : aEdges )
 		{
 			if( edge.getStart() == pNode || edge.getEnd() == pNode )
 			{
-				lReturn.add(edge);
+				edges.add(edge);
 			}
 		}
-		return lReturn;
+		aIncidentEdges.put(pNode, edges);
 	}
 
 	/**
@@ -273,6 +381,7 @@ public final class Diagram implements DiagramData
 		assert pNode != null;
 		recursiveAttach(pNode);
 		aRootNodes.add(pNode);
+		aRevision++;
 	}
 
 	private void recursiveAttach(Node pNode)
@@ -299,6 +408,24 @@ public final class Diagram implements DiagramData
 		assert pNode != null && aRootNodes.contains(pNode);
 		recursiveDetach(pNode);
 		aRootNodes.remove(pNode);
+		aRevision++;
+	}
+
+	/**
+	 * Removes all the nodes in pNodes from the list of root nodes in a single pass over
+	 * the list. Callers must ensure that the removal preserves the integrity of the diagram.
+	 * 
+	 * @param pNodes The nodes to remove.
+	 * @pre pNodes != null && all nodes in pNodes are root nodes.
+	 */
+	public void removeRootNodes(Collection<Node> pNodes)
+	{
+		assert pNodes != null;
+		Set<Node> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		nodes.addAll(pNodes);
+		nodes.forEach(this::recursiveDetach);
+		aRootNodes.removeIf(nodes::contains);
+		aRevision++;
 	}
 
 	/**
@@ -312,6 +439,8 @@ public final class Diagram implements DiagramData
 	{
 		assert pEdge != null && pEdge.getStart() != null && pEdge.getEnd() != null && pEdge.getDiagram() != null;
 		aEdges.add(pEdge);
+		indexEdge(pEdge);
+		aRevision++;
 	}
 	
 	/**
@@ -325,6 +454,9 @@ public final class Diagram implements DiagramData
 	{
 		assert pEdge != null && pIndex >= 0 && pIndex <= aEdges.size();
 		aEdges.add(pIndex, pEdge);
+		reindexNode(pEdge.getStart());
+		reindexNode(pEdge.getEnd());
+		aRevision++;
 	}
 
 
@@ -350,6 +482,82 @@ public final class Diagram implements DiagramData
 	{
 		assert pEdge != null && aEdges.contains(pEdge);
 		aEdges.remove(pEdge);
+		unindexEdge(pEdge);
+		aRevision++;
+	}
+
+	/**
+	 * Removes all the edges in pEdges from this diagram in a single pass over the list 
+	 * of edges. Callers must ensure that the removal preserves the integrity of the diagram.
+	 * 
+	 * @param pEdges The edges to remove.
+	 * @pre pEdges != null && all edges in pEdges are contained in the diagram
+	 */
+	public void removeEdges(Collection<Edge> pEdges)
+	{
+		assert pEdges != null;
+		Set<Edge> edges = Collections.newSetFromMap(new IdentityHashMap<>());
+		edges.addAll(pEdges);
+		aEdges.removeIf(edges::contains);
+		edges.forEach(this::unindexEdge);
+		aRevision++;
+	}
+	
+	/**
+	 * Inserts edges back in the list of edges in a single pass over the list, so that 
+	 * each edge in pEdges ends up at the corresponding index in pIndices. This reverses
+	 * removeEdges when pIndices are the indices the edges had before they were removed.
+	 * 
+	 * @param pIndices The indices of the edges in the list of edges after the insertion.
+	 * @param pEdges The edges to insert.
+	 * @pre pIndices != null && pEdges != null && pIndices.length == pEdges.size()
+	 * @pre pIndices is sorted in increasing order and pIndices[i] <= edges().size() + i
+	 * @pre all edges in pEdges are connected to nodes in this diagram
+	 */
+	public void addEdges(int[] pIndices, List<Edge> pEdges)
+	{
+		assert pIndices != null && pEdges != null && pIndices.length == pEdges.size();
+		List<Edge> edges = new ArrayList<>(aEdges.size() + pEdges.size());
+		int next = 0;
+		for( Edge edge : aEdges )
+		{
+			while( next < pIndices.length && pIndices[next] == edges.size() )
+			{
+				edges.add(pEdges.get(next++));
+			}
+			edges.add(edge);
+		}
+		edges.addAll(pEdges.subList(next, pEdges.size()));
+		aEdges.clear();
+		aEdges.addAll(edges);
+		reindexNodes(pEdges);
+		aRevision++;
+	}
+	
+	/*
+	 * Recomputes the lists of edges of the start and end nodes of pEdges
+	 * in a single pass over the list of edges of the diagram.
+	 */
+	private void reindexNodes(List<Edge> pEdges)
+	{
+		Set<Node> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( Edge edge : pEdges )
+		{
+			nodes.add(edge.getStart());
+			nodes.add(edge.getEnd());
+		}
+		nodes.forEach(node -> aIncidentEdges.put(node, new ArrayList<>()));
+		for( Edge edge : aEdges )
+		{
+			if( nodes.contains(edge.getStart()) )
+			{
+				aIncidentEdges.get(edge.getStart()).add(edge);
+			}
+			if( edge.getEnd() != edge.getStart() && nodes.contains(edge.getEnd()) )
+			{
+				aIncidentEdges.get(edge.getEnd()).add(edge);
+			}
+		}
 	}
 
 	/**
@@ -23,6 +23,7 @@ package org.jetuml.diagram.builder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * An operation that is composed of other operations, following
@@ -32,6 +33,10 @@ import java.util.List;
  * in the order they were added. Undoing a compound operation
  * undoes all the sub-operation in the reverse order in which 
  * they were added.
+ * 
+ * A compound operation can be merged with another one whose 
+ * sub-operations can each be merged with the sub-operation at the
+ * same position, for example two moves of the same selection.
  */
 public class CompoundOperation implements DiagramOperation
 {
@@ -68,6 +73,28 @@ public class CompoundOperation implements DiagramOperation
 		}
 	}
 	
+	@Override
+	public Optional<DiagramOperation> merge(DiagramOperation pNext)
+	{
+		assert pNext != null;
+		if( !(pNext instanceof CompoundOperation) || isEmpty() || 
+				((CompoundOperation)pNext).aOperations.size() != aOperations.size() )
+		{
+			return Optional.empty();
+		}
+		CompoundOperation merged = new CompoundOperation();
+		for( int i = 0; i < aOperations.size(); i++ )
+		{
+			Optional<DiagramOperation> operation = aOperations.get(i).merge(((CompoundOperation)pNext).aOperations.get(i));
+			if( operation.isEmpty() )
+			{
+				return Optional.empty();
+			}
+			merged.add(operation.get());
+		}
+		return Optional.of(merged);
+	}
+	
 	/**
 	 * @return True if this CompoundOperation contains
 	 *     no sub-operation.
@@ -22,10 +22,10 @@
 package org.jetuml.diagram.builder;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -36,11 +36,10 @@ import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.DiagramType;
 import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
+import org.jetuml.diagram.Property;
 import org.jetuml.diagram.builder.constraints.ConstraintSet;
 import org.jetuml.diagram.edges.NoteEdge;
-import org.jetuml.diagram.nodes.FieldNode;
 import org.jetuml.diagram.nodes.NoteNode;
-import org.jetuml.diagram.nodes.ObjectNode;
 import org.jetuml.diagram.nodes.PackageNode;
 import org.jetuml.diagram.nodes.PointNode;
 import org.jetuml.geom.Dimension;
@@ -254,10 +253,9 @@ public abstract class DiagramBuilder
 		}
 		if( pElement instanceof Node )
 		{
-			List<Node> descendants = getNodeAndAllChildren((Node)pElement);
-			for(Edge edge : aDiagramRenderer.diagram().edges())
+			for( Node node : getNodeAndAllChildren((Node)pElement) )
 			{
-				if(descendants.contains(edge.getStart() ) || descendants.contains(edge.getEnd()))
+				for( Edge edge : aDiagramRenderer.diagram().edgesConnectedTo(node) )
 				{
 					result.add(edge);
 				}
@@ -266,130 +264,126 @@ public abstract class DiagramBuilder
 		return result;
 	}
 	
-	/*
-	 * Organize the elements to delete so that they can be reinserted properly
+	/**
+	 * Creates an operation that removes all the elements in pElements, together with
+	 * the elements that have to be removed with them. The elements are collected in 
+	 * identity sets and the edges and root nodes are each removed in a single pass 
+	 * over the lists of the diagram, so that removing a large selection takes time
+	 * linear in the size of the selection and of the diagram.
+	 * 
+	 * @param pElements The elements to remove.
+	 * @return The requested operation.
+	 * @pre pElements != null.
 	 */
-	private List<DiagramElement> tweakOrder(Set<DiagramElement> pElements)
+	public final DiagramOperation createRemoveElementsOperation(Iterable<DiagramElement> pElements)
 	{
-		List<DiagramElement> result = new ArrayList<>();
-		Map<ObjectNode, List<FieldNode>> fields = new HashMap<>();
-		for( DiagramElement element : pElements )
-		{
-			if( element.getClass() != FieldNode.class )
-			{
-				result.add(element);
-			}
-			else
-			{
-				FieldNode field = (FieldNode) element;
-				if( !fields.containsKey(field.getParent()) )
-				{
-					fields.put((ObjectNode)field.getParent(), new ArrayList<>());
-				}
-				fields.get(field.getParent()).add(field);
-			}
-		}
-		for( ObjectNode object : fields.keySet() )
+		assert pElements != null;
+		Set<DiagramElement> toDelete = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( DiagramElement element : pElements)
 		{
-			List<FieldNode> nodes = fields.get(object);
-			Collections.sort(nodes, new Comparator<FieldNode>()
-			{
-				@Override
-				public int compare(FieldNode pField1, FieldNode pField2)
-				{
-					return pField2.getParent().getChildren().indexOf(pField2) - 
-							pField1.getParent().getChildren().indexOf(pField1);
-				}
-			});
-			for( FieldNode node : nodes )
-			{
-				result.add(node);
-			}
+			toDelete.addAll(getCoRemovals(element));
 		}
-		ArrayList<DiagramElement> result2 = new ArrayList<>();
-		ArrayList<Edge> edges = new ArrayList<>();
-		ArrayList<Node> nodes = new ArrayList<>();
-		for( DiagramElement element : result )
+		List<Node> rootNodes = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
+		List<Node> childNodes = new ArrayList<>();
+		for( DiagramElement element : toDelete )
 		{
 			if( element instanceof Edge )
 			{
 				edges.add((Edge)element);
 			}
-			else if( element instanceof Node && ((Node)element).hasParent() )
+			else if( ((Node)element).hasParent() )
 			{
-				nodes.add((Node)element);
+				childNodes.add((Node)element);
 			}
 			else
 			{
-				result2.add(element);
+				rootNodes.add((Node)element);
 			}
 		}
-		Collections.sort(edges, (pEdge1, pEdge2) -> aDiagramRenderer.diagram().indexOf(pEdge2) - aDiagramRenderer.diagram().indexOf(pEdge1));
-		Collections.sort(nodes, new Comparator<Node>() 
+		
+		CompoundOperation result = new CompoundOperation();
+		if( !rootNodes.isEmpty() )
 		{
-			@Override
-			public int compare(Node pNode1, Node pNode2)
-			{
-				Node parent1 = pNode1.getParent();
-				Node parent2 = pNode2.getParent();
-				if( parent1 == parent2 )
-				{
-					return parent2.getChildren().indexOf(pNode2) -  parent1.getChildren().indexOf(pNode1);
-				}
-				else 
-				{
-					return aDiagramRenderer.diagram().rootNodes().indexOf(parent2) - aDiagramRenderer.diagram().rootNodes().indexOf(parent1);
-				}
-			}
-		});
-		result2.addAll(edges);
-		result2.addAll(nodes);
-		return result2;
+			result.add(createRemoveRootNodesOperation(rootNodes));
+		}
+		if( !edges.isEmpty() )
+		{
+			result.add(createRemoveEdgesOperation(edges));
+		}
+		for( Node node : sortChildren(childNodes) )
+		{
+			result.add(new SimpleOperation(
+					createDetachOperation(node),
+					createReinsertOperation(node)));
+		}
+		return result;
 	}
 	
-	/**
-	 * Creates an operation that removes all the elements in pElements.
-	 * 
-	 * @param pElements The elements to remove.
-	 * @return The requested operation.
-	 * @pre pElements != null.
+	/*
+	 * Undoing the operation adds the nodes back at the end of the list
+	 * of root nodes, in their original order.
 	 */
-	public final DiagramOperation createRemoveElementsOperation(Iterable<DiagramElement> pElements)
+	private DiagramOperation createRemoveRootNodesOperation(List<Node> pNodes)
 	{
-		assert pElements != null;
-		Set<DiagramElement> toDelete = new HashSet<>();
-		for( DiagramElement element : pElements)
+		Map<Node, Integer> indices = indicesOf(aDiagramRenderer.diagram().rootNodes(), pNodes);
+		pNodes.sort(Comparator.comparing(indices::get));
+		return new SimpleOperation(
+				()-> aDiagramRenderer.diagram().removeRootNodes(pNodes),
+				()-> pNodes.forEach(node -> aDiagramRenderer.diagram().addRootNode(node)));
+	}
+	
+	/*
+	 * Undoing the operation inserts the edges back at their original index.
+	 */
+	private DiagramOperation createRemoveEdgesOperation(List<Edge> pEdges)
+	{
+		Map<Edge, Integer> indices = indicesOf(aDiagramRenderer.diagram().edges(), pEdges);
+		pEdges.sort(Comparator.comparing(indices::get));
+		int[] sortedIndices = pEdges.stream().mapToInt(indices::get).toArray();
+		return new SimpleOperation(
+				()-> aDiagramRenderer.diagram().removeEdges(pEdges),
+				()-> aDiagramRenderer.diagram().addEdges(sortedIndices, pEdges));
+	}
+	
+	/*
+	 * Orders the child nodes to delete so that the children of each parent are removed
+	 * from the last to the first, which allows them to be reinserted at their original 
+	 * index when the removal is undone.
+	 */
+	private static List<Node> sortChildren(List<Node> pNodes)
+	{
+		Map<Node, List<Node>> childrenByParent = new IdentityHashMap<>();
+		for( Node node : pNodes )
 		{
-			toDelete.addAll(getCoRemovals(element));
+			childrenByParent.computeIfAbsent(node.getParent(), parent -> new ArrayList<>()).add(node);
 		}
-		CompoundOperation result = new CompoundOperation();
-		
-		for( DiagramElement element : tweakOrder(toDelete))
+		List<Node> result = new ArrayList<>();
+		childrenByParent.forEach((parent, children) -> 
 		{
-			if( element instanceof Edge )
-			{
-				int index = aDiagramRenderer.diagram().indexOf((Edge)element);
-				result.add(new SimpleOperation(
-						()-> aDiagramRenderer.diagram().removeEdge((Edge)element),
-						()-> aDiagramRenderer.diagram().addEdge(index, (Edge)element)));
-			}
-			else if( element instanceof Node )
+			Map<Node, Integer> indices = indicesOf(parent.getChildren(), children);
+			children.sort(Comparator.comparing(indices::get, Comparator.reverseOrder()));
+			result.addAll(children);
+		});
+		return result;
+	}
+	
+	/*
+	 * Maps each element of pElements to its index in pList, in a single pass over pList.
+	 */
+	private static <T> Map<T, Integer> indicesOf(List<? extends T> pList, Collection<? extends T> pElements)
+	{
+		Set<T> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+		elements.addAll(pElements);
+		Map<T, Integer> indices = new IdentityHashMap<>();
+		for( int i = 0; i < pList.size(); i++ )
+		{
+			if( elements.contains(pList.get(i)) )
 			{
-				if(((Node) element).hasParent())
-				{
-					result.add(new SimpleOperation(
-						createDetachOperation((Node)element),
-						createReinsertOperation((Node)element)));
-				}
-				else
-				{
-					result.add(new SimpleOperation(
-						()-> aDiagramRenderer.diagram().removeRootNode((Node)element),
-						()-> aDiagramRenderer.diagram().addRootNode((Node)element)));
-				}
+				indices.put(pList.get(i), i);
 			}
 		}
-		return result;
+		return indices;
 	}
 	
 	/**
@@ -403,9 +397,21 @@ public abstract class DiagramBuilder
 	 */
 	public static DiagramOperation createMoveNodeOperation(Node pNode, int pX, int pY)
 	{
-		return new SimpleOperation(
-				()-> pNode.translate(pX, pY),
-				()-> pNode.translate(-pX, -pY));
+		return new MoveNodeOperation(pNode, pX, pY);
+	}
+	
+	/**
+	 * Create an operation to change the value of a property.
+	 * 
+	 * @param pProperty The property to change.
+	 * @param pOldValue The value of the property before the change.
+	 * @param pNewValue The value of the property after the change.
+	 * @return The requested operation.
+	 * @pre pProperty != null.
+	 */
+	public static DiagramOperation createPropertyChangeOperation(Property pProperty, Object pOldValue, Object pNewValue)
+	{
+		return new PropertyChangeOperation(pProperty, pOldValue, pNewValue);
 	}
 	
 	/**
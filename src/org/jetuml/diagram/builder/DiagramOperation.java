@@ -20,6 +20,8 @@
  *******************************************************************************/
 package org.jetuml.diagram.builder;
 
+import java.util.Optional;
+
 /**
  * Represents an operation to change a diagram, that
  * can be undone. Operations are only required to be valid
@@ -36,4 +38,19 @@ public interface DiagramOperation
 	 * Undoes the operation.
 	 */
 	void undo();
+	
+	/**
+	 * Combines this operation with pNext, an operation executed immediately
+	 * after this one, into a single operation with the effect of both. 
+	 * By default, operations cannot be combined.
+	 * 
+	 * @param pNext The operation executed after this one.
+	 * @return The combined operation, or empty if the two operations cannot be combined.
+	 * @pre pNext != null
+	 */
+	default Optional<DiagramOperation> merge(DiagramOperation pNext)
+	{
+		assert pNext != null;
+		return Optional.empty();
+	}
 }
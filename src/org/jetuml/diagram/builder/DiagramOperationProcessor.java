@@ -21,20 +21,57 @@
 
 package org.jetuml.diagram.builder;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Optional;
 
 /**
  * Responsible for executing and undoing operations, and managing the collection 
  * of previously executed and undone operations. Can also compute whether a 
  * diagram has unsaved modifications.
+ * 
+ * The number of operations that can be undone and redone is bounded by the size 
+ * of the history: when it is exceeded, the oldest operations are discarded. 
+ * A new operation that can be merged with the last executed operation, for example
+ * a second move of the same selection, replaces it instead of being added to the
+ * history. The last operation before the diagram was saved is never merged, so 
+ * that the unsaved modifications are still detected.
  */
 public class DiagramOperationProcessor
 {
-	private final List<DiagramOperation> aExecutedOperations = new ArrayList<>();
-	private final List<DiagramOperation> aUndoneOperations = new ArrayList<>();
+	/**
+	 * The default maximum number of operations that can be undone.
+	 */
+	public static final int DEFAULT_HISTORY_SIZE = 1000;
+	
+	private final Deque<DiagramOperation> aExecutedOperations = new ArrayDeque<>();
+	private final Deque<DiagramOperation> aUndoneOperations = new ArrayDeque<>();
+	private final int aHistorySize;
 	private Optional<DiagramOperation> aLastSavedOperation = Optional.empty();
+	private boolean aInitialStateUnsaved = false;
+	private int aMergedOperations = 0;
+	private int aDiscardedOperations = 0;
+	
+	/**
+	 * Creates a processor with a history of DEFAULT_HISTORY_SIZE operations.
+	 */
+	public DiagramOperationProcessor()
+	{
+		this(DEFAULT_HISTORY_SIZE);
+	}
+	
+	/**
+	 * Creates a processor that keeps at most pHistorySize operations
+	 * to undo, and as many to redo.
+	 * 
+	 * @param pHistorySize The maximum number of operations that can be undone.
+	 * @pre pHistorySize > 0
+	 */
+	public DiagramOperationProcessor(int pHistorySize)
+	{
+		assert pHistorySize > 0;
+		aHistorySize = pHistorySize;
+	}
 	
 	/**
 	 * Executes pOperation and adds it to the list of executed
@@ -47,7 +84,7 @@ public class DiagramOperationProcessor
 	{
 		assert pOperation != null;
 		pOperation.execute();
-		aExecutedOperations.add(pOperation);
+		record(pOperation);
 	}
 	
 	/**
@@ -68,13 +105,52 @@ public class DiagramOperationProcessor
 		}
 		else
 		{
-			return !aExecutedOperations.isEmpty();
+			return !aExecutedOperations.isEmpty() || aInitialStateUnsaved;
 		}
 	}
 	
 	private DiagramOperation peek()
 	{
-		return aExecutedOperations.get(aExecutedOperations.size()-1);
+		return aExecutedOperations.peekLast();
+	}
+	
+	/*
+	 * Adds pOperation to the executed operations, or merges it with 
+	 * the last executed operation if possible.
+	 */
+	private void record(DiagramOperation pOperation)
+	{
+		if( canUndo() && !(aLastSavedOperation.isPresent() && aLastSavedOperation.get() == peek()) )
+		{
+			Optional<DiagramOperation> merged = peek().merge(pOperation);
+			if( merged.isPresent() )
+			{
+				aExecutedOperations.removeLast();
+				aExecutedOperations.addLast(merged.get());
+				aMergedOperations++;
+				return;
+			}
+		}
+		push(aExecutedOperations, pOperation);
+	}
+	
+	/*
+	 * Adds pOperation at the end of pOperations, discarding the
+	 * oldest operation if the history size is exceeded.
+	 */
+	private void push(Deque<DiagramOperation> pOperations, DiagramOperation pOperation)
+	{
+		pOperations.addLast(pOperation);
+		if( pOperations.size() > aHistorySize )
+		{
+			if( pOperations == aExecutedOperations && aLastSavedOperation.isEmpty() )
+			{
+				// The diagram can no longer be restored to its initial state by undoing
+				aInitialStateUnsaved = true;
+			}
+			pOperations.removeFirst();
+			aDiscardedOperations++;
+		}
 	}
 	
 	/**
@@ -83,12 +159,24 @@ public class DiagramOperationProcessor
 	public void diagramSaved()
 	{
 		aLastSavedOperation = Optional.empty();
+		aInitialStateUnsaved = false;
 		if( aExecutedOperations.size() > 0 )
 		{
 			aLastSavedOperation = Optional.of(peek());
 		}
 	}
 	
+	/**
+	 * Indicates that the diagram managed by this processor was restored from
+	 * a copy that was never saved, so that it has unsaved modifications 
+	 * until it is saved.
+	 */
+	public void diagramRestored()
+	{
+		aLastSavedOperation = Optional.empty();
+		aInitialStateUnsaved = true;
+	}
+	
 	/**
 	 * Adds pOperation to the list of already executed operations,
 	 * without first executing it. 
@@ -99,7 +187,7 @@ public class DiagramOperationProcessor
 	public void storeAlreadyExecutedOperation(DiagramOperation pOperation)
 	{
 		assert pOperation != null;
-		aExecutedOperations.add(pOperation);
+		record(pOperation);
 	}
 	
 	/**
@@ -110,9 +198,9 @@ public class DiagramOperationProcessor
 	public void undoLastExecutedOperation()
 	{
 		assert canUndo();
-		DiagramOperation operation = aExecutedOperations.remove(aExecutedOperations.size() - 1);
+		DiagramOperation operation = aExecutedOperations.removeLast();
 		operation.undo();
-		aUndoneOperations.add(operation);
+		push(aUndoneOperations, operation);
 	}
 	
 	/**
@@ -123,9 +211,9 @@ public class DiagramOperationProcessor
 	public void redoLastUndoneOperation()
 	{
 		assert canRedo();
-		DiagramOperation operation = aUndoneOperations.remove(aUndoneOperations.size() - 1);
+		DiagramOperation operation = aUndoneOperations.removeLast();
 		operation.execute();
-		aExecutedOperations.add(operation);
+		push(aExecutedOperations, operation);
 	}
 
 	/**
@@ -143,4 +231,38 @@ public class DiagramOperationProcessor
 	{
 		return !aUndoneOperations.isEmpty();
 	}
+	
+	/**
+	 * @return The number of operations that can currently be undone.
+	 */
+	public int numberOfUndoableOperations()
+	{
+		return aExecutedOperations.size();
+	}
+	
+	/**
+	 * @return The number of operations that can currently be redone.
+	 */
+	public int numberOfRedoableOperations()
+	{
+		return aUndoneOperations.size();
+	}
+	
+	/**
+	 * @return The number of new operations that were merged with the
+	 *     previous operation instead of being added to the history.
+	 */
+	public int numberOfMergedOperations()
+	{
+		return aMergedOperations;
+	}
+	
+	/**
+	 * @return The number of operations discarded because the history
+	 *     size was exceeded.
+	 */
+	public int numberOfDiscardedOperations()
+	{
+		return aDiscardedOperations;
+	}
 }
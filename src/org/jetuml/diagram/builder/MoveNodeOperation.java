@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.diagram.builder;
+
+import java.util.Optional;
+
+import org.jetuml.diagram.Node;
+
+/**
+ * Translates a node. Consecutive moves of the same node 
+ * merge into a single move by the sum of the two translations.
+ */
+final class MoveNodeOperation implements DiagramOperation
+{
+	private final Node aNode;
+	private final int aX;
+	private final int aY;
+	
+	/**
+	 * @param pNode The node to move.
+	 * @param pX The amount to translate the node along the x-axis.
+	 * @param pY The amount to translate the node along the y-axis.
+	 * @pre pNode != null
+	 */
+	MoveNodeOperation(Node pNode, int pX, int pY)
+	{
+		assert pNode != null;
+		aNode = pNode;
+		aX = pX;
+		aY = pY;
+	}
+
+	@Override
+	public void execute()
+	{
+		aNode.translate(aX, aY);
+	}
+
+	@Override
+	public void undo()
+	{
+		aNode.translate(-aX, -aY);
+	}
+	
+	@Override
+	public Optional<DiagramOperation> merge(DiagramOperation pNext)
+	{
+		assert pNext != null;
+		if( pNext instanceof MoveNodeOperation && ((MoveNodeOperation)pNext).aNode == aNode )
+		{
+			MoveNodeOperation next = (MoveNodeOperation) pNext;
+			return Optional.of(new MoveNodeOperation(aNode, aX + next.aX, aY + next.aY));
+		}
+		return Optional.empty();
+	}
+}
@@ -43,6 +43,19 @@ public abstract class AbstractEdge extends AbstractDiagramElement implements Edg
 		aDiagram = pDiagram;
 	}
 
+	/**
+	 * Signals to the diagram that contains this edge, if any, that its geometry 
+	 * may have changed. Must be called by all methods that modify this edge
+	 * in a way that can change how it is rendered.
+	 */
+	protected final void markModified()
+	{
+		if( aDiagram != null )
+		{
+			aDiagram.incrementRevision();
+		}
+	}
+
 	@Override
 	public Node getStart()
 	{
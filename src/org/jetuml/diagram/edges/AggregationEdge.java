@@ -66,12 +66,13 @@ public final class AggregationEdge extends ThreeLabelEdge
 	public void setType(Type pType)
 	{
 		aType = pType;
+		markModified();
 	}
 	
 	@Override
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.AGGREGATION_TYPE, () -> aType, pType -> aType = Type.valueOf((String) pType));
+		properties().add(PropertyName.AGGREGATION_TYPE, () -> aType, pType -> setType(Type.valueOf((String) pType)));
 	}
 }
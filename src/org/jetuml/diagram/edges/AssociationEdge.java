@@ -42,6 +42,7 @@ public final class AssociationEdge extends ThreeLabelEdge
 	public void setDirectionality( Directionality pDirectionality )
 	{
 		aDirectionality = pDirectionality;
+		markModified();
 	}
 	
 	/**
@@ -57,6 +58,6 @@ public final class AssociationEdge extends ThreeLabelEdge
 	{
 		super.buildProperties();
 		properties().add(PropertyName.DIRECTIONALITY, () -> aDirectionality, 
-				pDirectionality -> aDirectionality = Directionality.valueOf((String)pDirectionality ));
+				pDirectionality -> setDirectionality(Directionality.valueOf((String)pDirectionality )));
 	}
 }
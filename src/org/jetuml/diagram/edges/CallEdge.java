@@ -43,7 +43,7 @@ public class CallEdge extends SingleLabelEdge
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.SIGNAL, () -> aSignal, pSignal -> aSignal = (boolean) pSignal);
+		properties().add(PropertyName.SIGNAL, () -> aSignal, pSignal -> setSignal((boolean) pSignal));
 	}
 	
 	/**
@@ -60,6 +60,7 @@ public class CallEdge extends SingleLabelEdge
 	public void setSignal(boolean pNewValue) 
 	{ 
 		aSignal = pNewValue; 
+		markModified();
 	}
 	
 	/**
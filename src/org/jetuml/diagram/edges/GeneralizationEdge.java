@@ -67,12 +67,13 @@ public final class GeneralizationEdge extends AbstractEdge
 	public void setType(Type pType)
 	{
 		aType = pType;
+		markModified();
 	}
 	
 	@Override
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.GENERALIZATION_TYPE, () -> aType, pType -> aType = Type.valueOf((String) pType));
+		properties().add(PropertyName.GENERALIZATION_TYPE, () -> aType, pType -> setType(Type.valueOf((String) pType)));
 	}
 }
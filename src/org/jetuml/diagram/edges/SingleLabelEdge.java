@@ -36,6 +36,7 @@ public abstract class SingleLabelEdge extends AbstractEdge
 	public void setMiddleLabel(String pNewValue)
 	{
 		aLabelText = pNewValue;
+		markModified();
 	}
 
 	/**
@@ -51,6 +52,6 @@ public abstract class SingleLabelEdge extends AbstractEdge
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.MIDDLE_LABEL, ()-> aLabelText, pLabel -> aLabelText = (String) pLabel );
+		properties().add(PropertyName.MIDDLE_LABEL, ()-> aLabelText, pLabel -> setMiddleLabel((String) pLabel) );
 	}
 }
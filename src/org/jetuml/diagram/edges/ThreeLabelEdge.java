@@ -36,6 +36,7 @@ public abstract class ThreeLabelEdge extends SingleLabelEdge
 	public void setStartLabel(String pLabel)
 	{
 		aStartLabel = pLabel;
+		markModified();
 	}
 	
 	/**
@@ -44,6 +45,7 @@ public abstract class ThreeLabelEdge extends SingleLabelEdge
 	public void setEndLabel(String pLabel)
 	{
 		aEndLabel = pLabel;
+		markModified();
 	}
 	
 	/**
@@ -66,7 +68,7 @@ public abstract class ThreeLabelEdge extends SingleLabelEdge
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().addAt(PropertyName.START_LABEL, ()-> aStartLabel, pLabel -> aStartLabel = (String) pLabel, 0);
-		properties().add(PropertyName.END_LABEL, ()-> aEndLabel, pLabel -> aEndLabel = (String) pLabel);
+		properties().addAt(PropertyName.START_LABEL, ()-> aStartLabel, pLabel -> setStartLabel((String) pLabel), 0);
+		properties().add(PropertyName.END_LABEL, ()-> aEndLabel, pLabel -> setEndLabel((String) pLabel));
 	}
 }
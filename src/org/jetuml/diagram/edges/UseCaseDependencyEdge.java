@@ -73,6 +73,10 @@ public final class UseCaseDependencyEdge extends AbstractEdge
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.USE_CASE_DEPENDENCY_TYPE, () -> aType, pType -> aType = Type.valueOf((String)pType));
+		properties().add(PropertyName.USE_CASE_DEPENDENCY_TYPE, () -> aType, pType ->
+		{
+			aType = Type.valueOf((String)pType);
+			markModified();
+		});
 	}
 }
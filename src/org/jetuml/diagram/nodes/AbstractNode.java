@@ -38,10 +38,26 @@ public abstract class AbstractNode extends AbstractDiagramElement implements Nod
 	private Point aPosition = new Point(0, 0);
 	private Optional<Diagram> aDiagram = Optional.empty();
 	
+	/**
+	 * Signals to the diagram that contains this node, if any, that its geometry 
+	 * may have changed. Must be called by all methods that modify this node
+	 * in a way that can change how it, or other nodes, are rendered.
+	 */
+	protected final void markModified()
+	{
+		Node node = this;
+		while( node.getDiagram().isEmpty() && node.hasParent() )
+		{
+			node = node.getParent();
+		}
+		node.getDiagram().ifPresent(Diagram::incrementRevision);
+	}
+	
 	@Override
 	public void translate(int pDeltaX, int pDeltaY)
 	{
 		aPosition = new Point( aPosition.getX() + pDeltaX, aPosition.getY() + pDeltaY );
+		markModified();
 	}
 	
 	@Override
@@ -54,6 +70,7 @@ public abstract class AbstractNode extends AbstractDiagramElement implements Nod
 	public final void moveTo(Point pPoint)
 	{
 		aPosition = pPoint;
+		markModified();
 	}
 
 	@Override
@@ -53,6 +53,7 @@ public class CallNode extends AbstractNode
 	public void setOpenBottom(boolean pNewValue)
 	{ 
 		aOpenBottom = pNewValue; 
+		markModified();
 	}
 
 	@Override
@@ -66,7 +67,7 @@ public class CallNode extends AbstractNode
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.OPEN_BOTTOM, () -> aOpenBottom, pOpen -> aOpenBottom = (boolean) pOpen);
+		properties().add(PropertyName.OPEN_BOTTOM, () -> aOpenBottom, pOpen -> setOpenBottom((boolean) pOpen));
 	}
 	
 	/**
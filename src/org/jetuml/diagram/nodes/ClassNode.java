@@ -48,6 +48,7 @@ public final class ClassNode extends TypeNode
 	{
 		assert pNewValue != null;
 		aAttributes = pNewValue;
+		markModified();
 	}
 
 	/**
@@ -64,6 +65,6 @@ public final class ClassNode extends TypeNode
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().addAt(PropertyName.ATTRIBUTES, () -> aAttributes, pAttributes -> aAttributes = (String)pAttributes, 1);
+		properties().addAt(PropertyName.ATTRIBUTES, () -> aAttributes, pAttributes -> setAttributes((String)pAttributes), 1);
 	}
 }
@@ -49,6 +49,7 @@ public final class FieldNode extends NamedNode
 	public void setValue(String pNewValue)
 	{
 		aValue = pNewValue;
+		markModified();
 	}
 
 	/**
@@ -91,7 +92,7 @@ public final class FieldNode extends NamedNode
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.VALUE, () -> aValue, pValue -> aValue = (String) pValue);
+		properties().add(PropertyName.VALUE, () -> aValue, pValue -> setValue((String) pValue));
 	}
 
 	@Override
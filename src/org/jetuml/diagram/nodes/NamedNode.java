@@ -37,6 +37,7 @@ public abstract class NamedNode extends AbstractNode
 	public void setName(String pName)
 	{
 		aName = pName;
+		markModified();
 	}
 
 	/**
@@ -52,6 +53,6 @@ public abstract class NamedNode extends AbstractNode
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.NAME, () -> aName, pName -> aName = (String)pName);
+		properties().add(PropertyName.NAME, () -> aName, pName -> setName((String)pName));
 	}
 }
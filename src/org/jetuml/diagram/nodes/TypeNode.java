@@ -44,6 +44,7 @@ public abstract class TypeNode extends NamedNode
 	{
 		assert pMethods != null;
 		aMethods = pMethods;
+		markModified();
 	}
 	
 	/**
@@ -96,7 +97,7 @@ public abstract class TypeNode extends NamedNode
 	protected void buildProperties()
 	{
 		super.buildProperties();
-		properties().add(PropertyName.METHODS, () -> aMethods, pMethods -> aMethods = (String)pMethods);
+		properties().add(PropertyName.METHODS, () -> aMethods, pMethods -> setMethods((String)pMethods));
 	}
 	
 	@Override
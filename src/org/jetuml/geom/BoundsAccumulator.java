@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.geom;
+
+/**
+ * Computes the smallest rectangle that contains a number of rectangles and
+ * points without creating an intermediate Rectangle for each one that is
+ * added, as Rectangle.add does. The result is the same as the one obtained
+ * by successive calls to Rectangle.add. An accumulator is meant to be used
+ * as a local variable and can be reused after a call to clear().
+ */
+public final class BoundsAccumulator
+{
+	private int aMinX;
+	private int aMinY;
+	private int aMaxX;
+	private int aMaxY;
+	private boolean aEmpty = true;
+	
+	/**
+	 * @return True if nothing was added since the accumulator was created
+	 *     or last cleared.
+	 */
+	public boolean isEmpty()
+	{
+		return aEmpty;
+	}
+	
+	/**
+	 * Removes everything added to this accumulator.
+	 */
+	public void clear()
+	{
+		aEmpty = true;
+	}
+	
+	/**
+	 * Extends the bounds to include pRectangle.
+	 * 
+	 * @param pRectangle The rectangle to include.
+	 * @pre pRectangle != null
+	 */
+	public void add(Rectangle pRectangle)
+	{
+		assert pRectangle != null;
+		add(pRectangle.getX(), pRectangle.getY(), pRectangle.getMaxX(), pRectangle.getMaxY());
+	}
+	
+	/**
+	 * Extends the bounds to include the point (pX, pY).
+	 * 
+	 * @param pX The x-coordinate of the point.
+	 * @param pY The y-coordinate of the point.
+	 */
+	public void add(int pX, int pY)
+	{
+		add(pX, pY, pX, pY);
+	}
+	
+	private void add(int pMinX, int pMinY, int pMaxX, int pMaxY)
+	{
+		if( aEmpty )
+		{
+			aMinX = pMinX;
+			aMinY = pMinY;
+			aMaxX = pMaxX;
+			aMaxY = pMaxY;
+			aEmpty = false;
+		}
+		else
+		{
+			aMinX = Math.min(aMinX, pMinX);
+			aMinY = Math.min(aMinY, pMinY);
+			aMaxX = Math.max(aMaxX, pMaxX);
+			aMaxY = Math.max(aMaxY, pMaxY);
+		}
+	}
+	
+	/**
+	 * @return The smallest rectangle that contains everything added.
+	 * @pre !isEmpty()
+	 */
+	public Rectangle toRectangle()
+	{
+		assert !aEmpty;
+		return new Rectangle(aMinX, aMinY, aMaxX - aMinX, aMaxY - aMinY);
+	}
+}
@@ -96,15 +96,16 @@ public final class GeomUtils
 			return intersectionForCardinalDirection(pRectangle, pDirection);
 		}
 		
-		Direction diagonalNE = Direction.fromLine(pRectangle.getCenter(), new Point(pRectangle.getMaxX(), pRectangle.getY()));
-		Direction diagonalSE = Direction.fromLine(pRectangle.getCenter(), new Point(pRectangle.getMaxX(), pRectangle.getMaxY()));
+		Point center = pRectangle.getCenter();
+		Direction diagonalNE = Direction.fromLine(center, new Point(pRectangle.getMaxX(), pRectangle.getY()));
+		Direction diagonalSE = Direction.fromLine(center, new Point(pRectangle.getMaxX(), pRectangle.getMaxY()));
 		Direction diagonalSW = diagonalNE.mirrored();
 		Direction diagonalNW = diagonalSE.mirrored();
 		
 		if( pDirection.isBetween(diagonalNE, diagonalSE))
 		{
 			int offset = lengthOfOpposingSide(pDirection.asAngle() - Direction.EAST.asAngle(), pRectangle.getWidth()/2);
-			return new Point(pRectangle.getMaxX(), pRectangle.getCenter().getY() + offset);
+			return new Point(pRectangle.getMaxX(), center.getY() + offset);
 		}
 		else if( pDirection.isBetween(diagonalSE, diagonalSW))
 		{
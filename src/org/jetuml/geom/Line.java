@@ -20,6 +20,7 @@
  *******************************************************************************/
 package org.jetuml.geom;
 
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 import java.util.Objects;
@@ -122,6 +123,21 @@ public class Line
 				abs(getX2() - getX1()), abs(getY2() - getY1()));
 	}
 	
+	/**
+	 * Checks whether a point is in the rectangle spanning this line without
+	 * creating the rectangle.
+	 * 
+	 * @param pPoint The point to check.
+	 * @return True if spanning().contains(pPoint).
+	 * @pre pPoint != null
+	 */
+	public boolean spanningContains(Point pPoint)
+	{
+		assert pPoint != null;
+		return pPoint.getX() >= min(getX1(), getX2()) && pPoint.getX() <= max(getX1(), getX2()) &&
+				pPoint.getY() >= min(getY1(), getY2()) && pPoint.getY() <= max(getY1(), getY2());
+	}
+	
 	@Override
 	public int hashCode()
 	{
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.geom;
+
+/**
+ * Represents points as single long values, so that code that tests or
+ * stores many points can do so without creating Point objects. The
+ * x-coordinate is held in the high 32 bits of the value and the
+ * y-coordinate in the low 32 bits. Two packed points are equal
+ * if and only if the corresponding points are equal.
+ */
+public final class PackedPoint
+{
+	private static final long LOW_BITS = 0xffffffffL;
+	
+	private PackedPoint() {}
+	
+	/**
+	 * @param pX The x-coordinate of the point.
+	 * @param pY The y-coordinate of the point.
+	 * @return The packed representation of the point (pX, pY).
+	 */
+	public static long pack(int pX, int pY)
+	{
+		return (long) pX << Integer.SIZE | pY & LOW_BITS;
+	}
+	
+	/**
+	 * @param pPoint The point to pack.
+	 * @return The packed representation of pPoint.
+	 * @pre pPoint != null
+	 */
+	public static long pack(Point pPoint)
+	{
+		assert pPoint != null;
+		return pack(pPoint.getX(), pPoint.getY());
+	}
+	
+	/**
+	 * @param pPoint A packed point.
+	 * @return The x-coordinate of pPoint.
+	 */
+	public static int x(long pPoint)
+	{
+		return (int) (pPoint >> Integer.SIZE);
+	}
+	
+	/**
+	 * @param pPoint A packed point.
+	 * @return The y-coordinate of pPoint.
+	 */
+	public static int y(long pPoint)
+	{
+		return (int) pPoint;
+	}
+	
+	/**
+	 * @param pPoint A packed point.
+	 * @return A new Point with the coordinates of pPoint.
+	 */
+	public static Point toPoint(long pPoint)
+	{
+		return new Point(x(pPoint), y(pPoint));
+	}
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+
+package org.jetuml.gui;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.Node;
+import org.jetuml.geom.Rectangle;
+
+/**
+ * Helper class for the DiagramCanvas that computes the area of the canvas
+ * that needs to be repainted since the last time it was painted.
+ *
+ * The tracker records the bounds of every element of the diagram, the selected
+ * elements, and the bounds of the selection tool (rubberband or lasso) as they
+ * were last painted. An element is damaged if it was added, removed, or if its bounds
+ * changed. An edge is also damaged if one of its end nodes is damaged, because its path
+ * can change without its bounds changing. Changes that do not affect the geometry
+ * of the diagram, such as editing the properties of an element, are not detected
+ * and require a complete repaint.
+ */
+public final class DamageTracker
+{
+	/* Margin added around damaged bounds to account for selection handles,
+	 * line widths, and anti-aliasing. */
+	private static final int MARGIN = 10;
+
+	private final Function<DiagramElement, Rectangle> aBoundsCalculator;
+	private Map<DiagramElement, Rectangle> aBounds = new IdentityHashMap<>();
+	private final Set<DiagramElement> aSelected = Collections.newSetFromMap(new IdentityHashMap<>());
+	private Optional<Rectangle> aTool = Optional.empty();
+	private boolean aTracking = false;
+
+	/**
+	 * Creates a new damage tracker.
+	 *
+	 * @param pBoundsCalculator A function to return the bounds of a diagram element.
+	 */
+	public DamageTracker(Function<DiagramElement, Rectangle> pBoundsCalculator)
+	{
+		aBoundsCalculator = pBoundsCalculator;
+	}
+
+	/**
+	 * @return True if the state of the canvas has been recorded, in which
+	 *     case the damage can be computed.
+	 */
+	public boolean isTracking()
+	{
+		return aTracking;
+	}
+
+	/**
+	 * Forgets the recorded state. The next call to update will not report any damage
+	 * and a complete repaint is required.
+	 */
+	public void reset()
+	{
+		aBounds.clear();
+		aSelected.clear();
+		aTool = Optional.empty();
+		aTracking = false;
+	}
+
+	/**
+	 * Computes the area that changed since the last call to this method, and records
+	 * the current state as painted. The geometry of pDiagram must be up to date.
+	 *
+	 * @param pDiagram The diagram painted on the canvas.
+	 * @param pSelected The selected elements.
+	 * @param pTool The bounds of the active selection tool, if any.
+	 * @return The damaged area, or Optional.empty() if nothing changed or if
+	 *     no state was recorded.
+	 * @pre pDiagram != null && pSelected != null && pTool != null
+	 */
+	public Optional<Rectangle> update(Diagram pDiagram, Iterable<DiagramElement> pSelected, Optional<Rectangle> pTool)
+	{
+		assert pDiagram != null && pSelected != null && pTool != null;
+		Map<DiagramElement, Rectangle> bounds = new IdentityHashMap<>();
+		Set<Node> damagedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		Damage damage = new Damage();
+
+		for( Node node : pDiagram.rootNodes() )
+		{
+			recordNode(node, bounds, damagedNodes, damage);
+		}
+		for( Edge edge : pDiagram.edges() )
+		{
+			Rectangle edgeBounds = aBoundsCalculator.apply(edge);
+			bounds.put(edge, edgeBounds);
+			Rectangle oldBounds = aBounds.remove(edge);
+			if( oldBounds == null || !oldBounds.equals(edgeBounds) ||
+					damagedNodes.contains(edge.getStart()) || damagedNodes.contains(edge.getEnd()))
+			{
+				damage.add(oldBounds);
+				damage.add(edgeBounds);
+			}
+		}
+		// Elements that are left were removed from the diagram
+		aBounds.values().forEach(damage::add);
+
+		Set<DiagramElement> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+		pSelected.forEach(selected::add);
+		for( DiagramElement element : selected )
+		{
+			if( !aSelected.contains(element) )
+			{
+				damage.add(bounds.get(element));
+			}
+		}
+		for( DiagramElement element : aSelected )
+		{
+			if( !selected.contains(element) )
+			{
+				damage.add(bounds.get(element));
+			}
+		}
+
+		if( !aTool.equals(pTool) )
+		{
+			aTool.ifPresent(damage::add);
+			pTool.ifPresent(damage::add);
+		}
+
+		boolean wasTracking = aTracking;
+		aBounds = bounds;
+		aSelected.clear();
+		aSelected.addAll(selected);
+		aTool = pTool;
+		aTracking = true;
+		if( !wasTracking )
+		{
+			return Optional.empty();
+		}
+		return damage.area();
+	}
+
+	private void recordNode(Node pNode, Map<DiagramElement, Rectangle> pBounds, Set<Node> pDamagedNodes, Damage pDamage)
+	{
+		Rectangle nodeBounds = aBoundsCalculator.apply(pNode);
+		pBounds.put(pNode, nodeBounds);
+		Rectangle oldBounds = aBounds.remove(pNode);
+		if( oldBounds == null || !oldBounds.equals(nodeBounds) )
+		{
+			pDamagedNodes.add(pNode);
+			pDamage.add(oldBounds);
+			pDamage.add(nodeBounds);
+		}
+		for( Node child : pNode.getChildren() )
+		{
+			recordNode(child, pBounds, pDamagedNodes, pDamage);
+		}
+	}
+
+	/*
+	 * Accumulates damaged rectangles.
+	 */
+	private static final class Damage
+	{
+		private Optional<Rectangle> aArea = Optional.empty();
+
+		void add(Rectangle pRectangle)
+		{
+			if( pRectangle == null )
+			{
+				return;
+			}
+			Rectangle expanded = new Rectangle(pRectangle.getX() - MARGIN, pRectangle.getY() - MARGIN,
+					pRectangle.getWidth() + 2 * MARGIN, pRectangle.getHeight() + 2 * MARGIN);
+			aArea = Optional.of(aArea.map(area -> area.add(expanded)).orElse(expanded));
+		}
+
+		Optional<Rectangle> area()
+		{
+			return aArea;
+		}
+	}
+}
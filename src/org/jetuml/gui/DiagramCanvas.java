@@ -21,6 +21,8 @@
 package org.jetuml.gui;
 import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -49,11 +51,17 @@ import org.jetuml.geom.Dimension;
 import org.jetuml.geom.Line;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.CanvasSurface;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.Grid;
+import org.jetuml.rendering.SvgSurface;
 import org.jetuml.rendering.ToolGraphics;
 
+import javafx.geometry.Bounds;
+import javafx.scene.Parent;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
@@ -72,8 +80,13 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	private static final int DIMENSION_BUFFER = 20;
 	private static final int GRID_SIZE = 10;
 	private static final int DIAGRAM_PADDING = 4;
+	/* Repaint the entire canvas if the damaged area is larger than this fraction of it. */
+	private static final double MAX_DAMAGE_RATIO = 0.5;
+	/* The number of pixels by which selection handles can extend beyond the bounds of an element. */
+	private static final int HANDLE_MARGIN = 5;
 	
-	private DiagramOperationProcessor aProcessor = new DiagramOperationProcessor();
+	private DiagramOperationProcessor aProcessor = 
+			new DiagramOperationProcessor(UserPreferences.instance().getInteger(IntegerPreference.undoHistorySize));
 	private final DiagramBuilder aDiagramBuilder;
 	private final DiagramTabToolBar aToolBar;
 	private MouseDraggedGestureHandler aHandler;
@@ -84,9 +97,15 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	private static final int CONNECT_THRESHOLD = 8;
 	
 	private final MoveTracker aMoveTracker;
+	private final DamageTracker aDamageTracker;
 	private DragMode aDragMode;
 	private Point aLastMousePoint;
 	private Point aMouseDownPoint;  
+	/* The area of the canvas whose content is up to date. */
+	private Rectangle aPaintedArea = new Rectangle(0, 0, 0, 0);
+	/* The image of the elements that do not move during the current drag, if any. */
+	private Optional<DragBackground> aDragBackground = Optional.empty();
+	private boolean aUseDragBackground = false;
 	
 	/**
 	 * Constructs the canvas, assigns the diagram to it.
@@ -100,6 +119,8 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		aToolBar = pToolBar;
 		aDiagramBuilder = pDiagramBuilder;
 		aMoveTracker = new MoveTracker(aDiagramBuilder.renderer()::getBounds);
+		aDamageTracker = new DamageTracker(aDiagramBuilder.renderer()::getBounds);
+		aDiagramBuilder.renderer().precomputeNodeBounds();
 		Dimension dimension = getDiagramCanvasWidth(pDiagramBuilder.diagram());
 		setWidth(dimension.width());
 		setHeight(dimension.height());
@@ -110,6 +131,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		setOnMousePressed(this::mousePressed);
 		setOnMouseReleased(this::mouseReleased);
 		setOnMouseDragged(this::mouseDragged);
+		localToSceneTransformProperty().addListener((observable, oldValue, newValue) -> viewportChanged());
 	}
 	
 	/**
@@ -137,6 +159,15 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		aProcessor.diagramSaved();
 	}
 	
+	/**
+	 * Notify the controller that its diagram was restored from
+	 * a copy that was never saved.
+	 */
+	public void diagramRestored()
+	{
+		aProcessor.diagramRestored();
+	}
+	
 	/**
 	 * @return True if the diagram controlled by this controller 
 	 *     has unsaved changes.
@@ -221,22 +252,178 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	
 	/**
 	 * Paints the panel and all the graph elements in aDiagramView.
-	 * Called after the panel is resized.
+	 * Called after the panel is resized. Only the area of the canvas 
+	 * visible in the enclosing scroll pane is painted.
 	 */
 	public void paintPanel()
+	{
+		aDragBackground = Optional.empty();
+		paintVisibleArea();
+		aDamageTracker.update(diagram(), aSelected, toolBounds());
+	}
+	
+	/**
+	 * Paints the canvas if part of the area visible in the enclosing
+	 * scroll pane has not been painted. Must be called when the canvas is
+	 * scrolled or the viewport of the scroll pane is resized.
+	 */
+	public void viewportChanged()
+	{
+		if( !aPaintedArea.contains(visibleArea()) )
+		{
+			paintPanel();
+		}
+	}
+	
+	private void paintVisibleArea()
+	{
+		aPaintedArea = visibleArea();
+		paint(aPaintedArea);
+	}
+	
+	/*
+	 * Repaints only the area of the canvas affected by changes to the geometry of
+	 * the diagram, to the selection, or to the selection tools since the canvas was
+	 * last painted. Other changes require a call to paintPanel.
+	 */
+	private void paintChanges()
+	{
+		if( !aDamageTracker.isTracking() )
+		{
+			paintPanel();
+			return;
+		}
+		aDiagramBuilder.renderer().computeGeometry();
+		synchronizeSelectionModel();
+		if( aDragBackground.isPresent() && !aDragBackground.get().isUnchanged() )
+		{
+			// Elements in the image changed: paint normally until the end of the drag
+			aDragBackground = Optional.empty();
+			aUseDragBackground = false;
+		}
+		Optional<Rectangle> damage = aDamageTracker.update(diagram(), aSelected, toolBounds())
+				.flatMap(area -> intersection(area, aPaintedArea));
+		if( damage.isEmpty() )
+		{
+			return;
+		}
+		Rectangle area = alignedToGrid(damage.get());
+		if( (double) area.getWidth() * area.getHeight() > 
+				(double) aPaintedArea.getWidth() * aPaintedArea.getHeight() * MAX_DAMAGE_RATIO )
+		{
+			paintVisibleArea();
+		}
+		else
+		{
+			paint(area);
+		}
+	}
+	
+	/*
+	 * Clears and repaints pArea. Elements that overlap pArea are clipped to it.
+	 * During a drag, the elements that do not move are copied from the drag
+	 * background if it covers pArea.
+	 */
+	private void paint(Rectangle pArea)
 	{
 		GraphicsContext context = getGraphicsContext2D();
-		context.setFill(Color.WHITE); 
-		context.fillRect(0, 0, getWidth(), getHeight());
-		if(UserPreferences.instance().getBoolean(BooleanPreference.showGrid)) 
+		context.save();
+		context.beginPath();
+		context.rect(pArea.getX(), pArea.getY(), pArea.getWidth(), pArea.getHeight());
+		context.clip();
+		DrawingSurface surface = new CanvasSurface(context);
+		Optional<DragBackground> background = aDragBackground.filter(drag -> drag.covers(pArea));
+		if( background.isPresent() )
+		{
+			background.get().draw(context, pArea);
+			aDiagramBuilder.renderer().draw(surface, pArea, background.get()::isMoving);
+		}
+		else
 		{
-			Grid.draw(context, new Rectangle(0, 0, (int) getWidth(), (int) getHeight()));
+			context.setFill(Color.WHITE); 
+			context.fillRect(pArea.getX(), pArea.getY(), pArea.getWidth(), pArea.getHeight());
+			if(UserPreferences.instance().getBoolean(BooleanPreference.showGrid)) 
+			{
+				Grid.draw(surface, pArea);
+			}
+			aDiagramBuilder.renderer().draw(surface, pArea);
 		}
-		aDiagramBuilder.renderer().draw(context);
 		synchronizeSelectionModel();
-		aSelected.forEach( selected -> aDiagramBuilder.renderer().drawSelectionHandles(selected, context));
-		aRubberband.ifPresent( rubberband -> ToolGraphics.drawRubberband(context, rubberband));
-		aLasso.ifPresent( lasso -> ToolGraphics.drawLasso(context, lasso));
+		for( DiagramElement selected : aSelected )
+		{
+			if( handlesIntersect(selected, pArea) )
+			{
+				aDiagramBuilder.renderer().drawSelectionHandles(selected, surface);
+			}
+		}
+		aRubberband.ifPresent( rubberband -> ToolGraphics.drawRubberband(surface, rubberband));
+		aLasso.ifPresent( lasso -> ToolGraphics.drawLasso(surface, lasso));
+		context.restore();
+	}
+	
+	/*
+	 * Returns true if the selection handles of pElement can be drawn in pArea.
+	 * The handles extend at most HANDLE_MARGIN pixels beyond the bounds of the element.
+	 */
+	private boolean handlesIntersect(DiagramElement pElement, Rectangle pArea)
+	{
+		Rectangle bounds = aDiagramBuilder.renderer().getBounds(pElement);
+		Rectangle handles = new Rectangle(bounds.getX() - HANDLE_MARGIN, bounds.getY() - HANDLE_MARGIN, 
+				bounds.getWidth() + 2 * HANDLE_MARGIN, bounds.getHeight() + 2 * HANDLE_MARGIN);
+		return intersection(handles, pArea).isPresent();
+	}
+	
+	/*
+	 * Extends pArea so that its origin is on the grid, so that the grid lines 
+	 * drawn in the area align with the rest of the grid.
+	 */
+	private static Rectangle alignedToGrid(Rectangle pArea)
+	{
+		int x = Math.floorDiv(pArea.getX(), GRID_SIZE) * GRID_SIZE;
+		int y = Math.floorDiv(pArea.getY(), GRID_SIZE) * GRID_SIZE;
+		return new Rectangle(x, y, pArea.getMaxX() - x, pArea.getMaxY() - y);
+	}
+	
+	private static Optional<Rectangle> intersection(Rectangle pRectangle1, Rectangle pRectangle2)
+	{
+		int x = Math.max(pRectangle1.getX(), pRectangle2.getX());
+		int y = Math.max(pRectangle1.getY(), pRectangle2.getY());
+		int maxX = Math.min(pRectangle1.getMaxX(), pRectangle2.getMaxX());
+		int maxY = Math.min(pRectangle1.getMaxY(), pRectangle2.getMaxY());
+		if( maxX <= x || maxY <= y )
+		{
+			return Optional.empty();
+		}
+		return Optional.of(new Rectangle(x, y, maxX - x, maxY - y));
+	}
+	
+	/*
+	 * Returns the area of the canvas visible in the closest enclosing scroll pane,
+	 * or the entire canvas if it is not in a scroll pane.
+	 */
+	private Rectangle visibleArea()
+	{
+		Rectangle canvas = new Rectangle(0, 0, (int) getWidth(), (int) getHeight());
+		Parent parent = getParent();
+		while( parent != null && !(parent instanceof ScrollPane) )
+		{
+			parent = parent.getParent();
+		}
+		if( parent == null )
+		{
+			return canvas;
+		}
+		Bounds viewport = sceneToLocal(parent.localToScene(parent.getLayoutBounds()));
+		int x = (int) Math.floor(viewport.getMinX());
+		int y = (int) Math.floor(viewport.getMinY());
+		Rectangle visible = new Rectangle(x, y, (int) Math.ceil(viewport.getMaxX()) - x, 
+				(int) Math.ceil(viewport.getMaxY()) - y);
+		return intersection(canvas, visible).orElse(new Rectangle(0, 0, 0, 0));
+	}
+	
+	private Optional<Rectangle> toolBounds()
+	{
+		return aRubberband.map(Line::spanning).or(() -> aLasso);
 	}
 	
 	/**
@@ -270,7 +457,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	@Override
 	public void selectionModelChanged()
 	{
-		paintPanel();		
+		paintChanges();		
 	}
 	
 	/**
@@ -458,6 +645,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 			}
 			aDragMode = DragMode.DRAG_MOVE;
 			aMoveTracker.start(aSelected);
+			aUseDragBackground = UserPreferences.instance().getBoolean(BooleanPreference.cacheDragBackground);
 		}
 		else // Nothing is selected
 		{
@@ -710,6 +898,11 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		int dx = pMousePoint.getX() - aLastMousePoint.getX();
 		int dy = pMousePoint.getY() - aLastMousePoint.getY();
 		
+		if( aUseDragBackground && aDragBackground.isEmpty() )
+		{
+			renderDragBackground();
+		}
+		
 		// Perform the move without painting it
 		selectedNodes().forEach(selected -> selected.translate(dx, dy));
 		
@@ -722,7 +915,24 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		selectedNodes().forEach(selected -> selected.translate(dxCorrection, dyCorrection));
 		
 		aLastMousePoint = pMousePoint; 
-		paintPanel();
+		paintChanges();
+	}
+	
+	/*
+	 * Renders the elements that do not move with the selection in the area of the
+	 * canvas that was last painted, at the resolution of the window.
+	 */
+	private void renderDragBackground()
+	{
+		double scale = 1;
+		if( getScene() != null && getScene().getWindow() != null )
+		{
+			scale = getScene().getWindow().getRenderScaleX();
+		}
+		DragBackground background = new DragBackground(aDiagramBuilder.renderer(), aSelected);
+		background.render(aPaintedArea, LINE_WIDTH, 
+				UserPreferences.instance().getBoolean(BooleanPreference.showGrid), scale);
+		aDragBackground = Optional.of(background);
 	}
 	
 	/**
@@ -731,6 +941,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	 */
 	public Image createImage()
 	{
+		aDiagramBuilder.renderer().precomputeNodeBounds();
 		Rectangle bounds = aDiagramBuilder.renderer().getBounds();
 		Canvas canvas = new Canvas(bounds.getWidth() + DIAGRAM_PADDING * 2, 
 				bounds.getHeight() + DIAGRAM_PADDING *2);
@@ -738,13 +949,53 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		context.setLineWidth(LINE_WIDTH);
 		context.setFill(Color.WHITE);
 		context.translate(-bounds.getX()+DIAGRAM_PADDING, -bounds.getY()+DIAGRAM_PADDING);
-		aDiagramBuilder.renderer().draw(context);
+		aDiagramBuilder.renderer().draw(new CanvasSurface(context));
 		WritableImage image = new WritableImage(bounds.getWidth() + DIAGRAM_PADDING * 2, 
 				bounds.getHeight() + DIAGRAM_PADDING *2);
 		canvas.snapshot(null, image);
 		return image;
 	}
 	
+	/**
+	 * Writes a PNG image of an entire diagram, with a white border around. The
+	 * diagram is drawn in tiles that are written as they are drawn, so no image
+	 * of the entire diagram is created.
+	 * 
+	 * @param pOutput Where to write the image.
+	 * @throws IOException If the image cannot be written.
+	 * @pre pOutput != null
+	 */
+	public void writePng(OutputStream pOutput) throws IOException
+	{
+		assert pOutput != null;
+		aDiagramBuilder.renderer().precomputeNodeBounds();
+		TiledPngWriter.write(aDiagramBuilder.renderer(), DIAGRAM_PADDING, LINE_WIDTH, 
+				TiledPngWriter.DEFAULT_TILE_SIZE, pOutput);
+	}
+	
+	/**
+	 * Writes an SVG document that shows an entire diagram, with a white border around.
+	 * The document is written as the diagram is drawn, so no image of the diagram
+	 * is created.
+	 * 
+	 * @param pOutput Where to write the document.
+	 * @pre pOutput != null
+	 */
+	public void writeSvg(Appendable pOutput)
+	{
+		assert pOutput != null;
+		aDiagramBuilder.renderer().precomputeNodeBounds();
+		Rectangle bounds = aDiagramBuilder.renderer().getBounds();
+		SvgSurface surface = new SvgSurface(pOutput, bounds.getWidth() + DIAGRAM_PADDING * 2, 
+				bounds.getHeight() + DIAGRAM_PADDING * 2);
+		surface.setFill(Color.WHITE);
+		surface.fillRect(0, 0, bounds.getWidth() + DIAGRAM_PADDING * 2, bounds.getHeight() + DIAGRAM_PADDING * 2);
+		surface.setLineWidth(LINE_WIDTH);
+		surface.translate(-bounds.getX()+DIAGRAM_PADDING, -bounds.getY()+DIAGRAM_PADDING);
+		aDiagramBuilder.renderer().draw(surface);
+		surface.finish();
+	}
+	
 	// ==================== Selection Model ==============================
 	
 	private List<DiagramElement> aSelected = new ArrayList<>();
@@ -772,9 +1023,9 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	private void activateLasso()
 	{
 		aLasso = Optional.of(computeLasso());
-		aDiagramBuilder.diagram().rootNodes().forEach( node -> selectNode(node, aLasso.get()));
-		aDiagramBuilder.diagram().edges().forEach( edge -> selectEdge(edge, aLasso.get()));
-		paintPanel();
+		aDiagramBuilder.renderer().rootNodesIntersecting(aLasso.get()).forEach( node -> selectNode(node, aLasso.get()));
+		aDiagramBuilder.renderer().edgesIntersecting(aLasso.get()).forEach( edge -> selectEdge(edge, aLasso.get()));
+		paintChanges();
 	}
 	
 	private void selectNode(Node pNode, Rectangle pLasso)
@@ -800,7 +1051,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	private void deactivateLasso()
 	{
 		aLasso = Optional.empty();
-		paintPanel();
+		paintChanges();
 	}
 	
 	/**
@@ -812,7 +1063,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	{
 		assert pLine != null;
 		aRubberband = Optional.of(pLine);
-		paintPanel();
+		paintChanges();
 	}
 	
 	/**
@@ -821,7 +1072,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	private void deactivateRubberband()
 	{
 		aRubberband = Optional.empty();
-		paintPanel();
+		paintChanges();
 	}
 	
 	/**
@@ -836,7 +1087,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		assert pNewSelection != null;
 		clearSelection();
 		pNewSelection.forEach(this::internalAddToSelection);
-		paintPanel();
+		paintChanges();
 	}
 	
 	/**
@@ -853,7 +1104,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	{
 		assert pElement != null;
 		internalAddToSelection(pElement);
-		paintPanel();
+		paintChanges();
 	}
 	
 	private void internalAddToSelection(DiagramElement pElement)
@@ -916,7 +1167,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	private void clearSelection()
 	{
 		aSelected.clear();
-		paintPanel();
+		paintChanges();
 	}
 	
 	/**
@@ -954,7 +1205,7 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 	{
 		assert pElement != null;
 		aSelected.remove(pElement);
-		paintPanel();
+		paintChanges();
 	}
 	
 	/**
@@ -968,6 +1219,6 @@ public class DiagramCanvas extends Canvas implements SelectionObserver, BooleanP
 		assert pElement != null;
 		aSelected.clear();
 		aSelected.add(pElement);
-		paintPanel();
+		paintChanges();
 	}
 }
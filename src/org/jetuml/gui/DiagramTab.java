@@ -26,6 +26,9 @@ import static java.lang.Math.min;
 import static org.jetuml.application.ApplicationResources.RESOURCES;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Optional;
 
 import org.jetuml.application.UserPreferences;
@@ -103,6 +106,8 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler, KeyEv
 
 		scroll.setFitToWidth(true);
 		scroll.setFitToHeight(true);
+		// Parts of the canvas outside the viewport are not painted until they are revealed
+		scroll.viewportBoundsProperty().addListener((observable, oldValue, newValue) -> aDiagramCanvas.viewportChanged());
 		layout.setCenter(scroll);
 		
 		setTitle();
@@ -254,6 +259,15 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler, KeyEv
 		aDiagramCanvas.diagramSaved();
 	}
 	
+	/**
+	 * Notify the tab that its diagram was restored from a copy 
+	 * that was never saved.
+	 */
+	public void diagramRestored()
+	{
+		aDiagramCanvas.diagramRestored();
+	}
+	
 	/**
 	 * @return True if the diagram in this tab
 	 *     has unsaved changes.
@@ -353,4 +367,28 @@ public class DiagramTab extends Tab implements MouseDraggedGestureHandler, KeyEv
 	{
 		return aDiagramCanvas.createImage();
 	}
+	
+	/**
+	 * Writes a PNG image of the entire diagram in this tab.
+	 * 
+	 * @param pOutput Where to write the image.
+	 * @throws IOException If the image cannot be written to pOutput.
+	 * @pre pOutput != null
+	 */
+	public void writePng(OutputStream pOutput) throws IOException
+	{
+		aDiagramCanvas.writePng(pOutput);
+	}
+	
+	/**
+	 * Writes an SVG document that shows the entire diagram in this tab.
+	 * 
+	 * @param pOutput Where to write the document.
+	 * @throws UncheckedIOException If the document cannot be written to pOutput.
+	 * @pre pOutput != null
+	 */
+	public void writeSvg(Appendable pOutput)
+	{
+		aDiagramCanvas.writeSvg(pOutput);
+	}
 }	        
@@ -32,7 +32,9 @@ import org.jetuml.application.UserPreferences.IntegerPreference;
 import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.Prototypes;
 import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.CanvasSurface;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.ToolGraphics;
 import org.jetuml.rendering.nodes.AbstractNodeRenderer;
 
@@ -40,7 +42,6 @@ import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
 import javafx.scene.Parent;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBase;
 import javafx.scene.control.ContextMenu;
@@ -94,7 +95,7 @@ public class DiagramTabToolBar extends ToolBar implements BooleanPreferenceChang
 	{
 		int offset = AbstractNodeRenderer.OFFSET + 3;
 		Canvas canvas = new Canvas(AbstractNodeRenderer.BUTTON_SIZE, AbstractNodeRenderer.BUTTON_SIZE);
-		GraphicsContext graphics = canvas.getGraphicsContext2D();
+		DrawingSurface graphics = new CanvasSurface(canvas.getGraphicsContext2D());
 		ToolGraphics.drawHandles(graphics, new Rectangle(offset, offset, 
 				AbstractNodeRenderer.BUTTON_SIZE - (offset*2), AbstractNodeRenderer.BUTTON_SIZE-(offset*2) ));
 		return canvas;
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.gui;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.Node;
+import org.jetuml.geom.Line;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.CanvasSurface;
+import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
+import org.jetuml.rendering.Grid;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+
+/**
+ * Helper class for the DiagramCanvas that holds an image of an area of the
+ * canvas without the elements that move when the selection is dragged, so that
+ * each step of the drag only needs to copy the image and draw the moving elements.
+ *
+ * The moving elements are the root nodes that contain a selected node, with
+ * their children, the selected edges, the edges connected to a moving node, and
+ * the edges that share an end node with one of these edges, because the layout
+ * of class diagrams can change the connection points of edges on the same side
+ * of a node. The moving elements are drawn on top of the image, so during the 
+ * drag they appear above edges that would otherwise be drawn over them.
+ *
+ * The image remains valid as long as the connection points of the other edges
+ * do not change, which is checked by isUnchanged. Because it is drawn
+ * with snapshots of a canvas, the image must be rendered on the JavaFX 
+ * application thread.
+ */
+final class DragBackground
+{
+	private final DiagramRenderer aRenderer;
+	private final Set<DiagramElement> aMoving = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Map<Edge, Line> aStaticEdges = new IdentityHashMap<>();
+	private Optional<Image> aImage = Optional.empty();
+	private Rectangle aArea = new Rectangle(0, 0, 0, 0);
+	private double aScale = 1;
+
+	/**
+	 * Determines the elements that move with pSelected and records the connection
+	 * points of the other edges. The geometry of the diagram must be up to date.
+	 *
+	 * @param pRenderer The renderer of the diagram on the canvas.
+	 * @param pSelected The elements that are dragged.
+	 * @pre pRenderer != null && pSelected != null
+	 */
+	DragBackground(DiagramRenderer pRenderer, Iterable<DiagramElement> pSelected)
+	{
+		assert pRenderer != null && pSelected != null;
+		aRenderer = pRenderer;
+		Set<Node> movingNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( DiagramElement element : pSelected )
+		{
+			if( element instanceof Node )
+			{
+				Node root = (Node) element;
+				while( root.hasParent() )
+				{
+					root = root.getParent();
+				}
+				aMoving.add(root);
+				addSubtree(root, movingNodes);
+			}
+			else
+			{
+				aMoving.add(element);
+			}
+		}
+		Set<Node> endNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( Edge edge : pRenderer.diagram().edges() )
+		{
+			if( movingNodes.contains(edge.getStart()) || movingNodes.contains(edge.getEnd()) )
+			{
+				endNodes.add(edge.getStart());
+				endNodes.add(edge.getEnd());
+			}
+		}
+		for( Edge edge : pRenderer.diagram().edges() )
+		{
+			if( aMoving.contains(edge) || endNodes.contains(edge.getStart()) || endNodes.contains(edge.getEnd()) )
+			{
+				aMoving.add(edge);
+			}
+			else
+			{
+				aStaticEdges.put(edge, pRenderer.getConnectionPoints(edge));
+			}
+		}
+	}
+
+	private static void addSubtree(Node pNode, Set<Node> pNodes)
+	{
+		pNodes.add(pNode);
+		for( Node child : pNode.getChildren() )
+		{
+			addSubtree(child, pNodes);
+		}
+	}
+
+	/**
+	 * @param pElement An edge or a root node.
+	 * @return True if pElement is not part of the image and must be drawn
+	 *     at each step of the drag.
+	 * @pre pElement != null
+	 */
+	boolean isMoving(DiagramElement pElement)
+	{
+		assert pElement != null;
+		return aMoving.contains(pElement);
+	}
+
+	/**
+	 * @return True if the edges drawn in the image are still connected at the
+	 *     same points. The geometry of the diagram must be up to date.
+	 */
+	boolean isUnchanged()
+	{
+		for( Map.Entry<Edge, Line> edge : aStaticEdges.entrySet() )
+		{
+			if( !aRenderer.getConnectionPoints(edge.getKey()).equals(edge.getValue()) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param pArea An area of the canvas.
+	 * @return True if the image was rendered for an area that contains pArea.
+	 * @pre pArea != null
+	 */
+	boolean covers(Rectangle pArea)
+	{
+		assert pArea != null;
+		return aImage.isPresent() && aArea.contains(pArea);
+	}
+
+	/**
+	 * Renders the image of pArea with the grid, if requested, and the elements
+	 * that do not move, in the same way as they are painted on the canvas.
+	 *
+	 * @param pArea The area of the canvas to render.
+	 * @param pLineWidth The default line width of the canvas.
+	 * @param pShowGrid True if the grid is shown on the canvas.
+	 * @param pScale The number of pixels of the image per unit of the canvas.
+	 * @pre pArea != null && pLineWidth > 0 && pScale > 0
+	 */
+	void render(Rectangle pArea, double pLineWidth, boolean pShowGrid, double pScale)
+	{
+		assert pArea != null && pLineWidth > 0 && pScale > 0;
+		aArea = pArea;
+		aScale = pScale;
+		aImage = Optional.empty();
+		int width = (int) Math.ceil(pArea.getWidth() * pScale);
+		int height = (int) Math.ceil(pArea.getHeight() * pScale);
+		if( width == 0 || height == 0 )
+		{
+			return;
+		}
+		Canvas canvas = new Canvas(pArea.getWidth(), pArea.getHeight());
+		GraphicsContext context = canvas.getGraphicsContext2D();
+		context.setLineWidth(pLineWidth);
+		context.setFill(Color.WHITE);
+		context.fillRect(0, 0, pArea.getWidth(), pArea.getHeight());
+		context.translate(-pArea.getX(), -pArea.getY());
+		DrawingSurface surface = new CanvasSurface(context);
+		if( pShowGrid )
+		{
+			Grid.draw(surface, pArea);
+		}
+		aRenderer.draw(surface, pArea, element -> !isMoving(element));
+		SnapshotParameters parameters = new SnapshotParameters();
+		parameters.setTransform(Transform.scale(pScale, pScale));
+		aImage = Optional.of(canvas.snapshot(parameters, new WritableImage(width, height)));
+	}
+
+	/**
+	 * Copies the part of the image that corresponds to pArea to the same area of the canvas.
+	 *
+	 * @param pContext The graphics context of the canvas.
+	 * @param pArea The area to copy.
+	 * @pre pContext != null && covers(pArea)
+	 */
+	void draw(GraphicsContext pContext, Rectangle pArea)
+	{
+		assert pContext != null && covers(pArea);
+		pContext.drawImage(aImage.get(), (pArea.getX() - aArea.getX()) * aScale, (pArea.getY() - aArea.getY()) * aScale,
+				pArea.getWidth() * aScale, pArea.getHeight() * aScale,
+				pArea.getX(), pArea.getY(), pArea.getWidth(), pArea.getHeight());
+	}
+}
@@ -26,16 +26,23 @@ import static org.jetuml.application.ApplicationResources.RESOURCES;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.prefs.Preferences;
 import java.util.stream.Stream;
 
@@ -49,18 +56,27 @@ import org.jetuml.application.UserPreferences.BooleanPreference;
 import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramType;
 import org.jetuml.gui.tips.TipDialog;
-import org.jetuml.persistence.DeserializationException;
+import org.jetuml.persistence.AutoSaver;
 import org.jetuml.persistence.PersistenceService;
 import org.jetuml.persistence.VersionedDiagram;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
@@ -68,9 +84,12 @@ import javafx.scene.image.Image;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  * The main frame that contains panes that contain diagrams.
@@ -82,12 +101,24 @@ public class EditorFrame extends BorderPane
 	private static final String KEY_LAST_IMAGE_FORMAT = "lastImageFormat";
 	private static final String USER_MANUAL_URL = "https://www.jetuml.org/docs/user-guide.html";
 	
-	private static final String[] IMAGE_FORMATS = validFormats("png", "jpg", "gif", "bmp");
+	private static final String SVG_FORMAT = "svg";
+	private static final String[] IMAGE_FORMATS = validFormats("png", "jpg", "gif", "bmp", SVG_FORMAT);
+	private static final double AUTOSAVE_PERIOD = 30; // Seconds
+	private static final int PROGRESS_SPACING = 5;
 	
 	private Stage aMainStage;
 	private RecentFilesQueue aRecentFiles = new RecentFilesQueue();
 	private Menu aRecentFilesMenu;
 	private WelcomeTab aWelcomeTab;
+	private Optional<AutoSaver> aAutoSaver = Optional.empty();
+	private final List<OpenFileTask> aOpenTasks = new ArrayList<>();
+	private final ExecutorService aOpenExecutor = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(), runnable ->
+	{
+		Thread thread = new Thread(runnable, "OpenFile");
+		thread.setDaemon(true);
+		return thread;
+	});
 	
 	/**
 	 * Constructs a blank frame with a desktop pane but no diagram window.
@@ -107,6 +138,7 @@ public class EditorFrame extends BorderPane
 //		tabPane.setTabDragPolicy(TabPane.TabDragPolicy.REORDER); // This JavaFX feature is too buggy to use at the moment see issue #455
 		tabPane.getSelectionModel().selectedItemProperty().addListener((pValue, pOld, pNew) -> setMenuVisibility());
 		setCenter( tabPane );
+		setBottom( new VBox() ); // Progress of the files being opened
 
 		List<NewDiagramHandler> newDiagramHandlers = createNewDiagramHandlers();
 		createFileMenu(menuBar, newDiagramHandlers);
@@ -117,6 +149,7 @@ public class EditorFrame extends BorderPane
 		
 		aWelcomeTab = new WelcomeTab(newDiagramHandlers);
 		showWelcomeTabIfNecessary();
+		startAutoSave();
 		
 		pOpenWith.ifPresent(this::open);
 		
@@ -136,15 +169,80 @@ public class EditorFrame extends BorderPane
 		});
 	}
 	
+	/*
+	 * Opens the diagrams recovered from instances of the application that did not
+	 * terminate normally, then periodically copies the modified diagrams in the
+	 * background. Autosave is disabled if its directory cannot be used.
+	 */
+	private void startAutoSave()
+	{
+		try
+		{
+			AutoSaver autoSaver = new AutoSaver(AutoSaver.defaultDirectory());
+			aAutoSaver = Optional.of(autoSaver);
+			List<Diagram> recovered = autoSaver.recover();
+			for( Diagram diagram : recovered )
+			{
+				DiagramTab tab = new DiagramTab(diagram);
+				tab.diagramRestored();
+				insertGraphFrameIntoTabbedPane(tab);
+			}
+			if( !recovered.isEmpty() )
+			{
+				// Shown once the main stage is visible
+				Platform.runLater(() ->
+				{
+					Alert alert = new Alert(AlertType.INFORMATION, MessageFormat.format(
+							RESOURCES.getString("dialog.recover.message"), Integer.valueOf(recovered.size())), ButtonType.OK);
+					alert.initOwner(aMainStage);
+					alert.setTitle(RESOURCES.getString("dialog.recover.title"));
+					alert.setHeaderText(RESOURCES.getString("dialog.recover.title"));
+					alert.showAndWait();
+				});
+			}
+			Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(AUTOSAVE_PERIOD), event -> autoSave()));
+			timeline.setCycleCount(Animation.INDEFINITE);
+			timeline.play();
+		}
+		catch( IOException exception )
+		{
+			// Autosave stays disabled
+		}
+	}
+	
+	/*
+	 * Copies the diagrams with unsaved changes. Only the diagrams modified 
+	 * since they were last copied are written again. The copies of diagrams 
+	 * that are back to their saved state, for example after an undo, are deleted.
+	 */
+	private void autoSave()
+	{
+		for( Tab tab : tabs() )
+		{
+			if( tab instanceof DiagramTab )
+			{
+				DiagramTab diagramTab = (DiagramTab) tab;
+				if( diagramTab.hasUnsavedChanges() )
+				{
+					aAutoSaver.get().save(diagramTab.getDiagram());
+				}
+				else
+				{
+					aAutoSaver.get().discard(diagramTab.getDiagram());
+				}
+			}
+		}
+	}
+	
 	/* Returns the subset of pDesiredFormats for which a registered image writer 
-	 * claims to recognized the format */
+	 * claims to recognized the format. SVG documents are written without an image writer. */
 	private static String[] validFormats(String... pDesiredFormats)
 	{
 		List<String> recognizedWriters = Arrays.asList(ImageIO.getWriterFormatNames());
 		List<String> validFormats = new ArrayList<>();
 		for( String format : pDesiredFormats )
 		{
-			if( recognizedWriters.contains(format))
+			if( recognizedWriters.contains(format) || SVG_FORMAT.equals(format))
 			{
 				validFormats.add(format);
 			}
@@ -196,6 +294,10 @@ public class EditorFrame extends BorderPane
 				factory.createMenuItem("file.duplicate", true, event -> duplicate()),
 				factory.createMenuItem("file.export_image", true, event -> exportImage()),
 				factory.createMenuItem("file.copy_to_clipboard", true, event -> copyToClipboard()),
+				factory.createCheckMenuItem("file.binary_format", false, 
+						UserPreferences.instance().getBoolean(BooleanPreference.binaryFormat),
+						event -> UserPreferences.instance().setBoolean(BooleanPreference.binaryFormat, 
+								((CheckMenuItem) event.getSource()).isSelected())),
 				new SeparatorMenuItem(),
 				factory.createMenuItem("file.exit", false, event -> exit())));
 	}
@@ -238,6 +340,11 @@ public class EditorFrame extends BorderPane
 						UserPreferences.instance().getBoolean(BooleanPreference.autoEditNode),
 						event -> UserPreferences.instance().setBoolean(BooleanPreference.autoEditNode, 
 								((CheckMenuItem) event.getSource()).isSelected())),
+				
+				factory.createCheckMenuItem("view.cache_drag_background", false, 
+						UserPreferences.instance().getBoolean(BooleanPreference.cacheDragBackground),
+						event -> UserPreferences.instance().setBoolean(BooleanPreference.cacheDragBackground, 
+								((CheckMenuItem) event.getSource()).isSelected())),
 		
 				factory.createMenuItem("view.diagram_size", false, event -> new DiagramSizeDialog(aMainStage).show()),
 				factory.createMenuItem("view.font_size", false, event -> new FontSizeDialog(aMainStage).show()),
@@ -277,7 +384,9 @@ public class EditorFrame extends BorderPane
 	
 	/*
 	 * Opens a file with the given name, or switches to the frame if it is already
-	 * open.
+	 * open. The file is read in the background while its progress is shown at the
+	 * bottom of the frame, and the diagram is shown in a new tab once it is read.
+	 * Several files can be opened at the same time.
 	 * 
 	 * @param pName the file to open. Not null.
 	 */
@@ -291,29 +400,77 @@ public class EditorFrame extends BorderPane
 			addRecentFile(pFile.getPath());
 			return;
 		}
-		
-		try 
+		if( aOpenTasks.stream().anyMatch(task -> task.getFile().getAbsoluteFile().equals(pFile.getAbsoluteFile())) )
 		{
-			VersionedDiagram versionedDiagram = PersistenceService.read(pFile); 
-			DiagramTab frame = new DiagramTab(versionedDiagram.diagram());
-			frame.setFile(pFile.getAbsoluteFile());
-			addRecentFile(pFile.getPath());
-			insertGraphFrameIntoTabbedPane(frame);
-			if( versionedDiagram.wasMigrated())
-			{
-				String message = String.format(RESOURCES.getString("warning.version.message"), 
-						versionedDiagram.version().toString());
-				Alert alert = new Alert(AlertType.WARNING, message, ButtonType.OK);
-				alert.setTitle(RESOURCES.getString("warning.version.title"));
-				alert.initOwner(aMainStage);
-				alert.showAndWait();
-			}
+			return;
 		}
-		catch(IOException | DeserializationException exception) 
+		
+		OpenFileTask task = new OpenFileTask(pFile);
+		HBox progress = createOpenProgress(task);
+		task.setOnSucceeded(event -> 
 		{
+			openTaskDone(task, progress);
+			openDiagram(pFile, task.getValue());
+		});
+		task.setOnFailed(event -> 
+		{
+			openTaskDone(task, progress);
 			Alert alert = new Alert(AlertType.ERROR, RESOURCES.getString("error.open_file"), ButtonType.OK);
 			alert.initOwner(aMainStage);
 			alert.showAndWait();
+		});
+		task.setOnCancelled(event -> openTaskDone(task, progress));
+		aOpenTasks.add(task);
+		((VBox) getBottom()).getChildren().add(progress);
+		aOpenExecutor.execute(task);
+	}
+	
+	/*
+	 * Creates a progress bar for pTask, with a button to cancel the task.
+	 */
+	private static HBox createOpenProgress(OpenFileTask pTask)
+	{
+		ProgressBar progressBar = new ProgressBar();
+		progressBar.progressProperty().bind(pTask.progressProperty());
+		Button cancel = new Button(RESOURCES.getString("dialog.open.cancel"));
+		cancel.setOnAction(event -> pTask.cancel());
+		HBox result = new HBox(PROGRESS_SPACING, 
+				new Label(MessageFormat.format(RESOURCES.getString("dialog.open.progress"), pTask.getFile().getName())), 
+				progressBar, cancel);
+		result.setAlignment(Pos.CENTER_LEFT);
+		result.setPadding(new Insets(PROGRESS_SPACING));
+		return result;
+	}
+	
+	private void openTaskDone(OpenFileTask pTask, HBox pProgress)
+	{
+		aOpenTasks.remove(pTask);
+		((VBox) getBottom()).getChildren().remove(pProgress);
+	}
+	
+	/*
+	 * Shows a diagram read from pFile in a new tab.
+	 */
+	private void openDiagram(File pFile, VersionedDiagram pDiagram)
+	{
+		Optional<DiagramTab> tab = findTabFor(pFile);
+		if( tab.isPresent() )
+		{
+			tabPane().getSelectionModel().select(tab.get());
+			return;
+		}
+		DiagramTab frame = new DiagramTab(pDiagram.diagram());
+		frame.setFile(pFile.getAbsoluteFile());
+		addRecentFile(pFile.getPath());
+		insertGraphFrameIntoTabbedPane(frame);
+		if( pDiagram.wasMigrated())
+		{
+			String message = String.format(RESOURCES.getString("warning.version.message"), 
+					pDiagram.version().toString());
+			Alert alert = new Alert(AlertType.WARNING, message, ButtonType.OK);
+			alert.setTitle(RESOURCES.getString("warning.version.title"));
+			alert.initOwner(aMainStage);
+			alert.showAndWait();
 		}
 	}
 	
@@ -370,6 +527,12 @@ public class EditorFrame extends BorderPane
    			item.setOnAction(pEvent -> open(file));
             i++;
    		}
+   		if( aRecentFiles.size() > 1 )
+   		{
+   			MenuItem openAll = new MenuItem(RESOURCES.getString("file.recent.open_all"));
+   			openAll.setOnAction(pEvent -> aRecentFiles.forEach(this::open));
+   			aRecentFilesMenu.getItems().addAll(new SeparatorMenuItem(), openAll);
+   		}
    }
 
 	private void openFile() 
@@ -378,10 +541,10 @@ public class EditorFrame extends BorderPane
 		fileChooser.setInitialDirectory(aRecentFiles.getMostRecentDirectory());
 		fileChooser.getExtensionFilters().addAll(FileExtensions.all());
 
-		File selectedFile = fileChooser.showOpenDialog(aMainStage);
-		if(selectedFile != null) 
+		List<File> selectedFiles = fileChooser.showOpenMultipleDialog(aMainStage);
+		if(selectedFiles != null) 
 		{
-			open(selectedFile);
+			selectedFiles.forEach(this::open);
 		}
 	}
 
@@ -480,8 +643,12 @@ public class EditorFrame extends BorderPane
 		}
 		try 
 		{
-			PersistenceService.save(diagramTab.getDiagram(), file.get());
+			// An existing file keeps its encoding, whatever the encoding selected for new files
+			boolean binary = file.get().exists() ? PersistenceService.isBinary(file.get()) : 
+				UserPreferences.instance().getBoolean(BooleanPreference.binaryFormat);
+			saveDiagram(diagramTab.getDiagram(), file.get(), binary);
 			diagramTab.diagramSaved();
+			aAutoSaver.ifPresent(autoSaver -> autoSaver.discard(diagramTab.getDiagram()));
 		} 
 		catch(IOException exception) 
 		{
@@ -491,6 +658,22 @@ public class EditorFrame extends BorderPane
 		}
 	}
 
+	/*
+	 * Saves pDiagram in pFile in the binary encoding if pBinary is true, 
+	 * and in JSON otherwise.
+	 */
+	private static void saveDiagram(Diagram pDiagram, File pFile, boolean pBinary) throws IOException
+	{
+		if( pBinary )
+		{
+			PersistenceService.saveBinary(pDiagram, pFile);
+		}
+		else
+		{
+			PersistenceService.save(pDiagram, pFile);
+		}
+	}
+
 	private void saveAs() 
 	{
 		DiagramTab diagramTab = getSelectedDiagramTab();
@@ -516,11 +699,12 @@ public class EditorFrame extends BorderPane
 			File result = fileChooser.showSaveDialog(aMainStage);
 			if( result != null )
 			{
-				PersistenceService.save(diagram, result);
+				saveDiagram(diagram, result, UserPreferences.instance().getBoolean(BooleanPreference.binaryFormat));
 				addRecentFile(result.getAbsolutePath());
 				diagramTab.setFile(result);
 				diagramTab.setText(diagramTab.getFile().get().getName());
 				diagramTab.diagramSaved();
+				aAutoSaver.ifPresent(autoSaver -> autoSaver.discard(diagram));
 				File dir = result.getParentFile();
 				if( dir != null )
 				{
@@ -577,6 +761,18 @@ public class EditorFrame extends BorderPane
 		DiagramTab frame = getSelectedDiagramTab();
 		try (OutputStream out = new FileOutputStream(file)) 
 		{
+			if( SVG_FORMAT.equals(format) ) // written as the diagram is drawn, without an image
+			{
+				Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				frame.writeSvg(writer);
+				writer.flush();
+				return;
+			}
+			if("png".equals(format)) // written in tiles, without an image of the whole diagram
+			{
+				frame.writePng(out);
+				return;
+			}
 			BufferedImage image = getBufferedImage(frame); 
 			if("jpg".equals(format))	// to correct the display of JPEG/JPG images (removes red hue)
 			{
@@ -599,7 +795,7 @@ public class EditorFrame extends BorderPane
 				ImageIO.write(image, format, out);
 			}
 		} 
-		catch(IOException exception) 
+		catch(IOException | UncheckedIOException exception) 
 		{
 			Alert alert = new Alert(AlertType.ERROR, RESOURCES.getString("error.save_file"), ButtonType.OK);
 			alert.initOwner(aMainStage);
@@ -669,12 +865,14 @@ public class EditorFrame extends BorderPane
 			if (alert.getResult() == ButtonType.YES) 
 			{
 				Preferences.userNodeForPackage(JetUML.class).put("recent", aRecentFiles.serialize());
+				aAutoSaver.ifPresent(AutoSaver::close);
 				System.exit(0);
 			}
 		}
 		else 
 		{
 			Preferences.userNodeForPackage(JetUML.class).put("recent", aRecentFiles.serialize());
+			aAutoSaver.ifPresent(AutoSaver::close);
 			System.exit(0);
 		}
 	}		
@@ -724,6 +922,7 @@ public class EditorFrame extends BorderPane
 	 */
 	private void removeGraphFrameFromTabbedPane(DiagramTab pTab) 
 	{
+		aAutoSaver.ifPresent(autoSaver -> autoSaver.discard(pTab.getDiagram()));
 		pTab.close();
 		tabs().remove(pTab);
 		showWelcomeTabIfNecessary();
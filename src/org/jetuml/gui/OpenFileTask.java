@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.gui;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.persistence.PersistenceService;
+import org.jetuml.persistence.VersionedDiagram;
+
+import javafx.concurrent.Task;
+
+/**
+ * Reads, decodes, and migrates a diagram file, outside of the JavaFX application
+ * thread. The progress of the task is the fraction of the file read so far.
+ * Once the diagram is decoded, its text is measured so that the layout of the 
+ * diagram on the application thread can use the cached measurements.
+ * 
+ * If the task is cancelled while the file is read, the reading stops.
+ */
+final class OpenFileTask extends Task<VersionedDiagram>
+{
+	private final File aFile;
+	
+	/**
+	 * @param pFile The file to open.
+	 * @pre pFile != null
+	 */
+	OpenFileTask(File pFile)
+	{
+		assert pFile != null;
+		aFile = pFile;
+	}
+	
+	/**
+	 * @return The file opened by this task.
+	 */
+	File getFile()
+	{
+		return aFile;
+	}
+
+	@Override
+	protected VersionedDiagram call() throws Exception
+	{
+		long length = aFile.length();
+		VersionedDiagram result = PersistenceService.read(new ProgressInputStream(new FileInputStream(aFile), length));
+		if( isCancelled() )
+		{
+			throw new InterruptedIOException();
+		}
+		DiagramType.newRendererInstanceFor(result.diagram()).getBounds();
+		return result;
+	}
+	
+	/*
+	 * Reports the number of bytes read as the progress of the task,
+	 * and stops reading when the task is cancelled.
+	 */
+	private final class ProgressInputStream extends FilterInputStream
+	{
+		private final long aLength;
+		private long aRead = 0;
+		
+		ProgressInputStream(InputStream pInput, long pLength)
+		{
+			super(pInput);
+			aLength = pLength;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			int result = super.read();
+			progress(result < 0 ? 0 : 1);
+			return result;
+		}
+		
+		@Override
+		public int read(byte[] pBytes, int pOffset, int pLength) throws IOException
+		{
+			int result = super.read(pBytes, pOffset, pLength);
+			progress(Math.max(result, 0));
+			return result;
+		}
+		
+		private void progress(int pBytes) throws InterruptedIOException
+		{
+			if( isCancelled() )
+			{
+				throw new InterruptedIOException();
+			}
+			aRead += pBytes;
+			updateProgress(aRead, aLength);
+		}
+	}
+}
@@ -29,7 +29,7 @@ import org.jetuml.diagram.Properties;
 import org.jetuml.diagram.Property;
 import org.jetuml.diagram.PropertyName;
 import org.jetuml.diagram.builder.CompoundOperation;
-import org.jetuml.diagram.builder.SimpleOperation;
+import org.jetuml.diagram.builder.DiagramBuilder;
 
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -166,9 +166,7 @@ public class PropertyEditorDialog
 				{
 					final Object newValue = property.get();
 					final Object oldValue = aOldValues.get(property.name());
-					operation.add(new SimpleOperation(
-							()-> property.set(newValue),
-							()-> property.set(oldValue)));
+					operation.add(DiagramBuilder.createPropertyChangeOperation(property, oldValue, newValue));
 				}
 			}
 			return operation;
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.gui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.CanvasSurface;
+import org.jetuml.rendering.DiagramRenderer;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Writes the image of a diagram as a PNG file without creating an image of the
+ * whole diagram. The diagram is drawn in square tiles on a single canvas, and
+ * the tiles of a row are copied into a band of pixels that is compressed into
+ * the file before the next row of tiles is drawn. The memory used is thus
+ * proportional to the width of the diagram instead of to its area.
+ *
+ * Because the tiles are obtained with snapshots of the canvas, the image
+ * must be written on the JavaFX application thread.
+ */
+final class TiledPngWriter
+{
+	static final int DEFAULT_TILE_SIZE = 512;
+
+	private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+	private static final int BIT_DEPTH = 8;
+	private static final int COLOR_TYPE_RGB = 2;
+	private static final int BYTES_PER_PIXEL = 3;
+	private static final int MAX_CHUNK_SIZE = 1 << 16;
+	private static final int FILTER_NONE = 0;
+	private static final int BYTE_MASK = 0xff;
+	private static final int RED_SHIFT = 16;
+	private static final int GREEN_SHIFT = 8;
+	/* Elements near a tile are also drawn, because their shadows can extend into it. */
+	private static final int MARGIN = 8;
+
+	private TiledPngWriter() {}
+
+	/**
+	 * Writes the image of the diagram of pRenderer with a white border of pPadding pixels.
+	 *
+	 * @param pRenderer The renderer of the diagram.
+	 * @param pPadding The width of the border around the diagram.
+	 * @param pLineWidth The default line width for the drawing.
+	 * @param pTileSize The width and height of the tiles.
+	 * @param pOutput Where to write the image.
+	 * @throws IOException If the image cannot be written.
+	 * @pre pRenderer != null && pPadding >= 0 && pTileSize > 0 && pOutput != null
+	 */
+	static void write(DiagramRenderer pRenderer, int pPadding, double pLineWidth, int pTileSize,
+			OutputStream pOutput) throws IOException
+	{
+		assert pRenderer != null && pPadding >= 0 && pTileSize > 0 && pOutput != null;
+		Rectangle bounds = pRenderer.getBounds();
+		int width = bounds.getWidth() + pPadding * 2;
+		int height = bounds.getHeight() + pPadding * 2;
+		int originX = bounds.getX() - pPadding;
+		int originY = bounds.getY() - pPadding;
+
+		DataOutputStream out = new DataOutputStream(pOutput);
+		out.write(SIGNATURE);
+		writeHeader(out, width, height);
+		IdatOutputStream chunks = new IdatOutputStream(out);
+		Deflater deflater = new Deflater();
+		try( DeflaterOutputStream data = new DeflaterOutputStream(chunks, deflater, MAX_CHUNK_SIZE) )
+		{
+			Canvas canvas = new Canvas(pTileSize, pTileSize);
+			WritableImage tile = new WritableImage(pTileSize, pTileSize);
+			int[] band = new int[width * pTileSize];
+			byte[] row = new byte[1 + width * BYTES_PER_PIXEL];
+			for( int bandY = 0; bandY < height; bandY += pTileSize )
+			{
+				int bandHeight = Math.min(pTileSize, height - bandY);
+				for( int tileX = 0; tileX < width; tileX += pTileSize )
+				{
+					drawTile(pRenderer, canvas, new Rectangle(originX + tileX, originY + bandY, pTileSize, pTileSize),
+							pLineWidth);
+					canvas.snapshot(null, tile);
+					tile.getPixelReader().getPixels(0, 0, Math.min(pTileSize, width - tileX), bandHeight,
+							PixelFormat.getIntArgbInstance(), band, tileX, width);
+				}
+				for( int y = 0; y < bandHeight; y++ )
+				{
+					encodeRow(band, y * width, width, row);
+					data.write(row);
+				}
+			}
+		}
+		finally
+		{
+			deflater.end();
+		}
+		writeChunk(out, "IEND", new byte[0], 0);
+		out.flush();
+	}
+
+	/*
+	 * Draws the area of the diagram in pTile on pCanvas, with the top-left
+	 * corner of pTile at the top-left corner of the canvas.
+	 */
+	private static void drawTile(DiagramRenderer pRenderer, Canvas pCanvas, Rectangle pTile, double pLineWidth)
+	{
+		GraphicsContext context = pCanvas.getGraphicsContext2D();
+		context.save();
+		context.setFill(Color.WHITE);
+		context.fillRect(0, 0, pCanvas.getWidth(), pCanvas.getHeight());
+		context.setLineWidth(pLineWidth);
+		context.translate(-pTile.getX(), -pTile.getY());
+		pRenderer.draw(new CanvasSurface(context), new Rectangle(pTile.getX() - MARGIN, pTile.getY() - MARGIN,
+				pTile.getWidth() + MARGIN * 2, pTile.getHeight() + MARGIN * 2));
+		context.restore();
+	}
+
+	/*
+	 * Converts the pWidth ARGB pixels of pPixels starting at pOffset to a
+	 * PNG scanline without filtering.
+	 */
+	private static void encodeRow(int[] pPixels, int pOffset, int pWidth, byte[] pRow)
+	{
+		pRow[0] = FILTER_NONE;
+		int index = 1;
+		for( int x = 0; x < pWidth; x++ )
+		{
+			int pixel = pPixels[pOffset + x];
+			pRow[index++] = (byte) (pixel >> RED_SHIFT & BYTE_MASK);
+			pRow[index++] = (byte) (pixel >> GREEN_SHIFT & BYTE_MASK);
+			pRow[index++] = (byte) (pixel & BYTE_MASK);
+		}
+	}
+
+	private static void writeHeader(DataOutputStream pOutput, int pWidth, int pHeight) throws IOException
+	{
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(pWidth);
+		data.writeInt(pHeight);
+		data.writeByte(BIT_DEPTH);
+		data.writeByte(COLOR_TYPE_RGB);
+		data.writeByte(0); // Compression method
+		data.writeByte(0); // Filter method
+		data.writeByte(0); // No interlace
+		writeChunk(pOutput, "IHDR", header.toByteArray(), header.size());
+	}
+
+	private static void writeChunk(DataOutputStream pOutput, String pType, byte[] pData, int pLength) throws IOException
+	{
+		byte[] type = pType.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(pData, 0, pLength);
+		pOutput.writeInt(pLength);
+		pOutput.write(type);
+		pOutput.write(pData, 0, pLength);
+		pOutput.writeInt((int) crc.getValue());
+	}
+
+	/*
+	 * Splits the compressed image data into IDAT chunks of at most
+	 * MAX_CHUNK_SIZE bytes. Closing this stream writes the last chunk
+	 * but does not close the underlying stream.
+	 */
+	private static final class IdatOutputStream extends OutputStream
+	{
+		private final DataOutputStream aOutput;
+		private final byte[] aBuffer = new byte[MAX_CHUNK_SIZE];
+		private int aSize = 0;
+
+		IdatOutputStream(DataOutputStream pOutput)
+		{
+			aOutput = pOutput;
+		}
+
+		@Override
+		public void write(int pByte) throws IOException
+		{
+			if( aSize == aBuffer.length )
+			{
+				flushChunk();
+			}
+			aBuffer[aSize++] = (byte) pByte;
+		}
+
+		@Override
+		public void write(byte[] pBytes, int pOffset, int pLength) throws IOException
+		{
+			int offset = pOffset;
+			int remaining = pLength;
+			while( remaining > 0 )
+			{
+				if( aSize == aBuffer.length )
+				{
+					flushChunk();
+				}
+				int length = Math.min(remaining, aBuffer.length - aSize);
+				System.arraycopy(pBytes, offset, aBuffer, aSize, length);
+				aSize += length;
+				offset += length;
+				remaining -= length;
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if( aSize > 0 )
+			{
+				flushChunk();
+			}
+		}
+
+		private void flushChunk() throws IOException
+		{
+			writeChunk(aOutput, "IDAT", aBuffer, aSize);
+			aSize = 0;
+		}
+	}
+}
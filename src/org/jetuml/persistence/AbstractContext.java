@@ -20,8 +20,8 @@
  *******************************************************************************/
 package org.jetuml.persistence;
 
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.jetuml.diagram.Diagram;
@@ -31,11 +31,11 @@ import org.jetuml.diagram.Node;
  * Base class for serialization and deserialization contexts. A context 
  * is a mapping between nodes and arbitrary identifiers. The only constraint
  * on identifiers is that they consistently preserve mapping between objects and
- * their identity.
+ * their identity. Nodes are iterated in the order in which they were added.
  */
 public abstract class AbstractContext implements Iterable<Node>
 {
-	protected final Map<Node, Integer> aNodes = new HashMap<>();
+	protected final Map<Node, Integer> aNodes = new LinkedHashMap<>();
 	private final Diagram aDiagram;
 	
 	/**
@@ -71,6 +71,14 @@ public abstract class AbstractContext implements Iterable<Node>
 		return aNodes.get(pNode);
 	}
 	
+	/**
+	 * @return The number of nodes in the context.
+	 */
+	public int size()
+	{
+		return aNodes.size();
+	}
+	
 	@Override
 	public Iterator<Node> iterator()
 	{
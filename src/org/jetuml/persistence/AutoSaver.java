@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jetuml.diagram.Diagram;
+
+/**
+ * Saves copies of diagrams in the background, so that they can be recovered 
+ * if the application terminates before they are saved.
+ * 
+ * Each instance of the application writes its copies in a session directory
+ * of the autosave directory, and holds a lock on the session directory for as
+ * long as it runs. Session directories that are not locked were left by an 
+ * instance that did not terminate normally, and their diagrams can be recovered.
+ * Instances also lock the autosave directory while they create their session 
+ * and while they recover sessions, so that an instance never sees the session 
+ * of another before it is locked, and two instances never recover the same diagrams.
+ * 
+ * The methods of this class must be called on the thread that modifies the 
+ * diagrams. The diagrams are only copied on that thread: the copies are encoded 
+ * and written on a background thread, replacing the previous copy only 
+ * once they are complete.
+ */
+public final class AutoSaver
+{
+	private static final String LOCK_FILE = "session.lock";
+	private static final String DIRECTORY_LOCK_FILE = "autosave.lock";
+	private static final int DIRECTORY_LOCK_ATTEMPTS = 50;
+	private static final long DIRECTORY_LOCK_DELAY = 100; // Milliseconds
+	private static final String SESSION_PREFIX = "session";
+	private static final String DIAGRAM_PREFIX = "diagram";
+	private static final String EXTENSION = ".jet";
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	private static final int SHUTDOWN_TIMEOUT = 10; // Seconds
+	
+	private final File aRoot;
+	private final File aSession;
+	private final FileChannel aLockChannel;
+	private final FileLock aLock;
+	private final ExecutorService aWriter = Executors.newSingleThreadExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, "AutoSaver");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Map<Diagram, Copy> aCopies = new IdentityHashMap<>();
+	private int aNextId = 1;
+	
+	/*
+	 * The file where a diagram is copied, and the revision 
+	 * of the diagram that was last copied to it.
+	 */
+	private static final class Copy
+	{
+		private final File aFile;
+		private long aRevision;
+		
+		Copy(File pFile, long pRevision)
+		{
+			aFile = pFile;
+			aRevision = pRevision;
+		}
+	}
+	
+	/**
+	 * Creates a new session directory in pRoot and locks it.
+	 * 
+	 * @param pRoot The autosave directory. Created if it does not exist.
+	 * @throws IOException If the session directory cannot be created or locked.
+	 * @pre pRoot != null
+	 */
+	public AutoSaver(File pRoot) throws IOException
+	{
+		assert pRoot != null;
+		aRoot = pRoot;
+		Files.createDirectories(pRoot.toPath());
+		FileChannel directoryLock = lockDirectory(pRoot);
+		try
+		{
+			aSession = Files.createTempDirectory(pRoot.toPath(), SESSION_PREFIX).toFile();
+			aLockChannel = FileChannel.open(new File(aSession, LOCK_FILE).toPath(), 
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			aLock = aLockChannel.tryLock();
+			if( aLock == null )
+			{
+				aLockChannel.close();
+				throw new IOException("Cannot lock " + aSession);
+			}
+		}
+		finally
+		{
+			directoryLock.close();
+		}
+	}
+	
+	/*
+	 * Locks the autosave directory pRoot, waiting for other instances to release it. 
+	 * Returns the channel that holds the lock, which is released when the channel is closed.
+	 */
+	private static FileChannel lockDirectory(File pRoot) throws IOException
+	{
+		FileChannel channel = FileChannel.open(new File(pRoot, DIRECTORY_LOCK_FILE).toPath(), 
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try
+		{
+			for( int attempt = 0; attempt < DIRECTORY_LOCK_ATTEMPTS; attempt++ )
+			{
+				if( channel.tryLock() != null )
+				{
+					return channel;
+				}
+				Thread.sleep(DIRECTORY_LOCK_DELAY);
+			}
+		}
+		catch( InterruptedException exception )
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch( IOException | OverlappingFileLockException exception )
+		{
+			// Reported below
+		}
+		channel.close();
+		throw new IOException("Cannot lock " + pRoot);
+	}
+	
+	/**
+	 * @return The default autosave directory, in the home directory of the user.
+	 */
+	public static File defaultDirectory()
+	{
+		return new File(new File(System.getProperty("user.home"), ".jetuml"), "autosave");
+	}
+	
+	/**
+	 * Copies pDiagram to its autosave file if it was modified since it was last copied.
+	 * 
+	 * @param pDiagram The diagram to copy.
+	 * @pre pDiagram != null
+	 */
+	public void save(Diagram pDiagram)
+	{
+		assert pDiagram != null;
+		Copy copy = aCopies.get(pDiagram);
+		if( copy == null )
+		{
+			copy = new Copy(new File(aSession, DIAGRAM_PREFIX + aNextId++ + pDiagram.getFileExtension() + EXTENSION), -1);
+			aCopies.put(pDiagram, copy);
+		}
+		if( copy.aRevision == pDiagram.revision() )
+		{
+			return;
+		}
+		copy.aRevision = pDiagram.revision();
+		// A deep copy of the diagram, made on this thread in linear time, that the writer
+		// can encode while the diagram is modified. The writer only reads it.
+		Diagram snapshot = pDiagram.snapshot();
+		File file = copy.aFile;
+		aWriter.execute(() -> write(snapshot, file));
+	}
+	
+	/*
+	 * Writes pDiagram to a temporary file, then replaces pFile with it. If the 
+	 * diagram cannot be written, the previous copy is kept.
+	 */
+	private static void write(Diagram pDiagram, File pFile)
+	{
+		File temporary = new File(pFile.getPath() + TEMPORARY_EXTENSION);
+		try
+		{
+			PersistenceService.save(pDiagram, temporary);
+			Files.move(temporary.toPath(), pFile.toPath(), 
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch( IOException exception )
+		{
+			temporary.delete();
+		}
+	}
+	
+	/**
+	 * Deletes the copy of pDiagram, for example because the diagram 
+	 * was saved or closed. The diagram is copied again the next time 
+	 * it is saved with this autosaver.
+	 * 
+	 * @param pDiagram The diagram whose copy to delete.
+	 * @pre pDiagram != null
+	 */
+	public void discard(Diagram pDiagram)
+	{
+		assert pDiagram != null;
+		Copy copy = aCopies.remove(pDiagram);
+		if( copy != null )
+		{
+			File file = copy.aFile;
+			aWriter.execute(() -> file.delete());
+		}
+	}
+	
+	/**
+	 * Reads the diagrams left in the session directories of instances of the 
+	 * application that did not terminate normally. The recovered diagrams are 
+	 * moved to the session of this autosaver. The abandoned sessions are deleted
+	 * unless they contain diagrams that cannot be read. Nothing is recovered if
+	 * the autosave directory cannot be locked.
+	 * 
+	 * @return The recovered diagrams.
+	 */
+	public List<Diagram> recover()
+	{
+		List<Diagram> result = new ArrayList<>();
+		List<File> recovered = new ArrayList<>();
+		List<File> abandoned = new ArrayList<>();
+		try
+		{
+			FileChannel directoryLock = lockDirectory(aRoot);
+			try
+			{
+				File[] sessions = aRoot.listFiles(file -> file.isDirectory() && !file.equals(aSession));
+				for( File session : sessions == null ? new File[0] : sessions )
+				{
+					if( recoverSession(session, result, recovered) )
+					{
+						abandoned.add(session);
+					}
+				}
+				// The recovered diagrams are copied to this session before their files are 
+				// deleted, and both happen before other instances can look for sessions.
+				flush();
+				recovered.forEach(File::delete);
+				abandoned.forEach(AutoSaver::delete);
+			}
+			finally
+			{
+				directoryLock.close();
+			}
+		}
+		catch( IOException exception )
+		{
+			// The abandoned sessions are left for the next instance.
+		}
+		return result;
+	}
+	
+	/*
+	 * Recovers the diagrams of pSession if the session was abandoned, and adds
+	 * their files to pFiles. Returns true if the session was abandoned and all 
+	 * its diagrams could be read.
+	 */
+	private boolean recoverSession(File pSession, List<Diagram> pDiagrams, List<File> pFiles)
+	{
+		try( FileChannel channel = FileChannel.open(new File(pSession, LOCK_FILE).toPath(), 
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE) )
+		{
+			FileLock lock = channel.tryLock();
+			if( lock == null )
+			{
+				return false;
+			}
+			boolean complete = recoverDiagrams(pSession, pDiagrams, pFiles);
+			lock.release();
+			return complete;
+		}
+		catch( IOException | OverlappingFileLockException exception )
+		{
+			// The session is in use or cannot be accessed
+			return false;
+		}
+	}
+	
+	/*
+	 * Adds the diagrams in pSession to pDiagrams and copies them to this session,
+	 * and adds the files they were read from to pFiles. Returns true if all the 
+	 * diagrams could be read.
+	 */
+	private boolean recoverDiagrams(File pSession, List<Diagram> pDiagrams, List<File> pFiles)
+	{
+		boolean complete = true;
+		File[] files = pSession.listFiles(file -> file.getName().startsWith(DIAGRAM_PREFIX) && 
+				!file.getName().endsWith(TEMPORARY_EXTENSION));
+		for( File file : files == null ? new File[0] : files )
+		{
+			try
+			{
+				Diagram diagram = PersistenceService.read(file).diagram();
+				pDiagrams.add(diagram);
+				save(diagram);
+				pFiles.add(file);
+			}
+			catch( IOException | DeserializationException exception )
+			{
+				complete = false;
+			}
+		}
+		return complete;
+	}
+	
+	private static void delete(File pDirectory)
+	{
+		File[] files = pDirectory.listFiles();
+		for( File file : files == null ? new File[0] : files )
+		{
+			file.delete();
+		}
+		pDirectory.delete();
+	}
+	
+	/**
+	 * Waits until all the copies requested so far are written.
+	 */
+	public void flush()
+	{
+		try
+		{
+			aWriter.submit(() -> {}).get();
+		}
+		catch( InterruptedException exception )
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch( ExecutionException exception )
+		{
+			// Not possible, the task does nothing.
+		}
+	}
+	
+	/**
+	 * Waits for the pending copies, then deletes the session directory 
+	 * and releases its lock. To call when the application terminates normally.
+	 */
+	public void close()
+	{
+		aWriter.shutdown();
+		try
+		{
+			aWriter.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+			aLock.release();
+			aLockChannel.close();
+		}
+		catch( InterruptedException exception )
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch( IOException exception )
+		{
+			// The directory is deleted anyway.
+		}
+		delete(aSession);
+	}
+}
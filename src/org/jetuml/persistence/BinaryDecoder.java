@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import static org.jetuml.persistence.BinaryEncoder.FORMAT_VERSION;
+import static org.jetuml.persistence.BinaryEncoder.MAGIC;
+import static org.jetuml.persistence.BinaryEncoder.TAG_BOOLEAN;
+import static org.jetuml.persistence.BinaryEncoder.TAG_INTEGER;
+import static org.jetuml.persistence.BinaryEncoder.TAG_STRING;
+import static org.jetuml.persistence.BinaryEncoder.VARINT_BITS;
+import static org.jetuml.persistence.BinaryEncoder.VARINT_MASK;
+import static org.jetuml.persistence.BinaryEncoder.VARINT_MORE;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jetuml.application.Version;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.Node;
+import org.jetuml.diagram.Properties;
+import org.jetuml.diagram.Property;
+import org.jetuml.geom.Point;
+
+/**
+ * Decodes a diagram from the binary encoding produced by BinaryEncoder. The
+ * encoding is read directly from a byte buffer, which can be a memory-mapped
+ * file, so that the file does not need to be copied before it is decoded. 
+ * The decoded diagram does not refer to the buffer. The nodes and edges are created in the same way as by JsonDecoder.
+ */
+public final class BinaryDecoder
+{
+	private static final int BYTE_MASK = 0xff;
+	/* The maximum number of bytes of a varint that encodes an int. */
+	private static final int MAX_VARINT_BYTES = 5;
+	/* The minimum number of bytes of a node record: the type, the two coordinates, 
+	 * and the number of properties and of children. */
+	private static final int MIN_NODE_BYTES = 11;
+
+	private final ByteBuffer aBuffer;
+	private String[] aStrings;
+	private DeserializationContext aContext;
+	private final Map<String, Object> aProperties = new HashMap<>();
+
+	private BinaryDecoder(ByteBuffer pBuffer)
+	{
+		aBuffer = pBuffer;
+	}
+
+	/**
+	 * @param pBuffer A buffer positioned at the start of an encoding.
+	 * @return True if the content of pBuffer starts with the header of the
+	 *     binary encoding. The position of pBuffer is not changed.
+	 * @pre pBuffer != null
+	 */
+	public static boolean isBinary(ByteBuffer pBuffer)
+	{
+		assert pBuffer != null;
+		if( pBuffer.remaining() < MAGIC.length )
+		{
+			return false;
+		}
+		for( int i = 0; i < MAGIC.length; i++ )
+		{
+			if( pBuffer.get(pBuffer.position() + i) != MAGIC[i] )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the diagram encoded in pBuffer from its position.
+	 *
+	 * @param pBuffer The buffer that holds the encoded diagram.
+	 * @return The decoded diagram.
+	 * @throws DeserializationException if it's not possible to decode the diagram.
+	 * @pre pBuffer != null
+	 */
+	public static VersionedDiagram decode(ByteBuffer pBuffer)
+	{
+		assert pBuffer != null;
+		if( !isBinary(pBuffer) )
+		{
+			throw new DeserializationException("Not a binary diagram encoding");
+		}
+		try
+		{
+			return new BinaryDecoder(pBuffer).decode();
+		}
+		catch( BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | 
+				ClassCastException exception )
+		{
+			throw new DeserializationException("Cannot decode serialized object", exception);
+		}
+	}
+
+	private VersionedDiagram decode()
+	{
+		aBuffer.position(aBuffer.position() + MAGIC.length);
+		int formatVersion = aBuffer.get();
+		if( formatVersion != FORMAT_VERSION )
+		{
+			throw new DeserializationException("Unsupported binary format version " + formatVersion);
+		}
+		aStrings = new String[readCount(1)];
+		for( int i = 0; i < aStrings.length; i++ )
+		{
+			byte[] bytes = new byte[readCount(1)];
+			aBuffer.get(bytes);
+			aStrings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		Version version = Version.parse(readString());
+		aContext = new DeserializationContext(new Diagram(DiagramType.fromName(readString())));
+		int[][] children = decodeNodes();
+		for( int id = 0; id < children.length; id++ )
+		{
+			Node parent = aContext.getNode(id);
+			for( int child : children[id] )
+			{
+				parent.addChild(getNode(child));
+			}
+		}
+		JsonDecoder.restoreRootNodes(aContext);
+		int edges = readCount(1);
+		for( int i = 0; i < edges; i++ )
+		{
+			decodeEdge();
+		}
+		aContext.attachNodes();
+		return new VersionedDiagram(aContext.pDiagram(), version, false);
+	}
+
+	/*
+	 * Creates the nodes and adds them to the context, and returns the identifiers
+	 * of the children of each node, indexed by the identifier of the node.
+	 */
+	private int[][] decodeNodes()
+	{
+		int[][] children = new int[readCount(MIN_NODE_BYTES)][];
+		for( int id = 0; id < children.length; id++ )
+		{
+			Node node = JsonDecoder.createNode(readString());
+			node.moveTo(new Point(aBuffer.getInt(), aBuffer.getInt()));
+			decodeProperties(node.properties());
+			aContext.addNode(node, id);
+			children[id] = new int[readCount(1)];
+			for( int i = 0; i < children[id].length; i++ )
+			{
+				children[id][i] = readVarint();
+			}
+		}
+		return children;
+	}
+
+	private void decodeEdge()
+	{
+		Edge edge = JsonDecoder.createEdge(readString());
+		Node start = getNode(readVarint());
+		Node end = getNode(readVarint());
+		decodeProperties(edge.properties());
+		edge.connect(start, end, aContext.pDiagram());
+		aContext.pDiagram().addEdge(edge);
+	}
+
+	/*
+	 * Reads the properties of the current record and assigns them to pProperties.
+	 * throws DeserializationException if one of pProperties is not in the record.
+	 */
+	private void decodeProperties(Properties pProperties)
+	{
+		int count = readCount(1);
+		for( int i = 0; i < count; i++ )
+		{
+			aProperties.put(readString(), readValue());
+		}
+		for( Property property : pProperties )
+		{
+			Object value = aProperties.get(property.name().external());
+			if( value == null )
+			{
+				throw new DeserializationException("Missing property " + property.name().external());
+			}
+			property.set(value);
+		}
+		aProperties.clear();
+	}
+
+	private Object readValue()
+	{
+		int tag = aBuffer.get();
+		if( tag == TAG_STRING )
+		{
+			return readString();
+		}
+		else if( tag == TAG_INTEGER )
+		{
+			int value = readVarint();
+			return value >>> 1 ^ -(value & 1);
+		}
+		else if( tag == TAG_BOOLEAN )
+		{
+			return aBuffer.get() != 0;
+		}
+		throw new DeserializationException("Unknown property type " + tag);
+	}
+
+	private Node getNode(int pId)
+	{
+		if( pId < 0 || pId >= aContext.size() )
+		{
+			throw new DeserializationException("Unknown node " + pId);
+		}
+		return aContext.getNode(pId);
+	}
+
+	private String readString()
+	{
+		return aStrings[readVarint()];
+	}
+
+	/*
+	 * Reads the number of items that follow, each of which takes at least 
+	 * pItemBytes bytes, and checks that they can fit in the rest of the buffer
+	 * so that a corrupt count cannot cause an oversized allocation.
+	 */
+	private int readCount(int pItemBytes)
+	{
+		int count = readVarint();
+		if( count < 0 || count > aBuffer.remaining() / pItemBytes )
+		{
+			throw new DeserializationException("Invalid count " + count);
+		}
+		return count;
+	}
+
+	private int readVarint()
+	{
+		int value = 0;
+		int shift = 0;
+		int length = 1;
+		int next = aBuffer.get() & BYTE_MASK;
+		while( (next & VARINT_MORE) != 0 )
+		{
+			if( length == MAX_VARINT_BYTES )
+			{
+				throw new DeserializationException("Malformed varint");
+			}
+			value |= (next & VARINT_MASK) << shift;
+			shift += VARINT_BITS;
+			next = aBuffer.get() & BYTE_MASK;
+			length++;
+		}
+		return value | next << shift;
+	}
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetuml.JetUML;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.Node;
+import org.jetuml.diagram.Properties;
+import org.jetuml.diagram.Property;
+
+/**
+ * Converts a diagram to the binary encoding, which holds the same information
+ * as the JSON encoding in a form that is faster to decode. The encoding consists of:
+ * * The MAGIC bytes and the FORMAT_VERSION
+ * * A table of all the strings used in the encoding: the JetUML version, the graph type,
+ *   the names of the types of the elements, and the names and values of their properties
+ * * The index in the table of the JetUML version and of the graph type
+ * * The number of nodes, followed by a record for each node
+ * * The number of edges, followed by a record for each edge
+ *
+ * A node record consists of the index of its type name, its x and y coordinates,
+ * its properties, and the identifiers of its children. The identifier of a node is the
+ * position of its record. An edge record consists of the index of its type name,
+ * the identifiers of its start and end nodes, and its properties. Properties are
+ * encoded as their number followed by, for each property, the index of its name, a tag
+ * for the type of its value, and the value.
+ *
+ * Coordinates are written as four-byte big-endian integers. Counts, indexes, and
+ * identifiers are written as unsigned variable-length integers of seven bits per
+ * byte, least significant group first, with the high bit of a byte set if more
+ * bytes follow. Integer property values are written in the same way after mapping
+ * signed values to unsigned ones, so that small negative values also use few bytes.
+ */
+public final class BinaryEncoder
+{
+	static final byte[] MAGIC = {'J', 'E', 'T', 'B'};
+	static final int FORMAT_VERSION = 1;
+	static final int TAG_STRING = 0;
+	static final int TAG_INTEGER = 1;
+	static final int TAG_BOOLEAN = 2;
+	static final int VARINT_BITS = 7;
+	static final int VARINT_MASK = 0x7f;
+	static final int VARINT_MORE = 0x80;
+
+	private final Map<String, Integer> aStrings = new LinkedHashMap<>();
+	private final DataOutputStream aBody;
+
+	private BinaryEncoder(OutputStream pBody)
+	{
+		aBody = new DataOutputStream(pBody);
+	}
+
+	/**
+	 * Writes the binary encoding of a diagram. The records are encoded in memory
+	 * before the string table can be written, so the encoding of the diagram
+	 * is held in memory once while it is written.
+	 *
+	 * @param pDiagram The diagram to serialize.
+	 * @param pOutput The destination of the encoding.
+	 * @throws IOException If the encoding cannot be written to pOutput.
+	 * @pre pDiagram != null && pOutput != null
+	 */
+	public static void encode(Diagram pDiagram, OutputStream pOutput) throws IOException
+	{
+		assert pDiagram != null && pOutput != null;
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		BinaryEncoder encoder = new BinaryEncoder(body);
+		encoder.encodeDiagram(pDiagram);
+
+		DataOutputStream out = new DataOutputStream(pOutput);
+		out.write(MAGIC);
+		out.writeByte(FORMAT_VERSION);
+		writeVarint(out, encoder.aStrings.size());
+		for( String string : encoder.aStrings.keySet() )
+		{
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarint(out, bytes.length);
+			out.write(bytes);
+		}
+		body.writeTo(out);
+		out.flush();
+	}
+
+	private void encodeDiagram(Diagram pDiagram) throws IOException
+	{
+		writeString(JetUML.VERSION.toString());
+		writeString(pDiagram.getName());
+		SerializationContext context = new SerializationContext(pDiagram);
+		writeVarint(aBody, context.size());
+		for( Node node : context )
+		{
+			encodeNode(node, context);
+		}
+		writeVarint(aBody, pDiagram.edges().size());
+		for( Edge edge : pDiagram.edges() )
+		{
+			writeString(edge.getClass().getSimpleName());
+			writeVarint(aBody, context.getId(edge.getStart()));
+			writeVarint(aBody, context.getId(edge.getEnd()));
+			encodeProperties(edge.properties());
+		}
+	}
+
+	private void encodeNode(Node pNode, SerializationContext pContext) throws IOException
+	{
+		writeString(pNode.getClass().getSimpleName());
+		aBody.writeInt(pNode.position().getX());
+		aBody.writeInt(pNode.position().getY());
+		encodeProperties(pNode.properties());
+		writeVarint(aBody, pNode.getChildren().size());
+		for( Node child : pNode.getChildren() )
+		{
+			writeVarint(aBody, pContext.getId(child));
+		}
+	}
+
+	/*
+	 * Only the values of the types written by JsonEncoder are encoded.
+	 */
+	private void encodeProperties(Properties pProperties) throws IOException
+	{
+		int count = 0;
+		for( Property property : pProperties )
+		{
+			if( isEncoded(property.get()) )
+			{
+				count++;
+			}
+		}
+		writeVarint(aBody, count);
+		for( Property property : pProperties )
+		{
+			Object value = property.get();
+			if( isEncoded(value) )
+			{
+				writeString(property.name().external());
+				encodeValue(value);
+			}
+		}
+	}
+
+	private static boolean isEncoded(Object pValue)
+	{
+		return pValue instanceof String || pValue instanceof Enum ||
+				pValue instanceof Integer || pValue instanceof Boolean;
+	}
+
+	private void encodeValue(Object pValue) throws IOException
+	{
+		if( pValue instanceof Integer )
+		{
+			int value = (int) pValue;
+			aBody.writeByte(TAG_INTEGER);
+			writeVarint(aBody, value << 1 ^ value >> (Integer.SIZE - 1));
+		}
+		else if( pValue instanceof Boolean )
+		{
+			aBody.writeByte(TAG_BOOLEAN);
+			aBody.writeBoolean((boolean) pValue);
+		}
+		else
+		{
+			aBody.writeByte(TAG_STRING);
+			writeString(pValue.toString());
+		}
+	}
+
+	/*
+	 * Writes the index of pString in the string table, adding it to the table if necessary.
+	 */
+	private void writeString(String pString) throws IOException
+	{
+		Integer index = aStrings.get(pString);
+		if( index == null )
+		{
+			index = aStrings.size();
+			aStrings.put(pString, index);
+		}
+		writeVarint(aBody, index);
+	}
+
+	/*
+	 * Writes the bits of pValue as an unsigned variable-length integer.
+	 */
+	private static void writeVarint(DataOutputStream pOutput, int pValue) throws IOException
+	{
+		int value = pValue;
+		while( (value & ~VARINT_MASK) != 0 )
+		{
+			pOutput.writeByte(value & VARINT_MASK | VARINT_MORE);
+			value >>>= VARINT_BITS;
+		}
+		pOutput.writeByte(value);
+	}
+}
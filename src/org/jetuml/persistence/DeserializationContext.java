@@ -20,6 +20,9 @@
  *******************************************************************************/
 package org.jetuml.persistence;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.Node;
 
@@ -30,6 +33,8 @@ import org.jetuml.diagram.Node;
  */
 public class DeserializationContext extends AbstractContext
 {
+	private final Map<Integer, Node> aNodesById = new HashMap<>();
+	
 	/**
 	 * Initializes an empty context and associates it with
 	 * pDiagram.
@@ -63,7 +68,12 @@ public class DeserializationContext extends AbstractContext
 	public void addNode(Node pNode, int pId)
 	{
 		assert pNode != null;
-		aNodes.put(pNode, pId);
+		Integer oldId = aNodes.put(pNode, pId);
+		if( oldId != null )
+		{
+			aNodesById.remove(oldId);
+		}
+		aNodesById.put(pId, pNode);
 	}
 	
 	/**
@@ -73,14 +83,7 @@ public class DeserializationContext extends AbstractContext
 	 */
 	public Node getNode(int pId)
 	{
-		for( Node node : this )
-		{
-			if( aNodes.get(node) == pId )
-			{
-				return node;
-			}
-		}
-		assert false;
-		return null;
+		assert aNodesById.containsKey(pId);
+		return aNodesById.get(pId);
 	}
 }
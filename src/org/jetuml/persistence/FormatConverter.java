@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.jetuml.diagram.Diagram;
+
+/**
+ * Converts diagram files between the JSON and the binary encodings.
+ *
+ * Usage: FormatConverter [-json] FILE...
+ *
+ * Each file is read in whichever encoding it uses and replaced by a file in the
+ * binary encoding, or in the JSON encoding if the -json option is specified.
+ * Files that need to be migrated from an earlier version of JetUML are migrated
+ * as they are converted.
+ */
+public final class FormatConverter
+{
+	private static final String OPTION_JSON = "-json";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private FormatConverter() {}
+
+	/**
+	 * @param pArgs The option and the files to convert.
+	 */
+	public static void main(String[] pArgs)
+	{
+		boolean binary = true;
+		for( String argument : pArgs )
+		{
+			if( OPTION_JSON.equals(argument) )
+			{
+				binary = false;
+			}
+			else
+			{
+				try
+				{
+					convert(new File(argument), binary);
+					System.out.println("Converted " + argument);
+				}
+				catch( IOException | DeserializationException exception )
+				{
+					System.err.println("Cannot convert " + argument + ": " + exception.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the content of a diagram file by the encoding of the same
+	 * diagram in the requested format. The new encoding is written in a temporary
+	 * file that replaces pFile only once it is complete.
+	 *
+	 * @param pFile The file to convert.
+	 * @param pBinary True to convert to the binary encoding, false to convert to JSON.
+	 * @throws IOException If pFile cannot be read or written.
+	 * @throws DeserializationException If pFile does not contain a valid diagram.
+	 * @pre pFile != null
+	 */
+	public static void convert(File pFile, boolean pBinary) throws IOException
+	{
+		assert pFile != null;
+		Diagram diagram = PersistenceService.read(pFile).diagram();
+		File temporary = new File(pFile.getPath() + TEMPORARY_SUFFIX);
+		if( pBinary )
+		{
+			PersistenceService.saveBinary(diagram, temporary);
+		}
+		else
+		{
+			PersistenceService.save(diagram, temporary);
+		}
+		Files.move(temporary.toPath(), pFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -20,11 +20,44 @@
  *******************************************************************************/
 package org.jetuml.persistence;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramType;
 import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
 import org.jetuml.diagram.Property;
+import org.jetuml.diagram.edges.AggregationEdge;
+import org.jetuml.diagram.edges.AssociationEdge;
+import org.jetuml.diagram.edges.CallEdge;
+import org.jetuml.diagram.edges.ConstructorEdge;
+import org.jetuml.diagram.edges.DependencyEdge;
+import org.jetuml.diagram.edges.GeneralizationEdge;
+import org.jetuml.diagram.edges.NoteEdge;
+import org.jetuml.diagram.edges.ObjectCollaborationEdge;
+import org.jetuml.diagram.edges.ObjectReferenceEdge;
+import org.jetuml.diagram.edges.ReturnEdge;
+import org.jetuml.diagram.edges.StateTransitionEdge;
+import org.jetuml.diagram.edges.UseCaseAssociationEdge;
+import org.jetuml.diagram.edges.UseCaseDependencyEdge;
+import org.jetuml.diagram.edges.UseCaseGeneralizationEdge;
+import org.jetuml.diagram.nodes.ActorNode;
+import org.jetuml.diagram.nodes.CallNode;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.diagram.nodes.FieldNode;
+import org.jetuml.diagram.nodes.FinalStateNode;
+import org.jetuml.diagram.nodes.ImplicitParameterNode;
+import org.jetuml.diagram.nodes.InitialStateNode;
+import org.jetuml.diagram.nodes.InterfaceNode;
+import org.jetuml.diagram.nodes.NoteNode;
+import org.jetuml.diagram.nodes.ObjectNode;
+import org.jetuml.diagram.nodes.PackageDescriptionNode;
+import org.jetuml.diagram.nodes.PackageNode;
+import org.jetuml.diagram.nodes.PointNode;
+import org.jetuml.diagram.nodes.StateNode;
+import org.jetuml.diagram.nodes.UseCaseNode;
 import org.jetuml.geom.Point;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -32,14 +65,71 @@ import org.json.JSONObject;
 
 /**
  * Converts a JSONObject to a versioned diagram.
+ * 
+ * Nodes and edges are created from the type names stored in the encoding
+ * by looking up the constructor of their class in a registry, instead of
+ * through reflection.
  */
 public final class JsonDecoder
 {
-	private static final String PREFIX_NODES = "org.jetuml.diagram.nodes.";
-	private static final String PREFIX_EDGES = "org.jetuml.diagram.edges.";
+	private static final Map<String, Supplier<Node>> NODE_FACTORIES = factories(
+			ActorNode::new, CallNode::new, ClassNode::new, FieldNode::new, FinalStateNode::new,
+			ImplicitParameterNode::new, InitialStateNode::new, InterfaceNode::new, NoteNode::new,
+			ObjectNode::new, PackageDescriptionNode::new, PackageNode::new, PointNode::new,
+			StateNode::new, UseCaseNode::new);
+	
+	private static final Map<String, Supplier<Edge>> EDGE_FACTORIES = factories(
+			AggregationEdge::new, AssociationEdge::new, CallEdge::new, ConstructorEdge::new, 
+			DependencyEdge::new, GeneralizationEdge::new, NoteEdge::new, ObjectCollaborationEdge::new,
+			ObjectReferenceEdge::new, ReturnEdge::new, StateTransitionEdge::new, 
+			UseCaseAssociationEdge::new, UseCaseDependencyEdge::new, UseCaseGeneralizationEdge::new);
 	
 	private JsonDecoder() {}
 	
+	/*
+	 * Maps the name used to encode the type of the elements created by
+	 * each factory to the factory. The name is obtained from a sample element so
+	 * that it always matches the name written by JsonEncoder.
+	 */
+	@SafeVarargs
+	private static <T> Map<String, Supplier<T>> factories(Supplier<T>... pFactories)
+	{
+		Map<String, Supplier<T>> factories = new HashMap<>();
+		for( Supplier<T> factory : pFactories )
+		{
+			factories.put(factory.get().getClass().getSimpleName(), factory);
+		}
+		return factories;
+	}
+	
+	/*
+	 * Creates a node of the type named pType.
+	 * throws DeserializationException if pType is not the name of a type of node.
+	 */
+	static Node createNode(String pType)
+	{
+		Supplier<Node> factory = NODE_FACTORIES.get(pType);
+		if( factory == null )
+		{
+			throw new DeserializationException("Cannot instantiate node of type " + pType);
+		}
+		return factory.get();
+	}
+	
+	/*
+	 * Creates an edge of the type named pType.
+	 * throws DeserializationException if pType is not the name of a type of edge.
+	 */
+	static Edge createEdge(String pType)
+	{
+		Supplier<Edge> factory = EDGE_FACTORIES.get(pType);
+		if( factory == null )
+		{
+			throw new DeserializationException("Cannot instantiate edge of type " + pType);
+		}
+		return factory.get();
+	}
+	
 	/**
 	 * @param pDiagram A JSON object that encodes the diagram.
 	 * @return The decoded diagram.
@@ -52,10 +142,25 @@ public final class JsonDecoder
 		{
 			Diagram diagram = new Diagram(DiagramType.fromName(pDiagram.getString("diagram")));
 			DeserializationContext context = new DeserializationContext(diagram);
-			decodeNodes(context, pDiagram);
-			restoreChildren(context, pDiagram);
+			JSONArray nodes = pDiagram.getJSONArray("nodes");
+			for( int i = 0; i < nodes.length(); i++ )
+			{
+				decodeNode(context, nodes.getJSONObject(i));
+			}
+			for( int i = 0; i < nodes.length(); i++ )
+			{
+				JSONObject object = nodes.getJSONObject(i);
+				if( object.has("children"))
+				{
+					restoreChildren(context, object.getInt("id"), object.getJSONArray("children"));
+				}
+			}
 			restoreRootNodes(context);
-			decodeEdges(context, pDiagram);
+			JSONArray edges = pDiagram.getJSONArray("edges");
+			for( int i = 0; i < edges.length(); i++ )
+			{
+				decodeEdge(context, edges.getJSONObject(i));
+			}
 			context.attachNodes();
 			return diagram;
 		}
@@ -66,38 +171,24 @@ public final class JsonDecoder
 	}
 	
 	/* 
-	 * Extracts information about nodes from pObject and creates new objects
-	 * to represent them.
+	 * Creates the node encoded by pObject and adds it to the context.
 	 * throws Deserialization Exception
 	 */
-	private static void decodeNodes(DeserializationContext pContext, JSONObject pObject)
+	static void decodeNode(DeserializationContext pContext, JSONObject pObject)
 	{
-		JSONArray nodes = pObject.getJSONArray("nodes");
-		for( int i = 0; i < nodes.length(); i++ )
+		Node node = createNode(pObject.getString("type"));
+		node.moveTo(new Point(pObject.getInt("x"), pObject.getInt("y")));
+		for( Property property : node.properties() )
 		{
-			try
-			{
-				JSONObject object = nodes.getJSONObject(i);
-				Class<?> nodeClass = Class.forName(PREFIX_NODES + object.getString("type"));
-				Node node = (Node) nodeClass.getDeclaredConstructor().newInstance();
-				node.moveTo(new Point(object.getInt("x"), object.getInt("y")));
-				for( Property property : node.properties() )
-				{
-					property.set(object.get(property.name().external()));
-				}
-				pContext.addNode(node, object.getInt("id"));
-			}
-			catch( ReflectiveOperationException exception )
-			{
-				throw new DeserializationException("Cannot instantiate serialized object", exception);
-			}
+			property.set(pObject.get(property.name().external()));
 		}
+		pContext.addNode(node, pObject.getInt("id"));
 	}
 	
 	/* 
 	 * Discovers the root nodes and stores them in the diagram.
 	 */
-	private static void restoreRootNodes(DeserializationContext pContext)
+	static void restoreRootNodes(DeserializationContext pContext)
 	{
 		for( Node node : pContext )
 		{
@@ -109,54 +200,31 @@ public final class JsonDecoder
 	}
 	
 	/* 
-	 * Restores the parent-child hierarchy within the context's diagram. Assumes
-	 * the context has been initialized with all the nodes.
+	 * Adds the nodes identified in pChildren as children of the node with
+	 * identifier pParentId. Assumes the context has been initialized with all the nodes.
 	 */
-	private static void restoreChildren(DeserializationContext pContext, JSONObject pObject)
+	static void restoreChildren(DeserializationContext pContext, int pParentId, JSONArray pChildren)
 	{
-		JSONArray nodes = pObject.getJSONArray("nodes");
-		for( int i = 0; i < nodes.length(); i++ )
+		Node node = pContext.getNode(pParentId);
+		for( int j = 0; j < pChildren.length(); j++ )
 		{
-			JSONObject object = nodes.getJSONObject(i);
-			if( object.has("children"))
-			{
-				Node node = pContext.getNode( object.getInt("id"));
-				JSONArray children = object.getJSONArray("children");
-				for( int j = 0; j < children.length(); j++ )
-				{
-					node.addChild(pContext.getNode(children.getInt(j)));
-				}
-			}
+			node.addChild(pContext.getNode(pChildren.getInt(j)));
 		}
 	}
 	
 	/* 
-	 * Extracts information about nodes from pObject and creates new objects
-	 * to represent them.
+	 * Creates the edge encoded by pObject, connects it to its nodes, and adds 
+	 * it to the diagram. Assumes the context has been initialized with all the nodes.
 	 * throws Deserialization Exception
 	 */
-	private static void decodeEdges(DeserializationContext pContext, JSONObject pObject)
+	static void decodeEdge(DeserializationContext pContext, JSONObject pObject)
 	{
-		JSONArray edges = pObject.getJSONArray("edges");
-		for( int i = 0; i < edges.length(); i++ )
+		Edge edge = createEdge(pObject.getString("type"));
+		for( Property property : edge.properties())
 		{
-			try
-			{
-				JSONObject object = edges.getJSONObject(i);
-				Class<?> edgeClass = Class.forName(PREFIX_EDGES + object.getString("type"));
-				Edge edge = (Edge) edgeClass.getDeclaredConstructor().newInstance();
-				
-				for( Property property : edge.properties())
-				{
-					property.set(object.get(property.name().external()));
-				}
-				edge.connect(pContext.getNode(object.getInt("start")), pContext.getNode(object.getInt("end")), pContext.pDiagram());
-				pContext.pDiagram().addEdge(edge);
-			}
-			catch( ReflectiveOperationException exception )
-			{
-				throw new DeserializationException("Cannot instantiate serialized object", exception);
-			}
+			property.set(pObject.get(property.name().external()));
 		}
+		edge.connect(pContext.getNode(pObject.getInt("start")), pContext.getNode(pObject.getInt("end")), pContext.pDiagram());
+		pContext.pDiagram().addEdge(edge);
 	}
 }
@@ -26,8 +26,8 @@ import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
 import org.jetuml.diagram.Properties;
 import org.jetuml.diagram.Property;
-import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONWriter;
 
 /**
  * Converts a graph to JSON notation. The notation includes:
@@ -35,6 +35,10 @@ import org.json.JSONObject;
  * * The graph type
  * * An array of node encodings
  * * An array of edge encodings
+ * 
+ * The encoding is written one element at a time, without building a JSON
+ * object for the entire diagram. The version and the graph type are written 
+ * first, so that the encoding can be decoded in a single pass.
  */
 public final class JsonEncoder
 {
@@ -47,81 +51,100 @@ public final class JsonEncoder
 	public static JSONObject encode(Diagram pDiagram)
 	{
 		assert pDiagram != null;
+		StringBuilder encoding = new StringBuilder();
+		encode(pDiagram, encoding);
+		return new JSONObject(encoding.toString());
+	}
+	
+	/**
+	 * Writes the JSON encoding of a diagram. Errors appending to pOutput
+	 * are reported as a JSONException wrapping the original exception.
+	 * 
+	 * @param pDiagram The diagram to serialize.
+	 * @param pOutput The destination of the encoding.
+	 * @pre pDiagram != null && pOutput != null
+	 */
+	public static void encode(Diagram pDiagram, Appendable pOutput)
+	{
+		assert pDiagram != null && pOutput != null;
 		
-		JSONObject object = new JSONObject();
-		object.put("version", JetUML.VERSION.toString());
-		object.put("diagram", pDiagram.getName());
+		JSONWriter writer = new JSONWriter(pOutput);
+		writer.object();
+		writer.key("version").value(JetUML.VERSION.toString());
+		writer.key("diagram").value(pDiagram.getName());
 		SerializationContext context = new SerializationContext(pDiagram);
-		object.put("nodes", encodeNodes(context));
-		object.put("edges", encodeEdges(context));
-		return object;
+		writer.key("nodes");
+		encodeNodes(context, writer);
+		writer.key("edges");
+		encodeEdges(context, writer);
+		writer.endObject();
 	}
 	
-	private static JSONArray encodeNodes(SerializationContext pContext)
+	private static void encodeNodes(SerializationContext pContext, JSONWriter pWriter)
 	{
-		JSONArray nodes = new JSONArray();
+		pWriter.array();
 		for( Node node : pContext ) 
 		{
-			nodes.put(encodeNode(node, pContext));
+			encodeNode(node, pContext, pWriter);
 		}
-		return nodes;
+		pWriter.endArray();
 	}
 	
-	private static JSONObject encodeNode(Node pNode, SerializationContext pContext)
+	private static void encodeNode(Node pNode, SerializationContext pContext, JSONWriter pWriter)
 	{
-		JSONObject object = toJSONObject(pNode.properties());
-		object.put("id", pContext.getId(pNode));
-		object.put("type", pNode.getClass().getSimpleName());
-		object.put("x", pNode.position().getX());
-		object.put("y", pNode.position().getY());
+		pWriter.object();
+		encodeProperties(pNode.properties(), pWriter);
+		pWriter.key("id").value(pContext.getId(pNode));
+		pWriter.key("type").value(pNode.getClass().getSimpleName());
+		pWriter.key("x").value(pNode.position().getX());
+		pWriter.key("y").value(pNode.position().getY());
 		if( pNode.getChildren().size() > 0 )
 		{
-			object.put("children", encodeChildren(pNode, pContext));
+			pWriter.key("children");
+			encodeChildren(pNode, pContext, pWriter);
 		}
-		return object;
+		pWriter.endObject();
 	}
 	
-	private static JSONArray encodeChildren(Node pNode, SerializationContext pContext)
+	private static void encodeChildren(Node pNode, SerializationContext pContext, JSONWriter pWriter)
 	{
-		JSONArray children = new JSONArray();
-		pNode.getChildren().forEach(child -> children.put(pContext.getId(child)));
-		return children;
+		pWriter.array();
+		pNode.getChildren().forEach(child -> pWriter.value(pContext.getId(child)));
+		pWriter.endArray();
 	}
 	
-	private static JSONArray encodeEdges(AbstractContext pContext)
+	private static void encodeEdges(AbstractContext pContext, JSONWriter pWriter)
 	{
-		JSONArray edges = new JSONArray();
+		pWriter.array();
 		for( Edge edge : pContext.pDiagram().edges() ) 
 		{
-			JSONObject object = toJSONObject(edge.properties());
-			object.put("type", edge.getClass().getSimpleName());
-			object.put("start", pContext.getId(edge.getStart()));
-			object.put("end", pContext.getId(edge.getEnd()));
-			
-			edges.put(object);
+			pWriter.object();
+			encodeProperties(edge.properties(), pWriter);
+			pWriter.key("type").value(edge.getClass().getSimpleName());
+			pWriter.key("start").value(pContext.getId(edge.getStart()));
+			pWriter.key("end").value(pContext.getId(edge.getEnd()));
+			pWriter.endObject();
 		}
-		return edges;
+		pWriter.endArray();
 	}
 	
-	private static JSONObject toJSONObject(Properties pProperties)
+	private static void encodeProperties(Properties pProperties, JSONWriter pWriter)
 	{
-		JSONObject object = new JSONObject();
 		for( Property property : pProperties )
 		{
 			Object value = property.get();
 			if( value instanceof String || value instanceof Enum )
 			{
-				object.put(property.name().external(), value.toString());
+				pWriter.key(property.name().external()).value(value.toString());
 			}
 			else if( value instanceof Integer)
 			{
-				object.put(property.name().external(), (int) value);
+				pWriter.key(property.name().external()).value((int) value);
 			}
 			else if( value instanceof Boolean)
 			{
-				object.put(property.name().external(), (boolean) value);
+				pWriter.key(property.name().external()).value((boolean) value);
 			}
 		}
-		return object;
 	}
 }
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.jetuml.JetUML;
+import org.jetuml.application.Version;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Decodes a diagram directly from a character stream, without first building
+ * a JSON object for the entire file. Each node and edge is decoded as soon as
+ * it is read, so only the encoding of one element is held in memory at a time.
+ *
+ * Decoding as the stream is read requires the version and the type of the diagram
+ * to appear before the nodes, and the nodes to appear before the edges, which is
+ * the order produced by JsonEncoder. Files that use a different order, such as
+ * the ones saved by earlier versions of JetUML, and files that need to be migrated
+ * are read in full and decoded by the VersionMigrator.
+ */
+public final class JsonStreamDecoder
+{
+	private final JSONTokener aTokener;
+	private final JSONObject aMembers = new JSONObject(); // The members read but not decoded
+	private boolean aStreaming = true;
+	private DeserializationContext aContext;
+	private boolean aEdgesDecoded = false;
+
+	private JsonStreamDecoder(Reader pReader)
+	{
+		aTokener = new JSONTokener(pReader);
+	}
+
+	/**
+	 * Reads a diagram from pReader.
+	 *
+	 * @param pReader The reader to read the encoded diagram from.
+	 * @return The decoded diagram.
+	 * @throws IOException if pReader cannot be read.
+	 * @throws DeserializationException if it's not possible to decode the diagram.
+	 * @pre pReader != null
+	 */
+	public static VersionedDiagram decode(Reader pReader) throws IOException
+	{
+		assert pReader != null;
+		try
+		{
+			return new JsonStreamDecoder(pReader).decode();
+		}
+		catch( JSONException exception )
+		{
+			if( exception.getCause() instanceof IOException )
+			{
+				throw (IOException) exception.getCause();
+			}
+			throw new DeserializationException("Cannot decode serialized object", exception);
+		}
+		catch( IllegalArgumentException exception )
+		{
+			throw new DeserializationException("Cannot decode serialized object", exception);
+		}
+	}
+
+	private VersionedDiagram decode()
+	{
+		if( aTokener.nextClean() != '{' )
+		{
+			throw aTokener.syntaxError("A JSONObject text must begin with '{'");
+		}
+		char next = aTokener.nextClean();
+		while( next != '}' )
+		{
+			if( next != '"' )
+			{
+				throw aTokener.syntaxError("Expected a key");
+			}
+			String key = aTokener.nextString('"');
+			if( aTokener.nextClean() != ':' )
+			{
+				throw aTokener.syntaxError("Expected a ':' after a key");
+			}
+			readMember(key);
+			next = aTokener.nextClean();
+			if( next == ',' )
+			{
+				next = aTokener.nextClean();
+			}
+			else if( next != '}' )
+			{
+				throw aTokener.syntaxError("Expected a ',' or '}'");
+			}
+		}
+
+		if( !aStreaming || aContext == null )
+		{
+			// Extra wrapper to support backward compatibility.
+			return new VersionMigrator().migrate(aMembers);
+		}
+		if( !aEdgesDecoded )
+		{
+			throw new JSONException("JSONObject[\"edges\"] not found.");
+		}
+		aContext.attachNodes();
+		return new VersionedDiagram(aContext.pDiagram(), Version.parse(aMembers.getString("version")), false);
+	}
+
+	/*
+	 * Reads the value of the member with key pKey. Nodes and edges are decoded
+	 * as they are read if possible, otherwise the value is kept for the migrator.
+	 */
+	private void readMember(String pKey)
+	{
+		if( aStreaming && pKey.equals("nodes") && aContext == null && canDecodeNodes() )
+		{
+			decodeNodes();
+		}
+		else if( aStreaming && pKey.equals("edges") && aContext != null && !aEdgesDecoded )
+		{
+			decodeEdges();
+		}
+		else
+		{
+			if( pKey.equals("nodes") || pKey.equals("edges") )
+			{
+				aStreaming = false;
+			}
+			aMembers.put(pKey, aTokener.nextValue());
+			if( aStreaming && pKey.equals("version") &&
+					!Version.parse(aMembers.getString("version")).compatibleWith(JetUML.VERSION) )
+			{
+				aStreaming = false;
+			}
+		}
+	}
+
+	private boolean canDecodeNodes()
+	{
+		return aMembers.has("version") && aMembers.has("diagram");
+	}
+
+	private void decodeNodes()
+	{
+		aContext = new DeserializationContext(new Diagram(DiagramType.fromName(aMembers.getString("diagram"))));
+		Map<Integer, JSONArray> children = new LinkedHashMap<>();
+		readObjects(node ->
+		{
+			JsonDecoder.decodeNode(aContext, node);
+			if( node.has("children") )
+			{
+				children.put(node.getInt("id"), node.getJSONArray("children"));
+			}
+		});
+		children.forEach((id, childIds) -> JsonDecoder.restoreChildren(aContext, id, childIds));
+		JsonDecoder.restoreRootNodes(aContext);
+	}
+
+	private void decodeEdges()
+	{
+		readObjects(edge -> JsonDecoder.decodeEdge(aContext, edge));
+		aEdgesDecoded = true;
+	}
+
+	/*
+	 * Reads an array of objects and passes each object to pConsumer
+	 * as soon as it is read.
+	 */
+	private void readObjects(Consumer<JSONObject> pConsumer)
+	{
+		if( aTokener.nextClean() != '[' )
+		{
+			throw aTokener.syntaxError("A JSONArray text must start with '['");
+		}
+		char next = aTokener.nextClean();
+		while( next != ']' )
+		{
+			aTokener.back();
+			Object value = aTokener.nextValue();
+			if( !(value instanceof JSONObject) )
+			{
+				throw aTokener.syntaxError("Expected a JSONObject");
+			}
+			pConsumer.accept((JSONObject) value);
+			next = aTokener.nextClean();
+			if( next == ',' )
+			{
+				next = aTokener.nextClean();
+			}
+			else if( next != ']' )
+			{
+				throw aTokener.syntaxError("Expected a ',' or ']'");
+			}
+		}
+	}
+}
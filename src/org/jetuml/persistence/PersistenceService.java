@@ -20,26 +20,49 @@
  *******************************************************************************/
 package org.jetuml.persistence;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.jetuml.diagram.Diagram;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
- * Services for saving and loading Diagram objects. The files are encoded
- * in UTF-8.
+ * Services for saving and loading Diagram objects. Diagrams are saved in 
+ * JSON encoded in UTF-8 by default, or optionally in the binary encoding of 
+ * BinaryEncoder. JSON files are written and read as a stream, so the complete
+ * encoding of a diagram is never held in memory. The encoding of a file is 
+ * detected when it is read: binary files start with a header that cannot 
+ * start a JSON file, and are decoded directly from a memory-mapped buffer.
+ * The mapping is released once the file is decoded, so that the file can be
+ * saved again on platforms that lock mapped files.
  */
 public final class PersistenceService
 {
+	/* Releases the mapping of a file. A mapping otherwise lasts until its buffer is 
+	 * garbage-collected, and a mapped file cannot be overwritten on Windows. */
+	private static final Optional<Consumer<MappedByteBuffer>> UNMAPPER = createUnmapper();
+	
 	private PersistenceService() {}
 	
 	/**
@@ -54,11 +77,60 @@ public final class PersistenceService
 	public static void save(Diagram pDiagram, File pFile) throws IOException
 	{
 		assert pDiagram != null && pFile != null;
-		try( PrintWriter out = new PrintWriter(
+		try( BufferedWriter out = new BufferedWriter(
 				new OutputStreamWriter(new FileOutputStream(pFile), StandardCharsets.UTF_8)))
 		{
-			out.println(JsonEncoder.encode(pDiagram).toString());
+			JsonEncoder.encode(pDiagram, out);
+			out.newLine();
+		}
+		catch( JSONException e )
+		{
+			throw new IOException("Cannot write the file", e);
+		}
+	}
+	
+	/**
+	 * Saves a diagram in a file in the binary encoding.
+	 * 
+	 * @param pDiagram The diagram to save
+	 * @param pFile The file in which to save the diagram
+	 * @throws IOException If there is a problem writing to pFile.
+	 * @pre pDiagram != null && pFile != null.
+	 */
+	public static void saveBinary(Diagram pDiagram, File pFile) throws IOException
+	{
+		assert pDiagram != null && pFile != null;
+		try( OutputStream out = new BufferedOutputStream(new FileOutputStream(pFile)))
+		{
+			BinaryEncoder.encode(pDiagram, out);
+		}
+	}
+	
+	/**
+	 * @param pFile The file to check.
+	 * @return True if pFile contains a diagram in the binary encoding.
+	 * @throws IOException If pFile cannot be read.
+	 * @pre pFile != null
+	 */
+	public static boolean isBinary(File pFile) throws IOException
+	{
+		assert pFile != null;
+		try( FileChannel channel = FileChannel.open(pFile.toPath(), StandardOpenOption.READ) )
+		{
+			return isBinary(channel);
+		}
+	}
+	
+	private static boolean isBinary(FileChannel pChannel) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(BinaryEncoder.MAGIC.length);
+		int read = 0;
+		while( header.hasRemaining() && read >= 0 )
+		{
+			read = pChannel.read(header, header.position());
 		}
+		header.flip();
+		return BinaryDecoder.isBinary(header);
 	}
 	
 	/**
@@ -73,16 +145,90 @@ public final class PersistenceService
 	public static VersionedDiagram read(File pFile) throws IOException, DeserializationException
 	{
 		assert pFile != null;
-		try( BufferedReader in = new BufferedReader(
-				new InputStreamReader(new FileInputStream(pFile), StandardCharsets.UTF_8)))
+		if( isBinary(pFile) )
 		{
-			// Extra wrapper to support backward compatibility. Eventually take down the migrator.
-			// Replace VersionMigrator.migrate with JSonDecoder.decode
-			return new VersionMigrator().migrate(new JSONObject(in.readLine())); 
+			return readBinary(pFile);
 		}
-		catch( JSONException e )
+		return read(new FileInputStream(pFile));
+	}
+	
+	/*
+	 * Decodes pFile from a read-only mapping that is released as soon as the file 
+	 * is decoded, or from a copy of the file if mappings cannot be released.
+	 */
+	private static VersionedDiagram readBinary(File pFile) throws IOException
+	{
+		if( UNMAPPER.isEmpty() )
+		{
+			return BinaryDecoder.decode(ByteBuffer.wrap(Files.readAllBytes(pFile.toPath())));
+		}
+		try( FileChannel channel = FileChannel.open(pFile.toPath(), StandardOpenOption.READ) )
+		{
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			try
+			{
+				return BinaryDecoder.decode(buffer);
+			}
+			finally
+			{
+				UNMAPPER.get().accept(buffer);
+			}
+		}
+	}
+	
+	/*
+	 * Returns a function that unmaps a buffer, if the platform supports it. The buffer 
+	 * must not be used afterwards.
+	 */
+	private static Optional<Consumer<MappedByteBuffer>> createUnmapper()
+	{
+		try
+		{
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			return Optional.of(buffer -> 
+			{
+				try
+				{
+					invokeCleaner.invoke(unsafe, buffer);
+				}
+				catch( ReflectiveOperationException exception )
+				{
+					// The mapping is released when the buffer is garbage-collected.
+				}
+			});
+		}
+		catch( ReflectiveOperationException | RuntimeException exception )
+		{
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Reads a diagram in either encoding from a stream, and closes the stream.
+	 * 
+	 * @param pInput The stream to read the diagram from.
+	 * @return The diagram that is read in
+	 * @throws IOException if the diagram cannot be read.
+	 * @throws DeserializationException if there is a problem decoding the stream.
+	 * @pre pInput != null
+	 */
+	public static VersionedDiagram read(InputStream pInput) throws IOException, DeserializationException
+	{
+		assert pInput != null;
+		try( BufferedInputStream input = new BufferedInputStream(pInput) )
 		{
-			throw new DeserializationException("Cannot decode the file", e);
+			input.mark(BinaryEncoder.MAGIC.length);
+			byte[] header = input.readNBytes(BinaryEncoder.MAGIC.length);
+			input.reset();
+			if( BinaryDecoder.isBinary(ByteBuffer.wrap(header)) )
+			{
+				return BinaryDecoder.decode(ByteBuffer.wrap(input.readAllBytes()));
+			}
+			return JsonStreamDecoder.decode(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
 		}
 	}
 }
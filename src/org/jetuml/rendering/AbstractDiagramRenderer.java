@@ -17,18 +17,22 @@
  ******************************************************************************/
 package org.jetuml.rendering;
 
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.DiagramType;
 import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
+import org.jetuml.diagram.Property;
 import org.jetuml.diagram.edges.NoteEdge;
 import org.jetuml.diagram.nodes.NoteNode;
 import org.jetuml.diagram.nodes.PointNode;
+import org.jetuml.geom.BoundsAccumulator;
 import org.jetuml.geom.Direction;
 import org.jetuml.geom.Line;
 import org.jetuml.geom.Point;
@@ -40,15 +44,31 @@ import org.jetuml.rendering.nodes.NoteNodeRenderer;
 import org.jetuml.rendering.nodes.PointNodeRenderer;
 
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 
 /**
  * Default implementation of the rendering operations.
  */
 public abstract class AbstractDiagramRenderer implements DiagramRenderer
 {
+	/*
+	 * Margin added around the bounds of indexed elements. It must be larger than
+	 * the selection tolerance of any element renderer, which can report a hit
+	 * slightly outside the bounds of an element.
+	 */
+	private static final int INDEX_TOLERANCE = 10;
+	
+	/*
+	 * Below this number of nodes, computing the bounds in parallel costs more 
+	 * than it saves.
+	 */
+	private static final int PARALLEL_BOUNDS_THRESHOLD = 256;
+	
 	private final IdentityHashMap<Class<? extends DiagramElement>, DiagramElementRenderer> aRenderers = new IdentityHashMap<>();
 	private final Diagram aDiagram;
+	private final SpatialIndex<Node> aNodeIndex = new SpatialIndex<>();
+	private final SpatialIndex<Edge> aEdgeIndex = new SpatialIndex<>();
+	private long aIndexedRevision = -1;
+	private final DisplayListCache aDisplayLists;
 
 	/*
 	 * Add renderers for elements that are present in all diagrams. 
@@ -56,6 +76,7 @@ public abstract class AbstractDiagramRenderer implements DiagramRenderer
 	protected AbstractDiagramRenderer(Diagram pDiagram)
 	{
 		aDiagram = pDiagram;
+		aDisplayLists = new DisplayListCache(pDiagram);
 		addElementRenderer(NoteNode.class, new NoteNodeRenderer(this));
 		addElementRenderer(PointNode.class, new PointNodeRenderer(this));
 		addElementRenderer(NoteEdge.class, new NoteEdgeRenderer(this));
@@ -75,13 +96,138 @@ public abstract class AbstractDiagramRenderer implements DiagramRenderer
 	}
 
 	@Override
-	public void draw(GraphicsContext pGraphics)
+	public void draw(DrawingSurface pGraphics)
 	{
 		assert pGraphics != null;
 		activateNodeStorages();
 		aDiagram.rootNodes().forEach(node -> drawNode(node, pGraphics));
 		aDiagram.edges().forEach(edge -> draw(edge, pGraphics));
-		deactivateAndClearNodeStorages();
+		indexElements();
+		deactivateNodeStorages();
+	}
+	
+	@Override
+	public final void draw(DrawingSurface pGraphics, Rectangle pVisibleArea)
+	{
+		draw(pGraphics, pVisibleArea, element -> true);
+	}
+	
+	@Override
+	public void draw(DrawingSurface pGraphics, Rectangle pVisibleArea, Predicate<DiagramElement> pFilter)
+	{
+		assert pGraphics != null && pVisibleArea != null && pFilter != null;
+		activateNodeStorages();
+		indexElements();
+		drawElementsIntersecting(pGraphics, pVisibleArea, pFilter);
+		deactivateNodeStorages();
+	}
+	
+	/**
+	 * Draws the root nodes, with their children, and the edges that could
+	 * intersect pVisibleArea and are accepted by pFilter. Must be called once 
+	 * the elements are indexed.
+	 * 
+	 * @param pGraphics The graphics context where the elements should be drawn.
+	 * @param pVisibleArea The area of the diagram that needs to be drawn.
+	 * @param pFilter Accepts the edges and root nodes to draw.
+	 */
+	protected final void drawElementsIntersecting(DrawingSurface pGraphics, Rectangle pVisibleArea, 
+			Predicate<DiagramElement> pFilter)
+	{
+		assert isIndexCurrent();
+		for( Node node : rootNodesIntersecting(pVisibleArea) )
+		{
+			if( pFilter.test(node) )
+			{
+				drawNode(node, pGraphics);
+			}
+		}
+		for( Edge edge : edgesIntersecting(pVisibleArea) )
+		{
+			if( pFilter.test(edge) )
+			{
+				draw(edge, pGraphics);
+			}
+		}
+	}
+	
+	@Override
+	public void computeGeometry()
+	{
+		activateNodeStorages();
+		indexElements();
+		deactivateNodeStorages();
+	}
+	
+	/*
+	 * The bounds of all the nodes, including children, are computed on the threads 
+	 * of the common ForkJoinPool and kept in the node storages. The bounds of a node
+	 * do not depend on the bounds computed for other nodes except its children, which
+	 * the node renderers obtain through the storage, so the result is the same as if
+	 * the bounds were computed one after the other. Diagrams with few nodes are left
+	 * to be computed on demand.
+	 */
+	@Override
+	public final void precomputeNodeBounds()
+	{
+		List<Node> nodes = new ArrayList<>();
+		aDiagram.rootNodes().forEach(node -> addSubtree(node, nodes));
+		if( nodes.size() >= PARALLEL_BOUNDS_THRESHOLD )
+		{
+			nodes.parallelStream().forEach(this::getBounds);
+		}
+	}
+	
+	private static void addSubtree(Node pNode, List<Node> pNodes)
+	{
+		pNodes.add(pNode);
+		for( Node child : pNode.getChildren() )
+		{
+			addSubtree(child, pNodes);
+		}
+	}
+	
+	/**
+	 * Records the bounds of the root nodes and edges of the diagram in the 
+	 * spatial index used to answer geometric queries. Must be called at the end
+	 * of a rendering pass, once the geometry of every element has been computed.
+	 */
+	protected final void indexElements()
+	{
+		aNodeIndex.clear();
+		aEdgeIndex.clear();
+		BoundsAccumulator bounds = new BoundsAccumulator();
+		for( Node node : aDiagram.rootNodes() )
+		{
+			bounds.clear();
+			addSubtreeBounds(node, bounds);
+			aNodeIndex.add(node, expand(bounds.toRectangle()));
+		}
+		aDiagram.edges().forEach(edge -> aEdgeIndex.add(edge, expand(getBounds(edge))));
+		aIndexedRevision = aDiagram.revision();
+	}
+	
+	/*
+	 * The index can only be used if the diagram was not modified since it was built.
+	 */
+	private boolean isIndexCurrent()
+	{
+		return aIndexedRevision == aDiagram.revision();
+	}
+	
+	private void addSubtreeBounds(Node pNode, BoundsAccumulator pBounds)
+	{
+		pBounds.add(getBounds(pNode));
+		for( Node child : pNode.getChildren() )
+		{
+			addSubtreeBounds(child, pBounds);
+		}
+	}
+	
+	private static Rectangle expand(Rectangle pRectangle)
+	{
+		return new Rectangle(pRectangle.getX() - INDEX_TOLERANCE, pRectangle.getY() - INDEX_TOLERANCE,
+				pRectangle.getWidth() + 2 * INDEX_TOLERANCE, pRectangle.getHeight() + 2 * INDEX_TOLERANCE);
 	}
 
 	/**
@@ -94,31 +240,96 @@ public abstract class AbstractDiagramRenderer implements DiagramRenderer
 	}
 
 	/**
-	 * Deactivates and clears all the NodeStorages of the NodeViewers present in the renderer.
+	 * Deactivates all the NodeStorages of the NodeViewers present in the renderer.
 	 */
-	protected void deactivateAndClearNodeStorages()
+	protected void deactivateNodeStorages()
 	{
 		aRenderers.values().stream().filter(renderer -> NodeRenderer.class.isAssignableFrom(renderer.getClass()))
-				.map(NodeRenderer.class::cast).forEach(NodeRenderer::deactivateAndClearNodeStorage);
+				.map(NodeRenderer.class::cast).forEach(NodeRenderer::deactivateNodeStorage);
 	}
 
-	protected void drawNode(Node pNode, GraphicsContext pGraphics)
+	protected void drawNode(Node pNode, DrawingSurface pGraphics)
 	{
 		draw(pNode, pGraphics);
 		pNode.getChildren().forEach(node -> drawNode(node, pGraphics));
 	}
 
+	/*
+	 * The elements of the diagram are drawn by replaying the display list recorded
+	 * the last time they were drawn, unless one of the values in their drawing key
+	 * changed.
+	 */
 	@Override
-	public void draw(DiagramElement pElement, GraphicsContext pGraphics)
+	public void draw(DiagramElement pElement, DrawingSurface pGraphics)
+	{
+		DiagramElementRenderer renderer = aRenderers.get(pElement.getClass());
+		if( aDisplayLists.canCache(pElement) )
+		{
+			aDisplayLists.draw(pElement, drawingKey(pElement), pGraphics, 
+					surface -> renderer.draw(pElement, surface));
+		}
+		else
+		{
+			renderer.draw(pElement, pGraphics);
+		}
+	}
+	
+	private List<Object> drawingKey(DiagramElement pElement)
+	{
+		List<Object> key = new ArrayList<>();
+		key.add(StringRenderer.fontSize());
+		for( Property property : pElement.properties() )
+		{
+			key.add(property.get());
+		}
+		addGeometryKey(pElement, key);
+		return key;
+	}
+	
+	/**
+	 * Adds to pKey the values, other than the properties of pElement and the font
+	 * size, on which the drawing of pElement depends. These are the bounds of nodes,
+	 * and the connection points and the bounds of the end nodes of edges. Because the 
+	 * drawing of child nodes, and of edges connected to them, can depend on their 
+	 * siblings, they are only replayed as long as the diagram is not modified.
+	 * Subclasses that draw elements using other information must add it to the key.
+	 * 
+	 * @param pElement The element of the diagram to draw.
+	 * @param pKey The key where to add the values.
+	 * @pre pElement != null && pKey != null
+	 */
+	protected void addGeometryKey(DiagramElement pElement, List<Object> pKey)
 	{
-		aRenderers.get(pElement.getClass()).draw(pElement, pGraphics);
+		assert pElement != null && pKey != null;
+		if( pElement instanceof Node )
+		{
+			Node node = (Node) pElement;
+			pKey.add(getBounds(node));
+			pKey.add(node.getChildren().size());
+			if( node.hasParent() )
+			{
+				pKey.add(aDiagram.revision());
+			}
+		}
+		else
+		{
+			Edge edge = (Edge) pElement;
+			pKey.add(getConnectionPoints(edge));
+			pKey.add(getBounds(edge.getStart()));
+			pKey.add(getBounds(edge.getEnd()));
+			if( edge.getStart().hasParent() || edge.getEnd().hasParent() )
+			{
+				pKey.add(aDiagram.revision());
+			}
+		}
 	}
 
 	@Override
 	public Optional<Edge> edgeAt(Point pPoint)
 	{
 		assert pPoint != null;
-		return aDiagram.edges().stream()
+		List<Edge> candidates = isIndexCurrent() ? aEdgeIndex.elementsAt(pPoint) : aDiagram.edges();
+		return candidates.stream()
 				.filter(edge -> contains(edge, pPoint))
 				.findFirst();
 	}
@@ -127,11 +338,56 @@ public abstract class AbstractDiagramRenderer implements DiagramRenderer
 	public Optional<Node> nodeAt(Point pPoint)
 	{
 		assert pPoint != null;
-		return aDiagram.rootNodes().stream()
-				.map(node -> deepFindNode(node, pPoint))
-				.filter(Optional::isPresent)
-				.map(Optional::get)
-				.reduce((first, second) -> second);
+		if( isIndexCurrent() )
+		{
+			return topmostNodeAt(aNodeIndex.elementsAt(pPoint), pPoint);
+		}
+		return topmostNodeAt(aDiagram.rootNodes(), pPoint);
+	}
+	
+	/**
+	 * Searches pRootNodes from last to first, and returns the deepest node
+	 * that contains pPoint in the first root node that has one.
+	 * 
+	 * @param pRootNodes The root nodes to search, in diagram order.
+	 * @param pPoint The point to test.
+	 * @return The node found, or Optional.empty() if there is none.
+	 * @pre pRootNodes != null && pPoint != null
+	 */
+	protected final Optional<Node> topmostNodeAt(List<Node> pRootNodes, Point pPoint)
+	{
+		assert pRootNodes != null && pPoint != null;
+		for( int i = pRootNodes.size() - 1; i >= 0; i-- )
+		{
+			Optional<Node> node = deepFindNode(pRootNodes.get(i), pPoint);
+			if( node.isPresent() )
+			{
+				return node;
+			}
+		}
+		return Optional.empty();
+	}
+	
+	@Override
+	public List<Node> rootNodesIntersecting(Rectangle pArea)
+	{
+		assert pArea != null;
+		if( isIndexCurrent() )
+		{
+			return aNodeIndex.elementsIntersecting(pArea);
+		}
+		return aDiagram.rootNodes();
+	}
+	
+	@Override
+	public List<Edge> edgesIntersecting(Rectangle pArea)
+	{
+		assert pArea != null;
+		if( isIndexCurrent() )
+		{
+			return aEdgeIndex.elementsIntersecting(pArea);
+		}
+		return aDiagram.edges();
 	}
 
 	protected Optional<Node> deepFindNode(Node pNode, Point pPoint)
@@ -149,30 +405,20 @@ public abstract class AbstractDiagramRenderer implements DiagramRenderer
 	@Override
 	public Rectangle getBounds()
 	{
-		Rectangle bounds = null;
+		BoundsAccumulator bounds = new BoundsAccumulator();
 		for (Node node : aDiagram.rootNodes())
 		{
-			if (bounds == null)
-			{
-				bounds = getBounds(node);
-			}
-			else
-			{
-				bounds = bounds.add(getBounds(node));
-			}
+			bounds.add(getBounds(node));
 		}
-		for (Edge edge : aDiagram.edges())
-		{
-			bounds = bounds.add(getBounds(edge));
-		}
-		if (bounds == null)
+		if (bounds.isEmpty())
 		{
 			return new Rectangle(0, 0, 0, 0);
 		}
-		else
+		for (Edge edge : aDiagram.edges())
 		{
-			return new Rectangle(bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+			bounds.add(getBounds(edge));
 		}
+		return bounds.toRectangle();
 	}
 
 	@Override
@@ -189,7 +435,7 @@ public abstract class AbstractDiagramRenderer implements DiagramRenderer
 	}
 
 	@Override
-	public void drawSelectionHandles(DiagramElement pElement, GraphicsContext pGraphics)
+	public void drawSelectionHandles(DiagramElement pElement, DrawingSurface pGraphics)
 	{
 		assert pElement != null && pGraphics != null;
 		aRenderers.get(pElement.getClass()).drawSelectionHandles(pElement, pGraphics);
@@ -233,27 +479,25 @@ public abstract class AbstractDiagramRenderer implements DiagramRenderer
 	{
 		assert pElements != null;
 		assert pElements.iterator().hasNext();
-		Iterator<DiagramElement> elements = pElements.iterator();
-		DiagramElement next = elements.next();
-		Rectangle bounds = getBounds(next);
-		bounds = addBounds(bounds, next);
-		while( elements.hasNext() )
+		BoundsAccumulator bounds = new BoundsAccumulator();
+		bounds.add(getBounds(pElements.iterator().next()));
+		for( DiagramElement element : pElements )
 		{
-			bounds = addBounds(bounds, elements.next());
+			addBounds(bounds, element);
 		}
-		return bounds;
+		return bounds.toRectangle();
 	}
 	
-	// Recursively enlarge the current rectangle to include the selected DiagramElements
-	private Rectangle addBounds(Rectangle pBounds, DiagramElement pElement)
+	// Recursively enlarge the current bounds to include the selected DiagramElements
+	private void addBounds(BoundsAccumulator pBounds, DiagramElement pElement)
 	{
 		if( pElement instanceof Node && ((Node) pElement).hasParent())
 		{
-			return addBounds(pBounds, ((Node) pElement).getParent());
+			addBounds(pBounds, ((Node) pElement).getParent());
 		}
 		else
 		{
-			return pBounds.add(getBounds(pElement));
+			pBounds.add(getBounds(pElement));
 		}
 	}
 }
@@ -30,7 +30,6 @@ import static org.jetuml.rendering.ArrowHead.V;
 
 import org.jetuml.geom.Point;
 
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
@@ -62,7 +61,7 @@ public final class ArrowHeadViewer
 	 * @param pPoint1 a point on the axis of the arrow head
 	 * @param pEnd the end point of the arrow head
 	 */
-	public void draw(GraphicsContext pGraphics, Point pPoint1, Point pEnd)
+	public void draw(DrawingSurface pGraphics, Point pPoint1, Point pEnd)
 	{
 		if(aArrowHead == ArrowHead.BLACK_DIAMOND || aArrowHead == BLACK_TRIANGLE) 
 		{
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.rendering;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.Effect;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcType;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * A drawing surface that draws on the graphics context of a JavaFX canvas.
+ */
+public final class CanvasSurface implements DrawingSurface
+{
+	private final GraphicsContext aGraphics;
+
+	/**
+	 * @param pGraphics The graphics context on which to draw.
+	 * @pre pGraphics != null
+	 */
+	public CanvasSurface(GraphicsContext pGraphics)
+	{
+		assert pGraphics != null;
+		aGraphics = pGraphics;
+	}
+
+	@Override
+	public Paint getFill()
+	{
+		return aGraphics.getFill();
+	}
+
+	@Override
+	public void setFill(Paint pFill)
+	{
+		aGraphics.setFill(pFill);
+	}
+
+	@Override
+	public Paint getStroke()
+	{
+		return aGraphics.getStroke();
+	}
+
+	@Override
+	public void setStroke(Paint pStroke)
+	{
+		aGraphics.setStroke(pStroke);
+	}
+
+	@Override
+	public double getLineWidth()
+	{
+		return aGraphics.getLineWidth();
+	}
+
+	@Override
+	public void setLineWidth(double pWidth)
+	{
+		aGraphics.setLineWidth(pWidth);
+	}
+
+	@Override
+	public double[] getLineDashes()
+	{
+		return aGraphics.getLineDashes();
+	}
+
+	@Override
+	public void setLineDashes(double... pDashes)
+	{
+		aGraphics.setLineDashes(pDashes);
+	}
+
+	@Override
+	public void setEffect(Effect pEffect)
+	{
+		aGraphics.setEffect(pEffect);
+	}
+
+	@Override
+	public Font getFont()
+	{
+		return aGraphics.getFont();
+	}
+
+	@Override
+	public void setFont(Font pFont)
+	{
+		aGraphics.setFont(pFont);
+	}
+
+	@Override
+	public TextAlignment getTextAlign()
+	{
+		return aGraphics.getTextAlign();
+	}
+
+	@Override
+	public void setTextAlign(TextAlignment pAlignment)
+	{
+		aGraphics.setTextAlign(pAlignment);
+	}
+
+	@Override
+	public VPos getTextBaseline()
+	{
+		return aGraphics.getTextBaseline();
+	}
+
+	@Override
+	public void setTextBaseline(VPos pBaseline)
+	{
+		aGraphics.setTextBaseline(pBaseline);
+	}
+
+	@Override
+	public void translate(double pX, double pY)
+	{
+		aGraphics.translate(pX, pY);
+	}
+
+	@Override
+	public void scale(double pX, double pY)
+	{
+		aGraphics.scale(pX, pY);
+	}
+
+	@Override
+	public void fillRect(double pX, double pY, double pWidth, double pHeight)
+	{
+		aGraphics.fillRect(pX, pY, pWidth, pHeight);
+	}
+
+	@Override
+	public void strokeRect(double pX, double pY, double pWidth, double pHeight)
+	{
+		aGraphics.strokeRect(pX, pY, pWidth, pHeight);
+	}
+
+	@Override
+	public void fillRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight)
+	{
+		aGraphics.fillRoundRect(pX, pY, pWidth, pHeight, pArcWidth, pArcHeight);
+	}
+
+	@Override
+	public void strokeRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight)
+	{
+		aGraphics.strokeRoundRect(pX, pY, pWidth, pHeight, pArcWidth, pArcHeight);
+	}
+
+	@Override
+	public void fillOval(double pX, double pY, double pWidth, double pHeight)
+	{
+		aGraphics.fillOval(pX, pY, pWidth, pHeight);
+	}
+
+	@Override
+	public void strokeOval(double pX, double pY, double pWidth, double pHeight)
+	{
+		aGraphics.strokeOval(pX, pY, pWidth, pHeight);
+	}
+
+	@Override
+	public void strokeArc(double pX, double pY, double pWidth, double pHeight,
+			double pStartAngle, double pArcExtent, ArcType pClosure)
+	{
+		aGraphics.strokeArc(pX, pY, pWidth, pHeight, pStartAngle, pArcExtent, pClosure);
+	}
+
+	@Override
+	public void strokeLine(double pX1, double pY1, double pX2, double pY2)
+	{
+		aGraphics.strokeLine(pX1, pY1, pX2, pY2);
+	}
+
+	@Override
+	public void fillText(String pText, double pX, double pY)
+	{
+		aGraphics.fillText(pText, pX, pY);
+	}
+
+	@Override
+	public void beginPath()
+	{
+		aGraphics.beginPath();
+	}
+
+	@Override
+	public void moveTo(double pX, double pY)
+	{
+		aGraphics.moveTo(pX, pY);
+	}
+
+	@Override
+	public void lineTo(double pX, double pY)
+	{
+		aGraphics.lineTo(pX, pY);
+	}
+
+	@Override
+	public void quadraticCurveTo(double pControlX, double pControlY, double pX, double pY)
+	{
+		aGraphics.quadraticCurveTo(pControlX, pControlY, pX, pY);
+	}
+
+	@Override
+	public void fill()
+	{
+		aGraphics.fill();
+	}
+
+	@Override
+	public void stroke()
+	{
+		aGraphics.stroke();
+	}
+}
@@ -23,14 +23,20 @@ package org.jetuml.rendering;
 import static java.util.stream.Collectors.toList;
 import static org.jetuml.rendering.EdgePriority.priorityOf;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.DiagramType;
 import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
@@ -46,6 +52,7 @@ import org.jetuml.diagram.nodes.PackageNode;
 import org.jetuml.geom.Direction;
 import org.jetuml.geom.EdgePath;
 import org.jetuml.geom.Line;
+import org.jetuml.geom.PackedPoint;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.geom.Side;
@@ -58,7 +65,6 @@ import org.jetuml.rendering.nodes.PackageDescriptionNodeRenderer;
 import org.jetuml.rendering.nodes.PackageNodeRenderer;
 import org.jetuml.rendering.nodes.TypeNodeRenderer;
 
-import javafx.scene.canvas.GraphicsContext;
 
 /**
  * The renderer for class diagrams.
@@ -66,6 +72,8 @@ import javafx.scene.canvas.GraphicsContext;
 public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 {
 	private static final int TWENTY_PIXELS = 20;
+	private static final NodeIndex[] NODE_INDICES = NodeIndex.values();
+	private static final Side[] SIDES = Side.values();
 	
 	public ClassDiagramRenderer(Diagram pDiagram)
 	{
@@ -92,18 +100,39 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	 * @pre pDiagram != null && pGraphics != null.
 	 */
 	@Override
-	public void draw(GraphicsContext pGraphics)
+	public void draw(DrawingSurface pGraphics)
 	{
-		//draw and store nodes 
 		activateNodeStorages();
-		diagram().rootNodes().forEach(node -> drawNode(node, pGraphics));
-		
 		//plan edge paths using Layouter
 		layout();
 		
+		//draw nodes, whose bounds are stored by the layout
+		diagram().rootNodes().forEach(node -> drawNode(node, pGraphics));
+		
 		//draw edges using plan from EdgeStorage
 		diagram().edges().forEach(edge -> draw(edge, pGraphics));
-		deactivateAndClearNodeStorages();
+		indexElements();
+		deactivateNodeStorages();
+	}
+	
+	@Override
+	public void draw(DrawingSurface pGraphics, Rectangle pVisibleArea, Predicate<DiagramElement> pFilter)
+	{
+		assert pGraphics != null && pVisibleArea != null && pFilter != null;
+		activateNodeStorages();
+		layout();
+		indexElements();
+		drawElementsIntersecting(pGraphics, pVisibleArea, pFilter);
+		deactivateNodeStorages();
+	}
+	
+	@Override
+	public void computeGeometry()
+	{
+		activateNodeStorages();
+		layout();
+		indexElements();
+		deactivateNodeStorages();
 	}
 	
 	@Override
@@ -121,24 +150,213 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	private static final int TEN_PIXELS = 10;
 	
 	private final EdgeStorage aEdgeStorage = new EdgeStorage();
+	
+	/*
+	 * The stored edges and their layout inputs at the time of the last layout. 
+	 * Used to only re-plan the edges affected by a change.
+	 */
+	private List<Edge> aLaidOutEdges = new ArrayList<>();
+	private Map<Edge, LayoutInput> aLayoutInputs = new IdentityHashMap<>();
 
 	/**
 	 * Uses positional information of nodes and stored edges to layout and store 
-	 * the EdgePaths of edges in pDiagram.
-	 * @param pDiagram the diagram of interest
+	 * the EdgePaths of edges in pDiagram. If the same edges were laid out previously,
+	 * only the EdgePaths of edges whose layout can be affected by a change to their
+	 * nodes or labels since the last layout are planned again. 
 	 * @pre pDiagram.getType() == DiagramType.CLASS
 	 */
 	public void layout()
 	{
 		assert diagram().getType() == DiagramType.CLASS;
-		aEdgeStorage.clearStorage();
-		layoutSegmentedEdges(EdgePriority.INHERITANCE);	
-		layoutSegmentedEdges(EdgePriority.IMPLEMENTATION);
-		layoutSegmentedEdges(EdgePriority.AGGREGATION);
-		layoutSegmentedEdges(EdgePriority.COMPOSITION);
-		layoutSegmentedEdges(EdgePriority.ASSOCIATION);
-		layoutDependencyEdges();
-		layoutSelfEdges();
+		List<Edge> storedEdges = diagram().edges().stream()
+				.filter(EdgePriority::isStoredEdge)
+				.collect(toList());
+		Map<Edge, LayoutInput> inputs = new IdentityHashMap<>();
+		storedEdges.forEach(edge -> inputs.put(edge, new LayoutInput(edge)));
+		
+		if( aEdgeStorage.isEmpty() || !sameEdges(storedEdges, aLaidOutEdges) )
+		{
+			aEdgeStorage.clearStorage();
+			layoutEdges(storedEdges);
+		}
+		else
+		{
+			List<Edge> changedEdges = storedEdges.stream()
+					.filter(edge -> !inputs.get(edge).equals(aLayoutInputs.get(edge)))
+					.collect(toList());
+			if( !changedEdges.isEmpty() )
+			{
+				Set<Edge> affectedEdges = edgesAffectedBy(changedEdges, storedEdges, inputs);
+				List<Edge> edgesToLayout = storedEdges.stream()
+						.filter(affectedEdges::contains)
+						.collect(toList());
+				edgesToLayout.forEach(aEdgeStorage::remove);
+				layoutEdges(edgesToLayout);
+			}
+		}
+		aLaidOutEdges = storedEdges;
+		aLayoutInputs = inputs;
+	}
+	
+	/*
+	 * Plans the EdgePaths of pEdges, in order of priority.
+	 */
+	private void layoutEdges(List<Edge> pEdges)
+	{
+		layoutSegmentedEdges(EdgePriority.INHERITANCE, pEdges);	
+		layoutSegmentedEdges(EdgePriority.IMPLEMENTATION, pEdges);
+		layoutSegmentedEdges(EdgePriority.AGGREGATION, pEdges);
+		layoutSegmentedEdges(EdgePriority.COMPOSITION, pEdges);
+		layoutSegmentedEdges(EdgePriority.ASSOCIATION, pEdges);
+		layoutDependencyEdges(pEdges);
+		layoutSelfEdges(pEdges);
+	}
+	
+	private static boolean sameEdges(List<Edge> pEdges1, List<Edge> pEdges2)
+	{
+		if( pEdges1.size() != pEdges2.size() )
+		{
+			return false;
+		}
+		for( int i = 0; i < pEdges1.size(); i++ )
+		{
+			if( pEdges1.get(i) != pEdges2.get(i) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * The path of an edge only depends on the other stored edges that share one of its nodes, 
+	 * directly or transitively, and on the edges whose connection points could coincide with 
+	 * its own, which can only happen if their nodes are close to each other. The edges affected
+	 * by a change are thus all the edges in the groups of nodes linked by edges or by proximity, 
+	 * before or after the change, that contain a node of a changed edge.
+	 */
+	private Set<Edge> edgesAffectedBy(List<Edge> pChangedEdges, List<Edge> pEdges, Map<Edge, LayoutInput> pInputs)
+	{
+		Map<Node, Node> groups = new IdentityHashMap<>();
+		Map<Node, Rectangle> oldBounds = new IdentityHashMap<>();
+		Map<Node, Rectangle> newBounds = new IdentityHashMap<>();
+		for( Edge edge : pEdges )
+		{
+			union(groups, edge.getStart(), edge.getEnd());
+			oldBounds.put(edge.getStart(), aLayoutInputs.get(edge).aStartBounds);
+			oldBounds.put(edge.getEnd(), aLayoutInputs.get(edge).aEndBounds);
+			newBounds.put(edge.getStart(), pInputs.get(edge).aStartBounds);
+			newBounds.put(edge.getEnd(), pInputs.get(edge).aEndBounds);
+		}
+		unionNeighbors(groups, oldBounds);
+		unionNeighbors(groups, newBounds);
+		
+		Set<Node> affectedGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+		pChangedEdges.forEach(edge -> affectedGroups.add(find(groups, edge.getStart())));
+		Set<Edge> result = Collections.newSetFromMap(new IdentityHashMap<>());
+		pEdges.stream()
+			.filter(edge -> affectedGroups.contains(find(groups, edge.getStart())))
+			.forEach(result::add);
+		return result;
+	}
+	
+	private static void unionNeighbors(Map<Node, Node> pGroups, Map<Node, Rectangle> pBounds)
+	{
+		SpatialIndex<Node> index = new SpatialIndex<>();
+		pBounds.forEach((node, bounds) -> index.add(node, neighborhood(bounds)));
+		pBounds.forEach((node, bounds) -> 
+			index.elementsIntersecting(neighborhood(bounds)).forEach(neighbor -> union(pGroups, node, neighbor)));
+	}
+	
+	/*
+	 * Connection points are snapped to the grid, so they can lie slightly outside of the node.
+	 */
+	private static Rectangle neighborhood(Rectangle pBounds)
+	{
+		return new Rectangle(pBounds.getX() - TEN_PIXELS, pBounds.getY() - TEN_PIXELS, 
+				pBounds.getWidth() + TWENTY_PIXELS, pBounds.getHeight() + TWENTY_PIXELS);
+	}
+	
+	private static Node find(Map<Node, Node> pGroups, Node pNode)
+	{
+		Node root = pNode;
+		while( pGroups.containsKey(root) )
+		{
+			root = pGroups.get(root);
+		}
+		if( root != pNode )
+		{
+			pGroups.put(pNode, root);
+		}
+		return root;
+	}
+	
+	private static void union(Map<Node, Node> pGroups, Node pNode1, Node pNode2)
+	{
+		Node root1 = find(pGroups, pNode1);
+		Node root2 = find(pGroups, pNode2);
+		if( root1 != root2 )
+		{
+			pGroups.put(root1, root2);
+		}
+	}
+	
+	/*
+	 * The information about an edge and its nodes that determines its EdgePath.
+	 */
+	private final class LayoutInput
+	{
+		private final EdgePriority aPriority;
+		private final Node aStart;
+		private final Node aEnd;
+		private final Rectangle aStartBounds;
+		private final Rectangle aEndBounds;
+		private final List<Object> aDetails = new ArrayList<>();
+		
+		LayoutInput(Edge pEdge)
+		{
+			aPriority = priorityOf(pEdge);
+			aStart = pEdge.getStart();
+			aEnd = pEdge.getEnd();
+			aStartBounds = getBounds(aStart);
+			aEndBounds = getBounds(aEnd);
+			for( Node node : List.of(aStart, aEnd) )
+			{
+				aDetails.add(node.position());
+				for( Side side : Side.values() )
+				{
+					aDetails.add(getFace(node, side));
+				}
+			}
+			if( pEdge instanceof ThreeLabelEdge )
+			{
+				aDetails.add(((ThreeLabelEdge) pEdge).getStartLabel());
+				aDetails.add(((ThreeLabelEdge) pEdge).getEndLabel());
+			}
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return aDetails.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object pObject)
+		{
+			if( this == pObject )
+			{
+				return true;
+			}
+			if( pObject == null || pObject.getClass() != getClass() )
+			{
+				return false;
+			}
+			LayoutInput other = (LayoutInput) pObject;
+			return aPriority == other.aPriority && aStart == other.aStart && aEnd == other.aEnd &&
+					aStartBounds.equals(other.aStartBounds) && aEndBounds.equals(other.aEndBounds) &&
+					aDetails.equals(other.aDetails);
+		}
 	}
 	
 	public boolean isEmpty()
@@ -152,17 +370,17 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	}
 	
 	/**
-	 * Plans the EdgePaths for all segmented edges in pDiagram with EdgePriority pEdgePriority.
-	 * @param pDiagram the diagram to layout
+	 * Plans the EdgePaths for all segmented edges in pEdges with EdgePriority pEdgePriority.
 	 * @param pEdgePriority the edge priority level 
-	 * @pre pDiagram.getType() == DiagramType.CLASS
+	 * @param pEdges the edges to plan
+	 * @pre diagram().getType() == DiagramType.CLASS
 	 * @pre EdgePriority.isSegmented(pEdgePriority)
 	 */
-	private void layoutSegmentedEdges(EdgePriority pEdgePriority)
+	private void layoutSegmentedEdges(EdgePriority pEdgePriority, List<Edge> pEdges)
 	{
 		assert diagram().getType() == DiagramType.CLASS;
 		assert EdgePriority.isSegmented(pEdgePriority);
-		List<Edge> edgesToProcess = diagram().edges().stream()
+		List<Edge> edgesToProcess = pEdges.stream()
 				.filter(edge -> priorityOf(edge) == pEdgePriority)
 				.sorted(Comparator.comparing(edge -> edge.getStart().position().getX()))
 				.collect(toList());
@@ -192,12 +410,12 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	
 	
 	/**
-	 * Plans the EdgePaths for Dependency Edges.
+	 * Plans the EdgePaths for the Dependency Edges in pEdges.
 	 */
-	private void layoutDependencyEdges()
+	private void layoutDependencyEdges(List<Edge> pEdges)
 	{
 		assert diagram().getType() == DiagramType.CLASS;
-		for (Edge edge : diagram().edges())
+		for (Edge edge : pEdges)
 		{
 			if (priorityOf(edge)==EdgePriority.DEPENDENCY)
 			{   //Determine the start and end connection points
@@ -211,11 +429,11 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	}
 	
 	/**
-	 * Plans the EdgePaths for self-edges in pDiagram.
+	 * Plans the EdgePaths for the self-edges in pEdges.
 	 */
-	private void layoutSelfEdges()
+	private void layoutSelfEdges(List<Edge> pEdges)
 	{
-		List<Edge> selfEdges = diagram().edges().stream()
+		List<Edge> selfEdges = pEdges.stream()
 			.filter(edge -> priorityOf(edge) == EdgePriority.SELF_EDGE)
 			.collect(toList());
 		for (Edge edge : selfEdges)
@@ -415,14 +633,20 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	private List<Edge> getEdgesToMergeEnd(Edge pEdge, List<Edge> pEdges)
 	{
 		assert pEdge != null && pEdges != null;
-		return pEdges.stream()
-				.filter(edge -> edge.getEnd() == pEdge.getEnd())
-				.filter(edge -> priorityOf(edge) == priorityOf(pEdge))
-				.filter(edge -> attachedSide(edge, edge.getEnd()) == attachedSide(pEdge, pEdge.getEnd())) 
-				.filter(edge -> noConflictingEndLabels(edge, pEdge))
-				.filter(edge -> noOtherEdgesBetween(edge, pEdge, pEdge.getEnd()))
-				.filter(edge -> !edge.equals(pEdge))
-				.collect(toList());		
+		List<Edge> result = new ArrayList<>();
+		for( Edge edge : pEdges )
+		{
+			if( edge.getEnd() == pEdge.getEnd() &&
+					priorityOf(edge) == priorityOf(pEdge) &&
+					attachedSide(edge, edge.getEnd()) == attachedSide(pEdge, pEdge.getEnd()) &&
+					noConflictingEndLabels(edge, pEdge) &&
+					noOtherEdgesBetween(edge, pEdge, pEdge.getEnd()) &&
+					!edge.equals(pEdge) )
+			{
+				result.add(edge);
+			}
+		}
+		return result;
 	}
 	
 	/**
@@ -436,14 +660,20 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	private List<Edge> getEdgesToMergeStart(Edge pEdge, List<Edge> pEdges)
 	{
 		assert pEdge != null && pEdges != null;
-		return pEdges.stream()
-			.filter(edge -> edge.getStart().equals(pEdge.getStart()))
-			.filter(edge -> priorityOf(edge) == priorityOf(pEdge))
-			.filter(edge -> attachedSide(edge, edge.getStart()) == attachedSide(pEdge, pEdge.getStart()))
-			.filter(edge -> noOtherEdgesBetween(edge, pEdge, pEdge.getStart()))
-			.filter(edge -> noConflictingStartLabels(edge, pEdge))
-			.filter(edge -> !edge.equals(pEdge))
-			.collect(toList());
+		List<Edge> result = new ArrayList<>();
+		for( Edge edge : pEdges )
+		{
+			if( edge.getStart().equals(pEdge.getStart()) &&
+					priorityOf(edge) == priorityOf(pEdge) &&
+					attachedSide(edge, edge.getStart()) == attachedSide(pEdge, pEdge.getStart()) &&
+					noOtherEdgesBetween(edge, pEdge, pEdge.getStart()) &&
+					noConflictingStartLabels(edge, pEdge) &&
+					!edge.equals(pEdge) )
+			{
+				result.add(edge);
+			}
+		}
+		return result;
 	}
 	
 	/**
@@ -763,12 +993,18 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	private List<Edge> storedConflictingEdges(Side pNodeSide, Node pNode, Edge pEdge)
 	{
 		assert pEdge.getStart() == pNode || pEdge.getEnd() == pNode;
-		return aEdgeStorage.edgesConnectedTo(pNode).stream()
-			.filter(edge -> attachedSideFromStorage(edge, pNode) == pNodeSide)
-			.filter(edge -> EdgePriority.isSegmented(edge))
-			.filter(edge -> getIndexSign(edge, pNode, pNodeSide) == getIndexSign(pEdge, pNode, pNodeSide))
-			.filter(edge -> !edge.equals(pEdge))
-			.collect(toList());
+		List<Edge> result = new ArrayList<>();
+		for( Edge edge : aEdgeStorage.edgesConnectedTo(pNode) )
+		{
+			if( attachedSideFromStorage(edge, pNode) == pNodeSide &&
+					EdgePriority.isSegmented(edge) &&
+					getIndexSign(edge, pNode, pNodeSide) == getIndexSign(pEdge, pNode, pNodeSide) &&
+					!edge.equals(pEdge) )
+			{
+				result.add(edge);
+			}
+		}
+		return result;
 	}
 	
 	/**
@@ -790,9 +1026,9 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 			connectionPoint = getEdgePath(pEdge).getEndPoint();
 		}
 		//Iterate over each side of pNode. Return the side which contains connectionPoint
-		for(Side side : Side.values())
+		for(Side side : SIDES)
 		{
-			if(getFace(pNode, side).spanning().contains(connectionPoint))
+			if(getFace(pNode, side).spanningContains(connectionPoint))
 			{
 				return side;
 			}
@@ -940,9 +1176,7 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 			return true;
 		}
 		//Return true if there are no other stored edges connected to the same side of pNode as pEdge1 and pEdge2
-		if(aEdgeStorage.edgesConnectedTo(pNode).stream()
-					.filter(edge -> attachedSide(edge, pNode) == attachedSide(pEdge1, pNode))
-					.collect(toList()).isEmpty()) 
+		if(noStoredEdgeOnSide(pNode, attachedSide(pEdge1, pNode))) 
 		{
 			return true;
 		}
@@ -953,6 +1187,21 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 		}
 	}
 	
+	/*
+	 * Returns whether none of the stored edges connected to pNode is attached to its pSide side.
+	 */
+	private boolean noStoredEdgeOnSide(Node pNode, Side pSide)
+	{
+		for( Edge edge : aEdgeStorage.edgesConnectedTo(pNode) )
+		{
+			if( attachedSide(edge, pNode) == pSide )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * Returns whether the center points of pNode1 and pNode2 are both on the same side relative to the center point of pCommonNode.
 	 * @param pNode1 a node in the diagram
@@ -1006,16 +1255,15 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 		for (int offset = 0; offset <= maxIndex; offset++) 
 		{
 			int ordinal = 4 + (indexSign * offset);
-			NodeIndex index = NodeIndex.values()[ordinal];
-			Point indexPoint = index.toPoint(faceOfNode, pAttachmentSide); 
+			long indexPoint = NODE_INDICES[ordinal].toPackedPoint(faceOfNode, pAttachmentSide); 
 			if(aEdgeStorage.connectionPointIsAvailable(indexPoint))
 			{
-				return indexPoint;
+				return PackedPoint.toPoint(indexPoint);
 			}
 		}
 		//If no connection point was available, return the point at NodeIndex MINUS_FOUR or PLUS_FOUR	
 		int maxOrdinal = 4 + ( maxIndex * indexSign );
-		return NodeIndex.values()[maxOrdinal].toPoint(faceOfNode, pAttachmentSide); 
+		return NODE_INDICES[maxOrdinal].toPoint(faceOfNode, pAttachmentSide); 
 	}
 	
 	/**
@@ -1312,34 +1560,19 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 	{
 		assert pEdge.getStart() == pNode || pEdge.getEnd() == pNode;
 		Rectangle otherNodeBounds = getBounds(getOtherNode(pEdge, pNode));
-		if(pAttachedSide == Side.TOP)
-		{ //Consider the middle segments of edges attached to pNode
-			return !storedConflictingEdges(pAttachedSide.mirrored(), pNode, pEdge).stream()
-					.filter(edge -> otherNodeBounds.getY() < getEdgePath(edge).getPointByIndex(1).getY() - TEN_PIXELS)
-					.collect(toList())
-					.isEmpty();
-		}
-		else if(pAttachedSide == Side.BOTTOM)
-		{//Consider the middle segments of edges attached to pNode
-			return !storedConflictingEdges(pAttachedSide.mirrored(), pNode, pEdge).stream()
-					.filter(edge -> otherNodeBounds.getMaxY() > getEdgePath(edge).getPointByIndex(1).getY() + TEN_PIXELS)
-					.collect(toList())
-					.isEmpty();
-		}
-		else if(pAttachedSide == Side.RIGHT)
-		{//Consider the middle segments of edges attached to pNode
-			return !storedConflictingEdges(pAttachedSide.mirrored(), pNode, pEdge).stream()
-					.filter(edge -> otherNodeBounds.getMaxX() > getEdgePath(edge).getPointByIndex(1).getX() - TEN_PIXELS)
-					.collect(toList())
-					.isEmpty();
-		}
-		else //Direction is LEFT
-		{//Consider the middle segments of edges attached to pNode
-			return !storedConflictingEdges(pAttachedSide.mirrored(), pNode, pEdge).stream()
-					.filter(edge -> otherNodeBounds.getX() < getEdgePath(edge).getPointByIndex(1).getX() + TEN_PIXELS)
-					.collect(toList())
-					.isEmpty();
+		//Consider the middle segments of edges attached to pNode
+		for( Edge edge : storedConflictingEdges(pAttachedSide.mirrored(), pNode, pEdge) )
+		{
+			Point segmentPoint = getEdgePath(edge).getPointByIndex(1);
+			if( pAttachedSide == Side.TOP && otherNodeBounds.getY() < segmentPoint.getY() - TEN_PIXELS ||
+					pAttachedSide == Side.BOTTOM && otherNodeBounds.getMaxY() > segmentPoint.getY() + TEN_PIXELS ||
+					pAttachedSide == Side.RIGHT && otherNodeBounds.getMaxX() > segmentPoint.getX() - TEN_PIXELS ||
+					pAttachedSide == Side.LEFT && otherNodeBounds.getX() < segmentPoint.getX() + TEN_PIXELS )
+			{
+				return true;
+			}
 		}
+		return false;
 	}
 	
 	/**
@@ -1354,6 +1587,20 @@ public final class ClassDiagramRenderer extends AbstractDiagramRenderer
 		return aEdgeStorage.getEdgePath(pEdge);
 	}
 	
+	/*
+	 * Stored edges are drawn along the path planned for them, which can
+	 * change when other edges are laid out.
+	 */
+	@Override
+	protected void addGeometryKey(DiagramElement pElement, List<Object> pKey)
+	{
+		super.addGeometryKey(pElement, pKey);
+		if( pElement instanceof Edge )
+		{
+			getStoredEdgePath((Edge) pElement).ifPresent(pKey::add);
+		}
+	}
+	
 	public Optional<EdgePath> getStoredEdgePath(Edge pEdge)
 	{
 		if( aEdgeStorage.contains(pEdge) )
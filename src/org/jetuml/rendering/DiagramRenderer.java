@@ -20,7 +20,9 @@
  ******************************************************************************/
 package org.jetuml.rendering;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramElement;
@@ -32,7 +34,6 @@ import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 
 /**
  * An object responsible for computing the geometry of a diagram. This class is 
@@ -45,6 +46,10 @@ import javafx.scene.canvas.GraphicsContext;
  * 
  * A single instance of each specialized renderer is needed as long as the geometry
  * is recomputed with a call to draw before any querying of the diagram geometry.
+ * 
+ * To speed up hit-testing, the bounds computed during draw are also recorded in a 
+ * spatial index. The index is only used until the diagram is modified, after which 
+ * queries fall back to testing every element of the diagram.
  */
 public interface DiagramRenderer
 {
@@ -55,7 +60,48 @@ public interface DiagramRenderer
 	 * @param pGraphics The graphics context where the diagram should be drawn.
 	 * @pre pGraphics != null.
 	 */
-	void draw(GraphicsContext pGraphics);
+	void draw(DrawingSurface pGraphics);
+	
+	/**
+	 * Computes the geometry of the diagram and draws the elements of the diagram 
+	 * whose bounds could intersect pVisibleArea onto the graphics context. Other
+	 * elements are skipped, so the cost of drawing is proportional to the number
+	 * of elements in the visible area.
+	 * 
+	 * @param pGraphics The graphics context where the diagram should be drawn.
+	 * @param pVisibleArea The area of the diagram that needs to be drawn.
+	 * @pre pGraphics != null && pVisibleArea != null.
+	 */
+	void draw(DrawingSurface pGraphics, Rectangle pVisibleArea);
+	
+	/**
+	 * Computes the geometry of the diagram and draws the elements of the diagram
+	 * whose bounds could intersect pVisibleArea and that are accepted by pFilter. 
+	 * The filter is applied to edges and to root nodes, which are drawn with 
+	 * their children.
+	 * 
+	 * @param pGraphics The graphics context where the diagram should be drawn.
+	 * @param pVisibleArea The area of the diagram that needs to be drawn.
+	 * @param pFilter Accepts the edges and root nodes to draw.
+	 * @pre pGraphics != null && pVisibleArea != null && pFilter != null.
+	 */
+	void draw(DrawingSurface pGraphics, Rectangle pVisibleArea, Predicate<DiagramElement> pFilter);
+	
+	/**
+	 * Computes the geometry of the diagram without drawing it. This makes it
+	 * possible to query the geometry of a diagram modified since the last call to 
+	 * draw, for example to determine which area of the canvas needs to be repainted.
+	 */
+	void computeGeometry();
+	
+	/**
+	 * Computes the bounds of all the nodes of a large diagram in parallel, so that
+	 * they are available when the geometry of the diagram is next needed. Meant to 
+	 * be called before the entire diagram is laid out once, for example when it is
+	 * opened or exported, and not for each frame drawn while the diagram is edited.
+	 * The diagram must not be modified during the call.
+	 */
+	void precomputeNodeBounds();
 	
 	/**
      * Draws the element.
@@ -63,7 +109,7 @@ public interface DiagramRenderer
      * @param pGraphics the graphics context
      * @pre pElement != null
 	 */
-   	void draw(DiagramElement pElement, GraphicsContext pGraphics);
+   	void draw(DiagramElement pElement, DrawingSurface pGraphics);
 	
 	/**
 	 * Returns the edge underneath the given point, if it exists.
@@ -83,6 +129,27 @@ public interface DiagramRenderer
      */
 	Optional<Node> nodeAt(Point pPoint);
 	
+	/**
+	 * Returns the root nodes that could intersect pArea, in diagram order. A root 
+	 * node is returned if it or any of its descendants could intersect pArea. The
+	 * result can include nodes that do not intersect pArea, but never omits one that does.
+	 * 
+	 * @param pArea The area of interest.
+	 * @return The candidate root nodes.
+	 * @pre pArea != null
+	 */
+	List<Node> rootNodesIntersecting(Rectangle pArea);
+	
+	/**
+	 * Returns the edges that could intersect pArea, in diagram order. The result can 
+	 * include edges that do not intersect pArea, but never omits one that does.
+	 * 
+	 * @param pArea The area of interest.
+	 * @return The candidate edges.
+	 * @pre pArea != null
+	 */
+	List<Edge> edgesIntersecting(Rectangle pArea);
+	
 	/**
 	 * Gets the smallest rectangle enclosing the diagram.
 	 * 
@@ -115,7 +182,7 @@ public interface DiagramRenderer
 	 * @param pGraphics The graphics context
 	 * @pre pElement != null && pGraphics != null
 	 */
-	void drawSelectionHandles(DiagramElement pElement, GraphicsContext pGraphics);
+	void drawSelectionHandles(DiagramElement pElement, DrawingSurface pGraphics);
 
 	/**
 	 * Gets the smallest rectangle that bounds the element. The bounding rectangle contains all labels.
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.rendering;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.Node;
+
+/**
+ * Keeps, for each element of a diagram, the display list recorded the last
+ * time it was drawn, together with a key made of the values the drawing 
+ * depends on. When the element is drawn again with the same key, the display
+ * list is replayed instead of running the renderer of the element.
+ * 
+ * The display lists of elements removed from the diagram are discarded the
+ * first time the cache is used after the revision of the diagram changes.
+ */
+final class DisplayListCache
+{
+	private final Diagram aDiagram;
+	private final Map<DiagramElement, Entry> aEntries = new IdentityHashMap<>();
+	private final Set<DiagramElement> aElements = Collections.newSetFromMap(new IdentityHashMap<>());
+	private long aRevision = -1;
+	
+	/**
+	 * @param pDiagram The diagram whose elements are drawn.
+	 * @pre pDiagram != null
+	 */
+	DisplayListCache(Diagram pDiagram)
+	{
+		assert pDiagram != null;
+		aDiagram = pDiagram;
+	}
+	
+	/**
+	 * @param pElement The element to check.
+	 * @return True if pElement is a node or edge of the diagram. Other elements,
+	 *     for example those drawn as icons, are not cached.
+	 * @pre pElement != null
+	 */
+	boolean canCache(DiagramElement pElement)
+	{
+		assert pElement != null;
+		if( aRevision != aDiagram.revision() )
+		{
+			collectElements();
+			aEntries.keySet().retainAll(aElements);
+			aRevision = aDiagram.revision();
+		}
+		return aElements.contains(pElement);
+	}
+	
+	/**
+	 * Draws pElement on pSurface, by replaying the display list of pElement if
+	 * it was recorded with pKey on a surface in the same state as pSurface, and 
+	 * otherwise by recording a new display list with pRenderer.
+	 * 
+	 * @param pElement The element to draw.
+	 * @param pKey The values on which the drawing of pElement depends.
+	 * @param pSurface The surface where to draw.
+	 * @param pRenderer Draws pElement on the surface it is given.
+	 * @pre canCache(pElement) && pKey != null && pSurface != null && pRenderer != null
+	 */
+	void draw(DiagramElement pElement, List<Object> pKey, DrawingSurface pSurface, Consumer<DrawingSurface> pRenderer)
+	{
+		assert pKey != null && pSurface != null && pRenderer != null;
+		Entry entry = aEntries.get(pElement);
+		if( entry == null || !entry.aKey.equals(pKey) || !entry.aDisplayList.canReplayOn(pSurface) )
+		{
+			RecordingSurface displayList = new RecordingSurface(pSurface);
+			pRenderer.accept(displayList);
+			entry = new Entry(pKey, displayList);
+			aEntries.put(pElement, entry);
+		}
+		entry.aDisplayList.replay(pSurface);
+	}
+	
+	private void collectElements()
+	{
+		aElements.clear();
+		aElements.addAll(aDiagram.edges());
+		aDiagram.rootNodes().forEach(this::collectNode);
+	}
+	
+	private void collectNode(Node pNode)
+	{
+		aElements.add(pNode);
+		pNode.getChildren().forEach(this::collectNode);
+	}
+	
+	private static final class Entry
+	{
+		private final List<Object> aKey;
+		private final RecordingSurface aDisplayList;
+		
+		Entry(List<Object> pKey, RecordingSurface pDisplayList)
+		{
+			aKey = pKey;
+			aDisplayList = pDisplayList;
+		}
+	}
+}
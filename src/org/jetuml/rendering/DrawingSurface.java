@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.rendering;
+
+import javafx.geometry.VPos;
+import javafx.scene.effect.Effect;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcType;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * A surface on which diagrams are drawn. The operations are those of the
+ * JavaFX GraphicsContext that the renderers use, with the same meaning, so
+ * that diagrams can be drawn on a canvas or written to other formats.
+ *
+ * A drawing surface has a current state made of the attributes that can be set,
+ * for example the fill color or the font. The state applies to all the subsequent
+ * drawing operations. The state also includes a current path, which is started
+ * with beginPath and then filled or stroked.
+ */
+public interface DrawingSurface
+{
+	/**
+	 * @return The current fill paint.
+	 */
+	Paint getFill();
+
+	/**
+	 * @param pFill The paint used to fill shapes and text.
+	 */
+	void setFill(Paint pFill);
+
+	/**
+	 * @return The current stroke paint.
+	 */
+	Paint getStroke();
+
+	/**
+	 * @param pStroke The paint used to stroke shapes.
+	 */
+	void setStroke(Paint pStroke);
+
+	/**
+	 * @return The current line width.
+	 */
+	double getLineWidth();
+
+	/**
+	 * @param pWidth The width of the lines that are stroked.
+	 */
+	void setLineWidth(double pWidth);
+
+	/**
+	 * @return The current dash pattern, or null for solid lines.
+	 */
+	double[] getLineDashes();
+
+	/**
+	 * @param pDashes The lengths of the dashes and gaps of the lines
+	 *     that are stroked, or null for solid lines.
+	 */
+	void setLineDashes(double... pDashes);
+
+	/**
+	 * Sets the effect applied to the subsequent drawing operations. Surfaces
+	 * that cannot render an effect draw the shapes without it.
+	 *
+	 * @param pEffect The effect to apply, or null for no effect.
+	 */
+	void setEffect(Effect pEffect);
+
+	/**
+	 * @return The current font.
+	 */
+	Font getFont();
+
+	/**
+	 * @param pFont The font used to draw text.
+	 */
+	void setFont(Font pFont);
+
+	/**
+	 * @return The current horizontal alignment of text.
+	 */
+	TextAlignment getTextAlign();
+
+	/**
+	 * @param pAlignment The horizontal alignment of text relative to
+	 *     the point where it is drawn.
+	 */
+	void setTextAlign(TextAlignment pAlignment);
+
+	/**
+	 * @return The current vertical alignment of text.
+	 */
+	VPos getTextBaseline();
+
+	/**
+	 * @param pBaseline The vertical alignment of text relative to
+	 *     the point where it is drawn.
+	 */
+	void setTextBaseline(VPos pBaseline);
+
+	/**
+	 * Translates the coordinate system of the subsequent drawing operations.
+	 *
+	 * @param pX The translation along the x-axis.
+	 * @param pY The translation along the y-axis.
+	 */
+	void translate(double pX, double pY);
+
+	/**
+	 * Scales the coordinate system of the subsequent drawing operations.
+	 *
+	 * @param pX The scale factor along the x-axis.
+	 * @param pY The scale factor along the y-axis.
+	 */
+	void scale(double pX, double pY);
+
+	/**
+	 * Fills a rectangle with the current fill paint.
+	 *
+	 * @param pX The x-coordinate of the top-left corner.
+	 * @param pY The y-coordinate of the top-left corner.
+	 * @param pWidth The width of the rectangle.
+	 * @param pHeight The height of the rectangle.
+	 */
+	void fillRect(double pX, double pY, double pWidth, double pHeight);
+
+	/**
+	 * Strokes a rectangle with the current stroke paint.
+	 *
+	 * @param pX The x-coordinate of the top-left corner.
+	 * @param pY The y-coordinate of the top-left corner.
+	 * @param pWidth The width of the rectangle.
+	 * @param pHeight The height of the rectangle.
+	 */
+	void strokeRect(double pX, double pY, double pWidth, double pHeight);
+
+	/**
+	 * Fills a rounded rectangle with the current fill paint.
+	 *
+	 * @param pX The x-coordinate of the top-left corner.
+	 * @param pY The y-coordinate of the top-left corner.
+	 * @param pWidth The width of the rectangle.
+	 * @param pHeight The height of the rectangle.
+	 * @param pArcWidth The width of the arcs of the corners.
+	 * @param pArcHeight The height of the arcs of the corners.
+	 */
+	void fillRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight);
+
+	/**
+	 * Strokes a rounded rectangle with the current stroke paint.
+	 *
+	 * @param pX The x-coordinate of the top-left corner.
+	 * @param pY The y-coordinate of the top-left corner.
+	 * @param pWidth The width of the rectangle.
+	 * @param pHeight The height of the rectangle.
+	 * @param pArcWidth The width of the arcs of the corners.
+	 * @param pArcHeight The height of the arcs of the corners.
+	 */
+	void strokeRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight);
+
+	/**
+	 * Fills an oval with the current fill paint.
+	 *
+	 * @param pX The x-coordinate of the top-left corner of the bounds of the oval.
+	 * @param pY The y-coordinate of the top-left corner of the bounds of the oval.
+	 * @param pWidth The width of the oval.
+	 * @param pHeight The height of the oval.
+	 */
+	void fillOval(double pX, double pY, double pWidth, double pHeight);
+
+	/**
+	 * Strokes an oval with the current stroke paint.
+	 *
+	 * @param pX The x-coordinate of the top-left corner of the bounds of the oval.
+	 * @param pY The y-coordinate of the top-left corner of the bounds of the oval.
+	 * @param pWidth The width of the oval.
+	 * @param pHeight The height of the oval.
+	 */
+	void strokeOval(double pX, double pY, double pWidth, double pHeight);
+
+	/**
+	 * Strokes an arc of an oval with the current stroke paint.
+	 *
+	 * @param pX The x-coordinate of the top-left corner of the bounds of the oval.
+	 * @param pY The y-coordinate of the top-left corner of the bounds of the oval.
+	 * @param pWidth The width of the oval.
+	 * @param pHeight The height of the oval.
+	 * @param pStartAngle The angle where the arc starts, in degrees.
+	 * @param pArcExtent The angular extent of the arc, in degrees.
+	 * @param pClosure How the arc is closed.
+	 */
+	void strokeArc(double pX, double pY, double pWidth, double pHeight,
+			double pStartAngle, double pArcExtent, ArcType pClosure);
+
+	/**
+	 * Strokes a line with the current stroke paint.
+	 *
+	 * @param pX1 The x-coordinate of the start of the line.
+	 * @param pY1 The y-coordinate of the start of the line.
+	 * @param pX2 The x-coordinate of the end of the line.
+	 * @param pY2 The y-coordinate of the end of the line.
+	 */
+	void strokeLine(double pX1, double pY1, double pX2, double pY2);
+
+	/**
+	 * Fills text with the current fill paint, font and alignment. The lines
+	 * of multi-line text are drawn below each other.
+	 *
+	 * @param pText The text to draw.
+	 * @param pX The x-coordinate where to draw the text.
+	 * @param pY The y-coordinate where to draw the text.
+	 */
+	void fillText(String pText, double pX, double pY);
+
+	/**
+	 * Starts a new current path.
+	 */
+	void beginPath();
+
+	/**
+	 * Starts a new sub-path of the current path at a point.
+	 *
+	 * @param pX The x-coordinate of the point.
+	 * @param pY The y-coordinate of the point.
+	 */
+	void moveTo(double pX, double pY);
+
+	/**
+	 * Adds a segment to the current path.
+	 *
+	 * @param pX The x-coordinate of the end of the segment.
+	 * @param pY The y-coordinate of the end of the segment.
+	 */
+	void lineTo(double pX, double pY);
+
+	/**
+	 * Adds a quadratic Bezier curve to the current path.
+	 *
+	 * @param pControlX The x-coordinate of the control point.
+	 * @param pControlY The y-coordinate of the control point.
+	 * @param pX The x-coordinate of the end of the curve.
+	 * @param pY The y-coordinate of the end of the curve.
+	 */
+	void quadraticCurveTo(double pControlX, double pControlY, double pX, double pY);
+
+	/**
+	 * Fills the current path with the current fill paint.
+	 */
+	void fill();
+
+	/**
+	 * Strokes the current path with the current stroke paint.
+	 */
+	void stroke();
+}
@@ -20,6 +20,9 @@
  *******************************************************************************/
 package org.jetuml.rendering;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.jetuml.geom.Dimension;
 
 import javafx.geometry.Bounds;
@@ -48,12 +51,32 @@ import javafx.scene.text.Text;
  * Hence, upon calling getHeight(), to get tight bounds, one should subtract
  * off the leading value (found by getting the max Y value of a one-lined text
  * box)
+ * 
+ * Because measuring text is expensive, the dimensions of the most recently 
+ * measured strings are cached. A FontMetrics object is bound to a single font,
+ * so a new object must be created when the font changes.
+ * 
+ * The cache and the text node used to measure strings are shared, so measuring is
+ * synchronized to allow diagrams to be rendered on different threads.
  */
 public class FontMetrics 
 {
 	public static final int DEFAULT_FONT_SIZE = 12;
 	private static final String BLANK = "";
+	private static final int CACHE_CAPACITY = 1024;
+	
 	private Text aTextNode;
+	private final double aLeading;
+	private final Map<String, Dimension> aDimensions = new LinkedHashMap<>(CACHE_CAPACITY, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Dimension> pEldest)
+		{
+			return size() > CACHE_CAPACITY;
+		}
+	};
+	private int aHits = 0;
+	private int aMisses = 0;
 
 	/**
 	 * Creates a new FontMetrics object.
@@ -66,6 +89,8 @@ public class FontMetrics
 		
 		aTextNode = new Text();
 		aTextNode.setFont(pFont);
+		aTextNode.setText(BLANK);
+		aLeading = aTextNode.getLayoutBounds().getMaxY();
 	}
 
 	/**
@@ -73,14 +98,37 @@ public class FontMetrics
 	 * @param pString The string to which the bounds pertain.
 	 * @return The dimension of the string
 	 */
-	public Dimension getDimension(String pString)
+	public synchronized Dimension getDimension(String pString)
 	{
 		assert pString != null;
-		
+		Dimension dimension = aDimensions.get(pString);
+		if( dimension != null )
+		{
+			aHits++;
+			return dimension;
+		}
+		aMisses++;
 		aTextNode.setText(pString);
 		Bounds bounds = aTextNode.getLayoutBounds();
 		aTextNode.setText(BLANK);
-		double leading = aTextNode.getLayoutBounds().getMaxY();
-		return new Dimension((int) Math.round(bounds.getWidth()), (int) Math.round(bounds.getHeight() - leading));
+		dimension = new Dimension((int) Math.round(bounds.getWidth()), (int) Math.round(bounds.getHeight() - aLeading));
+		aDimensions.put(pString, dimension);
+		return dimension;
+	}
+	
+	/**
+	 * @return The number of calls to getDimension that were answered from the cache.
+	 */
+	public synchronized int cacheHits()
+	{
+		return aHits;
+	}
+	
+	/**
+	 * @return The number of calls to getDimension that required measuring the string.
+	 */
+	public synchronized int cacheMisses()
+	{
+		return aMisses;
 	}
 } 
\ No newline at end of file
@@ -24,7 +24,6 @@ package org.jetuml.rendering;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 
@@ -44,7 +43,7 @@ public final class Grid
      * @param pGraphics the graphics context
      * @param pBounds the bounding rectangle
      */
-	public static void draw(GraphicsContext pGraphics, Rectangle pBounds)
+	public static void draw(DrawingSurface pGraphics, Rectangle pBounds)
 	{
 		Paint oldStroke = pGraphics.getStroke();
 		pGraphics.setStroke(GRID_COLOR);
@@ -91,9 +90,16 @@ public final class Grid
 	public static Point snapped(Point pPoint)
 	{
 		assert pPoint != null;
-		int x = (int)(Math.round(pPoint.getX() / GRID_SIZE) * GRID_SIZE);
-		int y = (int)(Math.round(pPoint.getY() / GRID_SIZE) * GRID_SIZE);
-		return new Point(x, y);
+		return new Point(snap(pPoint.getX()), snap(pPoint.getY()));
+	}
+	
+	/**
+	 * @param pCoordinate An x- or y-coordinate.
+	 * @return The grid coordinate closest to pCoordinate.
+	 */
+	public static int snap(int pCoordinate)
+	{
+		return (int)(Math.round(pCoordinate / GRID_SIZE) * GRID_SIZE);
 	}
 	
 	/**
@@ -105,8 +111,7 @@ public final class Grid
 	public static Point snappedHorizontally(Point pPoint)
 	{
 		assert pPoint != null;
-		Point snapped = snapped(pPoint);
-		return new Point(snapped.getX(), pPoint.getY());
+		return new Point(snap(pPoint.getX()), pPoint.getY());
 	}
 	
 	/**
@@ -118,8 +123,7 @@ public final class Grid
 	public static Point snappedVertically(Point pPoint)
 	{
 		assert pPoint != null;
-		Point snapped = snapped(pPoint);
-		return new Point(pPoint.getX(), snapped.getY());
+		return new Point(pPoint.getX(), snap(pPoint.getY()));
 	}
 	
 	/**
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.rendering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import javafx.geometry.VPos;
+import javafx.scene.effect.Effect;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcType;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * A drawing surface that records the operations done on it as a display list,
+ * so that they can be replayed on another surface without running the code
+ * that produced them again.
+ *
+ * The surface starts with the state (paints, line width and dashes, font, and 
+ * text alignment) of the surface it is created for, and answers the queries of 
+ * the renderers from the state set since. Because the operations recorded can 
+ * depend on this initial state, a display list must only be replayed on a 
+ * surface in the same state, which is checked by canReplayOn.
+ */
+final class RecordingSurface implements DrawingSurface
+{
+	private final List<Consumer<DrawingSurface>> aOperations = new ArrayList<>();
+	
+	private final Paint aInitialFill;
+	private final Paint aInitialStroke;
+	private final double aInitialLineWidth;
+	private final double[] aInitialLineDashes;
+	private final Font aInitialFont;
+	private final TextAlignment aInitialTextAlign;
+	private final VPos aInitialTextBaseline;
+	
+	private Paint aFill;
+	private Paint aStroke;
+	private double aLineWidth;
+	private double[] aLineDashes;
+	private Font aFont;
+	private TextAlignment aTextAlign;
+	private VPos aTextBaseline;
+
+	/**
+	 * Creates an empty display list that starts in the state of pSurface.
+	 * 
+	 * @param pSurface The surface where the display list is intended to be replayed.
+	 * @pre pSurface != null
+	 */
+	RecordingSurface(DrawingSurface pSurface)
+	{
+		assert pSurface != null;
+		aInitialFill = pSurface.getFill();
+		aInitialStroke = pSurface.getStroke();
+		aInitialLineWidth = pSurface.getLineWidth();
+		aInitialLineDashes = pSurface.getLineDashes();
+		aInitialFont = pSurface.getFont();
+		aInitialTextAlign = pSurface.getTextAlign();
+		aInitialTextBaseline = pSurface.getTextBaseline();
+		aFill = aInitialFill;
+		aStroke = aInitialStroke;
+		aLineWidth = aInitialLineWidth;
+		aLineDashes = aInitialLineDashes;
+		aFont = aInitialFont;
+		aTextAlign = aInitialTextAlign;
+		aTextBaseline = aInitialTextBaseline;
+	}
+	
+	/**
+	 * @param pSurface The surface to check.
+	 * @return True if pSurface is in the state in which the operations
+	 *     were recorded.
+	 * @pre pSurface != null
+	 */
+	boolean canReplayOn(DrawingSurface pSurface)
+	{
+		assert pSurface != null;
+		return aInitialLineWidth == pSurface.getLineWidth() &&
+				Objects.equals(aInitialFill, pSurface.getFill()) &&
+				Objects.equals(aInitialStroke, pSurface.getStroke()) &&
+				Arrays.equals(aInitialLineDashes, pSurface.getLineDashes()) &&
+				Objects.equals(aInitialFont, pSurface.getFont()) &&
+				aInitialTextAlign == pSurface.getTextAlign() &&
+				aInitialTextBaseline == pSurface.getTextBaseline();
+	}
+	
+	/**
+	 * Performs the recorded operations on pSurface, in the order
+	 * in which they were recorded.
+	 * 
+	 * @param pSurface The surface where to draw.
+	 * @pre pSurface != null && canReplayOn(pSurface)
+	 */
+	void replay(DrawingSurface pSurface)
+	{
+		assert pSurface != null && canReplayOn(pSurface);
+		for( Consumer<DrawingSurface> operation : aOperations )
+		{
+			operation.accept(pSurface);
+		}
+	}
+
+	@Override
+	public Paint getFill()
+	{
+		return aFill;
+	}
+
+	@Override
+	public void setFill(Paint pFill)
+	{
+		aFill = pFill;
+		aOperations.add(surface -> surface.setFill(pFill));
+	}
+
+	@Override
+	public Paint getStroke()
+	{
+		return aStroke;
+	}
+
+	@Override
+	public void setStroke(Paint pStroke)
+	{
+		aStroke = pStroke;
+		aOperations.add(surface -> surface.setStroke(pStroke));
+	}
+
+	@Override
+	public double getLineWidth()
+	{
+		return aLineWidth;
+	}
+
+	@Override
+	public void setLineWidth(double pWidth)
+	{
+		aLineWidth = pWidth;
+		aOperations.add(surface -> surface.setLineWidth(pWidth));
+	}
+
+	@Override
+	public double[] getLineDashes()
+	{
+		if( aLineDashes == null )
+		{
+			return null;
+		}
+		return aLineDashes.clone();
+	}
+
+	@Override
+	public void setLineDashes(double... pDashes)
+	{
+		double[] dashes = pDashes == null ? null : pDashes.clone();
+		aLineDashes = dashes;
+		aOperations.add(surface -> surface.setLineDashes(dashes));
+	}
+
+	@Override
+	public void setEffect(Effect pEffect)
+	{
+		aOperations.add(surface -> surface.setEffect(pEffect));
+	}
+
+	@Override
+	public Font getFont()
+	{
+		return aFont;
+	}
+
+	@Override
+	public void setFont(Font pFont)
+	{
+		aFont = pFont;
+		aOperations.add(surface -> surface.setFont(pFont));
+	}
+
+	@Override
+	public TextAlignment getTextAlign()
+	{
+		return aTextAlign;
+	}
+
+	@Override
+	public void setTextAlign(TextAlignment pAlignment)
+	{
+		aTextAlign = pAlignment;
+		aOperations.add(surface -> surface.setTextAlign(pAlignment));
+	}
+
+	@Override
+	public VPos getTextBaseline()
+	{
+		return aTextBaseline;
+	}
+
+	@Override
+	public void setTextBaseline(VPos pBaseline)
+	{
+		aTextBaseline = pBaseline;
+		aOperations.add(surface -> surface.setTextBaseline(pBaseline));
+	}
+
+	@Override
+	public void translate(double pX, double pY)
+	{
+		aOperations.add(surface -> surface.translate(pX, pY));
+	}
+
+	@Override
+	public void scale(double pX, double pY)
+	{
+		aOperations.add(surface -> surface.scale(pX, pY));
+	}
+
+	@Override
+	public void fillRect(double pX, double pY, double pWidth, double pHeight)
+	{
+		aOperations.add(surface -> surface.fillRect(pX, pY, pWidth, pHeight));
+	}
+
+	@Override
+	public void strokeRect(double pX, double pY, double pWidth, double pHeight)
+	{
+		aOperations.add(surface -> surface.strokeRect(pX, pY, pWidth, pHeight));
+	}
+
+	@Override
+	public void fillRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight)
+	{
+		aOperations.add(surface -> surface.fillRoundRect(pX, pY, pWidth, pHeight, pArcWidth, pArcHeight));
+	}
+
+	@Override
+	public void strokeRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight)
+	{
+		aOperations.add(surface -> surface.strokeRoundRect(pX, pY, pWidth, pHeight, pArcWidth, pArcHeight));
+	}
+
+	@Override
+	public void fillOval(double pX, double pY, double pWidth, double pHeight)
+	{
+		aOperations.add(surface -> surface.fillOval(pX, pY, pWidth, pHeight));
+	}
+
+	@Override
+	public void strokeOval(double pX, double pY, double pWidth, double pHeight)
+	{
+		aOperations.add(surface -> surface.strokeOval(pX, pY, pWidth, pHeight));
+	}
+
+	@Override
+	public void strokeArc(double pX, double pY, double pWidth, double pHeight, 
+			double pStartAngle, double pArcExtent, ArcType pClosure)
+	{
+		aOperations.add(surface -> surface.strokeArc(pX, pY, pWidth, pHeight, pStartAngle, pArcExtent, pClosure));
+	}
+
+	@Override
+	public void strokeLine(double pX1, double pY1, double pX2, double pY2)
+	{
+		aOperations.add(surface -> surface.strokeLine(pX1, pY1, pX2, pY2));
+	}
+
+	@Override
+	public void fillText(String pText, double pX, double pY)
+	{
+		aOperations.add(surface -> surface.fillText(pText, pX, pY));
+	}
+
+	@Override
+	public void beginPath()
+	{
+		aOperations.add(DrawingSurface::beginPath);
+	}
+
+	@Override
+	public void moveTo(double pX, double pY)
+	{
+		aOperations.add(surface -> surface.moveTo(pX, pY));
+	}
+
+	@Override
+	public void lineTo(double pX, double pY)
+	{
+		aOperations.add(surface -> surface.lineTo(pX, pY));
+	}
+
+	@Override
+	public void quadraticCurveTo(double pControlX, double pControlY, double pX, double pY)
+	{
+		aOperations.add(surface -> surface.quadraticCurveTo(pControlX, pControlY, pX, pY));
+	}
+
+	@Override
+	public void fill()
+	{
+		aOperations.add(DrawingSurface::fill);
+	}
+
+	@Override
+	public void stroke()
+	{
+		aOperations.add(DrawingSurface::stroke);
+	}
+}
@@ -22,7 +22,6 @@ package org.jetuml.rendering;
 
 import org.jetuml.geom.Rectangle;
 
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
@@ -55,7 +54,7 @@ public final class RenderingUtils
 	 * @param pDiameter The diameter of the circle.
 	 * @param pShadow True to include a drop shadow.
 	 */
-	public static void drawCircle(GraphicsContext pGraphics, int pX, int pY, int pDiameter, Paint pFill, boolean pShadow)
+	public static void drawCircle(DrawingSurface pGraphics, int pX, int pY, int pDiameter, Paint pFill, boolean pShadow)
 	{
 		drawOval( pGraphics, pX, pY, pDiameter, pDiameter, pFill, pShadow);
 	}
@@ -71,7 +70,7 @@ public final class RenderingUtils
 	 * @param pHeight The height of the oval to draw.
 	 * @param pShadow True to include a drop shadow.
 	 */
-	public static void drawOval(GraphicsContext pGraphics, int pX, int pY, int pWidth, int pHeight, Paint pFill, boolean pShadow)
+	public static void drawOval(DrawingSurface pGraphics, int pX, int pY, int pWidth, int pHeight, Paint pFill, boolean pShadow)
 	{
 		assert pWidth > 0 && pHeight > 0 && pFill != null && pGraphics != null;
 		Paint oldFill = pGraphics.getFill();
@@ -92,7 +91,7 @@ public final class RenderingUtils
 	 * @param pGraphics The graphics context.
 	 * @param pRectangle The rectangle to draw.
 	 */
-	public static void drawRoundedRectangle(GraphicsContext pGraphics, Rectangle pRectangle)
+	public static void drawRoundedRectangle(DrawingSurface pGraphics, Rectangle pRectangle)
 	{
 		assert pGraphics != null && pRectangle != null;
 		pGraphics.setEffect(DROP_SHADOW);
@@ -116,7 +115,7 @@ public final class RenderingUtils
 	 * @param pWidth The width.
 	 * @param pHeight The height.
 	 */
-	public static void drawRectangle(GraphicsContext pGraphics, Paint pStroke, Paint pFill, 
+	public static void drawRectangle(DrawingSurface pGraphics, Paint pStroke, Paint pFill, 
 			int pX, int pY, int pWidth, int pHeight)
 	{
 		Paint oldFill = pGraphics.getFill();
@@ -135,7 +134,7 @@ public final class RenderingUtils
 	 * @param pGraphics The graphics context on which to draw the rectangle.
 	 * @param pRectangle The rectangle to draw.
 	 */
-	public static void drawRectangle( GraphicsContext pGraphics, Rectangle pRectangle)
+	public static void drawRectangle( DrawingSurface pGraphics, Rectangle pRectangle)
 	{
 		assert pGraphics != null && pRectangle != null;
 		pGraphics.setEffect(DROP_SHADOW);
@@ -154,7 +153,7 @@ public final class RenderingUtils
 	 * @param pY2 The y-coordinate of the second point
 	 * @param pStyle The line style for the path.
 	 */
-	public static void drawLine(GraphicsContext pGraphics, int pX1, int pY1, int pX2, int pY2, LineStyle pStyle)
+	public static void drawLine(DrawingSurface pGraphics, int pX1, int pY1, int pX2, int pY2, LineStyle pStyle)
 	{
 		double[] oldDash = pGraphics.getLineDashes();
 		pGraphics.setLineDashes(pStyle.getLineDashes());
@@ -171,7 +170,7 @@ public final class RenderingUtils
 	 * @param pText The text to draw.
 	 * @param pFont The font to use.
 	 */
-	public static void drawText(GraphicsContext pGraphics, int pX, int pY, String pText, Font pFont)
+	public static void drawText(DrawingSurface pGraphics, int pX, int pY, String pText, Font pFont)
 	{
 		Font font = pGraphics.getFont();
 		pGraphics.setFont(pFont);
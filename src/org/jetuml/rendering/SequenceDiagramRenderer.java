@@ -21,9 +21,11 @@
 package org.jetuml.rendering;
 
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.jetuml.diagram.ControlFlow;
 import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.Node;
 import org.jetuml.diagram.edges.CallEdge;
 import org.jetuml.diagram.edges.ConstructorEdge;
@@ -31,6 +33,7 @@ import org.jetuml.diagram.edges.ReturnEdge;
 import org.jetuml.diagram.nodes.CallNode;
 import org.jetuml.diagram.nodes.ImplicitParameterNode;
 import org.jetuml.geom.Point;
+import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.edges.CallEdgeRenderer;
 import org.jetuml.rendering.edges.ReturnEdgeRenderer;
 import org.jetuml.rendering.nodes.CallNodeRenderer;
@@ -38,6 +41,11 @@ import org.jetuml.rendering.nodes.ImplicitParameterNodeRenderer;
 
 /**
  * The renderer for sequence diagrams.
+ * 
+ * Before the elements of the diagram are drawn or indexed, a layout pass computes 
+ * the vertical geometry of all the call nodes and implicit parameter nodes in a single 
+ * sweep of the call tree. The geometry is stored by the node renderers until the diagram 
+ * changes, so drawing, hit-testing, and bounds queries read the stored values.
  */
 public final class SequenceDiagramRenderer extends AbstractDiagramRenderer
 {
@@ -51,6 +59,69 @@ public final class SequenceDiagramRenderer extends AbstractDiagramRenderer
 		addElementRenderer(ConstructorEdge.class, new CallEdgeRenderer(this));
 	}
 	
+	@Override
+	public void draw(DrawingSurface pGraphics)
+	{
+		activateNodeStorages();
+		layout();
+		diagram().rootNodes().forEach(node -> drawNode(node, pGraphics));
+		diagram().edges().forEach(edge -> draw(edge, pGraphics));
+		indexElements();
+		deactivateNodeStorages();
+	}
+	
+	@Override
+	public void draw(DrawingSurface pGraphics, Rectangle pVisibleArea, Predicate<DiagramElement> pFilter)
+	{
+		assert pGraphics != null && pVisibleArea != null && pFilter != null;
+		activateNodeStorages();
+		layout();
+		indexElements();
+		drawElementsIntersecting(pGraphics, pVisibleArea, pFilter);
+		deactivateNodeStorages();
+	}
+	
+	@Override
+	public void computeGeometry()
+	{
+		activateNodeStorages();
+		layout();
+		indexElements();
+		deactivateNodeStorages();
+	}
+	
+	/**
+	 * Computes the vertical geometry of every call node, starting from each call 
+	 * node that is not called by another node and following the calls in the order 
+	 * of the call sequence, and then the extent of the life line of every implicit 
+	 * parameter node from the geometry of its call nodes. Nodes whose geometry is 
+	 * already stored for the current revision of the diagram are not computed again.
+	 */
+	public void layout()
+	{
+		CallNodeRenderer callNodeRenderer = (CallNodeRenderer) rendererFor(CallNode.class);
+		ControlFlow flow = new ControlFlow(diagram());
+		for( Node node : diagram().rootNodes() )
+		{
+			for( Node child : node.getChildren() )
+			{
+				if( child.getClass() == CallNode.class && flow.getCaller(child).isEmpty() )
+				{
+					callNodeRenderer.layoutCallTree(child, flow);
+				}
+			}
+		}
+		ImplicitParameterNodeRenderer implicitParameterNodeRenderer = 
+				(ImplicitParameterNodeRenderer) rendererFor(ImplicitParameterNode.class);
+		for( Node node : diagram().rootNodes() )
+		{
+			if( node.getClass() == ImplicitParameterNode.class )
+			{
+				implicitParameterNodeRenderer.layoutLifeline(node, flow);
+			}
+		}
+	}
+	
 	@Override
 	protected Optional<Node> deepFindNode(Node pNode, Point pPoint)
 	{
@@ -66,6 +137,18 @@ public final class SequenceDiagramRenderer extends AbstractDiagramRenderer
 		return result.or(() -> super.deepFindNode(pNode, pPoint));
 	}
 	
+	/*
+	 * Implicit parameter nodes can be hit anywhere along their life line, and the 
+	 * search for a node follows the callees of call nodes into other implicit parameter 
+	 * nodes, so the root nodes to test cannot be narrowed down using their bounds.
+	 */
+	@Override
+	public Optional<Node> nodeAt(Point pPoint)
+	{
+		assert pPoint != null;
+		return topmostNodeAt(diagram().rootNodes(), pPoint);
+	}
+	
 	/*
 	 * This specialized version supports selecting implicit parameter nodes only by 
 	 * selecting their top rectangle.
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ * 
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.
+ ******************************************************************************/
+package org.jetuml.rendering;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.jetuml.geom.Point;
+import org.jetuml.geom.Rectangle;
+
+/**
+ * A uniform grid that maps regions of the diagram plane to the elements 
+ * whose bounds overlap them. Queries return candidate elements in the order 
+ * in which they were added, so that clients can preserve the stacking order
+ * of the diagram. The index does not know anything about the actual shape
+ * of the elements: it returns every element whose indexed bounds match the 
+ * query, and it is the responsibility of the client to include any hit-testing 
+ * tolerance in these bounds and to test the candidates precisely.
+ *
+ * @param <T> The type of element indexed.
+ */
+public final class SpatialIndex<T>
+{
+	private static final int CELL_SIZE = 128;
+	
+	private final Map<Long, List<Entry<T>>> aCells = new HashMap<>();
+	private final IdentityHashMap<T, Entry<T>> aEntries = new IdentityHashMap<>();
+	
+	/**
+	 * Adds pElement to the index. Elements added later are considered to be 
+	 * on top of elements added earlier.
+	 * 
+	 * @param pElement The element to add.
+	 * @param pBounds The area in which the element can be hit.
+	 * @pre pElement != null && pBounds != null
+	 * @pre pElement is not already in the index.
+	 */
+	public void add(T pElement, Rectangle pBounds)
+	{
+		assert pElement != null && pBounds != null;
+		assert !aEntries.containsKey(pElement);
+		Entry<T> entry = new Entry<>(pElement, pBounds, aEntries.size());
+		aEntries.put(pElement, entry);
+		for( int x = cell(pBounds.getX()); x <= cell(pBounds.getMaxX()); x++ )
+		{
+			for( int y = cell(pBounds.getY()); y <= cell(pBounds.getMaxY()); y++ )
+			{
+				aCells.computeIfAbsent(key(x, y), key -> new ArrayList<>()).add(entry);
+			}
+		}
+	}
+	
+	/**
+	 * Removes all the elements from the index.
+	 */
+	public void clear()
+	{
+		aCells.clear();
+		aEntries.clear();
+	}
+	
+	/**
+	 * @return The number of elements in the index.
+	 */
+	public int size()
+	{
+		return aEntries.size();
+	}
+	
+	/**
+	 * @param pPoint The point to test.
+	 * @return The elements whose indexed bounds contain pPoint, in the 
+	 *     order in which they were added.
+	 * @pre pPoint != null
+	 */
+	public List<T> elementsAt(Point pPoint)
+	{
+		assert pPoint != null;
+		List<T> result = new ArrayList<>();
+		for( Entry<T> entry : aCells.getOrDefault(key(cell(pPoint.getX()), cell(pPoint.getY())), List.of()) )
+		{
+			if( entry.aBounds.contains(pPoint) )
+			{
+				result.add(entry.aElement);
+			}
+		}
+		return result; // Each cell lists its entries in insertion order
+	}
+	
+	/**
+	 * @param pArea The area to test.
+	 * @return The elements whose indexed bounds intersect pArea, in the 
+	 *     order in which they were added.
+	 * @pre pArea != null
+	 */
+	public List<T> elementsIntersecting(Rectangle pArea)
+	{
+		assert pArea != null;
+		IdentityHashMap<T, Entry<T>> matches = new IdentityHashMap<>();
+		for( int x = cell(pArea.getX()); x <= cell(pArea.getMaxX()); x++ )
+		{
+			for( int y = cell(pArea.getY()); y <= cell(pArea.getMaxY()); y++ )
+			{
+				for( Entry<T> entry : aCells.getOrDefault(key(x, y), List.of()) )
+				{
+					if( intersects(entry.aBounds, pArea) )
+					{
+						matches.put(entry.aElement, entry);
+					}
+				}
+			}
+		}
+		return matches.values().stream()
+				.sorted(Comparator.comparingInt(entry -> entry.aOrder))
+				.map(entry -> entry.aElement)
+				.collect(Collectors.toList());
+	}
+	
+	private static boolean intersects(Rectangle pRectangle1, Rectangle pRectangle2)
+	{
+		return pRectangle1.getX() <= pRectangle2.getMaxX() && pRectangle2.getX() <= pRectangle1.getMaxX() &&
+				pRectangle1.getY() <= pRectangle2.getMaxY() && pRectangle2.getY() <= pRectangle1.getMaxY();
+	}
+	
+	private static int cell(int pCoordinate)
+	{
+		return Math.floorDiv(pCoordinate, CELL_SIZE);
+	}
+	
+	private static long key(int pColumn, int pRow)
+	{
+		return ((long) pColumn << Integer.SIZE) | (pRow & 0xFFFFFFFFL);
+	}
+	
+	private static final class Entry<T>
+	{
+		private final T aElement;
+		private final Rectangle aBounds;
+		private final int aOrder;
+		
+		Entry(T pElement, Rectangle pBounds, int pOrder)
+		{
+			aElement = pElement;
+			aBounds = pBounds;
+			aOrder = pOrder;
+		}
+	}
+}
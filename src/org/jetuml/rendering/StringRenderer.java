@@ -34,7 +34,6 @@ import org.jetuml.geom.Dimension;
 import org.jetuml.geom.Rectangle;
 
 import javafx.geometry.VPos;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.TextAlignment;
@@ -122,13 +121,14 @@ public final class StringRenderer
 	}
 	
 	/**
-	 * Lazily creates or retrieves an instance of StringRenderer.
+	 * Lazily creates or retrieves an instance of StringRenderer. This method
+	 * can be called from any thread.
 	 * @param pAlign The alignment to use.
 	 * @param pDecorations The decorations to apply.
 	 * @pre pAlign != null
 	 * @return The StringRenderer instance with the requested properties.
 	 */
-	public static StringRenderer get(Alignment pAlign, TextDecoration... pDecorations)
+	public static synchronized StringRenderer get(Alignment pAlign, TextDecoration... pDecorations)
 	{
 		assert pAlign != null;
 		
@@ -139,6 +139,14 @@ public final class StringRenderer
 		return innerMap.computeIfAbsent(decorationSet, k -> new StringRenderer(pAlign, decorationSet));
 	}
 	
+	/**
+	 * @return The size of the font currently used to render strings.
+	 */
+	public static int fontSize()
+	{
+		return CANVAS_FONT.fontSize();
+	}
+	
 	/**
      * Gets the width and height required to show pString, including
      * padding around the string.
@@ -224,7 +232,7 @@ public final class StringRenderer
      * @param pGraphics the graphics context
      * @param pRectangle the rectangle into which to place the string
 	 */
-	public void draw(String pString, GraphicsContext pGraphics, Rectangle pRectangle)
+	public void draw(String pString, DrawingSurface pGraphics, Rectangle pRectangle)
 	{
 		final VPos oldVPos = pGraphics.getTextBaseline();
 		final TextAlignment oldAlign = pGraphics.getTextAlign();
@@ -329,7 +337,7 @@ public final class StringRenderer
 		 * @param pString The canvas on which to draw the string
 		 * @param pBold If the text should be bold
 		 */
-		public void drawString(GraphicsContext pGraphics, int pTextX, int pTextY, String pString, boolean pBold)
+		public void drawString(DrawingSurface pGraphics, int pTextX, int pTextY, String pString, boolean pBold)
 		{
 			RenderingUtils.drawText(pGraphics, pTextX, pTextY, pString, getFont(pBold));
 		}
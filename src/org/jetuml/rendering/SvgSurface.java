@@ -0,0 +1,574 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.rendering;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.geometry.VPos;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.effect.Effect;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcType;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * A drawing surface that writes the shapes drawn on it as an SVG document.
+ * Each shape is written to the output as soon as it is drawn, so the size of
+ * the document does not affect the memory used to produce it.
+ *
+ * The header of the document is written when the surface is created, and
+ * method finish must be called to write the end of the document. Translations
+ * and scales are applied to the coordinates that are written. Paints other than
+ * colors are not supported, and drop shadows are the only effect rendered.
+ * The errors of the output are reported as UncheckedIOException, because the
+ * renderers that draw on the surface do not declare them.
+ */
+public final class SvgSurface implements DrawingSurface
+{
+	private static final String NONE = "none";
+	private static final double FULL_CIRCLE = 360;
+
+	private final Appendable aOutput;
+	private final Map<String, String> aFilters = new HashMap<>();
+	private final Map<Font, Double> aLineHeights = new HashMap<>();
+	private final StringBuilder aPath = new StringBuilder();
+
+	private Paint aFill = Color.BLACK;
+	private Paint aStroke = Color.BLACK;
+	private double aLineWidth = 1;
+	private double[] aLineDashes;
+	private String aFilter;
+	private Font aFont = Font.getDefault();
+	private TextAlignment aTextAlign = TextAlignment.LEFT;
+	private VPos aTextBaseline = VPos.BASELINE;
+	private double aScaleX = 1;
+	private double aScaleY = 1;
+	private double aTranslateX;
+	private double aTranslateY;
+
+	/**
+	 * Creates a surface and writes the header of the document.
+	 *
+	 * @param pOutput Where to write the document.
+	 * @param pWidth The width of the document.
+	 * @param pHeight The height of the document.
+	 * @pre pOutput != null && pWidth >= 0 && pHeight >= 0
+	 */
+	public SvgSurface(Appendable pOutput, int pWidth, int pHeight)
+	{
+		assert pOutput != null && pWidth >= 0 && pHeight >= 0;
+		aOutput = pOutput;
+		write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + pWidth + "\" height=\"" + pHeight
+				+ "\" viewBox=\"0 0 " + pWidth + " " + pHeight + "\">\n");
+	}
+
+	/**
+	 * Writes the end of the document. Nothing can be drawn on the surface
+	 * after this method is called.
+	 */
+	public void finish()
+	{
+		write("</svg>\n");
+	}
+
+	@Override
+	public Paint getFill()
+	{
+		return aFill;
+	}
+
+	@Override
+	public void setFill(Paint pFill)
+	{
+		aFill = pFill;
+	}
+
+	@Override
+	public Paint getStroke()
+	{
+		return aStroke;
+	}
+
+	@Override
+	public void setStroke(Paint pStroke)
+	{
+		aStroke = pStroke;
+	}
+
+	@Override
+	public double getLineWidth()
+	{
+		return aLineWidth;
+	}
+
+	@Override
+	public void setLineWidth(double pWidth)
+	{
+		aLineWidth = pWidth;
+	}
+
+	@Override
+	public double[] getLineDashes()
+	{
+		if( aLineDashes == null )
+		{
+			return null;
+		}
+		return aLineDashes.clone();
+	}
+
+	@Override
+	public void setLineDashes(double... pDashes)
+	{
+		if( pDashes == null || pDashes.length == 0 )
+		{
+			aLineDashes = null;
+		}
+		else
+		{
+			aLineDashes = pDashes.clone();
+		}
+	}
+
+	@Override
+	public void setEffect(Effect pEffect)
+	{
+		aFilter = null;
+		if( pEffect instanceof DropShadow )
+		{
+			aFilter = filterFor((DropShadow) pEffect);
+		}
+	}
+
+	@Override
+	public Font getFont()
+	{
+		return aFont;
+	}
+
+	@Override
+	public void setFont(Font pFont)
+	{
+		aFont = pFont;
+	}
+
+	@Override
+	public TextAlignment getTextAlign()
+	{
+		return aTextAlign;
+	}
+
+	@Override
+	public void setTextAlign(TextAlignment pAlignment)
+	{
+		aTextAlign = pAlignment;
+	}
+
+	@Override
+	public VPos getTextBaseline()
+	{
+		return aTextBaseline;
+	}
+
+	@Override
+	public void setTextBaseline(VPos pBaseline)
+	{
+		aTextBaseline = pBaseline;
+	}
+
+	@Override
+	public void translate(double pX, double pY)
+	{
+		aTranslateX += aScaleX * pX;
+		aTranslateY += aScaleY * pY;
+	}
+
+	@Override
+	public void scale(double pX, double pY)
+	{
+		aScaleX *= pX;
+		aScaleY *= pY;
+	}
+
+	@Override
+	public void fillRect(double pX, double pY, double pWidth, double pHeight)
+	{
+		shape(rectangle(pX, pY, pWidth, pHeight, 0, 0), true);
+	}
+
+	@Override
+	public void strokeRect(double pX, double pY, double pWidth, double pHeight)
+	{
+		shape(rectangle(pX, pY, pWidth, pHeight, 0, 0), false);
+	}
+
+	@Override
+	public void fillRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight)
+	{
+		shape(rectangle(pX, pY, pWidth, pHeight, pArcWidth, pArcHeight), true);
+	}
+
+	@Override
+	public void strokeRoundRect(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight)
+	{
+		shape(rectangle(pX, pY, pWidth, pHeight, pArcWidth, pArcHeight), false);
+	}
+
+	@Override
+	public void fillOval(double pX, double pY, double pWidth, double pHeight)
+	{
+		shape(ellipse(pX, pY, pWidth, pHeight), true);
+	}
+
+	@Override
+	public void strokeOval(double pX, double pY, double pWidth, double pHeight)
+	{
+		shape(ellipse(pX, pY, pWidth, pHeight), false);
+	}
+
+	@Override
+	public void strokeArc(double pX, double pY, double pWidth, double pHeight,
+			double pStartAngle, double pArcExtent, ArcType pClosure)
+	{
+		if( Math.abs(pArcExtent) >= FULL_CIRCLE )
+		{
+			strokeOval(pX, pY, pWidth, pHeight);
+			return;
+		}
+		double centerX = pX + pWidth / 2;
+		double centerY = pY + pHeight / 2;
+		double start = Math.toRadians(pStartAngle);
+		double end = Math.toRadians(pStartAngle + pArcExtent);
+		StringBuilder data = new StringBuilder("M")
+				.append(x(centerX + pWidth / 2 * Math.cos(start))).append(' ')
+				.append(y(centerY - pHeight / 2 * Math.sin(start)))
+				.append("A").append(width(pWidth / 2)).append(' ').append(height(pHeight / 2))
+				.append(" 0 ").append(Math.abs(pArcExtent) > FULL_CIRCLE / 2 ? 1 : 0)
+				.append(' ').append(pArcExtent > 0 ? 0 : 1).append(' ')
+				.append(x(centerX + pWidth / 2 * Math.cos(end))).append(' ')
+				.append(y(centerY - pHeight / 2 * Math.sin(end)));
+		if( pClosure == ArcType.ROUND )
+		{
+			data.append("L").append(x(centerX)).append(' ').append(y(centerY));
+		}
+		if( pClosure != ArcType.OPEN )
+		{
+			data.append('Z');
+		}
+		shape("<path d=\"" + data + "\"", false);
+	}
+
+	@Override
+	public void strokeLine(double pX1, double pY1, double pX2, double pY2)
+	{
+		shape("<line x1=\"" + x(pX1) + "\" y1=\"" + y(pY1) + "\" x2=\"" + x(pX2) + "\" y2=\"" + y(pY2) + "\"", false);
+	}
+
+	@Override
+	public void fillText(String pText, double pX, double pY)
+	{
+		String[] lines = pText.split("\n", -1);
+		double lineHeight = lineHeight(aFont);
+		double top = pY;
+		if( aTextBaseline == VPos.CENTER )
+		{
+			top -= (lines.length - 1) * lineHeight / 2;
+		}
+		else if( aTextBaseline == VPos.BOTTOM )
+		{
+			top -= (lines.length - 1) * lineHeight;
+		}
+		StringBuilder text = new StringBuilder("<text xml:space=\"preserve\" font-family=\"")
+				.append(escape(aFont.getFamily())).append(", sans-serif\" font-size=\"").append(height(aFont.getSize())).append('"');
+		String style = aFont.getStyle().toLowerCase();
+		if( style.contains("bold") )
+		{
+			text.append(" font-weight=\"bold\"");
+		}
+		if( style.contains("italic") )
+		{
+			text.append(" font-style=\"italic\"");
+		}
+		if( aTextAlign == TextAlignment.CENTER )
+		{
+			text.append(" text-anchor=\"middle\"");
+		}
+		else if( aTextAlign == TextAlignment.RIGHT )
+		{
+			text.append(" text-anchor=\"end\"");
+		}
+		if( aTextBaseline == VPos.TOP )
+		{
+			text.append(" dominant-baseline=\"text-before-edge\"");
+		}
+		else if( aTextBaseline == VPos.CENTER )
+		{
+			text.append(" dominant-baseline=\"central\"");
+		}
+		else if( aTextBaseline == VPos.BOTTOM )
+		{
+			text.append(" dominant-baseline=\"text-after-edge\"");
+		}
+		text.append(paint("fill", aFill)).append(filter()).append('>');
+		for( int i = 0; i < lines.length; i++ )
+		{
+			text.append("<tspan x=\"").append(x(pX)).append("\" y=\"").append(y(top + i * lineHeight)).append("\">")
+				.append(escape(lines[i])).append("</tspan>");
+		}
+		write(text.append("</text>\n"));
+	}
+
+	@Override
+	public void beginPath()
+	{
+		aPath.setLength(0);
+	}
+
+	@Override
+	public void moveTo(double pX, double pY)
+	{
+		aPath.append('M').append(x(pX)).append(' ').append(y(pY));
+	}
+
+	@Override
+	public void lineTo(double pX, double pY)
+	{
+		aPath.append('L').append(x(pX)).append(' ').append(y(pY));
+	}
+
+	@Override
+	public void quadraticCurveTo(double pControlX, double pControlY, double pX, double pY)
+	{
+		aPath.append('Q').append(x(pControlX)).append(' ').append(y(pControlY)).append(' ')
+			.append(x(pX)).append(' ').append(y(pY));
+	}
+
+	@Override
+	public void fill()
+	{
+		if( aPath.length() > 0 )
+		{
+			shape("<path d=\"" + aPath + "\"", true);
+		}
+	}
+
+	@Override
+	public void stroke()
+	{
+		if( aPath.length() > 0 )
+		{
+			shape("<path d=\"" + aPath + "\"", false);
+		}
+	}
+
+	private String rectangle(double pX, double pY, double pWidth, double pHeight, double pArcWidth, double pArcHeight)
+	{
+		String rectangle = "<rect x=\"" + x(pX) + "\" y=\"" + y(pY) + "\" width=\"" + width(pWidth) +
+				"\" height=\"" + height(pHeight) + "\"";
+		if( pArcWidth > 0 && pArcHeight > 0 )
+		{
+			rectangle += " rx=\"" + width(pArcWidth / 2) + "\" ry=\"" + height(pArcHeight / 2) + "\"";
+		}
+		return rectangle;
+	}
+
+	private String ellipse(double pX, double pY, double pWidth, double pHeight)
+	{
+		return "<ellipse cx=\"" + x(pX + pWidth / 2) + "\" cy=\"" + y(pY + pHeight / 2) + "\" rx=\"" +
+				width(pWidth / 2) + "\" ry=\"" + height(pHeight / 2) + "\"";
+	}
+
+	/*
+	 * Writes pElement, an element whose attributes are not closed, with
+	 * the current fill or stroke attributes.
+	 */
+	private void shape(String pElement, boolean pFill)
+	{
+		StringBuilder element = new StringBuilder(pElement);
+		if( pFill )
+		{
+			element.append(paint("fill", aFill)).append(" stroke=\"none\"");
+		}
+		else
+		{
+			element.append(" fill=\"none\"").append(paint("stroke", aStroke))
+				.append(" stroke-width=\"").append(number(aLineWidth * Math.sqrt(Math.abs(aScaleX * aScaleY)))).append('"');
+			if( aLineDashes != null )
+			{
+				element.append(" stroke-dasharray=\"");
+				for( int i = 0; i < aLineDashes.length; i++ )
+				{
+					element.append(i == 0 ? "" : " ").append(width(aLineDashes[i]));
+				}
+				element.append('"');
+			}
+		}
+		write(element.append(filter()).append("/>\n"));
+	}
+
+	private static String paint(String pAttribute, Paint pPaint)
+	{
+		if( !(pPaint instanceof Color) || ((Color) pPaint).getOpacity() == 0 )
+		{
+			return " " + pAttribute + "=\"" + NONE + "\"";
+		}
+		Color color = (Color) pPaint;
+		String paint = " " + pAttribute + "=\"" + hex(color) + "\"";
+		if( color.getOpacity() < 1 )
+		{
+			paint += " " + pAttribute + "-opacity=\"" + number(color.getOpacity()) + "\"";
+		}
+		return paint;
+	}
+
+	private static String hex(Color pColor)
+	{
+		return String.format("#%02x%02x%02x", Math.round(pColor.getRed() * 255),
+				Math.round(pColor.getGreen() * 255), Math.round(pColor.getBlue() * 255));
+	}
+
+	private String filter()
+	{
+		if( aFilter == null )
+		{
+			return "";
+		}
+		return " filter=\"url(#" + aFilter + ")\"";
+	}
+
+	/*
+	 * Returns the identifier of the filter that renders pShadow, and writes the
+	 * definition of the filter the first time it is used.
+	 */
+	private String filterFor(DropShadow pShadow)
+	{
+		String definition = "<feDropShadow dx=\"" + number(pShadow.getOffsetX()) + "\" dy=\"" +
+				number(pShadow.getOffsetY()) + "\" stdDeviation=\"" + number(pShadow.getRadius() / 2) +
+				"\" flood-color=\"" + hex(pShadow.getColor()) + "\" flood-opacity=\"" +
+				number(pShadow.getColor().getOpacity()) + "\"/>";
+		String identifier = aFilters.get(definition);
+		if( identifier == null )
+		{
+			identifier = "shadow" + aFilters.size();
+			aFilters.put(definition, identifier);
+			write("<defs><filter id=\"" + identifier + "\" x=\"-20%\" y=\"-20%\" width=\"150%\" height=\"150%\">" +
+					definition + "</filter></defs>\n");
+		}
+		return identifier;
+	}
+
+	/*
+	 * The distance between the baselines of two lines of text, as laid
+	 * out by JavaFX.
+	 */
+	private double lineHeight(Font pFont)
+	{
+		return aLineHeights.computeIfAbsent(pFont, font ->
+		{
+			Text text = new Text("\n");
+			text.setFont(font);
+			double twoLines = text.getLayoutBounds().getHeight();
+			text.setText("");
+			return twoLines - text.getLayoutBounds().getHeight();
+		});
+	}
+
+	private String x(double pX)
+	{
+		return number(aTranslateX + aScaleX * pX);
+	}
+
+	private String y(double pY)
+	{
+		return number(aTranslateY + aScaleY * pY);
+	}
+
+	private String width(double pWidth)
+	{
+		return number(Math.abs(aScaleX) * pWidth);
+	}
+
+	private String height(double pHeight)
+	{
+		return number(Math.abs(aScaleY) * pHeight);
+	}
+
+	/*
+	 * Formats pValue with at most two decimals.
+	 */
+	private static String number(double pValue)
+	{
+		long hundredths = Math.round(pValue * 100);
+		if( hundredths % 100 == 0 )
+		{
+			return Long.toString(hundredths / 100);
+		}
+		return Double.toString(hundredths / 100.0);
+	}
+
+	private static String escape(String pText)
+	{
+		StringBuilder result = new StringBuilder(pText.length());
+		for( char character : pText.toCharArray() )
+		{
+			if( character == '&' )
+			{
+				result.append("&amp;");
+			}
+			else if( character == '<' )
+			{
+				result.append("&lt;");
+			}
+			else if( character == '>' )
+			{
+				result.append("&gt;");
+			}
+			else if( character == '"' )
+			{
+				result.append("&quot;");
+			}
+			else
+			{
+				result.append(character);
+			}
+		}
+		return result.toString();
+	}
+
+	private void write(CharSequence pText)
+	{
+		try
+		{
+			aOutput.append(pText);
+		}
+		catch( IOException exception )
+		{
+			throw new UncheckedIOException(exception);
+		}
+	}
+}
@@ -24,7 +24,6 @@ package org.jetuml.rendering;
 import org.jetuml.geom.Line;
 import org.jetuml.geom.Rectangle;
 
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
@@ -56,7 +55,7 @@ public final class ToolGraphics
 	 * @param pX The x-coordinate of the center of the handle.
 	 * @param pY The y-coordinate of the center of the handle.
 	 */
-	private static void drawHandle(GraphicsContext pGraphics, int pX, int pY)
+	private static void drawHandle(DrawingSurface pGraphics, int pX, int pY)
 	{
 		Paint oldStroke = pGraphics.getStroke();
 		Paint oldFill = pGraphics.getFill();
@@ -75,7 +74,7 @@ public final class ToolGraphics
 	 * @param pGraphics The graphics context on which to draw the handles.
 	 * @param pBounds Defines the four points where to draw the handles
 	 */
-	public static void drawHandles(GraphicsContext pGraphics, Rectangle pBounds)
+	public static void drawHandles(DrawingSurface pGraphics, Rectangle pBounds)
 	{
 		drawHandle(pGraphics, pBounds.getX(), pBounds.getY());
 		drawHandle(pGraphics, pBounds.getX(), pBounds.getMaxY());
@@ -90,7 +89,7 @@ public final class ToolGraphics
 	 * @param pGraphics The graphics context on which to draw the handles.
 	 * @param pBounds Defines the two points where to draw the handles
 	 */
-	public static void drawHandles(GraphicsContext pGraphics, Line pBounds)
+	public static void drawHandles(DrawingSurface pGraphics, Line pBounds)
 	{
 		drawHandle(pGraphics, pBounds.getX1(), pBounds.getY1());
 		drawHandle(pGraphics, pBounds.getX2(), pBounds.getY2());
@@ -103,7 +102,7 @@ public final class ToolGraphics
 	 * @param pGraphics The graphics context on which to draw the line.
 	 * @param pLine The line that represents the rubberband.
 	 */
-	public static void drawRubberband(GraphicsContext pGraphics, Line pLine)
+	public static void drawRubberband(DrawingSurface pGraphics, Line pLine)
 	{
 		Paint oldStroke = pGraphics.getStroke();
 		pGraphics.setStroke(SELECTION_FILL_COLOR);
@@ -118,7 +117,7 @@ public final class ToolGraphics
 	 * @param pGraphics The graphics context on which to draw the lasso.
 	 * @param pRectangle The rectangle that defines the lasso.
 	 */
-	public static void drawLasso(GraphicsContext pGraphics, Rectangle pRectangle)
+	public static void drawLasso(DrawingSurface pGraphics, Rectangle pRectangle)
 	{
 		RenderingUtils.drawRectangle(pGraphics, SELECTION_COLOR, SELECTION_FILL_TRANSPARENT, 
 				pRectangle.getX(), pRectangle.getY(), pRectangle.getWidth(), pRectangle.getHeight());
@@ -135,7 +134,7 @@ public final class ToolGraphics
 	 * @param pX2 The x-coordinate of the second point.
 	 * @param pY2 The y-coordinate of the second point.
 	 */
-	public static void strokeSharpLine(GraphicsContext pGraphics, int pX1, int pY1, int pX2, int pY2)
+	public static void strokeSharpLine(DrawingSurface pGraphics, int pX1, int pY1, int pX2, int pY2)
 	{
 		pGraphics.strokeLine(pX1 + 0.5, pY1 + 0.5, pX2 + 0.5, pY2 + 0.5);
 	}
@@ -150,7 +149,7 @@ public final class ToolGraphics
 	 * @param pPath The path to stroke
 	 * @param pStyle The line style for the path.
 	 */
-	public static void strokeSharpPath(GraphicsContext pGraphics, Path pPath, LineStyle pStyle)
+	public static void strokeSharpPath(DrawingSurface pGraphics, Path pPath, LineStyle pStyle)
 	{
 		double[] oldDash = pGraphics.getLineDashes();
 		pGraphics.setLineDashes(pStyle.getLineDashes());
@@ -162,7 +161,7 @@ public final class ToolGraphics
 		pGraphics.setLineWidth(width);
 	}
 	
-	private static void applyPath(GraphicsContext pGraphics, Path pPath)
+	private static void applyPath(DrawingSurface pGraphics, Path pPath)
 	{
 		pGraphics.beginPath();
 		for(PathElement element : pPath.getElements())
@@ -194,7 +193,7 @@ public final class ToolGraphics
 	 * @param pFill The fill color for the path.
 	 * @param pShadow True to include a drop shadow.
 	 */
-	public static void strokeAndFillSharpPath(GraphicsContext pGraphics, Path pPath, Paint pFill, boolean pShadow)
+	public static void strokeAndFillSharpPath(DrawingSurface pGraphics, Path pPath, Paint pFill, boolean pShadow)
 	{
 		double width = pGraphics.getLineWidth();
 		Paint fill = pGraphics.getFill();
@@ -21,14 +21,16 @@
 package org.jetuml.rendering.edges;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
 import org.jetuml.geom.EdgePath;
+import org.jetuml.geom.PackedPoint;
 import org.jetuml.geom.Point;
 
 /**
@@ -37,6 +39,10 @@ import org.jetuml.geom.Point;
 public class EdgeStorage
 {
 	private Map<Edge, EdgePath> aEdgePaths = new IdentityHashMap<>();
+	// The stored edges connected to each node
+	private Map<Node, List<Edge>> aEdgesByNode = new IdentityHashMap<>();
+	// The number of stored paths that start or end at each point
+	private final PointCounts aConnectionPoints = new PointCounts();
  	
  	/**
  	 * Adds pEdge and pEdgePath into storage.
@@ -48,10 +54,59 @@ public class EdgeStorage
  	public void store(Edge pEdge, EdgePath pEdgePath)
  	{
  		assert pEdge!=null && pEdgePath!=null;
- 		aEdgePaths.put(pEdge, pEdgePath);
+ 		EdgePath previous = aEdgePaths.put(pEdge, pEdgePath);
+ 		if( previous == null )
+ 		{
+ 			aEdgesByNode.computeIfAbsent(pEdge.getStart(), node -> new ArrayList<>()).add(pEdge);
+ 			if( pEdge.getEnd() != pEdge.getStart() )
+ 			{
+ 				aEdgesByNode.computeIfAbsent(pEdge.getEnd(), node -> new ArrayList<>()).add(pEdge);
+ 			}
+ 		}
+ 		else
+ 		{
+ 			countConnectionPoints(previous, -1);
+ 		}
+ 		countConnectionPoints(pEdgePath, 1);
+ 	}
+ 	
+ 	private void countConnectionPoints(EdgePath pEdgePath, int pDelta)
+ 	{
+ 		aConnectionPoints.add(PackedPoint.pack(pEdgePath.getStartPoint()), pDelta);
+ 		aConnectionPoints.add(PackedPoint.pack(pEdgePath.getEndPoint()), pDelta);
  	}
  
  	
+	/**
+	 * Removes pEdge and its EdgePath from storage, if it is present.
+	 * @param pEdge the edge to remove
+	 * @pre pEdge!=null
+	 */
+	public void remove(Edge pEdge)
+	{
+		assert pEdge!=null;
+		EdgePath path = aEdgePaths.remove(pEdge);
+		if( path != null )
+		{
+			countConnectionPoints(path, -1);
+			removeFromNode(pEdge, pEdge.getStart());
+			removeFromNode(pEdge, pEdge.getEnd());
+		}
+	}
+	
+	private void removeFromNode(Edge pEdge, Node pNode)
+	{
+		List<Edge> edges = aEdgesByNode.get(pNode);
+		if( edges != null )
+		{
+			edges.remove(pEdge);
+			if( edges.isEmpty() )
+			{
+				aEdgesByNode.remove(pNode);
+			}
+		}
+	}
+ 	
  	/**
  	 * Returns whether storage is empty.  
  	 * @return true if aEdgePaths is empty, false otherwise.
@@ -90,6 +145,8 @@ public class EdgeStorage
 
  	/**
  	 * Returns a list of edges in storage which are connected to pNode.
+	 * The list is an unmodifiable view that is not meant to be kept
+	 * while the storage is modified.
 	 * @param pNode The node of interest
 	 * @return All the edges connected to pNode
 	 * @pre pNode != null
@@ -97,15 +154,12 @@ public class EdgeStorage
 	public List<Edge> edgesConnectedTo(Node pNode)
 	{
 		assert pNode != null;
-		List<Edge> result = new ArrayList<>();
-		for( Edge edge : aEdgePaths.keySet() )
+		List<Edge> edges = aEdgesByNode.get(pNode);
+		if( edges == null )
 		{
-			if( edge.getStart() == pNode || edge.getEnd() == pNode )
-			{
-				result.add(edge);
-			}
+			return List.of();
 		}
-		return result;
+		return Collections.unmodifiableList(edges);
 	}
 	
 	/**
@@ -117,14 +171,17 @@ public class EdgeStorage
 	public boolean connectionPointIsAvailable(Point pConnectionPoint)
 	{
 		assert pConnectionPoint !=null;
-		for( EdgePath path : aEdgePaths.values() )
-		{
-			if (path.getStartPoint().equals(pConnectionPoint) || path.getEndPoint().equals(pConnectionPoint))
-			{
-				return false;
-			}
-		}
-		return true;
+		return connectionPointIsAvailable(PackedPoint.pack(pConnectionPoint));
+	}
+	
+	/**
+	 * Returns whether a connection point is available.
+	 * @param pConnectionPoint a point in the diagram, packed with PackedPoint
+	 * @return false if pConnectionPoint is a start or end connection point for an edge in storage, true otherwise
+	 */
+	public boolean connectionPointIsAvailable(long pConnectionPoint)
+	{
+		return aConnectionPoints.get(pConnectionPoint) == 0;
 	}
 	
 	/**
@@ -135,11 +192,33 @@ public class EdgeStorage
 	 */
 	public List<Edge> getEdgesWithSameNodes(Edge pEdge)
 	{
-		return aEdgePaths.keySet().stream()
-				.filter(edge -> edge.getStart() == pEdge.getStart() || edge.getStart() == pEdge.getEnd())
-				.filter(edge -> edge.getEnd() == pEdge.getStart() || edge.getEnd() == pEdge.getEnd())
-				.filter(edge -> !edge.equals(pEdge))
-				.collect(Collectors.toList());
+		List<Edge> result = new ArrayList<>();
+		addEdgesWithSameNodes(pEdge, edgesConnectedTo(pEdge.getStart()), result);
+		if( pEdge.getEnd() != pEdge.getStart() )
+		{
+			// Self-edges on the end node are not connected to the start node
+			for( Edge edge : edgesConnectedTo(pEdge.getEnd()) )
+			{
+				if( edge.getStart() == edge.getEnd() )
+				{
+					result.add(edge);
+				}
+			}
+		}
+		return result;
+	}
+	
+	private static void addEdgesWithSameNodes(Edge pEdge, List<Edge> pCandidates, List<Edge> pResult)
+	{
+		for( Edge edge : pCandidates )
+		{
+			if( (edge.getStart() == pEdge.getStart() || edge.getStart() == pEdge.getEnd()) &&
+					(edge.getEnd() == pEdge.getStart() || edge.getEnd() == pEdge.getEnd()) &&
+					!edge.equals(pEdge) )
+			{
+				pResult.add(edge);
+			}
+		}
 	}
 	
 	/**
@@ -148,5 +227,91 @@ public class EdgeStorage
 	public void clearStorage()
 	{
 		aEdgePaths.clear();
+		aEdgesByNode.clear();
+		aConnectionPoints.clear();
+	}
+	
+	/*
+	 * A multiset of packed points, implemented as an open-addressing hash table
+	 * so that points can be counted and looked up without creating objects.
+	 * Points whose count drops to zero keep their slot until the table is cleared.
+	 */
+	private static final class PointCounts
+	{
+		private static final int INITIAL_CAPACITY = 64;
+		private static final long HASH_MULTIPLIER = 0x9e3779b97f4a7c15L;
+		
+		private long[] aPoints = new long[INITIAL_CAPACITY];
+		private int[] aCounts = new int[INITIAL_CAPACITY];
+		private boolean[] aUsed = new boolean[INITIAL_CAPACITY];
+		private int aSize = 0;
+		
+		int get(long pPoint)
+		{
+			int slot = slotOf(pPoint);
+			if( aUsed[slot] )
+			{
+				return aCounts[slot];
+			}
+			return 0;
+		}
+		
+		void add(long pPoint, int pDelta)
+		{
+			int slot = slotOf(pPoint);
+			if( !aUsed[slot] )
+			{
+				if( 2 * (aSize + 1) > aPoints.length )
+				{
+					grow();
+					slot = slotOf(pPoint);
+				}
+				aUsed[slot] = true;
+				aPoints[slot] = pPoint;
+				aSize++;
+			}
+			aCounts[slot] += pDelta;
+		}
+		
+		void clear()
+		{
+			Arrays.fill(aUsed, false);
+			Arrays.fill(aCounts, 0);
+			aSize = 0;
+		}
+		
+		/*
+		 * Returns the slot that holds pPoint, or the free slot where it would be added.
+		 */
+		private int slotOf(long pPoint)
+		{
+			int mask = aPoints.length - 1;
+			int slot = (int) (pPoint * HASH_MULTIPLIER >>> Integer.SIZE) & mask;
+			while( aUsed[slot] && aPoints[slot] != pPoint )
+			{
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+		
+		private void grow()
+		{
+			long[] points = aPoints;
+			int[] counts = aCounts;
+			boolean[] used = aUsed;
+			aPoints = new long[points.length * 2];
+			aCounts = new int[points.length * 2];
+			aUsed = new boolean[points.length * 2];
+			for( int i = 0; i < points.length; i++ )
+			{
+				if( used[i] )
+				{
+					int slot = slotOf(points[i]);
+					aUsed[slot] = true;
+					aPoints[slot] = points[i];
+					aCounts[slot] = counts[i];
+				}
+			}
+		}
 	}
 }
@@ -21,6 +21,7 @@
 package org.jetuml.rendering.edges;
 
 import org.jetuml.geom.Line;
+import org.jetuml.geom.PackedPoint;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Side;
 import org.jetuml.rendering.Grid;
@@ -46,24 +47,33 @@ public enum NodeIndex
 	 * @pre pNodeFace != null
 	 */
 	public Point toPoint(Line pNodeFace, Side pAttachmentSide)
+	{
+		return PackedPoint.toPoint(toPackedPoint(pNodeFace, pAttachmentSide));
+	}
+	
+	/**
+	 * Returns the same point as toPoint, packed with PackedPoint, so that 
+	 * candidate points can be tested without creating Point objects.
+	 * @param pNodeFace a Line representing the side of pNode where the point is needed.
+	 * @param pAttachmentSide the side of the node of interest
+	 * @return the packed point on pNodeFace at the pNodeIndex position
+	 */
+	public long toPackedPoint(Line pNodeFace, Side pAttachmentSide)
 	{
 		//determine the offset from the center point. 
 		float spacing = spaceBetweenConnectionPoints(pNodeFace, pAttachmentSide);
 		int offset = (int) ((ordinal() - 4) * spacing);
 		
 		//Determine center point and add the offset to the center point
-		Point center;
 		if(pAttachmentSide.isHorizontal())
 		{
-			center = Grid.snappedHorizontally(
-					new Point(((pNodeFace.getX2() - pNodeFace.getX1())/2) + pNodeFace.getX1(), pNodeFace.getY1()));
-			return new Point(center.getX() + offset, center.getY());
+			int centerX = Grid.snap(((pNodeFace.getX2() - pNodeFace.getX1())/2) + pNodeFace.getX1());
+			return PackedPoint.pack(centerX + offset, pNodeFace.getY1());
 		}
 		else 
 		{
-			center = Grid.snappedVertically( 
-					new Point(pNodeFace.getX1(), ((pNodeFace.getY2() - pNodeFace.getY1())/2) + pNodeFace.getY1()));
-			return new Point(center.getX(), center.getY() + offset);
+			int centerY = Grid.snap(((pNodeFace.getY2() - pNodeFace.getY1())/2) + pNodeFace.getY1());
+			return PackedPoint.pack(pNodeFace.getX1(), centerY + offset);
 		}
 	}
 	
@@ -28,12 +28,13 @@ import org.jetuml.geom.Line;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.ArrowHead;
+import org.jetuml.rendering.CanvasSurface;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.LineStyle;
 import org.jetuml.rendering.ToolGraphics;
 
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
 import javafx.scene.shape.Path;
@@ -116,7 +117,7 @@ public final class ObjectReferenceEdgeRenderer extends AbstractEdgeRenderer
 	}
 
 	@Override
-	public void draw(DiagramElement pElement, GraphicsContext pGraphics)
+	public void draw(DiagramElement pElement, DrawingSurface pGraphics)
 	{
 		Edge edge = (Edge) pElement;
 		ToolGraphics.strokeSharpPath(pGraphics, (Path) getShape(edge), LineStyle.SOLID);
@@ -154,7 +155,7 @@ public final class ObjectReferenceEdgeRenderer extends AbstractEdgeRenderer
 	public Canvas createIcon(DiagramType pType, DiagramElement pElement)
 	{   //CSOFF: Magic numbers
 		Canvas canvas = new Canvas(BUTTON_SIZE, BUTTON_SIZE);
-		GraphicsContext graphics = canvas.getGraphicsContext2D();
+		DrawingSurface graphics = new CanvasSurface(canvas.getGraphicsContext2D());
 		graphics.scale(0.6, 0.6);
 		Path path = getCShape(new Line(new Point(5, 5), new Point(15,25)));
 		ToolGraphics.strokeSharpPath(graphics, path, LineStyle.SOLID);
@@ -31,7 +31,9 @@ import org.jetuml.geom.Line;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.ArrowHead;
+import org.jetuml.rendering.CanvasSurface;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.LineStyle;
 import org.jetuml.rendering.StringRenderer;
 import org.jetuml.rendering.ToolGraphics;
@@ -40,7 +42,6 @@ import org.jetuml.rendering.StringRenderer.Alignment;
 import javafx.geometry.Point2D;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Arc;
 import javafx.scene.shape.ArcType;
@@ -74,7 +75,7 @@ public final class StateTransitionEdgeRenderer extends AbstractEdgeRenderer
 	}
 	
 	@Override
-	public void draw(DiagramElement pElement, GraphicsContext pGraphics)
+	public void draw(DiagramElement pElement, DrawingSurface pGraphics)
 	{
 		Edge edge = (Edge) pElement;
 		if(isSelfEdge(edge))
@@ -90,7 +91,7 @@ public final class StateTransitionEdgeRenderer extends AbstractEdgeRenderer
 		drawArrowHead(edge, pGraphics);
 	}
 	
-	private void drawArrowHead(Edge pEdge, GraphicsContext pGraphics)
+	private void drawArrowHead(Edge pEdge, DrawingSurface pGraphics)
 	{
 		if( isSelfEdge(pEdge) )
 		{
@@ -116,7 +117,7 @@ public final class StateTransitionEdgeRenderer extends AbstractEdgeRenderer
 	 *  Draws the label.
 	 *  @param pGraphics2D the graphics context
 	 */
-	private void drawLabel(StateTransitionEdge pEdge, GraphicsContext pGraphics)
+	private void drawLabel(StateTransitionEdge pEdge, DrawingSurface pGraphics)
 	{
 		String label = wrapLabel(pEdge);
 		Rectangle2D labelBounds = getLabelBounds(pEdge);
@@ -126,7 +127,7 @@ public final class StateTransitionEdgeRenderer extends AbstractEdgeRenderer
 		STRING_VIEWER.draw(label, pGraphics, drawingRectangle);
 	}
 	
-	private void drawSelfEdge(Edge pEdge, GraphicsContext pGraphics)
+	private void drawSelfEdge(Edge pEdge, DrawingSurface pGraphics)
 	{
 		Arc arc = (Arc) getShape(pEdge);
 		double width = pGraphics.getLineWidth();
@@ -435,7 +436,7 @@ public final class StateTransitionEdgeRenderer extends AbstractEdgeRenderer
 	public Canvas createIcon(DiagramType pDiagramType, DiagramElement pElement)
 	{   //CSOFF: Magic numbers
 		Canvas canvas = new Canvas(BUTTON_SIZE, BUTTON_SIZE);
-		GraphicsContext graphics = canvas.getGraphicsContext2D();
+		DrawingSurface graphics = new CanvasSurface(canvas.getGraphicsContext2D());
 		graphics.scale(0.6, 0.6);
 		Line line = new Line(new Point(2,2), new Point(40,40));
 		final double tangent = Math.tan(Math.toRadians(DEGREES_10));
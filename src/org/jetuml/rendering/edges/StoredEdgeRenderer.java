@@ -41,8 +41,10 @@ import org.jetuml.geom.Line;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.ArrowHead;
+import org.jetuml.rendering.CanvasSurface;
 import org.jetuml.rendering.ClassDiagramRenderer;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.EdgePriority;
 import org.jetuml.rendering.LineStyle;
 import org.jetuml.rendering.StringRenderer;
@@ -51,7 +53,6 @@ import org.jetuml.rendering.StringRenderer.Alignment;
 
 import javafx.geometry.Bounds;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
 import javafx.scene.shape.Path;
@@ -213,7 +214,7 @@ public class StoredEdgeRenderer extends AbstractEdgeRenderer
 	 * @param pString the string to draw 
 	 * @param pCenter true if the string should be centered along the segment
 	 */
-	private void drawString(GraphicsContext pGraphics, Point pEndPoint1, Point pEndPoint2, 
+	private void drawString(DrawingSurface pGraphics, Point pEndPoint1, Point pEndPoint2, 
 			ArrowHead pArrowHead, String pString, boolean pCenter, boolean pIsStepUp)
 	{
 		if (pString == null || pString.length() == 0)
@@ -432,7 +433,7 @@ public class StoredEdgeRenderer extends AbstractEdgeRenderer
 	}
 
 	@Override
-	public void draw(DiagramElement pElement, GraphicsContext pGraphics) 
+	public void draw(DiagramElement pElement, DrawingSurface pGraphics) 
 	{
 		assert pElement !=null && pGraphics != null;
 		Edge edge = (Edge) pElement;
@@ -455,16 +456,17 @@ public class StoredEdgeRenderer extends AbstractEdgeRenderer
 		Canvas canvas = new Canvas(BUTTON_SIZE, BUTTON_SIZE);
 		Path path = new Path();
 		path.getElements().addAll(new MoveTo(OFFSET, OFFSET), new LineTo(BUTTON_SIZE-OFFSET, BUTTON_SIZE-OFFSET));
-		ToolGraphics.strokeSharpPath(canvas.getGraphicsContext2D(), path, getLineStyle(edge));
-		getArrowEnd(edge).view().draw(canvas.getGraphicsContext2D(), 
+		DrawingSurface graphics = new CanvasSurface(canvas.getGraphicsContext2D());
+		ToolGraphics.strokeSharpPath(graphics, path, getLineStyle(edge));
+		getArrowEnd(edge).view().draw(graphics, 
 				new Point(OFFSET, OFFSET), new Point(BUTTON_SIZE-OFFSET, BUTTON_SIZE - OFFSET));
-		getArrowStart(edge).view().draw(canvas.getGraphicsContext2D(), 
+		getArrowStart(edge).view().draw(graphics, 
 				new Point(BUTTON_SIZE-OFFSET, BUTTON_SIZE - OFFSET), new Point(OFFSET, OFFSET));
 		return canvas;
 	}
 
 	@Override
-	public void drawSelectionHandles(DiagramElement pElement, GraphicsContext pGraphics) 
+	public void drawSelectionHandles(DiagramElement pElement, DrawingSurface pGraphics) 
 	{
 		EdgePath path = getStoredEdgePath((Edge)pElement);
 		if (path != null) 
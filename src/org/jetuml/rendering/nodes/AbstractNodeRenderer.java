@@ -20,6 +20,8 @@
  *******************************************************************************/
 package org.jetuml.rendering.nodes;
 
+import java.util.function.Function;
+
 import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.DiagramType;
 import org.jetuml.diagram.Node;
@@ -29,11 +31,12 @@ import org.jetuml.geom.Line;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.geom.Side;
+import org.jetuml.rendering.CanvasSurface;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.ToolGraphics;
 
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
 /**
@@ -44,12 +47,15 @@ public abstract class AbstractNodeRenderer implements NodeRenderer
 	public static final int BUTTON_SIZE = 25;
 	public static final int OFFSET = 3;
 	
-	private NodeStorage aNodeStorage = new NodeStorage();
+	private final NodeStorage aNodeStorage;
 	private final DiagramRenderer aParent;
+	// Created once so that getBounds does not create a method reference for each call
+	private final Function<Node, Rectangle> aBoundsCalculator = this::internalGetBounds;
 	
 	protected AbstractNodeRenderer(DiagramRenderer pParent)
 	{
 		aParent = pParent;
+		aNodeStorage = new NodeStorage(pParent.diagram());
 	}
 	
 	protected DiagramRenderer parent()
@@ -80,7 +86,7 @@ public abstract class AbstractNodeRenderer implements NodeRenderer
 	}
 	
 	@Override
-	public void drawSelectionHandles(DiagramElement pElement, GraphicsContext pGraphics)
+	public void drawSelectionHandles(DiagramElement pElement, DrawingSurface pGraphics)
 	{
 		ToolGraphics.drawHandles(pGraphics, getBounds(pElement));		
 	}
@@ -96,19 +102,19 @@ public abstract class AbstractNodeRenderer implements NodeRenderer
 		double scaleY = (BUTTON_SIZE - OFFSET)/ (double) height;
 		double scale = Math.min(scaleX, scaleY);
 		Canvas canvas = new Canvas(BUTTON_SIZE, BUTTON_SIZE);
-		GraphicsContext graphics = canvas.getGraphicsContext2D();
+		DrawingSurface graphics = new CanvasSurface(canvas.getGraphicsContext2D());
 		graphics.scale(scale, scale);
 		graphics.translate(Math.max((height - width) / 2, 0), Math.max((width - height) / 2, 0));
 		graphics.setFill(Color.WHITE);
 		graphics.setStroke(Color.BLACK);
-		draw(node, canvas.getGraphicsContext2D());
+		draw(node, graphics);
 		return canvas;
 	}
 	
 	@Override
 	public final Rectangle getBounds(DiagramElement pElement)
 	{
-		return aNodeStorage.getBounds((Node)pElement, this::internalGetBounds);
+		return aNodeStorage.getBounds((Node)pElement, aBoundsCalculator);
 	}
 	
 	@Override
@@ -118,9 +124,9 @@ public abstract class AbstractNodeRenderer implements NodeRenderer
 	}
 	
 	@Override
-	public final void deactivateAndClearNodeStorage() 
+	public final void deactivateNodeStorage() 
 	{
-		aNodeStorage.deactivateAndClear();
+		aNodeStorage.deactivate();
 	}
 	
 	/**
@@ -20,13 +20,12 @@
  *******************************************************************************/
 package org.jetuml.rendering.nodes;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import org.jetuml.diagram.ControlFlow;
-import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
 import org.jetuml.diagram.nodes.CallNode;
 import org.jetuml.diagram.nodes.ImplicitParameterNode;
@@ -34,13 +33,13 @@ import org.jetuml.geom.Direction;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.LineStyle;
 import org.jetuml.rendering.RenderingUtils;
 import org.jetuml.rendering.StringRenderer;
 import org.jetuml.rendering.StringRenderer.Alignment;
 import org.jetuml.rendering.StringRenderer.TextDecoration;
 
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 
 /**
@@ -58,9 +57,43 @@ public final class CallNodeRenderer extends AbstractNodeRenderer
 	private static final String TEST_STRING = "|";
 	private static final int MINIMUM_SHIFT_THRESHOLD = 10;
 	
+	private final SequenceLayoutStorage aLayoutStorage;
+	
 	public CallNodeRenderer(DiagramRenderer pParent)
 	{
 		super(pParent);
+		aLayoutStorage = new SequenceLayoutStorage(pParent.diagram());
+	}
+	
+	/*
+	 * The storage of the vertical geometry of the nodes of the diagram,
+	 * shared with the renderer of implicit parameter nodes.
+	 */
+	SequenceLayoutStorage layoutStorage()
+	{
+		return aLayoutStorage;
+	}
+	
+	/**
+	 * Computes and stores the vertical geometry of pNode and of all the call nodes 
+	 * it calls, directly or indirectly. The nodes are visited in the order of the call
+	 * sequence: the top of a node is computed before its callees, and its bottom after 
+	 * them. In this order, the values that the geometry of a node depends on are already
+	 * stored when the node is reached, so each value is computed from stored values only.
+	 * 
+	 * @param pNode A call node that is not called by another node.
+	 * @param pFlow The control flow of the diagram of pNode.
+	 * @pre pNode != null && pFlow != null
+	 */
+	public void layoutCallTree(Node pNode, ControlFlow pFlow)
+	{
+		assert pNode != null && pFlow != null;
+		getY(pNode, pFlow);
+		for( Edge call : pFlow.getCalls(pNode) )
+		{
+			layoutCallTree(call.getEnd(), pFlow);
+		}
+		getMaxY(pNode, pFlow);
 	}
 	
 	private ImplicitParameterNodeRenderer implicitParameterNodeViewer()
@@ -69,7 +102,7 @@ public final class CallNodeRenderer extends AbstractNodeRenderer
 	}
 	
 	@Override
-	public void draw(DiagramElement pElement, GraphicsContext pGraphics)
+	public void draw(DiagramElement pElement, DrawingSurface pGraphics)
 	{
 		if(((CallNode)pElement).isOpenBottom())
 		{
@@ -111,18 +144,13 @@ public final class CallNodeRenderer extends AbstractNodeRenderer
 	 * The x position is a function of the position of the implicit parameter
 	 * node and the nesting depth of the call node.
 	 */
-	private int getX(Node pNode)
+	private int getX(Node pNode, ControlFlow pFlow)
 	{
-		final Diagram diagram = pNode.getDiagram().get();
 		final ImplicitParameterNode implicitParameterNode = (ImplicitParameterNode) pNode.getParent();
 		if(implicitParameterNode != null )
 		{
-			int depth = 0;
-			if( diagram != null )
-			{
-				depth = new ControlFlow(diagram).getNestingDepth((CallNode)pNode);
-			}
-			return implicitParameterNodeViewer().getTopRectangle(implicitParameterNode).getCenter().getX() -
+			int depth = pFlow.getNestingDepth((CallNode)pNode);
+			return implicitParameterNodeViewer().getTopRectangle(implicitParameterNode, pFlow).getCenter().getX() -
 					WIDTH / 2 + depth * WIDTH/2;
 		}
 		else
@@ -136,41 +164,39 @@ public final class CallNodeRenderer extends AbstractNodeRenderer
 	 * of the caller or a set distance before the previous call node, whatever is lower.
 	 * If not, it's simply a set distance below the previous call node.
 	 */
-	private int getYWithNoConstructorCall(Node pNode)
+	private int getYWithNoConstructorCall(Node pNode, ControlFlow pFlow)
 	{
 		final CallNode callNode = (CallNode) pNode;
 		final ImplicitParameterNode implicitParameterNode = (ImplicitParameterNode) callNode.getParent();
-		final Diagram diagram = callNode.getDiagram().get();
-		if( implicitParameterNode == null || diagram == null )
+		if( implicitParameterNode == null )
 		{
 			return 0; // Only used for the ImageCreator
 		}
-		ControlFlow flow = new ControlFlow(diagram);
-		Optional<CallNode> caller = flow.getCaller(callNode);
+		Optional<CallNode> caller = pFlow.getCaller(callNode);
 		if( caller.isPresent() )
 		{
 			int result = 0;
-			if( flow.isNested(callNode) && flow.isFirstCallee(callNode))
+			if( pFlow.isNested(callNode) && pFlow.isFirstCallee(callNode))
 			{
-				result = getY(caller.get()) + Y_GAP_BIG;
+				result = getY(caller.get(), pFlow) + Y_GAP_BIG;
 			}
-			else if( flow.isNested(callNode) && !flow.isFirstCallee(callNode) )
+			else if( pFlow.isNested(callNode) && !pFlow.isFirstCallee(callNode) )
 			{
-				result = getMaxY(flow.getPreviousCallee(callNode)) + Y_GAP_SMALL;
+				result = getMaxY(pFlow.getPreviousCallee(callNode), pFlow) + Y_GAP_SMALL;
 			}
-			else if( !flow.isNested(callNode) && flow.isFirstCallee(callNode) )
+			else if( !pFlow.isNested(callNode) && pFlow.isFirstCallee(callNode) )
 			{
-				result = getY(caller.get()) + Y_GAP_SMALL;
+				result = getY(caller.get(), pFlow) + Y_GAP_SMALL;
 			}
 			else
 			{
-				result = getMaxY(flow.getPreviousCallee(callNode)) + Y_GAP_SMALL;
+				result = getMaxY(pFlow.getPreviousCallee(callNode), pFlow) + Y_GAP_SMALL;
 			}
 			return result;
 		}
 		else
 		{
-			return implicitParameterNodeViewer().getTopRectangle(implicitParameterNode).getMaxY() + Y_GAP_SMALL;
+			return implicitParameterNodeViewer().getTopRectangle(implicitParameterNode, pFlow).getMaxY() + Y_GAP_SMALL;
 		}
 	} 
 
@@ -180,49 +206,69 @@ public final class CallNodeRenderer extends AbstractNodeRenderer
 	 *     Otherwise, return with a gap from last callee.
 	 */
 	public int getMaxY(Node pNode)
+	{
+		return getMaxY(pNode, new ControlFlow(pNode.getDiagram().get()));
+	}
+	
+	/*
+	 * Same as getMaxY(Node), using pFlow if the bottom of pNode needs to be computed.
+	 */
+	int getMaxY(Node pNode, ControlFlow pFlow)
+	{
+		return aLayoutStorage.getCallMaxY(pNode, node -> computeMaxY(node, pFlow));
+	}
+	
+	private int computeMaxY(Node pNode, ControlFlow pFlow)
 	{
 		final CallNode callNode = (CallNode) pNode;
-		final Diagram diagram = callNode.getDiagram().get();
-		List<Node> callees = new ArrayList<>();
-		if( diagram != null )
-		{
-			callees = new ControlFlow(diagram).getCallees(callNode);
-		}
+		List<Node> callees = pFlow.getCallees(callNode);
 		if( callees.isEmpty() )
 		{
-			return getY(callNode) + DEFAULT_HEIGHT;
+			return getY(callNode, pFlow) + DEFAULT_HEIGHT;
 		}
 		else
 		{
-			return getMaxY(callees.get(callees.size()-1)) + Y_GAP_SMALL;
+			return getMaxY(callees.get(callees.size()-1), pFlow) + Y_GAP_SMALL;
 		}
 	}
 	
+	/*
+	 * The right side and the bottom of pNode, which has the same bounds as those 
+	 * returned by getBounds.
+	 */
+	Point getMaxXY(Node pNode, ControlFlow pFlow)
+	{
+		return new Point(getX(pNode, pFlow) + WIDTH, getMaxY(pNode, pFlow));
+	}
+	
 	@Override
 	protected Rectangle internalGetBounds(Node pNode)
 	{
-		int y = getY(pNode);
-		return new Rectangle(getX(pNode), y, WIDTH, getMaxY(pNode) - y);
+		ControlFlow flow = new ControlFlow(pNode.getDiagram().get());
+		int y = getY(pNode, flow);
+		return new Rectangle(getX(pNode, flow), y, WIDTH, getMaxY(pNode, flow) - y);
 	}
 	
-	private int getYWithConstructorCall(Node pNode) 
+	private int getYWithConstructorCall(Node pNode, ControlFlow pFlow) 
 	{
 		final ImplicitParameterNode implicitParameterNode = (ImplicitParameterNode) pNode.getParent();
-		return implicitParameterNodeViewer().getTopRectangle(implicitParameterNode).getMaxY() + Y_GAP_TINY;
+		return implicitParameterNodeViewer().getTopRectangle(implicitParameterNode, pFlow).getMaxY() + Y_GAP_TINY;
 	}
-
-	private static boolean isInConstructorCall(Node pNode)
+	
+	protected int getY(Node pNode)
 	{
-		Optional<Diagram> diagram = pNode.getDiagram();
-		if(diagram.isPresent())
-		{
-			ControlFlow flow = new ControlFlow(diagram.get());
-			return flow.isConstructorExecution(pNode);
-		}
-		return false;
+		return getY(pNode, new ControlFlow(pNode.getDiagram().get()));
 	}
 	
-	protected int getY(Node pNode)
+	/*
+	 * Same as getY(Node), using pFlow if the top of pNode needs to be computed.
+	 */
+	int getY(Node pNode, ControlFlow pFlow)
+	{
+		return aLayoutStorage.getCallY(pNode, node -> computeY(node, pFlow));
+	}
+	
+	private int computeY(Node pNode, ControlFlow pFlow)
 	{
 		int shift = NODE_GAP_TESTER.getDimension(TEST_STRING).height() / 3;
 		// Only apply shift if necessary
@@ -230,13 +276,13 @@ public final class CallNodeRenderer extends AbstractNodeRenderer
 		{
 			shift = 0;
 		}
-		if(isInConstructorCall(pNode))
+		if(pFlow.isConstructorExecution(pNode))
 		{
-			return getYWithConstructorCall(pNode) + shift;
+			return getYWithConstructorCall(pNode, pFlow) + shift;
 		}
 		else 
 		{
-			return getYWithNoConstructorCall(pNode) + shift;
+			return getYWithNoConstructorCall(pNode, pFlow) + shift;
 		}
 	}
 }
@@ -26,7 +26,6 @@ import java.util.List;
 import java.util.Optional;
 
 import org.jetuml.diagram.ControlFlow;
-import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.Node;
 import org.jetuml.diagram.nodes.CallNode;
@@ -35,13 +34,13 @@ import org.jetuml.geom.Direction;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 import org.jetuml.rendering.LineStyle;
 import org.jetuml.rendering.RenderingUtils;
 import org.jetuml.rendering.StringRenderer;
 import org.jetuml.rendering.StringRenderer.Alignment;
 import org.jetuml.rendering.StringRenderer.TextDecoration;
 
-import javafx.scene.canvas.GraphicsContext;
 
 /**
  * An object to render an implicit parameter in a Sequence diagram.
@@ -67,7 +66,7 @@ public final class ImplicitParameterNodeRenderer extends AbstractNodeRenderer
 	}
 	
 	@Override
-	public void draw(DiagramElement pElement, GraphicsContext pGraphics)
+	public void draw(DiagramElement pElement, DrawingSurface pGraphics)
 	{
 		Rectangle top = getTopRectangle((Node)pElement);
 		RenderingUtils.drawRectangle(pGraphics, top);
@@ -97,7 +96,28 @@ public final class ImplicitParameterNodeRenderer extends AbstractNodeRenderer
 		}
 	}
 	
+	/**
+	 * Computes and stores the largest X and Y coordinates of the call nodes of pNode, 
+	 * which determine the width of pNode and the length of its life line. Meant to be
+	 * called once the call trees of the diagram are laid out, so that the geometry of 
+	 * the call nodes is already stored.
+	 * 
+	 * @param pNode An implicit parameter node.
+	 * @param pFlow The control flow of the diagram of pNode.
+	 * @pre pNode != null && pFlow != null
+	 */
+	public void layoutLifeline(Node pNode, ControlFlow pFlow)
+	{
+		assert pNode != null && pFlow != null;
+		callNodeViewer().layoutStorage().getChildrenMaxXY(pNode, node -> computeMaxXYofChildren(node, pFlow));
+	}
+	
 	private Point getMaxXYofChildren(Node pNode)
+	{
+		return callNodeViewer().layoutStorage().getChildrenMaxXY(pNode, this::computeMaxXYofChildren);
+	}
+	
+	private Point computeMaxXYofChildren(Node pNode)
 	{
 		int maxY = 0;
 		int maxX = 0;
@@ -110,21 +130,58 @@ public final class ImplicitParameterNodeRenderer extends AbstractNodeRenderer
 		return new Point(maxX, maxY);
 	}
 	
+	private Point computeMaxXYofChildren(Node pNode, ControlFlow pFlow)
+	{
+		int maxY = 0;
+		int maxX = 0;
+		for( Node child : ((ImplicitParameterNode)pNode).getChildren() )
+		{
+			Point childMaxXY = callNodeViewer().getMaxXY(child, pFlow);
+			maxX = Math.max(maxX, childMaxXY.getX());
+			maxY = Math.max(maxY, childMaxXY.getY());
+		}
+		return new Point(maxX, maxY);
+	}
+	
 	/**
      * Returns the rectangle at the top of the object node.
      * @param pNode the node.
      * @return the top rectangle
 	 */
 	public Rectangle getTopRectangle(Node pNode)
+	{
+		return getTopRectangle(pNode, callNodeViewer().layoutStorage().getTopY(pNode, this::computeTopY));
+	}
+	
+	/*
+	 * Same as getTopRectangle(Node), using pFlow if the top of pNode needs to be computed.
+	 */
+	Rectangle getTopRectangle(Node pNode, ControlFlow pFlow)
+	{
+		return getTopRectangle(pNode, callNodeViewer().layoutStorage().getTopY(pNode, node -> computeTopY(node, pFlow)));
+	}
+	
+	private static Rectangle getTopRectangle(Node pNode, int pY)
 	{
 		int width = Math.max(NAME_VIEWER.getDimension(((ImplicitParameterNode)pNode).getName()).width()+ 
 				HORIZONTAL_PADDING, DEFAULT_WIDTH);
-		int yVal = 0;
-		if( isInConstructorCall(pNode) )
+		return new Rectangle(pNode.position().getX(), pY, width, TOP_HEIGHT);
+	}
+	
+	private int computeTopY(Node pNode)
+	{
+		return pNode.getDiagram()
+				.map(diagram -> computeTopY(pNode, new ControlFlow(diagram)))
+				.orElse(0);
+	}
+	
+	private int computeTopY(Node pNode, ControlFlow pFlow)
+	{
+		if( isInConstructorCall(pNode, pFlow) )
 		{
-			yVal = getYWithConstructorCall(pNode);
+			return getYWithConstructorCall(pNode, pFlow);
 		}
-		return new Rectangle(pNode.position().getX(), yVal, width, TOP_HEIGHT);
+		return 0;
 	}
 
 	@Override
@@ -137,20 +194,19 @@ public final class ImplicitParameterNodeRenderer extends AbstractNodeRenderer
 		return new Rectangle(pNode.position().getX(), topRectangle.getY(), width, height);
 	}
 	
-	private int getYWithConstructorCall(Node pNode) 
+	private int getYWithConstructorCall(Node pNode, ControlFlow pFlow) 
 	{
-		assert isInConstructorCall(pNode);
-		ControlFlow controlFlow = new ControlFlow(pNode.getDiagram().get());
+		assert isInConstructorCall(pNode, pFlow);
 		CallNode child = (CallNode) getFirstChild(pNode).get();
 		// If the node is the first callee, set a fix distance from its caller
-		if( controlFlow.isFirstCallee(child) )
+		if( pFlow.isFirstCallee(child) )
 		{
-			CallNode caller = controlFlow.getCaller(child).get(); 
-			return callNodeViewer().getY(caller) + Y_GAP_SMALL;
+			CallNode caller = pFlow.getCaller(child).get(); 
+			return callNodeViewer().getY(caller, pFlow) + Y_GAP_SMALL;
 		}
-		Node prevCallee = controlFlow.getPreviousCallee(child);
+		Node prevCallee = pFlow.getPreviousCallee(child);
 		// If the node is not the first callee but the previous callee is in constructor call
-		if( controlFlow.isConstructorExecution(prevCallee) )
+		if( pFlow.isConstructorExecution(prevCallee) )
 		{
 			// Returns a fixed distance from the bound of the previous callee's parent
 			return getBounds(prevCallee.getParent()).getMaxY();
@@ -158,23 +214,17 @@ public final class ImplicitParameterNodeRenderer extends AbstractNodeRenderer
 		else
 		{
 			// Returns a fixed distance from the previous callee
-			return callNodeViewer().getMaxY(prevCallee) + Y_GAP_SMALL;
+			return callNodeViewer().getMaxY(prevCallee, pFlow) + Y_GAP_SMALL;
 		}
 	}
 
 	/*
 	 * Returns true if the ImplicitParameterNode is in the constructor call
 	 */
-	private static boolean isInConstructorCall(Node pNode) 
+	private static boolean isInConstructorCall(Node pNode, ControlFlow pFlow) 
 	{
-		Optional<Diagram> diagram = pNode.getDiagram();
-		if(diagram.isPresent())
-		{
-			ControlFlow flow = new ControlFlow(diagram.get());
-			Optional<Node> child = getFirstChild(pNode);
-			return child.isPresent() && flow.isConstructorExecution(child.get());
-		}	
-		return false;
+		Optional<Node> child = getFirstChild(pNode);
+		return child.isPresent() && pFlow.isConstructorExecution(child.get());
 	}
 	
 	/*
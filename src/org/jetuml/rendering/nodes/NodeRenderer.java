@@ -51,9 +51,10 @@ public interface NodeRenderer extends DiagramElementRenderer
 	void activateNodeStorage();
 	
 	/**
-	 * Deactivates and clears the NodeStorage. 
+	 * Deactivates the NodeStorage. The bounds of the nodes of the diagram
+	 * remain stored until the diagram is modified.
 	 */
-	void deactivateAndClearNodeStorage();
+	void deactivateNodeStorage();
 	
 	/**
 	 * The face of a node corresponds to the line to which edges can attach.
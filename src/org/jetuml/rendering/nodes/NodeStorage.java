@@ -20,20 +20,61 @@
  *******************************************************************************/
 package org.jetuml.rendering.nodes;
 
+ import java.util.Collections;
  import java.util.IdentityHashMap;
  import java.util.Map;
+ import java.util.Optional;
  import java.util.function.Function;
 
+import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.Node;
 import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.StringRenderer;
 
  /**
   * Stores the bounds of nodes. 
+  * 
+  * The bounds of nodes that belong to the diagram tracked by the storage, if any,
+  * are kept until the diagram reports a modification or the font used to render
+  * text changes. The bounds of other nodes are only kept while the storage is 
+  * activated.
+  * 
+  * Bounds can be requested from several threads at once, so that the bounds of
+  * independent nodes can be computed in parallel. The bounds are computed outside 
+  * of any lock, so a calculator can request the bounds of other nodes, and if 
+  * the bounds of a node are computed by two threads, the first result is kept. 
+  * The storage must not be activated, deactivated, or cleared while bounds are 
+  * being requested.
   */
  public class NodeStorage 
  {
- 	private Map<Node, Rectangle> aNodeBounds = new IdentityHashMap<>();
- 	private boolean aIsActivated = false;
+ 	private final Optional<Diagram> aDiagram;
+ 	private Map<Node, Rectangle> aNodeBounds = Collections.synchronizedMap(new IdentityHashMap<>());
+ 	private Map<Node, Rectangle> aUntrackedNodeBounds = Collections.synchronizedMap(new IdentityHashMap<>());
+ 	private volatile boolean aIsActivated = false;
+ 	private long aRevision = -1;
+ 	private int aFontSize;
+
+ 	/**
+ 	 * Creates a storage that only keeps bounds while it is activated.
+ 	 */
+ 	public NodeStorage()
+ 	{
+ 		aDiagram = Optional.empty();
+ 	}
+
+ 	/**
+ 	 * Creates a storage that keeps the bounds of the nodes in pDiagram
+ 	 * until pDiagram is modified.
+ 	 * 
+ 	 * @param pDiagram The diagram whose nodes are tracked.
+ 	 * @pre pDiagram != null
+ 	 */
+ 	public NodeStorage(Diagram pDiagram)
+ 	{
+ 		assert pDiagram != null;
+ 		aDiagram = Optional.of(pDiagram);
+ 	}
 
  	/**
  	 * Returns the bounds of the current node either from the storage or from the calculator.
@@ -43,19 +84,68 @@ import org.jetuml.geom.Rectangle;
  	 */
  	public Rectangle getBounds(Node pNode, Function<Node, Rectangle> pBoundCalculator)
  	{
- 		if (!aIsActivated)
+ 		clearIfStale();
+ 		if( isTracked(pNode) )
  		{
- 			return pBoundCalculator.apply(pNode);
+ 			return getBounds(aNodeBounds, pNode, pBoundCalculator);
  		}
- 		else if (aIsActivated && aNodeBounds.containsKey(pNode))
+ 		else if( aIsActivated )
  		{
- 			return aNodeBounds.get(pNode);
+ 			return getBounds(aUntrackedNodeBounds, pNode, pBoundCalculator);
  		}
  		else
  		{
- 			Rectangle computedBounds = pBoundCalculator.apply(pNode);
- 			aNodeBounds.put(pNode, computedBounds);
- 			return computedBounds;
+ 			return pBoundCalculator.apply(pNode);
+ 		}
+ 	}
+
+ 	private static Rectangle getBounds(Map<Node, Rectangle> pStorage, Node pNode, 
+ 			Function<Node, Rectangle> pBoundCalculator)
+ 	{
+ 		Rectangle bounds = pStorage.get(pNode);
+ 		if( bounds == null )
+ 		{
+ 			bounds = pBoundCalculator.apply(pNode);
+ 			Rectangle stored = pStorage.putIfAbsent(pNode, bounds);
+ 			if( stored != null )
+ 			{
+ 				bounds = stored;
+ 			}
+ 		}
+ 		return bounds;
+ 	}
+
+ 	/*
+ 	 * A node is tracked if modifications to it are reported to the diagram of the storage.
+ 	 * Children can be attached to the diagram through their parent only.
+ 	 */
+ 	private boolean isTracked(Node pNode)
+ 	{
+ 		return aDiagram.isPresent() && isAttachedTo(pNode, aDiagram.get());
+ 	}
+
+ 	/*
+ 	 * Returns true if pNode, or the ancestor through which it is attached, 
+ 	 * is attached to pDiagram.
+ 	 */
+ 	static boolean isAttachedTo(Node pNode, Diagram pDiagram)
+ 	{
+ 		Node node = pNode;
+ 		while( node.getDiagram().isEmpty() && node.hasParent() )
+ 		{
+ 			node = node.getParent();
+ 		}
+ 		return node.getDiagram().isPresent() && node.getDiagram().get() == pDiagram;
+ 	}
+
+ 	private synchronized void clearIfStale()
+ 	{
+ 		if( aDiagram.isPresent() && 
+ 				(aDiagram.get().revision() != aRevision || StringRenderer.fontSize() != aFontSize) )
+ 		{
+ 			aNodeBounds.clear();
+ 			aRevision = aDiagram.get().revision();
+ 			aFontSize = StringRenderer.fontSize();
  		}
  	}
 
@@ -67,12 +157,22 @@ import org.jetuml.geom.Rectangle;
  		aIsActivated = true;
  	}
 
+ 	/**
+ 	 * Deactivates the NodeStorage and discards the bounds of
+ 	 * nodes that do not belong to the tracked diagram.
+ 	 */
+ 	public void deactivate()
+ 	{
+ 		aIsActivated = false;
+ 		aUntrackedNodeBounds.clear();
+ 	}
+
  	/**
  	 * Deactivates and clears the NodeStorage.
  	 */
  	public void deactivateAndClear() 
  	{
- 		aIsActivated = false;
+ 		deactivate();
  		aNodeBounds.clear();
  	}
  }
\ No newline at end of file
@@ -26,8 +26,8 @@ import org.jetuml.geom.Direction;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
 
-import javafx.scene.canvas.GraphicsContext;
 
 /**
  * An object to render a PointNode.
@@ -60,7 +60,7 @@ public final class PointNodeRenderer extends AbstractNodeRenderer
 	}
 	
 	@Override
-	public void draw(DiagramElement pElement, GraphicsContext pGraphics) 
+	public void draw(DiagramElement pElement, DrawingSurface pGraphics) 
 	{
 		// Do nothing, a point is invisible.
 	}
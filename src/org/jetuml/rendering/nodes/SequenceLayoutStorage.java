@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.rendering.nodes;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.Node;
+import org.jetuml.geom.Point;
+import org.jetuml.rendering.StringRenderer;
+
+/**
+ * Stores the vertical geometry of the nodes of a sequence diagram: the top and
+ * bottom of each call node, and the top of each implicit parameter node and the 
+ * largest coordinates of its call nodes, which end its life line. Each of
+ * these values depends on the values of the nodes that precede it in the call
+ * sequence, so storing them means each value is computed once per revision of
+ * the diagram instead of every time a node that depends on it is measured.
+ *
+ * As for NodeStorage, values are discarded when the diagram reports a
+ * modification or the font used to render text changes, and values for nodes
+ * that do not belong to the diagram are not stored.
+ */
+final class SequenceLayoutStorage
+{
+	private final Diagram aDiagram;
+	private final Map<Node, Integer> aCallYs = new IdentityHashMap<>();
+	private final Map<Node, Integer> aCallMaxYs = new IdentityHashMap<>();
+	private final Map<Node, Integer> aTopYs = new IdentityHashMap<>();
+	private final Map<Node, Point> aChildrenMaxXYs = new IdentityHashMap<>();
+	private long aRevision = -1;
+	private int aFontSize;
+
+	/**
+	 * @param pDiagram The diagram whose nodes are tracked.
+	 * @pre pDiagram != null
+	 */
+	SequenceLayoutStorage(Diagram pDiagram)
+	{
+		assert pDiagram != null;
+		aDiagram = pDiagram;
+	}
+
+	/**
+	 * @param pNode A call node.
+	 * @param pCalculator The function that computes the top of a call node.
+	 * @return The top of pNode.
+	 */
+	int getCallY(Node pNode, ToIntFunction<Node> pCalculator)
+	{
+		return get(aCallYs, pNode, pCalculator::applyAsInt);
+	}
+
+	/**
+	 * @param pNode A call node.
+	 * @param pCalculator The function that computes the bottom of a call node.
+	 * @return The bottom of pNode.
+	 */
+	int getCallMaxY(Node pNode, ToIntFunction<Node> pCalculator)
+	{
+		return get(aCallMaxYs, pNode, pCalculator::applyAsInt);
+	}
+
+	/**
+	 * @param pNode An implicit parameter node.
+	 * @param pCalculator The function that computes the top of an implicit parameter node.
+	 * @return The top of pNode.
+	 */
+	int getTopY(Node pNode, ToIntFunction<Node> pCalculator)
+	{
+		return get(aTopYs, pNode, pCalculator::applyAsInt);
+	}
+
+	/**
+	 * @param pNode An implicit parameter node.
+	 * @param pCalculator The function that computes the largest X and Y coordinates 
+	 *     of the call nodes of an implicit parameter node.
+	 * @return The largest X and Y coordinates of the call nodes of pNode.
+	 */
+	Point getChildrenMaxXY(Node pNode, Function<Node, Point> pCalculator)
+	{
+		return get(aChildrenMaxXYs, pNode, pCalculator);
+	}
+
+	/*
+	 * The values are not computed with Map.computeIfAbsent because computing
+	 * a value stores the values it depends on in the same map.
+	 */
+	private <T> T get(Map<Node, T> pStorage, Node pNode, Function<Node, T> pCalculator)
+	{
+		if( !NodeStorage.isAttachedTo(pNode, aDiagram) )
+		{
+			return pCalculator.apply(pNode);
+		}
+		clearIfStale();
+		T value = pStorage.get(pNode);
+		if( value == null )
+		{
+			value = pCalculator.apply(pNode);
+			pStorage.put(pNode, value);
+		}
+		return value;
+	}
+
+	private void clearIfStale()
+	{
+		if( aDiagram.revision() != aRevision || StringRenderer.fontSize() != aFontSize )
+		{
+			aCallYs.clear();
+			aCallMaxYs.clear();
+			aTopYs.clear();
+			aChildrenMaxXYs.clear();
+			aRevision = aDiagram.revision();
+			aFontSize = StringRenderer.fontSize();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.persistence.PersistenceService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class TestBatchExporter
+{
+	private static final String TEST_FILE_NAME = "testdata/testPersistenceService.class.jet";
+	private static final File TEMPORARY_FILE = new File("testdata/tmp");
+
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+
+	@Test
+	public void testDiagramFiles()
+	{
+		List<File> files = BatchExporter.diagramFiles(List.of("testdata", TEST_FILE_NAME));
+		assertTrue(files.size() > 1);
+		assertTrue(files.stream().allMatch(file -> file.getName().endsWith(".jet")));
+		assertEquals(new File(TEST_FILE_NAME), files.get(files.size() - 1));
+	}
+
+	@Test
+	public void testOutputFileFor()
+	{
+		File file = new File(TEST_FILE_NAME);
+		assertEquals(new File("testdata/testPersistenceService.class.png"), BatchExporter.outputFileFor(file, "png", null));
+		assertEquals(new File("images/testPersistenceService.class.png"), BatchExporter.outputFileFor(file, "png", new File("images")));
+	}
+
+	@Test
+	public void testExport() throws Exception
+	{
+		File file = new File(TEST_FILE_NAME);
+		BatchExporter.export(file, TEMPORARY_FILE);
+		BufferedImage result = ImageIO.read(TEMPORARY_FILE);
+		TEMPORARY_FILE.delete();
+		Rectangle bounds = DiagramType.newRendererInstanceFor(PersistenceService.read(file).diagram()).getBounds();
+		assertEquals(bounds.getWidth() + 8, result.getWidth());
+		assertEquals(bounds.getHeight() + 8, result.getHeight());
+	}
+}
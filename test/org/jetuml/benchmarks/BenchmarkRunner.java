@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures the average time of an operation in the way of JMH's average time
+ * mode. Each benchmark first runs warmup iterations whose results are discarded,
+ * so the code is compiled before it is measured. Each measurement iteration then
+ * calls the operation repeatedly for a fixed amount of time, and the score of the
+ * benchmark is the mean time per call over all measurement iterations, reported
+ * with its 99.9% confidence interval.
+ *
+ * The value returned by each call of the operation is consumed so that the
+ * computation cannot be eliminated by the compiler.
+ *
+ * The memory allocated by the operation is also reported, as the mean number
+ * of bytes allocated on the heap by the measuring thread per call, in the way
+ * of JMH's GC profiler. It measures the garbage that an operation creates
+ * independently of when the garbage collector runs. The allocation is only 
+ * reported if the JVM provides com.sun.management.ThreadMXBean, which is looked
+ * up reflectively so that the application module does not depend on jdk.management.
+ */
+public final class BenchmarkRunner
+{
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASUREMENT_ITERATIONS = 10;
+	private static final long ITERATION_NANOS = 500_000_000L;
+	/* Quantile of Student's t distribution for a two-sided 99.9% interval
+	 * with MEASUREMENT_ITERATIONS - 1 degrees of freedom. */
+	private static final double T_999 = 4.781;
+	private static final double NANOS_PER_MICRO = 1000.0;
+	private static final Optional<LongSupplier> ALLOCATED_BYTES = allocationCounter();
+
+	private static volatile int aSink;
+	private static long aCalls;
+	private static long aAllocatedBytes;
+
+	private BenchmarkRunner() {}
+
+	/**
+	 * Measures pOperation and prints the result in a table row.
+	 *
+	 * @param pName The name of the benchmark.
+	 * @param pSize The size of the diagram used by the benchmark.
+	 * @param pOperation The operation to measure.
+	 * @pre pName != null && pOperation != null
+	 */
+	public static void run(String pName, int pSize, Supplier<?> pOperation)
+	{
+		assert pName != null && pOperation != null;
+		for( int i = 0; i < WARMUP_ITERATIONS; i++ )
+		{
+			iteration(pOperation);
+		}
+		aCalls = 0;
+		aAllocatedBytes = 0;
+		double[] scores = new double[MEASUREMENT_ITERATIONS];
+		for( int i = 0; i < MEASUREMENT_ITERATIONS; i++ )
+		{
+			scores[i] = iteration(pOperation);
+		}
+		double mean = 0;
+		for( double score : scores )
+		{
+			mean += score;
+		}
+		mean /= scores.length;
+		double variance = 0;
+		for( double score : scores )
+		{
+			variance += (score - mean) * (score - mean);
+		}
+		variance /= scores.length - 1;
+		double error = T_999 * Math.sqrt(variance / scores.length);
+		String allocated = ALLOCATED_BYTES.isPresent() ? Long.toString(aAllocatedBytes / aCalls) : "n/a";
+		System.out.println(String.format("%-40s %6d %6d %14.3f +- %12.3f  us/op %14s  B/op",
+				pName, pSize, MEASUREMENT_ITERATIONS, mean, error, allocated));
+	}
+
+	/**
+	 * Prints the header of the table of results.
+	 */
+	public static void printHeader()
+	{
+		System.out.println(String.format("%-40s %6s %6s %14s   %12s  %-5s %14s  %s",
+				"Benchmark", "(size)", "Cnt", "Score", "Error", "Units", "Allocated", "Units"));
+	}
+
+	/*
+	 * Calls pOperation for ITERATION_NANOS and returns the average
+	 * time of a call, in microseconds. The number of calls and the memory
+	 * they allocated are added to aCalls and aAllocatedBytes.
+	 */
+	private static double iteration(Supplier<?> pOperation)
+	{
+		long calls = 0;
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		long elapsed;
+		do
+		{
+			consume(pOperation.get());
+			calls++;
+			elapsed = System.nanoTime() - start;
+		}
+		while( elapsed < ITERATION_NANOS );
+		aAllocatedBytes += allocatedBytes() - allocated;
+		aCalls += calls;
+		return elapsed / NANOS_PER_MICRO / calls;
+	}
+
+	private static long allocatedBytes()
+	{
+		return ALLOCATED_BYTES.map(LongSupplier::getAsLong).orElse(0L);
+	}
+
+	/*
+	 * Returns a function that returns the number of bytes allocated on the heap
+	 * by the current thread, if the JVM can measure it.
+	 */
+	private static Optional<LongSupplier> allocationCounter()
+	{
+		try
+		{
+			Object threads = Class.forName("java.lang.management.ManagementFactory")
+					.getMethod("getThreadMXBean").invoke(null);
+			Method allocatedBytes = Class.forName("com.sun.management.ThreadMXBean")
+					.getMethod("getCurrentThreadAllocatedBytes");
+			allocatedBytes.invoke(threads);
+			return Optional.of(() -> 
+			{
+				try
+				{
+					return (long) allocatedBytes.invoke(threads);
+				}
+				catch( ReflectiveOperationException exception )
+				{
+					throw new IllegalStateException(exception);
+				}
+			});
+		}
+		catch( ReflectiveOperationException | RuntimeException exception )
+		{
+			return Optional.empty();
+		}
+	}
+
+	private static void consume(Object pResult)
+	{
+		aSink ^= System.identityHashCode(pResult);
+	}
+}
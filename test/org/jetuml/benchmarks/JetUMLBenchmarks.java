@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.benchmarks;
+
+import static org.jetuml.benchmarks.BenchmarkRunner.run;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.application.Clipboard;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.Node;
+import org.jetuml.diagram.builder.DiagramBuilder;
+import org.jetuml.diagram.builder.DiagramOperation;
+import org.jetuml.diagram.edges.AssociationEdge;
+import org.jetuml.diagram.edges.DependencyEdge;
+import org.jetuml.diagram.edges.GeneralizationEdge;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.diagram.nodes.PackageNode;
+import org.jetuml.geom.Point;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.persistence.JsonDecoder;
+import org.jetuml.persistence.JsonEncoder;
+import org.jetuml.persistence.JsonStreamDecoder;
+import org.jetuml.rendering.CanvasSurface;
+import org.jetuml.rendering.ClassDiagramRenderer;
+import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.DrawingSurface;
+import org.jetuml.rendering.SvgSurface;
+import org.json.JSONObject;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+
+/**
+ * Benchmarks of the operations whose cost grows with the size of a diagram:
+ * layout, rendering, hit-testing, persistence, duplication, and copy-paste.
+ * Each benchmark is run on generated class diagrams of different sizes, so that
+ * the way the cost of an operation scales can be compared between versions.
+ *
+ * Usage: JetUMLBenchmarks [size...], where each size is a number of classes.
+ */
+public final class JetUMLBenchmarks
+{
+	private static final int[] DEFAULT_SIZES = {100, 1000, 5000};
+	private static final int NODE_SPACING_X = 200;
+	private static final int NODE_SPACING_Y = 150;
+	private static final int CLASSES_PER_PACKAGE = 10;
+	private static final int CANVAS_SIZE = 1000;
+	private static final int NUMBER_OF_QUERIES = 1024;
+	private static final long SEED = 42;
+
+	private JetUMLBenchmarks() {}
+
+	/**
+	 * Creates a class diagram with pSize classes laid out on a square grid. Every
+	 * tenth class is placed in a package with the following classes. Each class
+	 * depends on the next one on its row, generalizes the one below it, and every
+	 * third class has an association with the class diagonally below it.
+	 *
+	 * @param pSize The number of classes.
+	 * @return A new diagram.
+	 */
+	static Diagram createClassDiagram(int pSize)
+	{
+		Diagram diagram = new Diagram(DiagramType.CLASS);
+		int columns = (int) Math.ceil(Math.sqrt(pSize));
+		ClassNode[] classes = new ClassNode[pSize];
+		PackageNode packageNode = null;
+		for( int i = 0; i < pSize; i++ )
+		{
+			classes[i] = new ClassNode();
+			classes[i].setName("Class" + i);
+			classes[i].moveTo(new Point(i % columns * NODE_SPACING_X, i / columns * NODE_SPACING_Y));
+			if( i % (CLASSES_PER_PACKAGE * CLASSES_PER_PACKAGE) == 0 )
+			{
+				packageNode = new PackageNode();
+				packageNode.setName("package" + i);
+				packageNode.moveTo(classes[i].position());
+				diagram.addRootNode(packageNode);
+			}
+			if( i % (CLASSES_PER_PACKAGE * CLASSES_PER_PACKAGE) < CLASSES_PER_PACKAGE )
+			{
+				packageNode.addChild(classes[i]);
+			}
+			else
+			{
+				diagram.addRootNode(classes[i]);
+			}
+		}
+		for( int i = 0; i < pSize; i++ )
+		{
+			if( (i + 1) % columns != 0 && i + 1 < pSize )
+			{
+				connect(diagram, new DependencyEdge(), classes[i], classes[i + 1]);
+			}
+			if( i + columns < pSize )
+			{
+				connect(diagram, new GeneralizationEdge(), classes[i], classes[i + columns]);
+			}
+			if( i % 3 == 0 && (i + 1) % columns != 0 && i + columns + 1 < pSize )
+			{
+				connect(diagram, new AssociationEdge(), classes[i], classes[i + columns + 1]);
+			}
+		}
+		return diagram;
+	}
+
+	private static void connect(Diagram pDiagram, Edge pEdge, Node pStart, Node pEnd)
+	{
+		pEdge.connect(pStart, pEnd, pDiagram);
+		pDiagram.addEdge(pEdge);
+	}
+
+	/*
+	 * Returns pNumber points distributed uniformly in pBounds.
+	 */
+	private static List<Point> randomPoints(Rectangle pBounds, int pNumber)
+	{
+		Random random = new Random(SEED);
+		List<Point> points = new ArrayList<>();
+		for( int i = 0; i < pNumber; i++ )
+		{
+			points.add(new Point(pBounds.getX() + random.nextInt(Math.max(1, pBounds.getWidth())),
+					pBounds.getY() + random.nextInt(Math.max(1, pBounds.getHeight()))));
+		}
+		return points;
+	}
+
+	private static List<DiagramElement> allElements(Diagram pDiagram)
+	{
+		List<DiagramElement> elements = new ArrayList<>(pDiagram.rootNodes());
+		elements.addAll(pDiagram.edges());
+		return elements;
+	}
+
+	private static void runBenchmarks(int pSize)
+	{
+		Diagram diagram = createClassDiagram(pSize);
+		DiagramRenderer renderer = DiagramType.newRendererInstanceFor(diagram);
+		DrawingSurface graphics = new CanvasSurface(new Canvas(CANVAS_SIZE, CANVAS_SIZE).getGraphicsContext2D());
+		renderer.draw(graphics);
+
+		run("ClassDiagramRenderer.layout", pSize, () ->
+		{
+			ClassDiagramRenderer fresh = new ClassDiagramRenderer(diagram);
+			fresh.layout();
+			return fresh;
+		});
+		run("DiagramRenderer.draw", pSize, () ->
+		{
+			renderer.draw(graphics);
+			return graphics;
+		});
+		Rectangle viewport = new Rectangle(0, 0, CANVAS_SIZE, CANVAS_SIZE);
+		run("DiagramRenderer.draw(visibleArea)", pSize, () ->
+		{
+			renderer.draw(graphics, viewport);
+			return graphics;
+		});
+		run("DiagramRenderer.draw(SvgSurface)", pSize, () ->
+		{
+			SvgSurface surface = new SvgSurface(Writer.nullWriter(), CANVAS_SIZE, CANVAS_SIZE);
+			renderer.draw(surface);
+			surface.finish();
+			return surface;
+		});
+
+		renderer.draw(graphics);
+		run("DiagramRenderer.getBounds", pSize, renderer::getBounds);
+		List<Point> points = randomPoints(renderer.getBounds(), NUMBER_OF_QUERIES);
+		int[] query = new int[1];
+		run("DiagramRenderer.nodeAt", pSize, () -> renderer.nodeAt(points.get(query[0]++ % NUMBER_OF_QUERIES)));
+		run("DiagramRenderer.edgeAt", pSize, () -> renderer.edgeAt(points.get(query[0]++ % NUMBER_OF_QUERIES)));
+
+		run("JsonEncoder.encode", pSize, () -> JsonEncoder.encode(diagram));
+		JSONObject encoding = JsonEncoder.encode(diagram);
+		run("JsonDecoder.decode", pSize, () -> JsonDecoder.decode(encoding));
+		run("JsonEncoder.encode(Appendable)", pSize, () ->
+		{
+			StringWriter writer = new StringWriter();
+			JsonEncoder.encode(diagram, writer);
+			return writer;
+		});
+		StringWriter writer = new StringWriter();
+		JsonEncoder.encode(diagram, writer);
+		String text = writer.toString();
+		run("JsonStreamDecoder.decode", pSize, () ->
+		{
+			try
+			{
+				return JsonStreamDecoder.decode(new StringReader(text));
+			}
+			catch( IOException exception )
+			{
+				throw new IllegalStateException(exception);
+			}
+		});
+
+		run("Diagram.duplicate", pSize, diagram::duplicate);
+		run("Diagram.snapshot", pSize, diagram::snapshot);
+
+		List<DiagramElement> elements = allElements(diagram);
+		run("Clipboard.copy", pSize, () ->
+		{
+			Clipboard.instance().copy(elements);
+			return Clipboard.instance();
+		});
+		Diagram target = createClassDiagram(pSize);
+		DiagramBuilder builder = DiagramType.newBuilderInstanceFor(target);
+		Clipboard.instance().copy(elements);
+		run("Clipboard.paste", pSize, () ->
+		{
+			DiagramOperation operation = builder.createAddElementsOperation(Clipboard.instance().getElements());
+			operation.execute();
+			operation.undo();
+			return operation;
+		});
+		List<DiagramElement> selection = new ArrayList<>(target.rootNodes());
+		run("DiagramBuilder.createRemoveElementsOperation", pSize, () ->
+		{
+			DiagramOperation operation = builder.createRemoveElementsOperation(selection);
+			operation.execute();
+			operation.undo();
+			return operation;
+		});
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param pArgs The sizes of the diagrams to use, as numbers of classes.
+	 */
+	public static void main(String[] pArgs)
+	{
+		JavaFXLoader.load();
+		int[] sizes = DEFAULT_SIZES;
+		if( pArgs.length > 0 )
+		{
+			sizes = new int[pArgs.length];
+			for( int i = 0; i < pArgs.length; i++ )
+			{
+				sizes[i] = Integer.parseInt(pArgs[i]);
+			}
+		}
+		BenchmarkRunner.printHeader();
+		for( int size : sizes )
+		{
+			runBenchmarks(size);
+		}
+		Platform.exit();
+	}
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.edges.DependencyEdge;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.diagram.nodes.PackageNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class TestJetUMLBenchmarks
+{
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+
+	@Test
+	public void testCreateClassDiagram()
+	{
+		Diagram diagram = JetUMLBenchmarks.createClassDiagram(200);
+		assertEquals(200, diagram.allNodes().stream().filter(ClassNode.class::isInstance).count());
+		assertEquals(2, diagram.rootNodes().stream().filter(PackageNode.class::isInstance).count());
+		assertEquals(20, diagram.rootNodes().get(0).getChildren().size() + diagram.rootNodes().get(91).getChildren().size());
+		// 15 columns: 13 full rows and a row of 5 classes
+		assertEquals(13 * 14 + 4, diagram.edges().stream().filter(DependencyEdge.class::isInstance).count());
+	}
+}
@@ -513,4 +513,24 @@ public class TestControlFlow
 		assertTrue(returnEdges.contains(aReturnEdge));
 		assertTrue(returnEdges.contains(returnEdge1));
 	}
+	
+	@Test
+	void testCallGraph_SharedUntilDiagramChanges()
+	{
+		CallGraph graph = aDiagram.callGraph();
+		assertSame(graph, aDiagram.callGraph());
+		assertEquals(List.of(aCall3, aCall5), aFlow.getCallees(aCall2));
+		
+		CallNode callNode = new CallNode();
+		aParameter3.addChild(callNode);
+		aDiagramAccessor.connectAndAdd(aCallEdge4, aCall2, callNode);
+		assertEquals(List.of(aCall3, aCall5, callNode), aFlow.getCallees(aCall2));
+		assertSame(aCall2, aFlow.getCaller(callNode).get());
+		assertSame(aCall5, aFlow.getPreviousCallee(callNode));
+		
+		aDiagram.removeEdge(aCallEdge3);
+		assertEquals(List.of(aCall3, callNode), aFlow.getCallees(aCall2));
+		assertTrue(aFlow.getCaller(aCall5).isEmpty());
+		assertSame(aCall3, aFlow.getPreviousCallee(callNode));
+	}
 }
@@ -31,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.util.List;
 import java.util.stream.Stream;
 
+import org.jetuml.diagram.edges.DependencyEdge;
 import org.jetuml.diagram.nodes.AbstractNode;
 import org.jetuml.diagram.nodes.CallNode;
 import org.jetuml.diagram.nodes.ClassNode;
@@ -75,6 +76,33 @@ public class TestDiagram
 		assertFalse(aDiagram.containsAsRoot(aNode1));
 	}
 	
+	@Test
+	public void testEdgesConnectedTo()
+	{
+		aDiagram.addRootNode(aNode1);
+		aDiagram.addRootNode(aNode3);
+		Edge edge1 = new DependencyEdge();
+		edge1.connect(aNode1, aNode3, aDiagram);
+		Edge edge2 = new DependencyEdge();
+		edge2.connect(aNode1, aNode1, aDiagram);
+		Edge edge3 = new DependencyEdge();
+		edge3.connect(aNode3, aNode1, aDiagram);
+		aDiagram.addEdge(edge1);
+		aDiagram.addEdge(edge2);
+		assertEquals(List.of(edge1, edge2), aDiagram.edgesConnectedTo(aNode1));
+		assertEquals(List.of(edge1), aDiagram.edgesConnectedTo(aNode3));
+		
+		aDiagram.addEdge(0, edge3);
+		assertEquals(List.of(edge3, edge1, edge2), aDiagram.edgesConnectedTo(aNode1));
+		assertEquals(List.of(edge3, edge1), aDiagram.edgesConnectedTo(aNode3));
+		
+		aDiagram.removeEdge(edge1);
+		aDiagram.removeEdge(edge2);
+		assertEquals(List.of(edge3), aDiagram.edgesConnectedTo(aNode1));
+		aDiagram.removeEdge(edge3);
+		assertEquals(List.of(), aDiagram.edgesConnectedTo(aNode3));
+	}
+	
 	@ParameterizedTest
 	@MethodSource("argumentsForFileExtensions")
 	public void testFileExtensions(Diagram pDiagram, String pExtension)
@@ -145,4 +145,43 @@ public class TestDiagramDuplicate
 		assertSame(copy, n2Copy.getDiagram().get());
 		assertSame(copy, edgeCopy.getDiagram());
 	}
+	
+	@Test
+	public void test_DuplicateDoesNotModifyOriginal()
+	{
+		ClassNode n1 = new ClassNode();
+		ClassNode n2 = new ClassNode();
+		DependencyEdge edge = new DependencyEdge();
+		aClassDiagram.addRootNode(n1);
+		aClassDiagram.addRootNode(n2);
+		edge.connect(n1, n2, aClassDiagram);
+		aClassDiagram.addEdge(edge);
+		long revision = aClassDiagram.revision();
+		aClassDiagram.duplicate();
+		assertEquals(revision, aClassDiagram.revision());
+		assertSame(n1, edge.getStart());
+		assertSame(n2, edge.getEnd());
+		assertSame(aClassDiagram, edge.getDiagram());
+	}
+	
+	@Test
+	public void test_SnapshotSharedUntilModified()
+	{
+		ClassNode node = new ClassNode();
+		aClassDiagram.addRootNode(node);
+		Diagram snapshot = aClassDiagram.snapshot();
+		assertSame(snapshot, aClassDiagram.snapshot());
+		assertNotSame(node, snapshot.rootNodes().get(0));
+		
+		node.translate(10, 20);
+		assertEquals(0, snapshot.rootNodes().get(0).position().getX());
+		Diagram newSnapshot = aClassDiagram.snapshot();
+		assertNotSame(snapshot, newSnapshot);
+		assertEquals(10, newSnapshot.rootNodes().get(0).position().getX());
+		assertEquals(20, newSnapshot.rootNodes().get(0).position().getY());
+		
+		aClassDiagram.addRootNode(new ClassNode());
+		assertEquals(1, newSnapshot.rootNodes().size());
+		assertEquals(2, aClassDiagram.snapshot().rootNodes().size());
+	}
 }
@@ -33,6 +33,7 @@ import java.util.List;
 import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramElement;
 import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.Edge;
 import org.jetuml.diagram.Node;
 import org.jetuml.diagram.edges.DependencyEdge;
 import org.jetuml.diagram.edges.GeneralizationEdge;
@@ -377,6 +378,59 @@ public class TestClassDiagramBuilder
 		assertEquals(2, numberOfRootNodes());
 	}
 	
+	@Test
+	void testCreateRemoveElementsOperationManyElements()
+	{
+		List<ClassNode> nodes = new ArrayList<>();
+		for( int i = 0; i < 6; i++ )
+		{
+			ClassNode node = new ClassNode();
+			node.moveTo(new Point(i * 200, 0));
+			aDiagram.addRootNode(node);
+			nodes.add(node);
+		}
+		PackageNode packageNode = new PackageNode();
+		List<Node> children = Arrays.asList(new ClassNode(), new InterfaceNode(), new ClassNode());
+		children.forEach(packageNode::addChild);
+		aDiagram.addRootNode(packageNode);
+		List<DependencyEdge> edges = new ArrayList<>();
+		for( int i = 0; i < 5; i++ )
+		{
+			DependencyEdge edge = new DependencyEdge();
+			edge.connect(nodes.get(i), nodes.get(i + 1), aDiagram);
+			aDiagram.addEdge(edge);
+			edges.add(edge);
+		}
+		DependencyEdge childEdge = new DependencyEdge();
+		childEdge.connect(nodes.get(5), children.get(2), aDiagram);
+		aDiagram.addEdge(childEdge);
+		List<Node> rootNodes = new ArrayList<>(aDiagram.rootNodes());
+		List<Edge> allEdges = new ArrayList<>(aDiagram.edges());
+		
+		DiagramOperation operation = aBuilder.createRemoveElementsOperation(
+				Arrays.asList(nodes.get(3), nodes.get(1), children.get(0), children.get(2)));
+		operation.execute();
+		assertEquals(5, numberOfRootNodes());
+		assertEquals(Arrays.asList(edges.get(4)), aDiagram.edges());
+		assertEquals(Arrays.asList(children.get(1)), packageNode.getChildren());
+		assertFalse(aDiagram.edgesConnectedTo(nodes.get(2)).iterator().hasNext());
+		
+		operation.undo();
+		assertEquals(Arrays.asList(rootNodes.get(0), rootNodes.get(2), rootNodes.get(4), rootNodes.get(5), 
+				rootNodes.get(6), rootNodes.get(1), rootNodes.get(3)), aDiagram.rootNodes());
+		assertEquals(allEdges, aDiagram.edges());
+		assertEquals(children, packageNode.getChildren());
+		assertEquals(Arrays.asList(edges.get(1), edges.get(2)), toList(aDiagram.edgesConnectedTo(nodes.get(2))));
+		assertEquals(Arrays.asList(edges.get(4), childEdge), toList(aDiagram.edgesConnectedTo(nodes.get(5))));
+	}
+	
+	private static List<Edge> toList(Iterable<Edge> pEdges)
+	{
+		List<Edge> result = new ArrayList<>();
+		pEdges.forEach(result::add);
+		return result;
+	}
+	
 	@Test
 	void testCanAttachToPackageMultipleNodes()
 	{
@@ -25,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import org.jetuml.diagram.nodes.ClassNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -136,4 +137,44 @@ public class TestCompoundOperation
 		aOperation.add(new SimpleOperation(()-> aBuilder.append("A"), ()->aBuilder.append("1")));
 		assertFalse(aOperation.isEmpty());
 	}
+	
+	@Test
+	public void testMerge_SameSelection()
+	{
+		ClassNode node1 = new ClassNode();
+		ClassNode node2 = new ClassNode();
+		aOperation.add(DiagramBuilder.createMoveNodeOperation(node1, 10, 10));
+		aOperation.add(DiagramBuilder.createMoveNodeOperation(node2, 10, 10));
+		CompoundOperation next = new CompoundOperation();
+		next.add(DiagramBuilder.createMoveNodeOperation(node1, 5, 0));
+		next.add(DiagramBuilder.createMoveNodeOperation(node2, 5, 0));
+		DiagramOperation merged = aOperation.merge(next).get();
+		merged.execute();
+		assertEquals(15, node1.position().getX());
+		assertEquals(10, node2.position().getY());
+		merged.undo();
+		assertEquals(0, node1.position().getX());
+		assertEquals(0, node2.position().getY());
+	}
+	
+	@Test
+	public void testMerge_DifferentSelection()
+	{
+		ClassNode node1 = new ClassNode();
+		aOperation.add(DiagramBuilder.createMoveNodeOperation(node1, 10, 10));
+		CompoundOperation next = new CompoundOperation();
+		next.add(DiagramBuilder.createMoveNodeOperation(node1, 5, 0));
+		next.add(DiagramBuilder.createMoveNodeOperation(new ClassNode(), 5, 0));
+		assertTrue(aOperation.merge(next).isEmpty());
+		assertTrue(new CompoundOperation().merge(new CompoundOperation()).isEmpty());
+	}
+	
+	@Test
+	public void testMerge_SimpleOperations()
+	{
+		aOperation.add(new SimpleOperation(()-> aBuilder.append("A"), ()->aBuilder.deleteCharAt(0)));
+		CompoundOperation next = new CompoundOperation();
+		next.add(new SimpleOperation(()-> aBuilder.append("B"), ()->aBuilder.deleteCharAt(1)));
+		assertTrue(aOperation.merge(next).isEmpty());
+	}
 }
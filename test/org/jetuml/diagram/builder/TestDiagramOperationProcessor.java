@@ -25,6 +25,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import org.jetuml.diagram.PropertyName;
+import org.jetuml.diagram.nodes.ClassNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -280,4 +282,105 @@ public class TestDiagramOperationProcessor
 		aProcessor.redoLastUndoneOperation();
 		assertFalse(aProcessor.hasUnsavedOperations());
 	}
+	
+	@Test
+	public void testHistorySize_DiscardsOldest()
+	{
+		DiagramOperationProcessor processor = new DiagramOperationProcessor(2);
+		processor.executeNewOperation(createOperation('A'));
+		processor.executeNewOperation(createOperation('B'));
+		processor.executeNewOperation(createOperation('C'));
+		assertEquals("ABC", aBuilder.toString());
+		assertEquals(2, processor.numberOfUndoableOperations());
+		assertEquals(1, processor.numberOfDiscardedOperations());
+		processor.undoLastExecutedOperation();
+		processor.undoLastExecutedOperation();
+		assertFalse(processor.canUndo());
+		assertEquals("A", aBuilder.toString());
+		assertEquals(2, processor.numberOfRedoableOperations());
+		assertTrue(processor.hasUnsavedOperations());
+	}
+	
+	@Test
+	public void testHistorySize_SavedOperationDiscarded()
+	{
+		DiagramOperationProcessor processor = new DiagramOperationProcessor(1);
+		processor.executeNewOperation(createOperation('A'));
+		processor.diagramSaved();
+		processor.executeNewOperation(createOperation('B'));
+		assertTrue(processor.hasUnsavedOperations());
+		processor.undoLastExecutedOperation();
+		assertTrue(processor.hasUnsavedOperations());
+	}
+	
+	@Test
+	public void testDiagramRestored()
+	{
+		aProcessor.diagramRestored();
+		assertTrue(aProcessor.hasUnsavedOperations());
+		aProcessor.executeNewOperation(createOperation('A'));
+		aProcessor.undoLastExecutedOperation();
+		assertTrue(aProcessor.hasUnsavedOperations());
+		aProcessor.diagramSaved();
+		assertFalse(aProcessor.hasUnsavedOperations());
+	}
+	
+	@Test
+	public void testMerge_Moves()
+	{
+		ClassNode node = new ClassNode();
+		aProcessor.executeNewOperation(DiagramBuilder.createMoveNodeOperation(node, 10, 20));
+		aProcessor.storeAlreadyExecutedOperation(DiagramBuilder.createMoveNodeOperation(node, 5, 5));
+		assertEquals(1, aProcessor.numberOfUndoableOperations());
+		assertEquals(1, aProcessor.numberOfMergedOperations());
+		aProcessor.undoLastExecutedOperation();
+		assertEquals(-5, node.position().getX());
+		assertEquals(-5, node.position().getY());
+		assertFalse(aProcessor.canUndo());
+		aProcessor.redoLastUndoneOperation();
+		assertEquals(10, node.position().getX());
+		assertEquals(20, node.position().getY());
+	}
+	
+	@Test
+	public void testMerge_DifferentNodes()
+	{
+		aProcessor.executeNewOperation(DiagramBuilder.createMoveNodeOperation(new ClassNode(), 10, 20));
+		aProcessor.executeNewOperation(DiagramBuilder.createMoveNodeOperation(new ClassNode(), 10, 20));
+		assertEquals(2, aProcessor.numberOfUndoableOperations());
+		assertEquals(0, aProcessor.numberOfMergedOperations());
+	}
+	
+	@Test
+	public void testMerge_NotPastSave()
+	{
+		ClassNode node = new ClassNode();
+		aProcessor.executeNewOperation(DiagramBuilder.createMoveNodeOperation(node, 10, 20));
+		aProcessor.diagramSaved();
+		aProcessor.executeNewOperation(DiagramBuilder.createMoveNodeOperation(node, 10, 20));
+		assertEquals(2, aProcessor.numberOfUndoableOperations());
+		assertTrue(aProcessor.hasUnsavedOperations());
+		aProcessor.executeNewOperation(DiagramBuilder.createMoveNodeOperation(node, 10, 20));
+		assertEquals(2, aProcessor.numberOfUndoableOperations());
+		aProcessor.undoLastExecutedOperation();
+		assertFalse(aProcessor.hasUnsavedOperations());
+		assertEquals(10, node.position().getX());
+	}
+	
+	@Test
+	public void testMerge_PropertyChanges()
+	{
+		ClassNode node = new ClassNode();
+		node.setName("B");
+		aProcessor.storeAlreadyExecutedOperation(DiagramBuilder.createPropertyChangeOperation(
+				node.properties().get(PropertyName.NAME), "", "B"));
+		node.setName("C");
+		aProcessor.storeAlreadyExecutedOperation(DiagramBuilder.createPropertyChangeOperation(
+				node.properties().get(PropertyName.NAME), "B", "C"));
+		assertEquals(1, aProcessor.numberOfUndoableOperations());
+		aProcessor.undoLastExecutedOperation();
+		assertEquals("", node.getName());
+		aProcessor.redoLastUndoneOperation();
+		assertEquals("C", node.getName());
+	}
 }
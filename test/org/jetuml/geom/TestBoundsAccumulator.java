@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.geom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestBoundsAccumulator
+{
+	private final BoundsAccumulator aBounds = new BoundsAccumulator();
+	
+	@Test
+	public void testEmpty()
+	{
+		assertTrue(aBounds.isEmpty());
+	}
+	
+	@Test
+	public void testOneRectangle()
+	{
+		aBounds.add(new Rectangle(10, 20, 30, 40));
+		assertFalse(aBounds.isEmpty());
+		assertEquals(new Rectangle(10, 20, 30, 40), aBounds.toRectangle());
+	}
+	
+	@Test
+	public void testSameAsRectangleAdd()
+	{
+		Rectangle[] rectangles = { new Rectangle(10, 20, 30, 40), new Rectangle(-5, 30, 10, 100), 
+				new Rectangle(15, 25, 0, 0), new Rectangle(100, -50, 1, 1) };
+		Rectangle expected = rectangles[0];
+		for( Rectangle rectangle : rectangles )
+		{
+			expected = expected.add(rectangle);
+			aBounds.add(rectangle);
+		}
+		assertEquals(expected, aBounds.toRectangle());
+	}
+	
+	@Test
+	public void testPoints()
+	{
+		aBounds.add(5, 5);
+		assertEquals(new Rectangle(5, 5, 0, 0), aBounds.toRectangle());
+		aBounds.add(-5, 10);
+		aBounds.add(new Rectangle(0, 0, 1, 1));
+		assertEquals(new Rectangle(-5, 0, 10, 10), aBounds.toRectangle());
+	}
+	
+	@Test
+	public void testClear()
+	{
+		aBounds.add(new Rectangle(10, 20, 30, 40));
+		aBounds.clear();
+		assertTrue(aBounds.isEmpty());
+		aBounds.add(new Rectangle(50, 60, 1, 2));
+		assertEquals(new Rectangle(50, 60, 1, 2), aBounds.toRectangle());
+	}
+}
@@ -187,6 +187,29 @@ public class TestLine
 		}
 	}
 	
+	@Nested
+	@DisplayName("Test method spanningContains()")
+	class TestSpanningContains
+	{
+		@Test
+		@DisplayName("Same result as spanning().contains()")
+		void testSameAsSpanning()
+		{
+			Line[] lines = { new Line(0,0,0,0), new Line(1,1,5,6), new Line(5,6,1,1), new Line(5,0,5,10) };
+			for( Line line : lines )
+			{
+				for( int x = -1; x <= 7; x++ )
+				{
+					for( int y = -1; y <= 11; y++ )
+					{
+						Point point = new Point(x, y);
+						assertEquals(line.spanning().contains(point), line.spanningContains(point));
+					}
+				}
+			}
+		}
+	}
+	
 	@Nested
 	@DisplayName("Test line equality")
 	class TestEquality
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.geom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class TestPackedPoint
+{
+	@Test
+	public void testPackAndUnpack()
+	{
+		int[] coordinates = {0, 1, -1, 1000, -1000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		for( int x : coordinates )
+		{
+			for( int y : coordinates )
+			{
+				long packed = PackedPoint.pack(x, y);
+				assertEquals(x, PackedPoint.x(packed));
+				assertEquals(y, PackedPoint.y(packed));
+				assertEquals(new Point(x, y), PackedPoint.toPoint(packed));
+			}
+		}
+	}
+	
+	@Test
+	public void testPackPoint()
+	{
+		assertEquals(PackedPoint.pack(-3, 7), PackedPoint.pack(new Point(-3, 7)));
+	}
+	
+	@Test
+	public void testDistinct()
+	{
+		assertNotEquals(PackedPoint.pack(1, 2), PackedPoint.pack(2, 1));
+		assertNotEquals(PackedPoint.pack(0, -1), PackedPoint.pack(-1, -1));
+		assertNotEquals(PackedPoint.pack(0, -1), PackedPoint.pack(-1, 0));
+	}
+}
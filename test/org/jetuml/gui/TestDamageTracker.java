@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.gui;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.Node;
+import org.jetuml.diagram.edges.DependencyEdge;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.geom.Rectangle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestDamageTracker
+{
+	// A stub that returns a 40x60 rectangle with origin at the node's position, 
+	// and the rectangle between the origins of the end nodes for edges.
+	private static final Function<DiagramElement, Rectangle> BOUND_CALCULATOR_STUB = element ->
+	{
+		if( element instanceof Node )
+		{
+			Node node = (Node) element;
+			return new Rectangle(node.position().getX(), node.position().getY(), 40, 60);
+		}
+		Edge edge = (Edge) element;
+		return new Rectangle(edge.getStart().position().getX(), edge.getStart().position().getY(), 0, 0)
+				.add(edge.getEnd().position());
+	};
+	
+	private DamageTracker aTracker = new DamageTracker(BOUND_CALCULATOR_STUB);
+	private Diagram aDiagram = new Diagram(DiagramType.CLASS);
+	private ClassNode aNode1;
+	private ClassNode aNode2;
+	private ClassNode aNode3;
+	private DependencyEdge aEdge;
+	
+	@BeforeEach
+	void setup()
+	{
+		aNode1 = new ClassNode();
+		aNode1.translate(100, 100);
+		aNode2 = new ClassNode();
+		aNode2.translate(400, 100);
+		aNode3 = new ClassNode();
+		aNode3.translate(100, 400);
+		aDiagram.addRootNode(aNode1);
+		aDiagram.addRootNode(aNode2);
+		aDiagram.addRootNode(aNode3);
+		aEdge = new DependencyEdge();
+		aEdge.connect(aNode1, aNode2, aDiagram);
+		aDiagram.addEdge(aEdge);
+	}
+	
+	@Test
+	void testNotTrackingInitially()
+	{
+		assertFalse(aTracker.isTracking());
+		assertTrue(aTracker.update(aDiagram, emptyList(), Optional.empty()).isEmpty());
+		assertTrue(aTracker.isTracking());
+	}
+	
+	@Test
+	void testReset()
+	{
+		aTracker.update(aDiagram, emptyList(), Optional.empty());
+		aTracker.reset();
+		assertFalse(aTracker.isTracking());
+	}
+	
+	@Test
+	void testNoChange()
+	{
+		aTracker.update(aDiagram, emptyList(), Optional.empty());
+		assertTrue(aTracker.update(aDiagram, emptyList(), Optional.empty()).isEmpty());
+	}
+	
+	@Test
+	void testMoveIsolatedNode()
+	{
+		aTracker.update(aDiagram, emptyList(), Optional.empty());
+		aNode3.translate(20, 0);
+		assertEquals(Optional.of(new Rectangle(90, 390, 80, 80)), 
+				aTracker.update(aDiagram, emptyList(), Optional.empty()));
+	}
+	
+	@Test
+	void testMoveNodeDamagesEdge()
+	{
+		aTracker.update(aDiagram, emptyList(), Optional.empty());
+		aNode2.translate(0, 20);
+		// Old and new bounds of aNode2 and of the edge.
+		assertEquals(Optional.of(new Rectangle(90, 90, 360, 100)), 
+				aTracker.update(aDiagram, emptyList(), Optional.empty()));
+	}
+	
+	@Test
+	void testRemoveNode()
+	{
+		aTracker.update(aDiagram, emptyList(), Optional.empty());
+		aDiagram.removeRootNode(aNode3);
+		assertEquals(Optional.of(new Rectangle(90, 390, 60, 80)), 
+				aTracker.update(aDiagram, emptyList(), Optional.empty()));
+	}
+	
+	@Test
+	void testSelectionChange()
+	{
+		aTracker.update(aDiagram, emptyList(), Optional.empty());
+		assertEquals(Optional.of(new Rectangle(90, 390, 60, 80)), 
+				aTracker.update(aDiagram, asList(aNode3), Optional.empty()));
+		assertTrue(aTracker.update(aDiagram, asList(aNode3), Optional.empty()).isEmpty());
+		assertEquals(Optional.of(new Rectangle(90, 390, 60, 80)), 
+				aTracker.update(aDiagram, emptyList(), Optional.empty()));
+	}
+	
+	@Test
+	void testToolChange()
+	{
+		aTracker.update(aDiagram, emptyList(), Optional.of(new Rectangle(0, 0, 10, 10)));
+		assertEquals(Optional.of(new Rectangle(-10, -10, 50, 50)), 
+				aTracker.update(aDiagram, emptyList(), Optional.of(new Rectangle(0, 0, 30, 30))));
+		assertEquals(Optional.of(new Rectangle(-10, -10, 50, 50)), 
+				aTracker.update(aDiagram, emptyList(), Optional.empty()));
+	}
+}
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.gui;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.edges.DependencyEdge;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.diagram.nodes.PackageNode;
+import org.jetuml.geom.Point;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.CanvasSurface;
+import org.jetuml.rendering.DiagramRenderer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+public class TestDragBackground
+{
+	private static final double LINE_WIDTH = 0.6;
+	private static final Rectangle AREA = new Rectangle(0, 0, 700, 500);
+	
+	private Diagram aDiagram = new Diagram(DiagramType.CLASS);
+	private DiagramRenderer aRenderer = DiagramType.newRendererInstanceFor(aDiagram);
+	private ClassNode aNode1 = new ClassNode();
+	private ClassNode aNode2 = new ClassNode();
+	private ClassNode aNode3 = new ClassNode();
+	private ClassNode aNode4 = new ClassNode();
+	private PackageNode aPackage = new PackageNode();
+	private ClassNode aChild = new ClassNode();
+	private DependencyEdge aEdge12 = new DependencyEdge();
+	private DependencyEdge aEdge23 = new DependencyEdge();
+	private DependencyEdge aEdge34 = new DependencyEdge();
+	
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+	
+	@BeforeEach
+	void setup()
+	{
+		aNode2.moveTo(new Point(200, 0));
+		aNode3.moveTo(new Point(400, 0));
+		aNode4.moveTo(new Point(400, 200));
+		aPackage.moveTo(new Point(0, 300));
+		aPackage.addChild(aChild);
+		aDiagram.addRootNode(aNode1);
+		aDiagram.addRootNode(aNode2);
+		aDiagram.addRootNode(aNode3);
+		aDiagram.addRootNode(aNode4);
+		aDiagram.addRootNode(aPackage);
+		aEdge12.connect(aNode1, aNode2, aDiagram);
+		aDiagram.addEdge(aEdge12);
+		aEdge23.connect(aNode2, aNode3, aDiagram);
+		aDiagram.addEdge(aEdge23);
+		aEdge34.connect(aNode3, aNode4, aDiagram);
+		aDiagram.addEdge(aEdge34);
+		aRenderer.computeGeometry();
+	}
+	
+	private static <T> T onFxThread(Callable<T> pTask) throws Exception
+	{
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Platform.runLater(() -> 
+		{
+			try
+			{
+				result.complete(pTask.call());
+			}
+			catch( Exception exception )
+			{
+				result.completeExceptionally(exception);
+			}
+		});
+		return result.get();
+	}
+	
+	/*
+	 * Paints AREA as DiagramCanvas.paint does, with or without a drag background.
+	 */
+	private WritableImage paint(DragBackground pBackground)
+	{
+		Canvas canvas = new Canvas(AREA.getWidth(), AREA.getHeight());
+		GraphicsContext context = canvas.getGraphicsContext2D();
+		context.setLineWidth(LINE_WIDTH);
+		context.setFill(Color.WHITE);
+		if( pBackground == null )
+		{
+			context.fillRect(0, 0, AREA.getWidth(), AREA.getHeight());
+			aRenderer.draw(new CanvasSurface(context), AREA);
+		}
+		else
+		{
+			pBackground.draw(context, AREA);
+			aRenderer.draw(new CanvasSurface(context), AREA, pBackground::isMoving);
+		}
+		return canvas.snapshot(null, null);
+	}
+	
+	@Test
+	void testIsMoving_Node()
+	{
+		DragBackground background = new DragBackground(aRenderer, List.<DiagramElement>of(aNode1));
+		assertTrue(background.isMoving(aNode1));
+		assertTrue(background.isMoving(aEdge12));
+		assertTrue(background.isMoving(aEdge23));
+		assertFalse(background.isMoving(aEdge34));
+		assertFalse(background.isMoving(aNode2));
+		assertFalse(background.isMoving(aPackage));
+	}
+	
+	@Test
+	void testIsMoving_Child()
+	{
+		DragBackground background = new DragBackground(aRenderer, List.<DiagramElement>of(aChild));
+		assertTrue(background.isMoving(aPackage));
+		assertFalse(background.isMoving(aNode1));
+		assertFalse(background.isMoving(aEdge12));
+	}
+	
+	@Test
+	void testIsMoving_Edge()
+	{
+		DragBackground background = new DragBackground(aRenderer, asList(aEdge34, aNode4));
+		assertTrue(background.isMoving(aEdge34));
+		assertTrue(background.isMoving(aNode4));
+		assertTrue(background.isMoving(aEdge23));
+		assertFalse(background.isMoving(aEdge12));
+	}
+	
+	@Test
+	void testIsUnchanged()
+	{
+		DragBackground background = new DragBackground(aRenderer, List.<DiagramElement>of(aNode1));
+		aNode1.translate(0, 100);
+		aRenderer.computeGeometry();
+		assertTrue(background.isUnchanged());
+		aNode4.translate(100, 0);
+		aRenderer.computeGeometry();
+		assertFalse(background.isUnchanged());
+	}
+	
+	@Test
+	void testCovers() throws Exception
+	{
+		DragBackground background = new DragBackground(aRenderer, List.<DiagramElement>of(aNode1));
+		assertFalse(background.covers(AREA));
+		onFxThread(() -> 
+		{
+			background.render(AREA, LINE_WIDTH, false, 1);
+			return null;
+		});
+		assertTrue(background.covers(AREA));
+		assertTrue(background.covers(new Rectangle(10, 10, 100, 100)));
+		assertFalse(background.covers(new Rectangle(10, 10, 1000, 100)));
+	}
+	
+	@Test
+	void testPaintSameAsWithoutBackground() throws Exception
+	{
+		DragBackground background = new DragBackground(aRenderer, List.<DiagramElement>of(aNode1));
+		onFxThread(() -> 
+		{
+			background.render(AREA, LINE_WIDTH, false, 1);
+			return null;
+		});
+		aNode1.translate(0, 100);
+		aRenderer.computeGeometry();
+		PixelReader expected = onFxThread(() -> paint(null)).getPixelReader();
+		PixelReader actual = onFxThread(() -> paint(background)).getPixelReader();
+		for( int y = 0; y < AREA.getHeight(); y++ )
+		{
+			for( int x = 0; x < AREA.getWidth(); x++ )
+			{
+				assertEquals(expected.getArgb(x, y), actual.getArgb(x, y));
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.persistence.PersistenceService;
+import org.jetuml.persistence.VersionedDiagram;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class TestOpenFileTask
+{
+	private static final File TEST_FILE = new File("testdata/testPersistenceService.class.jet");
+	
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+	
+	@Test
+	public void testOpen() throws Exception
+	{
+		OpenFileTask task = new OpenFileTask(TEST_FILE);
+		task.run();
+		VersionedDiagram result = task.get();
+		assertEquals(PersistenceService.read(TEST_FILE).diagram().rootNodes().size(), result.diagram().rootNodes().size());
+		assertEquals(TEST_FILE, task.getFile());
+	}
+	
+	@Test
+	public void testOpenMissingFile()
+	{
+		OpenFileTask task = new OpenFileTask(new File("testdata/missing.class.jet"));
+		task.run();
+		ExecutionException exception = assertThrows(ExecutionException.class, task::get);
+		assertTrue(exception.getCause() instanceof IOException);
+	}
+	
+	@Test
+	public void testCancelled()
+	{
+		OpenFileTask task = new OpenFileTask(TEST_FILE);
+		task.cancel();
+		task.run();
+		assertThrows(CancellationException.class, task::get);
+	}
+}
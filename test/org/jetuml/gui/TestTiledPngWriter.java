@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import javax.imageio.ImageIO;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.persistence.PersistenceService;
+import org.jetuml.rendering.CanvasSurface;
+import org.jetuml.rendering.DiagramRenderer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javafx.application.Platform;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+public class TestTiledPngWriter
+{
+	private static final int PADDING = 4;
+	private static final double LINE_WIDTH = 0.6;
+	/* Anti-aliasing can differ slightly when a shape is drawn in pieces. */
+	private static final int TOLERANCE = 4;
+	
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+	
+	private static <T> T onFxThread(Callable<T> pTask) throws Exception
+	{
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Platform.runLater(() -> 
+		{
+			try
+			{
+				result.complete(pTask.call());
+			}
+			catch( Exception exception )
+			{
+				result.completeExceptionally(exception);
+			}
+		});
+		return result.get();
+	}
+	
+	/*
+	 * Draws the diagram in a single canvas, as DiagramCanvas.createImage does.
+	 */
+	private static BufferedImage drawWhole(DiagramRenderer pRenderer)
+	{
+		Rectangle bounds = pRenderer.getBounds();
+		Canvas canvas = new Canvas(bounds.getWidth() + PADDING * 2, bounds.getHeight() + PADDING * 2);
+		GraphicsContext context = canvas.getGraphicsContext2D();
+		context.setLineWidth(LINE_WIDTH);
+		context.setFill(Color.WHITE);
+		context.translate(-bounds.getX() + PADDING, -bounds.getY() + PADDING);
+		pRenderer.draw(new CanvasSurface(context));
+		WritableImage image = new WritableImage(bounds.getWidth() + PADDING * 2, bounds.getHeight() + PADDING * 2);
+		canvas.snapshot(null, image);
+		return SwingFXUtils.fromFXImage(image, null);
+	}
+	
+	private static boolean sameColor(int pExpected, int pActual)
+	{
+		for( int shift = 0; shift <= 16; shift += 8 )
+		{
+			if( Math.abs((pExpected >> shift & 0xff) - (pActual >> shift & 0xff)) > TOLERANCE )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Test
+	public void testTilesMatchSingleImage() throws Exception
+	{
+		DiagramRenderer renderer = DiagramType.newRendererInstanceFor(
+				PersistenceService.read(new File("testdata/testPersistenceService.class.jet")).diagram());
+		BufferedImage expected = onFxThread(() -> drawWhole(renderer));
+		byte[] png = onFxThread(() -> 
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			TiledPngWriter.write(renderer, PADDING, LINE_WIDTH, 64, out);
+			return out.toByteArray();
+		});
+		BufferedImage actual = ImageIO.read(new ByteArrayInputStream(png));
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for( int y = 0; y < expected.getHeight(); y++ )
+		{
+			for( int x = 0; x < expected.getWidth(); x++ )
+			{
+				assertTrue(sameColor(expected.getRGB(x, y), actual.getRGB(x, y)), "Pixel " + x + "," + y);
+			}
+		}
+	}
+}
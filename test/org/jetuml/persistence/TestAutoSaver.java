@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.PropertyName;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestAutoSaver
+{
+	private static final File TEMPORARY_DIRECTORY = new File("testdata/tmp");
+	private static final File TEST_FILE = new File("testdata/testPersistenceService.class.jet");
+	
+	private AutoSaver aAutoSaver;
+	private Diagram aDiagram;
+	
+	@BeforeEach
+	public void setUp() throws IOException
+	{
+		aAutoSaver = new AutoSaver(TEMPORARY_DIRECTORY);
+		aDiagram = new Diagram(DiagramType.CLASS);
+		aDiagram.addRootNode(new ClassNode());
+	}
+	
+	@AfterEach
+	public void tearDown()
+	{
+		aAutoSaver.close();
+		delete(TEMPORARY_DIRECTORY);
+	}
+	
+	private static void delete(File pFile)
+	{
+		File[] files = pFile.listFiles();
+		if( files != null )
+		{
+			for( File file : files )
+			{
+				delete(file);
+			}
+		}
+		pFile.delete();
+	}
+	
+	/*
+	 * Returns the copies of diagrams in the session directories.
+	 */
+	private static File[] copies()
+	{
+		return TEMPORARY_DIRECTORY.listFiles(file -> file.isDirectory())[0].listFiles(file -> file.getName().endsWith(".jet"));
+	}
+	
+	@Test
+	public void testSave() throws Exception
+	{
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.flush();
+		File[] copies = copies();
+		assertEquals(1, copies.length);
+		assertTrue(copies[0].getName().endsWith(".class.jet"));
+		assertEquals(1, PersistenceService.read(copies[0]).diagram().rootNodes().size());
+	}
+	
+	@Test
+	public void testSaveOnlyWhenModified() throws Exception
+	{
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.flush();
+		File copy = copies()[0];
+		copy.delete();
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.flush();
+		assertFalse(copy.exists());
+		
+		aDiagram.addRootNode(new ClassNode());
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.flush();
+		assertEquals(2, PersistenceService.read(copy).diagram().rootNodes().size());
+	}
+	
+	@Test
+	public void testSaveAfterPropertyChange() throws Exception
+	{
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.flush();
+		aDiagram.rootNodes().get(0).properties().get(PropertyName.NAME).set("Name");
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.flush();
+		assertEquals("Name", ((ClassNode) PersistenceService.read(copies()[0]).diagram().rootNodes().get(0)).getName());
+	}
+	
+	@Test
+	public void testDiscard()
+	{
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.discard(aDiagram);
+		aAutoSaver.flush();
+		assertEquals(0, copies().length);
+	}
+	
+	@Test
+	public void testRecoverSkipsRunningSession() throws IOException
+	{
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.flush();
+		AutoSaver other = new AutoSaver(TEMPORARY_DIRECTORY);
+		assertTrue(other.recover().isEmpty());
+		other.close();
+	}
+	
+	@Test
+	public void testRecoverAbandonedSession() throws IOException
+	{
+		File abandoned = new File(TEMPORARY_DIRECTORY, "abandoned");
+		abandoned.mkdir();
+		Files.copy(TEST_FILE.toPath(), new File(abandoned, "diagram1.class.jet").toPath());
+		List<Diagram> recovered = aAutoSaver.recover();
+		aAutoSaver.flush();
+		assertEquals(1, recovered.size());
+		assertEquals(PersistenceService.read(TEST_FILE).diagram().rootNodes().size(), recovered.get(0).rootNodes().size());
+		assertFalse(abandoned.exists());
+		assertEquals(1, copies().length);
+	}
+	
+	@Test
+	public void testRecoverNothingWhileDirectoryLocked() throws IOException
+	{
+		File abandoned = new File(TEMPORARY_DIRECTORY, "abandoned");
+		abandoned.mkdir();
+		Files.copy(TEST_FILE.toPath(), new File(abandoned, "diagram1.class.jet").toPath());
+		try( FileChannel channel = FileChannel.open(new File(TEMPORARY_DIRECTORY, "autosave.lock").toPath(), 
+				StandardOpenOption.WRITE); FileLock lock = channel.lock() )
+		{
+			assertTrue(aAutoSaver.recover().isEmpty());
+		}
+		assertTrue(abandoned.exists());
+		assertEquals(1, aAutoSaver.recover().size());
+	}
+	
+	@Test
+	public void testClose()
+	{
+		aAutoSaver.save(aDiagram);
+		aAutoSaver.close();
+		assertEquals(0, TEMPORARY_DIRECTORY.listFiles(File::isDirectory).length);
+	}
+}
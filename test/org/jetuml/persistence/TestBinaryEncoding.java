@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.JetUML;
+import org.jetuml.diagram.Diagram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TestBinaryEncoding
+{
+	private static final Path PATH_TEST_FILES = Path.of("testdata");
+	private static final File TEMPORARY_FILE = PATH_TEST_FILES.resolve("tmp").toFile();
+
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+
+	@AfterEach
+	public void tearDown()
+	{
+		TEMPORARY_FILE.delete();
+	}
+
+	private static Diagram load(String pFileName) throws IOException
+	{
+		return PersistenceService.read(PATH_TEST_FILES.resolve(pFileName).toFile()).diagram();
+	}
+
+	private static byte[] encode(Diagram pDiagram) throws IOException
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BinaryEncoder.encode(pDiagram, output);
+		return output.toByteArray();
+	}
+
+	/*
+	 * The JSON encoding of the diagram is used to compare all the information
+	 * that is saved about the diagram.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"testPersistenceService.class.jet",
+							"testPersistenceService2.class.jet",
+							"testPersistenceService.sequence.jet",
+							"testPersistenceService.state.jet",
+							"testPersistenceService.object.jet",
+							"testPersistenceService.usecase.jet"})
+	public void testRoundTrip(String pFileName) throws IOException
+	{
+		Diagram diagram = load(pFileName);
+		VersionedDiagram decoded = BinaryDecoder.decode(ByteBuffer.wrap(encode(diagram)));
+		assertEquals(JetUML.VERSION, decoded.version());
+		assertFalse(decoded.wasMigrated());
+		assertEquals(JsonEncoder.encode(diagram).toString(), JsonEncoder.encode(decoded.diagram()).toString());
+	}
+
+	@Test
+	public void testSmallerThanJson() throws IOException
+	{
+		Diagram diagram = load("testPersistenceService.class.jet");
+		assertTrue(encode(diagram).length <
+				JsonEncoder.encode(diagram).toString().getBytes(StandardCharsets.UTF_8).length);
+	}
+
+	@Test
+	public void testIsBinary() throws IOException
+	{
+		assertTrue(BinaryDecoder.isBinary(ByteBuffer.wrap(encode(load("testPersistenceService.class.jet")))));
+		assertFalse(BinaryDecoder.isBinary(ByteBuffer.wrap("{\"version\"".getBytes(StandardCharsets.UTF_8))));
+		assertFalse(BinaryDecoder.isBinary(ByteBuffer.wrap(new byte[] {'J', 'E'})));
+		assertFalse(PersistenceService.isBinary(PATH_TEST_FILES.resolve("testPersistenceService.class.jet").toFile()));
+	}
+
+	@Test
+	public void testReadStream() throws IOException
+	{
+		Diagram diagram = load("testPersistenceService.state.jet");
+		Diagram decoded = PersistenceService.read(new ByteArrayInputStream(encode(diagram))).diagram();
+		assertEquals(JsonEncoder.encode(diagram).toString(), JsonEncoder.encode(decoded).toString());
+	}
+
+	@Test
+	public void testTruncated() throws IOException
+	{
+		byte[] encoding = encode(load("testPersistenceService.class.jet"));
+		ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(encoding, encoding.length / 2));
+		assertThrows(DeserializationException.class, () -> BinaryDecoder.decode(truncated));
+	}
+
+	@Test
+	public void testUnknownFormatVersion() throws IOException
+	{
+		byte[] encoding = encode(load("testPersistenceService.class.jet"));
+		encoding[BinaryEncoder.MAGIC.length] = BinaryEncoder.FORMAT_VERSION + 1;
+		assertThrows(DeserializationException.class, () -> BinaryDecoder.decode(ByteBuffer.wrap(encoding)));
+	}
+
+	/*
+	 * Replaces the number of entries of the string table, which follows the
+	 * format version, with a corrupt varint.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"ffffffff07", "ffffffff0f", "808080808001", "7f"})
+	public void testCorruptLengthPrefix(String pCount) throws IOException
+	{
+		byte[] encoding = encode(load("testPersistenceService.class.jet"));
+		int offset = BinaryEncoder.MAGIC.length + 1;
+		assertTrue(encoding[offset] >= 0);
+		byte[] count = HexFormat.of().parseHex(pCount);
+		ByteBuffer corrupt = ByteBuffer.allocate(encoding.length - 1 + count.length);
+		corrupt.put(encoding, 0, offset).put(count).put(encoding, offset + 1, encoding.length - offset - 1).flip();
+		assertThrows(DeserializationException.class, () -> BinaryDecoder.decode(corrupt));
+	}
+
+	@Test
+	public void testReadFileThenOverwrite() throws IOException
+	{
+		Diagram diagram = load("testPersistenceService.state.jet");
+		PersistenceService.saveBinary(diagram, TEMPORARY_FILE);
+		Diagram decoded = PersistenceService.read(TEMPORARY_FILE).diagram();
+		PersistenceService.saveBinary(load("testPersistenceService.object.jet"), TEMPORARY_FILE);
+		assertEquals(JsonEncoder.encode(diagram).toString(), JsonEncoder.encode(decoded).toString());
+		assertEquals(JsonEncoder.encode(load("testPersistenceService.object.jet")).toString(), 
+				JsonEncoder.encode(PersistenceService.read(TEMPORARY_FILE).diagram()).toString());
+	}
+
+	@Test
+	public void testConvert() throws IOException
+	{
+		Files.copy(PATH_TEST_FILES.resolve("testPersistenceService.object.jet"), TEMPORARY_FILE.toPath());
+		String json = JsonEncoder.encode(load("testPersistenceService.object.jet")).toString();
+
+		FormatConverter.convert(TEMPORARY_FILE, true);
+		assertTrue(PersistenceService.isBinary(TEMPORARY_FILE));
+		assertArrayEquals(encode(PersistenceService.read(TEMPORARY_FILE).diagram()),
+				Files.readAllBytes(TEMPORARY_FILE.toPath()));
+
+		FormatConverter.convert(TEMPORARY_FILE, false);
+		assertFalse(PersistenceService.isBinary(TEMPORARY_FILE));
+		assertEquals(json, JsonEncoder.encode(PersistenceService.read(TEMPORARY_FILE).diagram()).toString());
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.edges.DependencyEdge;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.diagram.nodes.PackageNode;
+import org.jetuml.geom.Point;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Compares the time needed to create the elements of a large diagram
+ * when decoding it through the registry of JsonDecoder and through reflection.
+ */
+public final class TestDecodingPerformance
+{
+	private static final int NUMBER_OF_TRIALS = 10;
+	private static final int NUMBER_OF_PACKAGES = 200;
+	private static final int CLASSES_PER_PACKAGE = 25;
+	private static final String PREFIX_NODES = "org.jetuml.diagram.nodes.";
+	private static final String PREFIX_EDGES = "org.jetuml.diagram.edges.";
+
+	private TestDecodingPerformance() {}
+
+	/*
+	 * Creates a class diagram with packages of classes, with a dependency
+	 * from each class to the next one.
+	 */
+	private static Diagram createDiagram()
+	{
+		Diagram diagram = new Diagram(DiagramType.CLASS);
+		ClassNode previous = null;
+		for( int i = 0; i < NUMBER_OF_PACKAGES; i++ )
+		{
+			PackageNode packageNode = new PackageNode();
+			packageNode.moveTo(new Point(i * 10, i * 10));
+			diagram.addRootNode(packageNode);
+			for( int j = 0; j < CLASSES_PER_PACKAGE; j++ )
+			{
+				ClassNode classNode = new ClassNode();
+				classNode.setName("Class" + i + "_" + j);
+				packageNode.addChild(classNode);
+				if( previous != null )
+				{
+					DependencyEdge edge = new DependencyEdge();
+					edge.connect(previous, classNode, diagram);
+					diagram.addEdge(edge);
+				}
+				previous = classNode;
+			}
+		}
+		return diagram;
+	}
+
+	private static void createWithRegistry(JSONObject pEncoding)
+	{
+		JSONArray nodes = pEncoding.getJSONArray("nodes");
+		for( int i = 0; i < nodes.length(); i++ )
+		{
+			JsonDecoder.createNode(nodes.getJSONObject(i).getString("type"));
+		}
+		JSONArray edges = pEncoding.getJSONArray("edges");
+		for( int i = 0; i < edges.length(); i++ )
+		{
+			JsonDecoder.createEdge(edges.getJSONObject(i).getString("type"));
+		}
+	}
+
+	private static void createWithReflection(JSONObject pEncoding) throws ReflectiveOperationException
+	{
+		JSONArray nodes = pEncoding.getJSONArray("nodes");
+		for( int i = 0; i < nodes.length(); i++ )
+		{
+			Class.forName(PREFIX_NODES + nodes.getJSONObject(i).getString("type")).getDeclaredConstructor().newInstance();
+		}
+		JSONArray edges = pEncoding.getJSONArray("edges");
+		for( int i = 0; i < edges.length(); i++ )
+		{
+			Class.forName(PREFIX_EDGES + edges.getJSONObject(i).getString("type")).getDeclaredConstructor().newInstance();
+		}
+	}
+
+	private static double averageMillis(Trial pTrial) throws ReflectiveOperationException
+	{
+		double total = 0;
+		for( int i = 0; i < NUMBER_OF_TRIALS + 1; i++ )
+		{
+			Instant start = Instant.now();
+			pTrial.run();
+			Instant stop = Instant.now();
+			if( i > 0 ) // The first trial warms up the JVM
+			{
+				total += Duration.between(start, stop).toMillis();
+			}
+		}
+		return total / NUMBER_OF_TRIALS;
+	}
+
+	/**
+	 * Test method.
+	 *
+	 * @param pArgs Not used.
+	 * @throws ReflectiveOperationException If the reflective path fails.
+	 */
+	public static void main(String[] pArgs) throws ReflectiveOperationException
+	{
+		JSONObject encoding = JsonEncoder.encode(createDiagram());
+		System.out.println("Average Duration (ms) of " + NUMBER_OF_TRIALS + " trials with " +
+				encoding.getJSONArray("nodes").length() + " nodes and " +
+				encoding.getJSONArray("edges").length() + " edges:");
+		System.out.println("Create elements with registry : " + averageMillis(() -> createWithRegistry(encoding)));
+		System.out.println("Create elements with reflection : " + averageMillis(() -> createWithReflection(encoding)));
+		System.out.println("JsonDecoder.decode : " + averageMillis(() -> JsonDecoder.decode(encoding)));
+	}
+
+	private interface Trial
+	{
+		void run() throws ReflectiveOperationException;
+	}
+}
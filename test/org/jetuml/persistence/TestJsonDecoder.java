@@ -20,9 +20,14 @@
  *******************************************************************************/
 package org.jetuml.persistence;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import org.jetuml.JavaFXLoader;
+import org.jetuml.diagram.DiagramElement;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.Node;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -58,4 +63,45 @@ public class TestJsonDecoder
 		object.put("diagram", "StateDiagram");
 		assertThrows(DeserializationException.class, () -> JsonDecoder.decode(object));
 	}
+	
+	/*
+	 * Try to decode a JSON object with a node
+	 * of a type that does not exist.
+	 */
+	@Test
+	public void testUnknownNodeType()
+	{
+		JSONObject node = new JSONObject();
+		node.put("type", "Node");
+		node.put("id", 0);
+		node.put("x", 0);
+		node.put("y", 0);
+		JSONObject object = new JSONObject();
+		object.put("version", "1.2");
+		object.put("diagram", "StateDiagram");
+		object.put("nodes", new JSONArray().put(node));
+		object.put("edges", new JSONArray());
+		assertThrows(DeserializationException.class, () -> JsonDecoder.decode(object));
+	}
+	
+	@Test
+	public void testCreateElementsOfAllPrototypes()
+	{
+		for( DiagramType type : DiagramType.values() )
+		{
+			for( DiagramElement prototype : type.getPrototypes() )
+			{
+				String name = prototype.getClass().getSimpleName();
+				DiagramElement element = prototype instanceof Node ? 
+						JsonDecoder.createNode(name) : JsonDecoder.createEdge(name);
+				assertSame(prototype.getClass(), element.getClass());
+			}
+		}
+	}
+	
+	@Test
+	public void testCreateEdgeWithNodeType()
+	{
+		assertThrows(DeserializationException.class, () -> JsonDecoder.createEdge("ClassNode"));
+	}
 }
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.JetUML;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.edges.DependencyEdge;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.diagram.nodes.PackageNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class TestJsonStreamDecoder
+{
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+
+	/*
+	 * Creates a diagram with a class node contained in a package node,
+	 * another class node, and a dependency between the two classes.
+	 */
+	private static Diagram createDiagram()
+	{
+		Diagram diagram = new Diagram(DiagramType.CLASS);
+		PackageNode p = new PackageNode();
+		p.setName("package");
+		ClassNode c1 = new ClassNode();
+		c1.setName("class1");
+		p.addChild(c1);
+		ClassNode c2 = new ClassNode();
+		c2.setName("class2");
+		diagram.addRootNode(p);
+		diagram.addRootNode(c2);
+		DependencyEdge edge = new DependencyEdge();
+		edge.connect(c1, c2, diagram);
+		diagram.addEdge(edge);
+		return diagram;
+	}
+
+	private static void assertDecoded(Diagram pDiagram)
+	{
+		assertEquals(2, pDiagram.rootNodes().size());
+		PackageNode p = (PackageNode) pDiagram.rootNodes().get(0);
+		assertEquals("package", p.getName());
+		assertEquals(1, p.getChildren().size());
+		ClassNode c1 = (ClassNode) p.getChildren().get(0);
+		assertSame(p, c1.getParent());
+		assertEquals("class1", c1.getName());
+		ClassNode c2 = (ClassNode) pDiagram.rootNodes().get(1);
+		assertEquals("class2", c2.getName());
+		assertEquals(1, pDiagram.edges().size());
+		Edge edge = pDiagram.edges().get(0);
+		assertTrue(edge instanceof DependencyEdge);
+		assertSame(c1, edge.getStart());
+		assertSame(c2, edge.getEnd());
+		assertSame(pDiagram, edge.getDiagram());
+	}
+
+	@Test
+	public void testDecodeStreamedEncoding() throws Exception
+	{
+		StringWriter writer = new StringWriter();
+		JsonEncoder.encode(createDiagram(), writer);
+		VersionedDiagram result = JsonStreamDecoder.decode(new StringReader(writer.toString()));
+		assertEquals(JetUML.VERSION, result.version());
+		assertFalse(result.wasMigrated());
+		assertDecoded(result.diagram());
+	}
+
+	@Test
+	public void testDecodeMembersInAnyOrder() throws Exception
+	{
+		StringWriter writer = new StringWriter();
+		JsonEncoder.encode(createDiagram(), writer);
+		String encoding = writer.toString();
+		int nodes = encoding.indexOf("\"nodes\"");
+		// Moves the version and diagram type to the end, as in files saved by earlier versions
+		String reordered = "{" + encoding.substring(nodes, encoding.length() - 1) + "," +
+				encoding.substring(1, nodes - 1) + "}";
+		VersionedDiagram result = JsonStreamDecoder.decode(new StringReader(reordered));
+		assertEquals(JetUML.VERSION, result.version());
+		assertFalse(result.wasMigrated());
+		assertDecoded(result.diagram());
+	}
+
+	@Test
+	public void testEmptyObject()
+	{
+		assertThrows(DeserializationException.class, () -> JsonStreamDecoder.decode(new StringReader("{}")));
+	}
+
+	@Test
+	public void testMissingEdges()
+	{
+		String encoding = "{\"version\":\"" + JetUML.VERSION + "\",\"diagram\":\"ClassDiagram\",\"nodes\":[]}";
+		assertThrows(DeserializationException.class, () -> JsonStreamDecoder.decode(new StringReader(encoding)));
+	}
+
+	@Test
+	public void testMalformed()
+	{
+		String encoding = "{\"version\":\"" + JetUML.VERSION + "\",\"diagram\":\"ClassDiagram\",\"nodes\":[{]}";
+		assertThrows(DeserializationException.class, () -> JsonStreamDecoder.decode(new StringReader(encoding)));
+	}
+}
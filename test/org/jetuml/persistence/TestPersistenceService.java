@@ -77,6 +77,23 @@ public class TestPersistenceService
 							"testPersistenceService.object.jet",
 							"testPersistenceService.usecase.jet"})
 	public void test( String pFileName ) throws Exception
+	{
+		checkRoundTrip(pFileName, false);
+	}
+	
+	@ParameterizedTest
+	@ValueSource(strings = {"testPersistenceService.class.jet",
+							"testPersistenceService2.class.jet",
+							"testPersistenceService.sequence.jet",
+							"testPersistenceService.state.jet",
+							"testPersistenceService.object.jet",
+							"testPersistenceService.usecase.jet"})
+	public void testBinary( String pFileName ) throws Exception
+	{
+		checkRoundTrip(pFileName, true);
+	}
+	
+	private static void checkRoundTrip( String pFileName, boolean pBinary ) throws Exception
 	{
 		Diagram diagram = PersistenceService.read(PATH_TEST_FILES.resolve(pFileName).toFile()).diagram();
 		DiagramRenderer renderer = DiagramType.newRendererInstanceFor(diagram);
@@ -90,7 +107,15 @@ public class TestPersistenceService
 		
 		// Save the diagram in a new file, and re-load it
 		File temporaryFile = PATH_TEMPORARY_FILE.toFile();
-		PersistenceService.save(diagram, temporaryFile);
+		if( pBinary )
+		{
+			PersistenceService.saveBinary(diagram, temporaryFile);
+		}
+		else
+		{
+			PersistenceService.save(diagram, temporaryFile);
+		}
+		assertEquals(pBinary, PersistenceService.isBinary(temporaryFile));
 		diagram = PersistenceService.read(temporaryFile).diagram();
 		DiagramRenderer renderer2 = DiagramType.newRendererInstanceFor(diagram);
 		renderer2.getBounds(); // Triggers a layout pass
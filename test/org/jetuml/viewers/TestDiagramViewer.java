@@ -20,23 +20,68 @@
  *******************************************************************************/
 package org.jetuml.viewers;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jetuml.JavaFXLoader;
 import org.jetuml.diagram.Diagram;
 import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.Edge;
+import org.jetuml.diagram.Node;
+import org.jetuml.diagram.PropertyName;
+import org.jetuml.diagram.edges.DependencyEdge;
 import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.diagram.nodes.FieldNode;
+import org.jetuml.diagram.nodes.ObjectNode;
 import org.jetuml.diagram.nodes.PackageNode;
 import org.jetuml.geom.Point;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.CanvasSurface;
 import org.jetuml.rendering.ClassDiagramRenderer;
 import org.jetuml.rendering.DiagramRenderer;
+import org.jetuml.rendering.SvgSurface;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import javafx.scene.canvas.Canvas;
+
 public class TestDiagramViewer
 {
 	private Diagram aDiagram = new Diagram(DiagramType.CLASS);
 	private DiagramRenderer aRenderer = new ClassDiagramRenderer(aDiagram);
 	
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+	
+	private void draw()
+	{
+		aRenderer.draw(new CanvasSurface(new Canvas(1000, 1000).getGraphicsContext2D()));
+	}
+	
+	private static String drawSvg(DiagramRenderer pRenderer)
+	{
+		StringBuilder output = new StringBuilder();
+		pRenderer.draw(new SvgSurface(output, 1000, 1000));
+		return output.toString();
+	}
+	
+	/*
+	 * Checks that drawing with pRenderer, which can replay display lists, 
+	 * produces the same drawing as a renderer that never drew the diagram.
+	 */
+	private static void assertDrawsLikeNewRenderer(DiagramRenderer pRenderer)
+	{
+		assertEquals(drawSvg(DiagramType.newRendererInstanceFor(pRenderer.diagram())), drawSvg(pRenderer));
+	}
+	
 	@Test
 	void testNodeAt_NoneShallow()
 	{
@@ -100,4 +145,223 @@ public class TestDiagramViewer
 		aDiagram.addRootNode(p1);
 		assertSame(p2, aRenderer.nodeAt(new Point(15,15)).get());
 	}
+	
+	@Test
+	void testNodeAt_AfterDrawTopmost()
+	{
+		ClassNode node1 = new ClassNode();
+		ClassNode node2 = new ClassNode();
+		node2.translate(50, 30);
+		ClassNode node3 = new ClassNode();
+		node3.translate(500, 500);
+		aDiagram.addRootNode(node1);
+		aDiagram.addRootNode(node2);
+		aDiagram.addRootNode(node3);
+		draw();
+		assertSame(node2, aRenderer.nodeAt(new Point(60,40)).get());
+		assertSame(node1, aRenderer.nodeAt(new Point(10,10)).get());
+		assertSame(node3, aRenderer.nodeAt(new Point(510,510)).get());
+		assertTrue(aRenderer.nodeAt(new Point(300,300)).isEmpty());
+	}
+	
+	@Test
+	void testNodeAt_AfterDrawThenMove()
+	{
+		ClassNode node = new ClassNode();
+		aDiagram.addRootNode(node);
+		draw();
+		node.translate(300, 300);
+		assertTrue(aRenderer.nodeAt(new Point(10,10)).isEmpty());
+		assertSame(node, aRenderer.nodeAt(new Point(310,310)).get());
+	}
+	
+	@Test
+	void testNodeAt_AfterDrawThenAdd()
+	{
+		ClassNode node1 = new ClassNode();
+		aDiagram.addRootNode(node1);
+		draw();
+		ClassNode node2 = new ClassNode();
+		node2.translate(300, 300);
+		aDiagram.addRootNode(node2);
+		assertSame(node2, aRenderer.nodeAt(new Point(310,310)).get());
+	}
+	
+	@Test
+	void testGetBounds_AfterDrawThenSetProperty()
+	{
+		ClassNode node = new ClassNode();
+		aDiagram.addRootNode(node);
+		draw();
+		long revision = aDiagram.revision();
+		Rectangle bounds = aRenderer.getBounds(node);
+		node.properties().get(PropertyName.NAME).set("AVeryLongClassNameThatWidensTheNode");
+		assertTrue(aDiagram.revision() > revision);
+		assertTrue(aRenderer.getBounds(node).getWidth() > bounds.getWidth());
+		assertEquals(DiagramType.newRendererInstanceFor(aDiagram).getBounds(node), aRenderer.getBounds(node));
+	}
+	
+	@Test
+	void testEdgeAt_AfterDraw()
+	{
+		ClassNode node1 = new ClassNode();
+		ClassNode node2 = new ClassNode();
+		node2.translate(400, 0);
+		aDiagram.addRootNode(node1);
+		aDiagram.addRootNode(node2);
+		DependencyEdge edge = new DependencyEdge();
+		edge.connect(node1, node2, aDiagram);
+		aDiagram.addEdge(edge);
+		draw();
+		Rectangle bounds = aRenderer.getBounds(edge);
+		assertSame(edge, aRenderer.edgeAt(bounds.getCenter()).get());
+		assertTrue(aRenderer.edgeAt(new Point(250, 500)).isEmpty());
+	}
+	
+	@Test
+	void testRootNodesIntersecting()
+	{
+		ClassNode node1 = new ClassNode();
+		ClassNode node2 = new ClassNode();
+		node2.translate(500, 500);
+		aDiagram.addRootNode(node1);
+		aDiagram.addRootNode(node2);
+		assertEquals(List.of(node1, node2), aRenderer.rootNodesIntersecting(new Rectangle(0, 0, 50, 50)));
+		draw();
+		assertEquals(List.of(node1), aRenderer.rootNodesIntersecting(new Rectangle(0, 0, 50, 50)));
+		assertEquals(List.of(node1, node2), aRenderer.rootNodesIntersecting(new Rectangle(0, 0, 600, 600)));
+		assertTrue(aRenderer.rootNodesIntersecting(new Rectangle(200, 200, 50, 50)).isEmpty());
+	}
+	
+	@Test
+	void testDrawVisibleArea_ComputesGeometryOfHiddenElements()
+	{
+		ClassNode node1 = new ClassNode();
+		ClassNode node2 = new ClassNode();
+		node2.translate(500, 500);
+		aDiagram.addRootNode(node1);
+		aDiagram.addRootNode(node2);
+		DependencyEdge edge = new DependencyEdge();
+		edge.connect(node1, node2, aDiagram);
+		aDiagram.addEdge(edge);
+		aRenderer.draw(new CanvasSurface(new Canvas(1000, 1000).getGraphicsContext2D()), new Rectangle(0, 0, 50, 50));
+		assertSame(node2, aRenderer.nodeAt(new Point(510, 510)).get());
+		assertSame(edge, aRenderer.edgeAt(aRenderer.getBounds(edge).getCenter()).get());
+		Rectangle bounds = aRenderer.getBounds();
+		draw();
+		assertEquals(bounds, aRenderer.getBounds());
+	}
+	
+	/*
+	 * The node bounds are precomputed in a pool of several threads so that they 
+	 * are computed in parallel even on a single core, and compared with the 
+	 * bounds computed one after the other by another renderer.
+	 */
+	@Test
+	void testPrecomputeNodeBounds_SameAsSerial() throws Exception
+	{
+		List<Node> nodes = new ArrayList<>();
+		PackageNode packageNode = new PackageNode();
+		aDiagram.addRootNode(packageNode);
+		nodes.add(packageNode);
+		for( int i = 0; i < 400; i++ )
+		{
+			ClassNode node = new ClassNode();
+			node.setName("Class" + "x".repeat(i % 17) + i);
+			node.moveTo(new Point(i % 20 * 250, i / 20 * 200));
+			if( i < 5 )
+			{
+				packageNode.addChild(node);
+			}
+			else
+			{
+				aDiagram.addRootNode(node);
+			}
+			nodes.add(node);
+			if( i > 0 )
+			{
+				DependencyEdge edge = new DependencyEdge();
+				edge.connect(nodes.get(i), node, aDiagram);
+				aDiagram.addEdge(edge);
+			}
+		}
+		DiagramRenderer serial = new ClassDiagramRenderer(aDiagram);
+		List<Rectangle> serialBounds = new ArrayList<>();
+		nodes.forEach(node -> serialBounds.add(serial.getBounds(node)));
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			pool.submit(aRenderer::precomputeNodeBounds).get();
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		for( int i = 0; i < nodes.size(); i++ )
+		{
+			assertEquals(serialBounds.get(i), aRenderer.getBounds(nodes.get(i)));
+		}
+		assertEquals(serial.getBounds(), aRenderer.getBounds());
+		for( Edge edge : aDiagram.edges() )
+		{
+			assertEquals(serial.getBounds(edge), aRenderer.getBounds(edge));
+		}
+	}
+	
+	@Test
+	void testDraw_DisplayListsReplayedOrRecorded()
+	{
+		ClassNode node1 = new ClassNode();
+		ClassNode node2 = new ClassNode();
+		ClassNode child = new ClassNode();
+		PackageNode packageNode = new PackageNode();
+		node2.moveTo(new Point(300, 0));
+		packageNode.moveTo(new Point(0, 300));
+		packageNode.addChild(child);
+		aDiagram.addRootNode(node1);
+		aDiagram.addRootNode(node2);
+		aDiagram.addRootNode(packageNode);
+		DependencyEdge edge1 = new DependencyEdge();
+		edge1.connect(node1, node2, aDiagram);
+		aDiagram.addEdge(edge1);
+		DependencyEdge edge2 = new DependencyEdge();
+		edge2.connect(node1, child, aDiagram);
+		aDiagram.addEdge(edge2);
+		
+		String first = drawSvg(aRenderer);
+		assertEquals(first, drawSvg(aRenderer));
+		assertDrawsLikeNewRenderer(aRenderer);
+		
+		node1.setName("Renamed");
+		assertDrawsLikeNewRenderer(aRenderer);
+		node2.translate(0, 150);
+		assertDrawsLikeNewRenderer(aRenderer);
+		child.setMethods("foo()");
+		assertDrawsLikeNewRenderer(aRenderer);
+		edge1.setMiddleLabel("uses");
+		assertDrawsLikeNewRenderer(aRenderer);
+		aDiagram.removeEdge(edge2);
+		assertDrawsLikeNewRenderer(aRenderer);
+	}
+	
+	@Test
+	void testDraw_DisplayListsOfChildrenFollowSiblings()
+	{
+		Diagram diagram = new Diagram(DiagramType.OBJECT);
+		DiagramRenderer renderer = DiagramType.newRendererInstanceFor(diagram);
+		ObjectNode object = new ObjectNode();
+		FieldNode field1 = new FieldNode();
+		FieldNode field2 = new FieldNode();
+		object.setName("anObjectWhoseNameIsWiderThanItsFields");
+		field1.setName("a");
+		field2.setName("b");
+		object.addChild(field1);
+		object.addChild(field2);
+		diagram.addRootNode(object);
+		assertDrawsLikeNewRenderer(renderer);
+		
+		field2.setName("bbbbbb");
+		assertDrawsLikeNewRenderer(renderer);
+	}
 }
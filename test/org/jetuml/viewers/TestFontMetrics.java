@@ -65,4 +65,33 @@ public class TestFontMetrics {
 		assertEquals(new Dimension(osDependent(95, 92, 92), osDependent(13, 12, 12)), aMetrics.getDimension("Single-Line-String"));
 		assertEquals(new Dimension(osDependent(31, 30, 30), osDependent(45, 40, 45)), aMetrics.getDimension("Multi\nLine\nString"));
 	}
+	
+	@Test
+	public void testCache()
+	{
+		FontMetrics metrics = new FontMetrics(Font.font("System", DEFAULT_FONT_SIZE));
+		Dimension first = metrics.getDimension("Cached");
+		assertEquals(0, metrics.cacheHits());
+		assertEquals(1, metrics.cacheMisses());
+		assertEquals(first, metrics.getDimension("Cached"));
+		assertEquals(1, metrics.cacheHits());
+		assertEquals(1, metrics.cacheMisses());
+		metrics.getDimension("Other");
+		assertEquals(1, metrics.cacheHits());
+		assertEquals(2, metrics.cacheMisses());
+	}
+	
+	@Test
+	public void testCacheEviction()
+	{
+		FontMetrics metrics = new FontMetrics(Font.font("System", DEFAULT_FONT_SIZE));
+		Dimension first = metrics.getDimension("X");
+		for( int i = 0; i < 2000; i++ )
+		{
+			metrics.getDimension(Integer.toString(i));
+		}
+		assertEquals(2001, metrics.cacheMisses());
+		assertEquals(first, metrics.getDimension("X"));
+		assertEquals(2002, metrics.cacheMisses());
+	}
 }
@@ -75,6 +75,15 @@ public class TestGrid
 		assertEquals(new Point(10,0), Grid.snapped(new Point(5,0)));
 	}
 	
+	@Test
+	void testSnap()
+	{
+		assertEquals(0, Grid.snap(4));
+		assertEquals(10, Grid.snap(5));
+		assertEquals(-10, Grid.snap(-6));
+		assertEquals(120, Grid.snap(123));
+	}
+	
 	@Test
 	void testToMultiple()
 	{
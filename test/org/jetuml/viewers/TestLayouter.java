@@ -309,8 +309,61 @@ public class TestLayouter
 		endNode.moveTo(new Point(150,60));
 	}
 	
+	/*
+	 * Checks that the EdgePaths planned by aRenderer, possibly incrementally, are the same as 
+	 * the ones planned by a renderer laying out the entire diagram for the first time.
+	 */
+	private void assertSameAsFullLayout()
+	{
+		ClassDiagramRenderer renderer = new ClassDiagramRenderer(aDiagram);
+		renderer.layout();
+		for( Edge edge : aDiagram.edges() )
+		{
+			assertEquals(renderer.getStoredEdgePath(edge), aRenderer.getStoredEdgePath(edge));
+		}
+	}
+	
 	///// TESTS /////
 	
+	@Test
+	public void testLayout_Incremental()
+	{
+		setUpTestLayout();
+		Node farStart = new ClassNode();
+		Node farEnd = new ClassNode();
+		aDiagram.addRootNode(farStart);
+		aDiagram.addRootNode(farEnd);
+		Edge farEdge = new AssociationEdge();
+		farEdge.connect(farStart, farEnd, aDiagram);
+		aDiagram.addEdge(farEdge);
+		Edge selfEdge = new AssociationEdge();
+		selfEdge.connect(farEnd, farEnd, aDiagram);
+		aDiagram.addEdge(selfEdge);
+		farStart.moveTo(new Point(800, 500));
+		farEnd.moveTo(new Point(1000, 700));
+		aRenderer.layout();
+		assertSameAsFullLayout();
+		
+		EdgePath farPath = aRenderer.getStoredEdgePath(farEdge).get();
+		aNodeE.translate(0, 40);
+		aRenderer.layout();
+		assertSameAsFullLayout();
+		assertSame(farPath, aRenderer.getStoredEdgePath(farEdge).get());
+		
+		farEnd.translate(-100, 0);
+		aRenderer.layout();
+		assertSameAsFullLayout();
+		
+		// Bring the far nodes next to the other ones
+		farStart.moveTo(new Point(500, 60));
+		aRenderer.layout();
+		assertSameAsFullLayout();
+		
+		((AssociationEdge)aEdgeD).setEndLabel("label");
+		aRenderer.layout();
+		assertSameAsFullLayout();
+	}
+	
 	@Test
 	public void testLayout()
 	{
@@ -2287,9 +2340,9 @@ public class TestLayouter
 	{
 		try 
 		{
-			Method method = ClassDiagramRenderer.class.getDeclaredMethod("layoutSegmentedEdges", EdgePriority.class);
+			Method method = ClassDiagramRenderer.class.getDeclaredMethod("layoutSegmentedEdges", EdgePriority.class, List.class);
 			method.setAccessible(true);
-			method.invoke(aRenderer, pEdgePriority);
+			method.invoke(aRenderer, pEdgePriority, aDiagram.edges());
 		}
 		catch(ReflectiveOperationException e)
 		{
@@ -2330,9 +2383,9 @@ public class TestLayouter
 	{
 		try 
 		{
-			Method method = ClassDiagramRenderer.class.getDeclaredMethod("layoutDependencyEdges");
+			Method method = ClassDiagramRenderer.class.getDeclaredMethod("layoutDependencyEdges", List.class);
 			method.setAccessible(true);
-			method.invoke(aRenderer);
+			method.invoke(aRenderer, aDiagram.edges());
 		}
 		catch(ReflectiveOperationException e)
 		{
@@ -2344,9 +2397,9 @@ public class TestLayouter
 	{
 		try 
 		{
-			Method method = ClassDiagramRenderer.class.getDeclaredMethod("layoutSelfEdges");
+			Method method = ClassDiagramRenderer.class.getDeclaredMethod("layoutSelfEdges", List.class);
 			method.setAccessible(true);
-			method.invoke(aRenderer);
+			method.invoke(aRenderer, aDiagram.edges());
 		}
 		catch(ReflectiveOperationException e)
 		{
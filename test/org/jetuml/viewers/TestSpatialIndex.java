@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *     
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.viewers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.jetuml.geom.Point;
+import org.jetuml.geom.Rectangle;
+import org.jetuml.rendering.SpatialIndex;
+import org.junit.jupiter.api.Test;
+
+public class TestSpatialIndex
+{
+	private final SpatialIndex<String> aIndex = new SpatialIndex<>();
+	
+	@Test
+	void testEmpty()
+	{
+		assertEquals(0, aIndex.size());
+		assertTrue(aIndex.elementsAt(new Point(0,0)).isEmpty());
+		assertTrue(aIndex.elementsIntersecting(new Rectangle(0, 0, 1000, 1000)).isEmpty());
+	}
+	
+	@Test
+	void testElementsAt_Boundaries()
+	{
+		aIndex.add("A", new Rectangle(10, 10, 20, 20));
+		assertEquals(List.of("A"), aIndex.elementsAt(new Point(10,10)));
+		assertEquals(List.of("A"), aIndex.elementsAt(new Point(30,30)));
+		assertTrue(aIndex.elementsAt(new Point(9,10)).isEmpty());
+		assertTrue(aIndex.elementsAt(new Point(31,30)).isEmpty());
+	}
+	
+	@Test
+	void testElementsAt_InsertionOrder()
+	{
+		aIndex.add("A", new Rectangle(0, 0, 300, 300));
+		aIndex.add("B", new Rectangle(100, 100, 50, 50));
+		aIndex.add("C", new Rectangle(120, 120, 300, 300));
+		assertEquals(List.of("A", "B", "C"), aIndex.elementsAt(new Point(125,125)));
+		assertEquals(List.of("A", "C"), aIndex.elementsAt(new Point(250,250)));
+		assertEquals(List.of("C"), aIndex.elementsAt(new Point(400,400)));
+	}
+	
+	@Test
+	void testElementsAt_NegativeCoordinates()
+	{
+		aIndex.add("A", new Rectangle(-300, -200, 100, 100));
+		assertEquals(List.of("A"), aIndex.elementsAt(new Point(-250,-150)));
+		assertTrue(aIndex.elementsAt(new Point(-150,-150)).isEmpty());
+	}
+	
+	@Test
+	void testElementsIntersecting()
+	{
+		aIndex.add("A", new Rectangle(500, 500, 10, 10));
+		aIndex.add("B", new Rectangle(0, 0, 1000, 1000));
+		aIndex.add("C", new Rectangle(0, 0, 10, 10));
+		assertEquals(List.of("A", "B"), aIndex.elementsIntersecting(new Rectangle(400, 400, 200, 200)));
+		assertEquals(List.of("A", "B", "C"), aIndex.elementsIntersecting(new Rectangle(10, 10, 490, 490)));
+		assertTrue(aIndex.elementsIntersecting(new Rectangle(1001, 0, 10, 10)).isEmpty());
+	}
+	
+	@Test
+	void testClear()
+	{
+		aIndex.add("A", new Rectangle(0, 0, 10, 10));
+		aIndex.clear();
+		assertEquals(0, aIndex.size());
+		assertTrue(aIndex.elementsAt(new Point(5,5)).isEmpty());
+		aIndex.add("A", new Rectangle(0, 0, 10, 10));
+		assertEquals(1, aIndex.size());
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * JetUML - A desktop application for fast UML diagramming.
+ *
+ * Copyright (C) 2022 by McGill University.
+ *
+ * See: https://github.com/prmr/JetUML
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ *******************************************************************************/
+package org.jetuml.viewers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.jetuml.JavaFXLoader;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
+import org.jetuml.diagram.nodes.ClassNode;
+import org.jetuml.rendering.LineStyle;
+import org.jetuml.rendering.SvgSurface;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javafx.geometry.VPos;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcType;
+import javafx.scene.text.TextAlignment;
+
+public class TestSvgSurface
+{
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"50\" viewBox=\"0 0 100 50\">\n";
+
+	private StringBuilder aOutput;
+	private SvgSurface aSurface;
+
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
+
+	@BeforeEach
+	public void setup()
+	{
+		aOutput = new StringBuilder();
+		aSurface = new SvgSurface(aOutput, 100, 50);
+	}
+
+	private String body()
+	{
+		return aOutput.substring(HEADER.length());
+	}
+
+	@Test
+	public void testHeaderAndFinish()
+	{
+		assertEquals(HEADER, aOutput.toString());
+		aSurface.finish();
+		assertEquals("</svg>\n", body());
+	}
+
+	@Test
+	public void testFillAndStrokeRect()
+	{
+		aSurface.setFill(Color.WHITE);
+		aSurface.fillRect(1.5, 2, 10, 20);
+		aSurface.setLineWidth(0.6);
+		aSurface.strokeRect(1.5, 2, 10, 20);
+		assertEquals("<rect x=\"1.5\" y=\"2\" width=\"10\" height=\"20\" fill=\"#ffffff\" stroke=\"none\"/>\n" +
+				"<rect x=\"1.5\" y=\"2\" width=\"10\" height=\"20\" fill=\"none\" stroke=\"#000000\" stroke-width=\"0.6\"/>\n", 
+				body());
+	}
+
+	@Test
+	public void testTransparentColor()
+	{
+		aSurface.setFill(Color.rgb(173, 193, 214, 0.75));
+		aSurface.fillRoundRect(0, 0, 10, 10, 20, 20);
+		assertEquals("<rect x=\"0\" y=\"0\" width=\"10\" height=\"10\" rx=\"10\" ry=\"10\" fill=\"#adc1d6\" " +
+				"fill-opacity=\"0.75\" stroke=\"none\"/>\n", body());
+	}
+
+	@Test
+	public void testTranslateAndScale()
+	{
+		aSurface.translate(10, 20);
+		aSurface.scale(2, 2);
+		aSurface.translate(1, 1);
+		aSurface.strokeLine(0, 0, 5, 5);
+		assertEquals("<line x1=\"12\" y1=\"22\" x2=\"22\" y2=\"32\" fill=\"none\" stroke=\"#000000\" stroke-width=\"2\"/>\n", 
+				body());
+	}
+
+	@Test
+	public void testLineDashes()
+	{
+		aSurface.setLineDashes(LineStyle.DOTTED.getLineDashes());
+		assertEquals(LineStyle.DOTTED.getLineDashes().length, aSurface.getLineDashes().length);
+		aSurface.strokeLine(0, 0, 5, 5);
+		assertTrue(body().contains(" stroke-dasharray=\""));
+		aSurface.setLineDashes(LineStyle.SOLID.getLineDashes());
+		aOutput.setLength(0);
+		aSurface.strokeLine(0, 0, 5, 5);
+		assertTrue(!aOutput.toString().contains("stroke-dasharray"));
+	}
+
+	@Test
+	public void testPath()
+	{
+		aSurface.beginPath();
+		aSurface.moveTo(0, 0);
+		aSurface.lineTo(10, 0);
+		aSurface.quadraticCurveTo(10, 10, 0, 10);
+		aSurface.stroke();
+		assertEquals("<path d=\"M0 0L10 0Q10 10 0 10\" fill=\"none\" stroke=\"#000000\" stroke-width=\"1\"/>\n", body());
+	}
+
+	@Test
+	public void testArc()
+	{
+		aSurface.strokeArc(0, 0, 20, 20, 0, 90, ArcType.OPEN);
+		assertEquals("<path d=\"M20 10A10 10 0 0 0 10 0\" fill=\"none\" stroke=\"#000000\" stroke-width=\"1\"/>\n", body());
+	}
+
+	@Test
+	public void testShadowFilterWrittenOnce()
+	{
+		DropShadow shadow = new DropShadow(3, 3, 3, Color.LIGHTGRAY);
+		aSurface.setEffect(shadow);
+		aSurface.fillOval(0, 0, 10, 10);
+		aSurface.setEffect(null);
+		aSurface.strokeOval(0, 0, 10, 10);
+		aSurface.setEffect(shadow);
+		aSurface.fillOval(0, 0, 10, 10);
+		String body = body();
+		assertEquals(body.indexOf("<filter"), body.lastIndexOf("<filter"));
+		assertEquals(2, body.split("filter=\"url\\(#shadow0\\)\"").length - 1);
+	}
+
+	@Test
+	public void testTextIsEscaped()
+	{
+		aSurface.setTextAlign(TextAlignment.CENTER);
+		aSurface.setTextBaseline(VPos.TOP);
+		aSurface.fillText("List<A & B>", 50, 0);
+		String body = body();
+		assertTrue(body.contains(">List&lt;A &amp; B&gt;</tspan>"));
+		assertTrue(body.contains(" text-anchor=\"middle\""));
+		assertTrue(body.contains(" dominant-baseline=\"text-before-edge\""));
+	}
+
+	@Test
+	public void testMultiLineText()
+	{
+		aSurface.fillText("a\nb", 0, 0);
+		assertEquals(2, body().split("<tspan").length - 1);
+	}
+
+	@Test
+	public void testDrawDiagram()
+	{
+		Diagram diagram = new Diagram(DiagramType.CLASS);
+		ClassNode node = new ClassNode();
+		node.setName("Name");
+		diagram.addRootNode(node);
+		DiagramType.newRendererInstanceFor(diagram).draw(aSurface);
+		aSurface.finish();
+		String body = body();
+		assertTrue(body.contains(">Name</tspan>"));
+		assertTrue(body.endsWith("</svg>\n"));
+	}
+}
@@ -20,10 +20,12 @@
  *******************************************************************************/
 package org.jetuml.viewers.edges;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.jetuml.diagram.Diagram;
@@ -34,6 +36,7 @@ import org.jetuml.diagram.edges.DependencyEdge;
 import org.jetuml.diagram.edges.GeneralizationEdge;
 import org.jetuml.diagram.nodes.ClassNode;
 import org.jetuml.geom.EdgePath;
+import org.jetuml.geom.PackedPoint;
 import org.jetuml.geom.Point;
 import org.jetuml.rendering.edges.EdgeStorage;
 import org.junit.jupiter.api.BeforeEach;
@@ -135,6 +138,47 @@ public class TestEdgeStorage
 		assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(200,200)));
 		assertFalse(aEdgeStorage.connectionPointIsAvailable(new Point(0,0)));
 		assertFalse(aEdgeStorage.connectionPointIsAvailable(new Point(100,100)));
+		assertFalse(aEdgeStorage.connectionPointIsAvailable(PackedPoint.pack(300, 350)));
+		assertTrue(aEdgeStorage.connectionPointIsAvailable(PackedPoint.pack(300, 351)));
+	}
+	
+	@Test
+	public void testConnectionPointIsAvailableAfterUpdate()
+	{
+		aEdgeStorage.store(edge1, path1);
+		aEdgeStorage.store(edge3, path3);
+		aEdgeStorage.store(edge1, path2);
+		assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(0,0)));
+		assertFalse(aEdgeStorage.connectionPointIsAvailable(new Point(100,100)));
+		assertFalse(aEdgeStorage.connectionPointIsAvailable(new Point(300,300)));
+		aEdgeStorage.remove(edge1);
+		assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(300,300)));
+		aEdgeStorage.remove(edge3);
+		assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(100,100)));
+		aEdgeStorage.store(edge3, path3);
+		aEdgeStorage.clearStorage();
+		assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(0,200)));
+	}
+	
+	@Test
+	public void testConnectionPointIsAvailableManyEdges()
+	{
+		List<Edge> edges = new ArrayList<>();
+		for( int i = 0; i < 500; i++ )
+		{
+			Edge edge = new DependencyEdge();
+			edges.add(edge);
+			aEdgeStorage.store(edge, new EdgePath(new Point(i, -i), new Point(-i, i)));
+		}
+		for( int i = 0; i < 500; i++ )
+		{
+			assertFalse(aEdgeStorage.connectionPointIsAvailable(new Point(i, -i)));
+			assertFalse(aEdgeStorage.connectionPointIsAvailable(new Point(-i, i)));
+			assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(i, i + 1)));
+		}
+		edges.forEach(aEdgeStorage::remove);
+		assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(0, 0)));
+		assertTrue(aEdgeStorage.connectionPointIsAvailable(new Point(499, -499)));
 	}
 	
 	@Test
@@ -153,6 +197,34 @@ public class TestEdgeStorage
 		assertTrue(sameNodes.contains(edge2));
 	}
 	
+	@Test
+	public void testEdgesWithSameNodes_SelfEdgeOnEndNode()
+	{
+		edge1.connect(nodeA, nodeB, aDiagram);
+		edge2.connect(nodeB, nodeB, aDiagram);
+		edge3.connect(nodeA, nodeC, aDiagram);
+		aEdgeStorage.store(edge1, path1);
+		aEdgeStorage.store(edge2, path2);
+		aEdgeStorage.store(edge3, path3);
+		assertEquals(List.of(edge2), aEdgeStorage.getEdgesWithSameNodes(edge1));
+	}
+	
+	@Test
+	public void testEdgesConnectedTo_AfterRemove()
+	{
+		edge1.connect(nodeA, nodeB, aDiagram);
+		edge2.connect(nodeA, nodeA, aDiagram);
+		aEdgeStorage.store(edge1, path1);
+		aEdgeStorage.store(edge2, path2);
+		aEdgeStorage.store(edge2, path3);
+		assertEquals(2, aEdgeStorage.edgesConnectedTo(nodeA).size());
+		aEdgeStorage.remove(edge2);
+		assertEquals(List.of(edge1), aEdgeStorage.edgesConnectedTo(nodeA));
+		aEdgeStorage.remove(edge1);
+		assertTrue(aEdgeStorage.edgesConnectedTo(nodeA).isEmpty());
+		assertTrue(aEdgeStorage.edgesConnectedTo(nodeB).isEmpty());
+	}
+	
 	@Test
 	public void testClearStorage()
 	{
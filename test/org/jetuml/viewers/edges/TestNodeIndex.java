@@ -30,6 +30,7 @@ import org.jetuml.diagram.DiagramType;
 import org.jetuml.diagram.Node;
 import org.jetuml.diagram.nodes.ClassNode;
 import org.jetuml.geom.Line;
+import org.jetuml.geom.PackedPoint;
 import org.jetuml.geom.Point;
 import org.jetuml.geom.Side;
 import org.jetuml.rendering.edges.NodeIndex;
@@ -88,6 +89,22 @@ public class TestNodeIndex
 		assertEquals(new Point(100, 40), NodeIndex.PLUS_ONE.toPoint(nodeFace, Side.RIGHT));
 	}
 	
+	@Test
+	public void testToPackedPoint()
+	{
+		Line horizontalFace = new Line(new Point(13, 27), new Point(157, 27));
+		Line verticalFace = new Line(new Point(157, 27), new Point(157, 111));
+		for( NodeIndex index : NodeIndex.values() )
+		{
+			assertEquals(index.toPoint(horizontalFace, Side.TOP), 
+					PackedPoint.toPoint(index.toPackedPoint(horizontalFace, Side.TOP)));
+			assertEquals(index.toPoint(verticalFace, Side.RIGHT), 
+					PackedPoint.toPoint(index.toPackedPoint(verticalFace, Side.RIGHT)));
+		}
+		assertEquals(PackedPoint.pack(50, 0), 
+				NodeIndex.ZERO.toPackedPoint(new Line(new Point(0, 0), new Point(100, 0)), Side.TOP));
+	}
+	
 	@Test
 	public void testSpaceBetweenConnectionPoints_north()
 	{
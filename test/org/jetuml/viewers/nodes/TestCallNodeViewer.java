@@ -122,4 +122,43 @@ public class TestCallNodeViewer
 		assertEquals(new Rectangle(32, 80, 16, 135), aRenderer.getBounds(aDefaultCallNode1));
 		assertEquals(new Rectangle(32, 165, 16, 30), aRenderer.getBounds(aDefaultCallNode2));
 	}
+	
+	@Test
+	public void testLayoutLongCallSequence()
+	{
+		final int numberOfCalls = 300;
+		aImplicitParameterNode1.addChild(aDefaultCallNode1);
+		aDefaultCallNode1.attach(aDiagram);
+		aImplicitParameterNode2.translate(200, 0);
+		aDiagram.addRootNode(aImplicitParameterNode1);
+		aDiagram.addRootNode(aImplicitParameterNode2);
+		CallNode[] callees = new CallNode[numberOfCalls];
+		for( int i = 0; i < numberOfCalls; i++ )
+		{
+			callees[i] = new CallNode();
+			aImplicitParameterNode2.addChild(callees[i]);
+			callees[i].attach(aDiagram);
+			CallEdge edge = new CallEdge();
+			edge.connect(aDefaultCallNode1, callees[i], aDiagram);
+			aDiagram.addEdge(edge);
+		}
+		
+		aRenderer.layout();
+		for( int i = 0; i < numberOfCalls; i++ )
+		{
+			assertEquals(new Rectangle(232, 100 + 50 * i, 16, 30), aRenderer.getBounds(callees[i]));
+		}
+		assertEquals(new Rectangle(32, 80, 16, 50 * numberOfCalls + 20), aRenderer.getBounds(aDefaultCallNode1));
+		assertEquals(50 * numberOfCalls + 100, aRenderer.getBounds(aImplicitParameterNode2).getMaxY());
+		
+		// The stored geometry is recomputed once the diagram changes
+		aImplicitParameterNode2.addChild(aCallNode1);
+		aCallNode1.attach(aDiagram);
+		aCallEdge1.connect(aDefaultCallNode1, aCallNode1, aDiagram);
+		aDiagram.addEdge(aCallEdge1);
+		aRenderer.layout();
+		assertEquals(new Rectangle(232, 100 + 50 * numberOfCalls, 16, 30), aRenderer.getBounds(aCallNode1));
+		assertEquals(new Rectangle(32, 80, 16, 50 * (numberOfCalls + 1) + 20), aRenderer.getBounds(aDefaultCallNode1));
+		assertEquals(50 * (numberOfCalls + 1) + 100, aRenderer.getBounds(aImplicitParameterNode2).getMaxY());
+	}
 }
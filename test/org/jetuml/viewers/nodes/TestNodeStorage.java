@@ -25,10 +25,16 @@ import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.function.Function;
 
+import org.jetuml.JavaFXLoader;
+import org.jetuml.diagram.Diagram;
+import org.jetuml.diagram.DiagramType;
 import org.jetuml.diagram.Node;
+import org.jetuml.diagram.nodes.ClassNode;
 import org.jetuml.diagram.nodes.NoteNode;
+import org.jetuml.diagram.nodes.PackageNode;
 import org.jetuml.geom.Rectangle;
 import org.jetuml.rendering.nodes.NodeStorage;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -38,11 +44,19 @@ import org.junit.jupiter.api.Test;
 public class TestNodeStorage 
 {	
 	private NodeStorage aNodeStorage;
+	private Diagram aDiagram;
+	
+	@BeforeAll
+	public static void setupClass()
+	{
+		JavaFXLoader.load();
+	}
 
 	@BeforeEach
 	public void setup()
 	{
 		aNodeStorage = new NodeStorage();
+		aDiagram = new Diagram(DiagramType.CLASS);
 	}
 
 	@Test
@@ -86,6 +100,57 @@ public class TestNodeStorage
 		assertNotSame(boundsBeforeDeactivation, boundsAfterDeactivation);
 	}
 
+	@Test
+	public void testGetBoundsReturnsSameBoundsForDiagramNodeWhenNodeStorageIsNotActive()
+	{
+		NodeStorage storage = new NodeStorage(aDiagram);
+		Node node = new NoteNode();
+		aDiagram.addRootNode(node);
+		Rectangle boundsA = storage.getBounds(node, createDefaultBoundCalculator());
+		Rectangle boundsB = storage.getBounds(node, createDefaultBoundCalculator());
+		assertSame(boundsA, boundsB);
+		storage.activate();
+		storage.deactivate();
+		assertSame(boundsA, storage.getBounds(node, createDefaultBoundCalculator()));
+	}
+	
+	@Test
+	public void testGetBoundsReturnsDifferentBoundsForOtherNodesWhenNodeStorageIsNotActive()
+	{
+		NodeStorage storage = new NodeStorage(aDiagram);
+		Node node = new NoteNode();
+		new Diagram(DiagramType.CLASS).addRootNode(node);
+		Rectangle boundsA = storage.getBounds(node, createDefaultBoundCalculator());
+		Rectangle boundsB = storage.getBounds(node, createDefaultBoundCalculator());
+		assertNotSame(boundsA, boundsB);
+	}
+	
+	@Test
+	public void testGetBoundsReturnsDifferentBoundsAfterNodeIsMoved()
+	{
+		NodeStorage storage = new NodeStorage(aDiagram);
+		Node node = new NoteNode();
+		aDiagram.addRootNode(node);
+		Rectangle boundsA = storage.getBounds(node, createDefaultBoundCalculator());
+		node.translate(10, 10);
+		Rectangle boundsB = storage.getBounds(node, createDefaultBoundCalculator());
+		assertNotSame(boundsA, boundsB);
+	}
+	
+	@Test
+	public void testGetBoundsReturnsDifferentBoundsAfterChildIsModified()
+	{
+		NodeStorage storage = new NodeStorage(aDiagram);
+		PackageNode node = new PackageNode();
+		ClassNode child = new ClassNode();
+		aDiagram.addRootNode(node);
+		node.addChild(child);
+		Rectangle boundsA = storage.getBounds(child, createDefaultBoundCalculator());
+		assertSame(boundsA, storage.getBounds(child, createDefaultBoundCalculator()));
+		child.setName("Name");
+		assertNotSame(boundsA, storage.getBounds(child, createDefaultBoundCalculator()));
+	}
+
 	private static Function<Node, Rectangle> createDefaultBoundCalculator()
 	{
 		return new Function<>()